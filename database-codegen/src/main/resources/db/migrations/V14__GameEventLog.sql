@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+-- append-only log of the actions of running games, and the latest snapshot of their state
+-- both are removed once a game is over and its stats have been recorded
+
+CREATE TABLE IF NOT EXISTS public.game_event
+(
+    channel_id      bigint  NOT NULL,
+    game_start      bigint  NOT NULL,
+    sequence        integer NOT NULL,
+    action_type     text    NOT NULL,
+    actor           bigint  NOT NULL,
+    target          bigint  NOT NULL,
+    cycle           integer NOT NULL,
+    phase           text    NOT NULL,
+    submitted       bigint  NOT NULL,
+    happened        bigint  NOT NULL,
+    additional_info text,
+    CONSTRAINT game_event_pkey PRIMARY KEY (channel_id, game_start, sequence)
+);
+
+CREATE TABLE IF NOT EXISTS public.game_snapshot
+(
+    channel_id bigint  NOT NULL,
+    game_start bigint  NOT NULL,
+    sequence   integer NOT NULL,
+    created    bigint  NOT NULL,
+    state      jsonb   NOT NULL,
+    CONSTRAINT game_snapshot_pkey PRIMARY KEY (channel_id)
+);
@@ -0,0 +1,24 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+-- votes and other actions that may still be taken back are logged too, but are not part of the game's stats (yet)
+ALTER TABLE game_event
+    ADD COLUMN recorded BOOLEAN NOT NULL DEFAULT true;
+
+-- snapshots taken during a shutdown, for resuming the game once the bot is back
+ALTER TABLE game_snapshot
+    ADD COLUMN hibernated BOOLEAN NOT NULL DEFAULT false;
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+-- the stats tables were created with primary keys only, so everything looking up the stats of a guild, a user or a
+-- single game had to read through all of them
+-- some indexes carry the columns the lookups read as trailing key columns, so that those can be answered from the
+-- index alone (INCLUDE would do the same, but the jOOQ code generation can't read such indexes)
+
+-- guild stats
+CREATE INDEX IF NOT EXISTS stats_game_guild_id_idx
+    ON public.stats_game (guild_id, player_size);
+
+-- guild stats, and the teams of a game for replays
+CREATE INDEX IF NOT EXISTS stats_team_game_id_idx
+    ON public.stats_team (game_id, alignment, is_winner);
+
+-- user stats, shots at a user, and everything belonging to a user for privacy requests
+CREATE INDEX IF NOT EXISTS stats_player_user_id_idx
+    ON public.stats_player (user_id, team_id, alignment);
+
+-- the players of a team for replays
+CREATE INDEX IF NOT EXISTS stats_player_team_id_idx
+    ON public.stats_player (team_id);
+
+-- the actions of a game for replays
+CREATE INDEX IF NOT EXISTS stats_action_game_id_idx
+    ON public.stats_action (game_id);
+
+-- shots of a user, and the actions of a user for privacy requests
+CREATE INDEX IF NOT EXISTS stats_action_actor_idx
+    ON public.stats_action (actor, action_type, game_id, target, submitted);
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+-- wins by alignment of the recorded games, per guild, game type, game mode and player size, so that the bot and
+-- guild stats don't have to go through all the games ever played
+-- kept up to date when the stats of a game are written, and can be rebuilt from the stats tables at any time
+
+CREATE TABLE IF NOT EXISTS public.stats_rollup
+(
+    guild_id    bigint                            NOT NULL,
+    game_type   text COLLATE pg_catalog."default" NOT NULL,
+    game_mode   text COLLATE pg_catalog."default" NOT NULL,
+    player_size integer                           NOT NULL,
+    games       bigint                            NOT NULL,
+    baddie_wins bigint                            NOT NULL,
+    goodie_wins bigint                            NOT NULL,
+    CONSTRAINT stats_rollup_pkey PRIMARY KEY (guild_id, game_type, game_mode, player_size)
+);
+
+INSERT INTO public.stats_rollup (guild_id, game_type, game_mode, player_size, games, baddie_wins, goodie_wins)
+SELECT guild_id, game_type, game_mode, player_size, count(*), sum(baddie_wins), sum(goodie_wins)
+FROM (
+         SELECT g.guild_id,
+                g.game_type,
+                g.game_mode,
+                g.player_size,
+                count(*) FILTER (WHERE t.alignment = 'WOLF')    AS baddie_wins,
+                count(*) FILTER (WHERE t.alignment = 'VILLAGE') AS goodie_wins
+         FROM public.stats_game g
+                  LEFT JOIN public.stats_team t ON t.game_id = g.game_id AND t.is_winner
+         GROUP BY g.game_id
+     ) AS per_game
+GROUP BY guild_id, game_type, game_mode, player_size
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+-- wins by alignment of the recorded games of all guilds, per game type, game mode and player size, so that the bot
+-- stats don't have to sum up the rollup rows of every guild
+-- kept up to date together with stats_rollup
+
+CREATE TABLE IF NOT EXISTS public.stats_rollup_total
+(
+    game_type   text COLLATE pg_catalog."default" NOT NULL,
+    game_mode   text COLLATE pg_catalog."default" NOT NULL,
+    player_size integer                           NOT NULL,
+    games       bigint                            NOT NULL,
+    baddie_wins bigint                            NOT NULL,
+    goodie_wins bigint                            NOT NULL,
+    CONSTRAINT stats_rollup_total_pkey PRIMARY KEY (game_type, game_mode, player_size)
+);
+
+INSERT INTO public.stats_rollup_total (game_type, game_mode, player_size, games, baddie_wins, goodie_wins)
+SELECT game_type, game_mode, player_size, sum(games), sum(baddie_wins), sum(goodie_wins)
+FROM public.stats_rollup
+GROUP BY game_type, game_mode, player_size;
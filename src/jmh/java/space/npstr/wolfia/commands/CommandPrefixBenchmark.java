@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.commands;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import space.npstr.wolfia.commands.util.HelpCommand;
+import space.npstr.wolfia.config.properties.WolfiaConfig;
+
+/**
+ * The checks every incoming message goes through before we know whether it is a command, over a mix of messages as
+ * seen in a busy guild: mostly chatter of all lengths, and every now and then a command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandPrefixBenchmark {
+
+    private static final int MESSAGES = 1000;
+    private static final String[] CHATTER = {
+            "lol",
+            "who do you think it is?",
+            "I am pretty sure it's the one who voted last, they have been really quiet all day and that's suspicious",
+            "https://cdn.discordapp.com/attachments/123456789012345678/123456789012345678/image.png",
+    };
+    private static final String[] COMMANDS = {"w.in", "W.vote 3", "w.status", "w.help"};
+
+    private final CommandContextParser parser = new CommandContextParser();
+    private final String[] messages = new String[MESSAGES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < MESSAGES; i++) {
+            if (random.nextInt(100) < 5) {
+                this.messages[i] = COMMANDS[random.nextInt(COMMANDS.length)];
+            } else {
+                //some long ones, walls of text do happen
+                String message = CHATTER[random.nextInt(CHATTER.length)];
+                this.messages[i] = random.nextInt(100) < 2 ? message.repeat(20) : message;
+            }
+        }
+    }
+
+    /**
+     * How messages were checked before the pre-filter: a lowercased copy for the help exemption, and another one in
+     * the parser.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void lowerCaseCopies(Blackhole blackhole) {
+        String helpInvocation = (WolfiaConfig.DEFAULT_PREFIX + HelpCommand.TRIGGER).toLowerCase();
+        for (String raw : this.messages) {
+            blackhole.consume(raw.toLowerCase().startsWith(helpInvocation));
+            blackhole.consume(raw.toLowerCase().startsWith(WolfiaConfig.DEFAULT_PREFIX.toLowerCase()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void regionMatch(Blackhole blackhole) {
+        for (String raw : this.messages) {
+            blackhole.consume(this.parser.hasPrefix(raw));
+        }
+    }
+}
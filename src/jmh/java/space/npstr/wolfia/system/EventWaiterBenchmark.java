@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.system;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the lock-free {@link EventWaiter} with the {@link LockingEventWaiter} it replaced, with many threads
+ * registering waiters and firing the events they wait for at the same time, while other waiters sit around until
+ * they time out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class EventWaiterBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration IDLE_TIMEOUT = Duration.ofHours(1);
+
+    @Param({"locking", "lockFree"})
+    public String implementation;
+
+    //every event is checked against these as well
+    @Param({"10", "1000"})
+    public int idleWaiters;
+
+    private final AtomicLong ids = new AtomicLong(0);
+    private ScheduledThreadPoolExecutor pool;
+    private Waiter waiter;
+
+    @Setup
+    public void setUp() {
+        this.pool = new ScheduledThreadPoolExecutor(4);
+        this.pool.setRemoveOnCancelPolicy(true);
+        if ("locking".equals(this.implementation)) {
+            LockingEventWaiter locking = new LockingEventWaiter(this.pool);
+            this.waiter = new Waiter() {
+                @Override
+                public void waitFor(long id, Runnable onDone, Duration timeout) {
+                    locking.waitForEvent(IdEvent.class, event -> event.id == id, event -> onDone.run(), timeout, onDone);
+                }
+
+                @Override
+                public void fire(IdEvent event) {
+                    locking.onEvent(event);
+                }
+
+                @Override
+                public void shutdown() {
+                    locking.shutdown();
+                }
+            };
+        } else {
+            EventWaiter lockFree = new EventWaiter(this.pool);
+            this.waiter = new Waiter() {
+                @Override
+                public void waitFor(long id, Runnable onDone, Duration timeout) {
+                    lockFree.waitForEvent(IdEvent.class, event -> event.id == id, event -> onDone.run(), timeout, onDone);
+                }
+
+                @Override
+                public void fire(IdEvent event) {
+                    lockFree.onEvent(event);
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+        //negative ids are never fired. they also keep the set of the event class around, which the locking waiter
+        // reads without synchronization, so that it does not drop events fired right after the first registration
+        for (int i = 1; i <= this.idleWaiters; i++) {
+            this.waiter.waitFor(-i, () -> {}, IDLE_TIMEOUT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.waiter.shutdown();
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * Register a waiter, fire the event it waits for, and wait until its action has run.
+     */
+    @Benchmark
+    public boolean waitAndMatch() throws InterruptedException {
+        long id = this.ids.incrementAndGet();
+        CountDownLatch done = new CountDownLatch(1);
+        this.waiter.waitFor(id, done::countDown, TIMEOUT);
+        this.waiter.fire(new IdEvent(id));
+        return done.await(TIMEOUT.toMillis() * 2, TimeUnit.MILLISECONDS);
+    }
+
+    private interface Waiter {
+
+        void waitFor(long id, Runnable onDone, Duration timeout);
+
+        void fire(IdEvent event);
+
+        void shutdown();
+    }
+
+    private static class IdEvent implements GenericEvent {
+
+        private final long id;
+
+        private IdEvent(long id) {
+            this.id = id;
+        }
+
+        @Nonnull
+        @Override
+        public JDA getJDA() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getResponseNumber() {
+            return this.id;
+        }
+    }
+}
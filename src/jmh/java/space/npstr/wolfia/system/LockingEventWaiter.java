@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import net.dv8tion.jda.api.events.GenericEvent;
+
+/**
+ * The {@link EventWaiter} as it was before it became lock-free, with every registration, match and timeout going
+ * through a single thread. Only kept as the baseline for {@link EventWaiterBenchmark}.
+ */
+class LockingEventWaiter {
+
+    //this thread pool runs the actions as well as the timeout actions
+    private final ScheduledExecutorService pool;
+    //modifications to the hash map and sets have to go through this single threaded pool
+    private final ScheduledExecutorService single;
+
+    //These stateful collections are only threadsafe when modified though the single executor
+    private final List<WaitingEvent<? extends GenericEvent>> toRemove = new ArrayList<>(); //reused object
+    private final HashMap<Class<? extends GenericEvent>, Set<WaitingEvent<? extends GenericEvent>>> waitingEvents;
+
+    LockingEventWaiter(ScheduledThreadPoolExecutor jdaThreadPool) {
+        this.waitingEvents = new HashMap<>();
+        this.pool = jdaThreadPool;
+        this.single = new ScheduledThreadPoolExecutor(1);
+    }
+
+    <T extends GenericEvent> LockingEventWaiter.WaitingEvent<T> waitForEvent(
+            Class<T> classType, Predicate<T> condition, Consumer<T> action, Duration timeout,
+            Runnable timeoutAction
+    ) {
+
+        LockingEventWaiter.WaitingEvent<T> we = new LockingEventWaiter.WaitingEvent<>(condition, action);
+
+        this.single.execute(() -> {
+            this.waitingEvents.computeIfAbsent(classType, c -> new HashSet<>())
+                    .add(we);
+            this.single.schedule(() -> {
+                var set = this.waitingEvents.get(classType);
+                if (set == null) {
+                    return;
+                }
+                if (set.remove(we)) {
+                    this.pool.execute(timeoutAction);
+                }
+
+                if (set.isEmpty()) {
+                    this.waitingEvents.remove(classType);
+                }
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        });
+        return we;
+    }
+
+    void onEvent(GenericEvent event) {
+        Class<?> cc = event.getClass();
+
+        while (cc != null && cc != Object.class) {
+            Class<?> clazz = cc;
+            if (this.waitingEvents.get(clazz) != null) {
+                this.single.execute(() -> {
+                    Set<WaitingEvent<? extends GenericEvent>> set = this.waitingEvents.get(clazz);
+                    @SuppressWarnings({"unchecked", "rawtypes"}) Predicate<WaitingEvent> filter = we -> we.attempt(event);
+                    set.stream().filter(filter).forEach(this.toRemove::add);
+                    set.removeAll(this.toRemove);
+                    this.toRemove.clear();
+
+                    if (set.isEmpty()) {
+                        this.waitingEvents.remove(clazz);
+                    }
+                });
+            }
+
+            cc = cc.getSuperclass();
+        }
+    }
+
+    void shutdown() {
+        this.single.shutdownNow();
+    }
+
+    class WaitingEvent<T extends GenericEvent> {
+        final Predicate<T> condition;
+        final Consumer<T> action;
+
+        WaitingEvent(Predicate<T> condition, Consumer<T> action) {
+            this.condition = condition;
+            this.action = action;
+        }
+
+        private boolean attempt(T event) {
+            if (this.condition.test(event)) {
+                LockingEventWaiter.this.pool.execute(() -> this.action.accept(event));
+                return true;
+            }
+            return false;
+        }
+
+        void cancel() {
+            LockingEventWaiter.this.single.execute(
+                    () -> LockingEventWaiter.this.waitingEvents.values().forEach(set -> set.remove(this))
+            );
+        }
+    }
+}
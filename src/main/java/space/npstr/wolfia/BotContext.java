@@ -22,12 +22,16 @@
 import space.npstr.wolfia.config.properties.ListingsConfig;
 import space.npstr.wolfia.config.properties.WolfiaConfig;
 import space.npstr.wolfia.db.Database;
+import space.npstr.wolfia.domain.EntityResolver;
 import space.npstr.wolfia.domain.UserCache;
+import space.npstr.wolfia.domain.game.GameEventLog;
 import space.npstr.wolfia.domain.game.GameRegistry;
+import space.npstr.wolfia.domain.game.GameScheduler;
 import space.npstr.wolfia.domain.oauth2.OAuth2Service;
 import space.npstr.wolfia.domain.room.PrivateRoomQueue;
 import space.npstr.wolfia.domain.settings.ChannelSettingsService;
 import space.npstr.wolfia.domain.stats.StatsService;
+import space.npstr.wolfia.events.ReactionRouter;
 import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
 
 /**
@@ -49,12 +53,18 @@ public class BotContext {
     private final UserCache userCache;
     private final StatsService statsService;
     private final GameRegistry gameRegistry;
+    private final GameScheduler gameScheduler;
+    private final GameEventLog gameEventLog;
     private final OAuth2Service oAuth2Service;
+    private final EntityResolver entityResolver;
+    private final ReactionRouter reactionRouter;
 
     public BotContext(final Database database, final WolfiaConfig wolfiaConfig, final ListingsConfig listingsConfig,
                       PrivateRoomQueue privateRoomQueue, ExceptionLoggingExecutor executor,
                       ShardManager shardManager, ChannelSettingsService channelSettingsService, UserCache userCache,
-                      StatsService statsService, GameRegistry gameRegistry, OAuth2Service oAuth2Service) {
+                      StatsService statsService, GameRegistry gameRegistry, GameScheduler gameScheduler,
+                      GameEventLog gameEventLog, OAuth2Service oAuth2Service, EntityResolver entityResolver,
+                      ReactionRouter reactionRouter) {
 
         this.database = database;
         this.wolfiaConfig = wolfiaConfig;
@@ -66,7 +76,11 @@ public BotContext(final Database database, final WolfiaConfig wolfiaConfig, fina
         this.userCache = userCache;
         this.statsService = statsService;
         this.gameRegistry = gameRegistry;
+        this.gameScheduler = gameScheduler;
+        this.gameEventLog = gameEventLog;
         this.oAuth2Service = oAuth2Service;
+        this.entityResolver = entityResolver;
+        this.reactionRouter = reactionRouter;
     }
 
     public Database getDatabase() {
@@ -109,7 +123,23 @@ public GameRegistry getGameRegistry() {
         return this.gameRegistry;
     }
 
+    public GameScheduler getGameScheduler() {
+        return this.gameScheduler;
+    }
+
+    public GameEventLog getGameEventLog() {
+        return this.gameEventLog;
+    }
+
     public OAuth2Service getoAuth2Service() {
         return this.oAuth2Service;
     }
+
+    public EntityResolver getEntityResolver() {
+        return this.entityResolver;
+    }
+
+    public ReactionRouter getReactionRouter() {
+        return this.reactionRouter;
+    }
 }
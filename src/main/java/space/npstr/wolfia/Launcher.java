@@ -34,6 +34,7 @@
 import org.springframework.boot.context.event.ApplicationFailedEvent;
 import space.npstr.prometheus_extensions.ThreadPoolCollector;
 import space.npstr.wolfia.config.properties.WolfiaConfig;
+import space.npstr.wolfia.domain.game.GameHibernator;
 import space.npstr.wolfia.events.BotStatusLogger;
 import space.npstr.wolfia.utils.GitRepoState;
 import space.npstr.wolfia.utils.discord.Emojis;
@@ -63,6 +64,7 @@ public class Launcher implements ApplicationRunner {
     private final EagerLoader eagerLoader;
     private final BotStatusLogger botStatusLogger;
     private final ShardManager shardManager;
+    private final GameHibernator gameHibernator;
 
     public static BotContext getBotContext() {
         return botContext;
@@ -100,13 +102,15 @@ public static void main(String[] args) {
     }
 
     public Launcher(BotContext botContext, ThreadPoolCollector poolMetrics, WolfiaConfig wolfiaConfig,
-                    EagerLoader eagerLoader, BotStatusLogger botStatusLogger, ShardManager shardManager) {
+                    EagerLoader eagerLoader, BotStatusLogger botStatusLogger, ShardManager shardManager,
+                    GameHibernator gameHibernator) {
         Launcher.botContext = botContext;
         this.poolMetrics = poolMetrics;
         this.wolfiaConfig = wolfiaConfig;
         this.eagerLoader = eagerLoader;
         this.botStatusLogger = botStatusLogger;
         this.shardManager = shardManager;
+        this.gameHibernator = gameHibernator;
     }
 
     @Override
@@ -122,6 +126,11 @@ public void run(final ApplicationArguments args) throws Exception {
             Thread.sleep(100);
         }
         this.botStatusLogger.log(Emojis.ONE_HUNDRED, "All shards connected!");
+
+        int resumedGamesCount = this.gameHibernator.resumeAll();
+        if (resumedGamesCount > 0) {
+            this.botStatusLogger.log(Emojis.VIDEO_GAME, String.format("Resumed %d games", resumedGamesCount));
+        }
     }
 
     private boolean allShardsUp() {
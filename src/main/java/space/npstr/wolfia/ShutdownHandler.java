@@ -20,7 +20,6 @@
 import io.prometheus.client.CollectorRegistry;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -28,10 +27,13 @@
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.stereotype.Component;
+import space.npstr.wolfia.commands.CommandExecutor;
 import space.npstr.wolfia.config.ShardManagerFactory;
 import space.npstr.wolfia.db.AsyncDbWrapper;
 import space.npstr.wolfia.db.Database;
+import space.npstr.wolfia.domain.game.GameHibernator;
 import space.npstr.wolfia.domain.game.GameRegistry;
+import space.npstr.wolfia.domain.game.GameScheduler;
 import space.npstr.wolfia.events.BotStatusLogger;
 import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
 import space.npstr.wolfia.system.redis.Redis;
@@ -52,6 +54,9 @@ public class ShutdownHandler implements ApplicationListener<ContextClosedEvent>
     private final AsyncDbWrapper dbWrapper;
     private final ShardManagerFactory shardManagerFactory;
     private final GameRegistry gameRegistry;
+    private final GameHibernator gameHibernator;
+    private final GameScheduler gameScheduler;
+    private final CommandExecutor commandExecutor;
     private final Redis redis;
     private final ScheduledExecutorService jdaThreadPool;
 
@@ -59,13 +64,17 @@ public class ShutdownHandler implements ApplicationListener<ContextClosedEvent>
 
     public ShutdownHandler(BotStatusLogger botStatusLogger, ExceptionLoggingExecutor executor, Database database,
                            AsyncDbWrapper dbWrapper, ShardManagerFactory shardManagerFactory, GameRegistry gameRegistry,
-                           Redis redis, @Qualifier("jdaThreadPool") ScheduledExecutorService jdaThreadPool) {
+                           GameHibernator gameHibernator, GameScheduler gameScheduler, CommandExecutor commandExecutor, Redis redis,
+                           @Qualifier("jdaThreadPool") ScheduledExecutorService jdaThreadPool) {
         this.botStatusLogger = botStatusLogger;
         this.executor = executor;
         this.database = database;
         this.dbWrapper = dbWrapper;
         this.shardManagerFactory = shardManagerFactory;
         this.gameRegistry = gameRegistry;
+        this.gameHibernator = gameHibernator;
+        this.gameScheduler = gameScheduler;
+        this.commandExecutor = commandExecutor;
         this.redis = redis;
         this.jdaThreadPool = jdaThreadPool;
     }
@@ -80,27 +89,9 @@ private void shutdown() {
         String shutdownStart = String.format("Shutdown hook triggered! %d games still ongoing.", gameRegistry.getRunningGamesCount());
         log.info(shutdownStart);
         this.botStatusLogger.log(Emojis.SLEEP, shutdownStart);
-        Future<?> waitForGamesToEnd = executor.submit(() -> {
-            while (gameRegistry.getRunningGamesCount() > 0) {
-                log.info("Waiting on {} games to finish.", gameRegistry.getRunningGamesCount());
-                try {
-                    Thread.sleep(10000);
-                } catch (InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        });
-
-        try {
-            //if this value is changed, make sure to adjust the one in docker-update.sh
-            waitForGamesToEnd.get(2, TimeUnit.HOURS); //should be enough until the forseeable future
-            //todo persist games (big changes)
-        } catch (InterruptedException e) {
-            log.warn("Interrupted while awaiting games to be finished", e);
-            Thread.currentThread().interrupt();
-        } catch (ExecutionException | TimeoutException ignored) {
-            // ignored
-        }
+        //the games will be resumed from their snapshots once we are back
+        int hibernatedGamesCount = gameHibernator.hibernateAll();
+        log.info("Hibernated {} games", hibernatedGamesCount);
 
         int runningGamesCount = gameRegistry.getRunningGamesCount();
         String gamesStopped = String.format("Stopping %d games while exiting", runningGamesCount);
@@ -129,6 +120,12 @@ private void shutdown() {
         final List<Runnable> executorRunnables = executor.shutdownNow();
         log.info("{} main executor runnables cancelled", executorRunnables.size());
 
+        log.info("Shutting down game scheduler");
+        gameScheduler.shutdownNow();
+
+        log.info("Shutting down command executor");
+        commandExecutor.shutdownNow();
+
         log.info("Shutting down rest actions executor");
         final ScheduledExecutorService restService = RestActions.restService;
         final List<Runnable> restActionsRunnables = restService.shutdownNow();
@@ -145,6 +142,10 @@ private void shutdown() {
         try {
             executor.awaitTermination(30, TimeUnit.SECONDS);
             log.info("Main executor terminated");
+            gameScheduler.awaitTermination(30, TimeUnit.SECONDS);
+            log.info("Game scheduler terminated");
+            commandExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            log.info("Command executor terminated");
             restService.awaitTermination(30, TimeUnit.SECONDS);
             log.info("Rest service terminated");
             jdaThreadPool.awaitTermination(30, TimeUnit.SECONDS);
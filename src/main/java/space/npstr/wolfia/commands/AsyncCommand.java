@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.commands;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nonnull;
+import space.npstr.wolfia.game.exceptions.IllegalGameStateException;
+
+/**
+ * A command that does not hold on to a thread while it waits for the database or other services. Its work is composed
+ * onto the stages returned by them instead.
+ */
+public interface AsyncCommand extends BaseCommand {
+
+    @Override
+    CompletionStage<Boolean> executeAsync(@Nonnull CommandContext context);
+
+    /**
+     * Blocks until {@link #executeAsync(CommandContext)} is done.
+     */
+    @Override
+    default boolean execute(@Nonnull CommandContext context) throws IllegalGameStateException {
+        try {
+            return executeAsync(context).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalGameStateException) {
+                throw (IllegalGameStateException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+}
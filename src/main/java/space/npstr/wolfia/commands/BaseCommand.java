@@ -20,6 +20,8 @@
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.entities.User;
@@ -46,6 +48,21 @@ default List<String> getAliases() {
      */
     boolean execute(@Nonnull CommandContext context) throws IllegalGameStateException;
 
+    /**
+     * Execute the command, this is what the {@link CommandHandler} calls. By default this runs
+     * {@link #execute(CommandContext)} right away, commands that wait on the database should implement
+     * {@link AsyncCommand} instead.
+     *
+     * @return a stage that completes with the result of the command
+     */
+    default CompletionStage<Boolean> executeAsync(@Nonnull CommandContext context) {
+        try {
+            return CompletableFuture.completedFuture(execute(context));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * @return a help string that should explain the usage of this command
      */
@@ -18,41 +18,111 @@
 package space.npstr.wolfia.commands;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.springframework.stereotype.Component;
 import space.npstr.wolfia.commands.util.HelpCommand;
 
+/**
+ * Looks up commands by their triggers and aliases. All lookup tables are built once when the registry is created,
+ * triggers are case insensitive.
+ */
 @Component
 public class CommRegistry {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CommRegistry.class);
 
-    private final List<BaseCommand> commands = new ArrayList<>();
+    static final int MAX_SUGGESTIONS = 3;
+
+    // lower case trigger or alias -> command
+    private final Map<String, BaseCommand> commands;
+    // all lower case triggers and aliases, sorted, for finding the ones starting with some input
+    private final String[] sortedTriggers;
+    // trigger or alias with at most one character deleted -> commands, for finding the ones close to some input
+    private final Map<String, Set<BaseCommand>> deletions;
 
     public CommRegistry(List<BaseCommand> comms) {
-        comms.forEach(this::registerCommand);
-        registerCommand(new HelpCommand(this));
+        List<BaseCommand> all = new ArrayList<>(comms);
+        all.add(new HelpCommand(this));
+
+        Map<String, BaseCommand> byTrigger = new HashMap<>();
+        Map<String, Set<BaseCommand>> byDeletion = new HashMap<>();
+        for (BaseCommand command : all) {
+            List<String> allTriggers = new ArrayList<>();
+            allTriggers.add(command.getTrigger());
+            allTriggers.addAll(command.getAliases());
+            for (String trigger : allTriggers) {
+                String key = trigger.toLowerCase(Locale.ROOT);
+                if (byTrigger.putIfAbsent(key, command) != null) {
+                    log.error("Duplicate command trigger: {}", trigger);
+                }
+                for (String deletion : deletions(key)) {
+                    byDeletion.computeIfAbsent(deletion, d -> new LinkedHashSet<>()).add(command);
+                }
+            }
+        }
+
+        this.commands = Map.copyOf(byTrigger);
+        this.sortedTriggers = byTrigger.keySet().stream().sorted().toArray(String[]::new);
+        this.deletions = Map.copyOf(byDeletion);
     }
 
     @Nullable
     public BaseCommand getCommand(@Nonnull final String input) {
-        return this.commands.stream()
-                .filter(command -> input.equalsIgnoreCase(command.getTrigger()) || command.getAliases().contains(input.toLowerCase()))
-                .findFirst()
-                .orElse(null);
+        // toLowerCase returns the same string if there is nothing to lower
+        return this.commands.get(input.toLowerCase(Locale.ROOT));
     }
 
-    private void registerCommand(final BaseCommand command) {
-        List<String> allTriggers = new ArrayList<>();
-        allTriggers.add(command.getTrigger());
-        allTriggers.addAll(command.getAliases());
-        for (final String trigger : allTriggers) {
-            if (getCommand(trigger) != null) {
-                log.error("Duplicate command trigger: {}", trigger);
+    /**
+     * @return commands that the input may have been meant to be, for "did you mean" answers to unknown triggers.
+     * Commands with a trigger starting with the input come first, followed by those with a trigger that is a typo
+     * away from it.
+     */
+    public List<BaseCommand> suggest(@Nonnull final String input) {
+        String key = input.toLowerCase(Locale.ROOT);
+        Set<BaseCommand> suggestions = new LinkedHashSet<>();
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        int index = Arrays.binarySearch(this.sortedTriggers, key);
+        for (int i = index < 0 ? -index - 1 : index; i < this.sortedTriggers.length; i++) {
+            String trigger = this.sortedTriggers[i];
+            if (!trigger.startsWith(key) || suggestions.size() >= MAX_SUGGESTIONS) {
+                break;
+            }
+            suggestions.add(this.commands.get(trigger));
+        }
+
+        for (String deletion : deletions(key)) {
+            for (BaseCommand command : this.deletions.getOrDefault(deletion, Set.of())) {
+                if (suggestions.size() >= MAX_SUGGESTIONS) {
+                    return List.copyOf(suggestions);
+                }
+                suggestions.add(command);
             }
         }
-        this.commands.add(command);
+        return List.copyOf(suggestions);
+    }
+
+    /**
+     * @return the string itself and all non-empty strings that are the string with a single character deleted. Two
+     * strings sharing one of these are at most two edits apart, like a substitution, a transposition, or a single
+     * missing or extra character.
+     */
+    private static Set<String> deletions(String string) {
+        Set<String> deletions = new LinkedHashSet<>();
+        deletions.add(string);
+        for (int i = 0; i < string.length() && string.length() > 1; i++) {
+            deletions.add(string.substring(0, i) + string.substring(i + 1));
+        }
+        return deletions;
     }
 }
@@ -27,6 +27,19 @@
 @Component
 public class CommandContextParser {
 
+    /**
+     * Cheap check that can be done on every message before parsing it, without copying any strings.
+     *
+     * @return true if the raw content of a message starts with our prefix, ignoring case
+     */
+    public boolean hasPrefix(final String raw) {
+        return startsWithIgnoreCase(raw, WolfiaConfig.DEFAULT_PREFIX);
+    }
+
+    static boolean startsWithIgnoreCase(final String raw, final String start) {
+        return raw.regionMatches(true, 0, start, 0, start.length());
+    }
+
     /**
      * @param event the event to be parsed
      * @return The full context for the triggered command, or null if it's not a command that we know.
@@ -36,9 +49,8 @@ public CommandContext parse(final CommRegistry commRegistry, final MessageReceiv
         final String raw = event.getMessage().getContentRaw();
         String input;
 
-        final String prefix = WolfiaConfig.DEFAULT_PREFIX;
-        if (raw.toLowerCase().startsWith(prefix.toLowerCase())) {
-            input = raw.substring(prefix.length());
+        if (hasPrefix(raw)) {
+            input = raw.substring(WolfiaConfig.DEFAULT_PREFIX.length());
         } else {
             return null;
         }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.commands;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import space.npstr.prometheus_extensions.ThreadPoolCollector;
+import space.npstr.wolfia.common.Exceptions;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
+
+/**
+ * Runs commands off the JDA event threads, so that commands waiting on the database or on discord do not hold up the
+ * gateway of their shard.
+ * <p>
+ * Channels are striped onto a fixed amount of lanes. Commands of the same lane, and thereby of the same channel, run
+ * one at a time in the order they were issued, while lanes run in parallel on a shared pool. Each lane only queues so
+ * many commands, and each kind of command may only have so many instances queued or running, beyond that commands
+ * are rejected.
+ * <p>
+ * A command that returns a stage which is not done yet keeps its lane, but gives back its thread. The lane picks up
+ * its next command once the stage completes, so commands waiting on the database only cost a thread while they
+ * actually do something.
+ */
+@Component
+public class CommandExecutor {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CommandExecutor.class);
+
+    //some commands still block on discord or the database, so have a few more threads than cores around
+    private static final int POOL_SIZE = 20;
+    private static final int LANES = 256;
+    private static final int MAX_TASKS_PER_DRAIN = 32;
+    static final int MAX_QUEUED_PER_LANE = 50;
+    static final int MAX_CONCURRENT_PER_COMMAND = 25;
+
+    private final ExecutorService executor;
+    private final Lane[] lanes = new Lane[LANES];
+    private final Map<Class<?>, Semaphore> commandPermits = new ConcurrentHashMap<>();
+
+    public CommandExecutor(ThreadPoolCollector poolMetrics) {
+        this(newPool(poolMetrics));
+    }
+
+    CommandExecutor(ExecutorService executor) {
+        this.executor = executor;
+        for (int i = 0; i < LANES; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    private static ThreadPoolExecutor newPool(ThreadPoolCollector poolMetrics) {
+        final var threadCounter = new AtomicInteger();
+        //the queue does not need a bound, there is at most one drain per lane waiting in it
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "command-executor-t" + threadCounter.getAndIncrement());
+            t.setUncaughtExceptionHandler(Exceptions.UNCAUGHT_EXCEPTION_HANDLER);
+            return t;
+        });
+        poolMetrics.addPool("command", pool);
+        return pool;
+    }
+
+    /**
+     * Queue a command behind the other commands of its channel.
+     *
+     * @param command the kind of command, used for its concurrency limit
+     * @return false if the command was rejected because too many commands are waiting already
+     */
+    public boolean submit(long channelId, Class<? extends BaseCommand> command, Runnable task) {
+        return submit(channelId, command, () -> {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Queue a command behind the other commands of its channel. The next command of the lane will only run after the
+     * stage returned by the task has completed.
+     *
+     * @param command the kind of command, used for its concurrency limit
+     * @return false if the command was rejected because too many commands are waiting already
+     */
+    public boolean submit(long channelId, Class<? extends BaseCommand> command,
+                          Supplier<? extends CompletionStage<?>> task) {
+        Semaphore permits = this.commandPermits.computeIfAbsent(command, c -> new Semaphore(MAX_CONCURRENT_PER_COMMAND));
+        if (!permits.tryAcquire()) {
+            MetricsRegistry.commandsRejected.labels("command_limit").inc();
+            log.warn("Rejected {} in channel {}, too many of them queued or running", command.getSimpleName(), channelId);
+            return false;
+        }
+
+        Lane lane = this.lanes[Math.floorMod(Long.hashCode(channelId), LANES)];
+        if (!lane.offer(() -> {
+            CompletionStage<?> stage;
+            try {
+                stage = task.get();
+            } catch (Exception e) {
+                permits.release();
+                throw e;
+            }
+            return stage.whenComplete((ignored, t) -> permits.release());
+        })) {
+            permits.release();
+            MetricsRegistry.commandsRejected.labels("queue_full").inc();
+            log.warn("Rejected {} in channel {}, its queue is full", command.getSimpleName(), channelId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the pool the commands run on, for continuations of stages that should not run on whatever thread
+     * completed them
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    public void shutdownNow() {
+        this.executor.shutdownNow();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+    private class Lane {
+
+        private final Queue<Supplier<CompletionStage<?>>> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger(0);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        private boolean offer(Supplier<CompletionStage<?>> task) {
+            if (this.queued.incrementAndGet() > MAX_QUEUED_PER_LANE) {
+                this.queued.decrementAndGet();
+                return false;
+            }
+            this.mailbox.add(task);
+            scheduleDrain();
+            return true;
+        }
+
+        private void scheduleDrain() {
+            if (this.draining.compareAndSet(false, true)) {
+                CommandExecutor.this.executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            //hand the thread back to the pool every now and then, so busy channels cannot starve the other ones
+            for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+                Supplier<CompletionStage<?>> task = this.mailbox.poll();
+                if (task == null) {
+                    break;
+                }
+                this.queued.decrementAndGet();
+                CompletableFuture<?> pending = run(task);
+                if (!pending.isDone()) {
+                    //the lane stays claimed, so the next command of the channel cannot overtake this one
+                    pending.whenComplete((ignored, t) -> resume());
+                    return;
+                }
+            }
+            this.draining.set(false);
+            //pick up tasks that did not fit into this run, or that were queued while we were finishing up
+            if (!this.mailbox.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private CompletableFuture<?> run(Supplier<CompletionStage<?>> task) {
+            try {
+                return task.get().toCompletableFuture();
+            } catch (Exception e) {
+                log.error("Uncaught exception in command task", e);
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        private void resume() {
+            try {
+                CommandExecutor.this.executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                log.debug("Not resuming lane, the executor is shutting down", e);
+                this.draining.set(false);
+            }
+        }
+    }
+}
@@ -17,12 +17,18 @@
 
 package space.npstr.wolfia.commands;
 
-import io.prometheus.client.Summary;
+import io.prometheus.client.Collector;
+import io.prometheus.client.Histogram;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.entities.Category;
@@ -40,9 +46,9 @@
 import space.npstr.wolfia.commands.util.InviteCommand;
 import space.npstr.wolfia.commands.util.TagCommand;
 import space.npstr.wolfia.config.properties.WolfiaConfig;
+import space.npstr.wolfia.domain.game.GameHibernator;
 import space.npstr.wolfia.domain.game.GameRegistry;
 import space.npstr.wolfia.domain.privacy.PrivacyService;
-import space.npstr.wolfia.domain.settings.ChannelSettings;
 import space.npstr.wolfia.domain.settings.ChannelSettingsService;
 import space.npstr.wolfia.domain.setup.InCommand;
 import space.npstr.wolfia.events.WolfiaGuildListener;
@@ -54,8 +60,6 @@
 import space.npstr.wolfia.utils.discord.RestActions;
 import space.npstr.wolfia.utils.discord.TextchatUtils;
 
-import static io.prometheus.client.Summary.Timer;
-
 /**
  * Some architectural notes:
  * Issued commands will always go through here. It is their own job to find out for which game they have been issued,
@@ -66,141 +70,254 @@ public class CommandHandler {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CommandHandler.class);
 
+    private static final String HELP_INVOCATION = WolfiaConfig.DEFAULT_PREFIX + HelpCommand.TRIGGER;
+    private static final long COMMAND_TIMEOUT_SECONDS = 30;
+
     private final GameRegistry gameRegistry;
     private final CommandContextParser commandContextParser;
     private final CommRegistry commRegistry;
     private final ChannelSettingsService channelSettingsService;
     private final PrivacyService privacyService;
+    private final CommandExecutor commandExecutor;
+    private final GameHibernator gameHibernator;
 
     public CommandHandler(GameRegistry gameRegistry, CommandContextParser commandContextParser,
                           CommRegistry commRegistry, ChannelSettingsService channelSettingsService,
-                          PrivacyService privacyService) {
+                          PrivacyService privacyService, CommandExecutor commandExecutor,
+                          GameHibernator gameHibernator) {
 
         this.gameRegistry = gameRegistry;
         this.commandContextParser = commandContextParser;
         this.commRegistry = commRegistry;
         this.channelSettingsService = channelSettingsService;
         this.privacyService = privacyService;
+        this.commandExecutor = commandExecutor;
+        this.gameHibernator = gameHibernator;
     }
 
     @EventListener
     public void onMessageReceived(@Nonnull final MessageReceivedEvent event) {
-        Timer received = MetricsRegistry.commandRetentionTime.startTimer();
+        final long received = System.nanoTime();
         //ignore bot accounts generally
         if (event.getAuthor().isBot()) {
             return;
         }
 
-        //ignore channels where we don't have sending permissions, with a special exception for the help command
-        if (event.isFromType(ChannelType.TEXT) && !event.getTextChannel().canTalk()
-                && !event.getMessage().getContentRaw().toLowerCase().startsWith((WolfiaConfig.DEFAULT_PREFIX + HelpCommand.TRIGGER).toLowerCase())) {
+        //most messages are not meant for us, so get rid of them before doing anything costly
+        final String raw = event.getMessage().getContentRaw();
+        final boolean hasPrefix = this.commandContextParser.hasPrefix(raw);
+        final Game g = this.gameRegistry.get(event.getChannel().getIdLong());
+        if (!hasPrefix && g == null) {
+            MetricsRegistry.nonCommandMessages.inc();
             return;
         }
 
-        //update user stats
-        final Game g = this.gameRegistry.get(event.getChannel().getIdLong());
-        if (g != null) g.userPosted(event.getMessage());
+        final boolean canAnswer = canAnswer(event, raw);
 
+        //update user stats, which are ignored in channels we can't answer in, just like commands
+        if (g != null && canAnswer) g.userPosted(event.getMessage());
+
+        if (!hasPrefix) {
+            MetricsRegistry.nonCommandMessages.inc();
+            return;
+        }
+        if (!canAnswer) {
+            return;
+        }
 
         final CommandContext context = this.commandContextParser.parse(this.commRegistry, event);
 
         if (context == null) {
             return;
         }
+        final long parsed = observeStage("parse", received);
+
+        if (!this.commandExecutor.submit(event.getChannel().getIdLong(), context.command.getClass(),
+                () -> process(context, parsed))) {
+            context.replyWithMention("I am a bit busy right now, please try again in a moment.");
+        }
+    }
+
+    /**
+     * Runs on the {@link CommandExecutor}. Nothing in here may block, the checks that need the database are composed
+     * onto the stages of their queries instead. The whole of it is bounded by a timeout, so that a hanging query or
+     * command can't hold on to its lane of the executor forever.
+     *
+     * @param queued {@link System#nanoTime()} when the command was queued
+     * @return a stage that completes once the command is done, successfully or not
+     */
+    private CompletionStage<?> process(final CommandContext context, final long queued) {
+        final long dequeued = observeStage("queue", queued);
 
         // this check does a database request so we want it to be further down the check chain.
         // we can put this check behind the user stats processing, because users who dont have data processing enabled,
         // cannot issue commands, so they cannot join games, to their user stats won't be processed
-        if (!this.privacyService.isDataProcessingEnabled(event.getAuthor().getIdLong())) {
-            return;
-        }
+        final long userId = context.event.getAuthor().getIdLong();
+        // games paused by the last shutdown may not be back in their channels yet, so hold commands until they are
+        return this.gameHibernator.whenResumed()
+                .thenCompose(__ -> this.privacyService.isDataProcessingEnabledAsync(userId))
+                .thenCompose(dataProcessingEnabled -> {
+                    long privacyChecked = observeStage("privacy", dequeued);
+                    if (!dataProcessingEnabled) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return checkGameChannel(context, privacyChecked);
+                })
+                // the checks above may complete on a database thread, get off it before running commands that block
+                .thenComposeAsync(allowed -> {
+                    if (!allowed || !checkLounge(context)) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return handleCommand(context);
+                }, this.commandExecutor.getExecutor())
+                .toCompletableFuture()
+                .orTimeout(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .exceptionally(t -> {
+                    handleFailure(context, unwrap(t));
+                    return false;
+                });
+    }
 
+    /**
+     * @return a stage with false if the command needs a game channel, but was not issued in one
+     */
+    private CompletionStage<Boolean> checkGameChannel(final CommandContext context, final long stageStart) {
         BaseCommand command = context.command;
-        if (command instanceof GameCommand
+        if (!(command instanceof GameCommand
                 || command instanceof StartCommand
                 || command instanceof InCommand
-                || command instanceof TagCommand) {
-            ChannelSettings channelSettings = this.channelSettingsService.channel(context.getChannel().getIdLong()).getOrDefault();
-            if (!channelSettings.isGameChannel()) {
-                String alternativeChannels = "";
-                List<TextChannel> suggestedChannels = suggestGameEnabledChannels(context);
-                if (!suggestedChannels.isEmpty()) {
-                    String suggestedString = suggestedChannels.stream()
-                            .map(IMentionable::getAsMention)
-                            .collect(Collectors.joining(", "));
-                    alternativeChannels = String.format(" Try %s instead.", suggestedString);
-                }
-                context.replyWithMention("this channel is not enabled for playing games." + alternativeChannels);
-                return;
-            }
+                || command instanceof TagCommand)) {
+            return CompletableFuture.completedFuture(true);
         }
 
+        return this.channelSettingsService.channel(context.getChannel().getIdLong()).getOrDefaultAsync()
+                .thenCompose(channelSettings -> {
+                    observeStage("channel_settings", stageStart);
+                    if (channelSettings.isGameChannel()) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    return suggestGameEnabledChannels(context).thenApply(suggestedChannels -> {
+                        String alternativeChannels = "";
+                        if (!suggestedChannels.isEmpty()) {
+                            String suggestedString = suggestedChannels.stream()
+                                    .map(IMentionable::getAsMention)
+                                    .collect(Collectors.joining(", "));
+                            alternativeChannels = String.format(" Try %s instead.", suggestedString);
+                        }
+                        context.replyWithMention("this channel is not enabled for playing games." + alternativeChannels);
+                        return false;
+                    });
+                });
+    }
 
-        //filter for _special_ ppl in the Wolfia guild
+    //filter for _special_ ppl in the Wolfia guild
+    private boolean checkLounge(final CommandContext context) {
         final GuildCommandContext guildContext = context.requireGuild(false);
-        if (guildContext != null && guildContext.guild.getIdLong() == App.WOLFIA_LOUNGE_ID) {
-            final Category parent = guildContext.getTextChannel().getParent();
-            var appInfoProvider = new ApplicationInfoProvider(event.getJDA().getShardManager());
-            //noinspection StatementWithEmptyBody
-            if (guildContext.getTextChannel().getIdLong() == WolfiaGuildListener.SPAM_CHANNEL_ID //spam channel is k
-                    || (parent != null && parent.getIdLong() == WolfiaGuildListener.GAME_CATEGORY_ID) //game channels are k
-                    || appInfoProvider.isOwner(context.getInvoker())) { //owner is k
-                //allowed
-            } else {
-                context.replyWithMention("read the **rules** in <#" + WolfiaGuildListener.RULES_CHANNEL_ID + ">.",
-                        message -> RestActions.restService.schedule(
-                                () -> RestActions.deleteMessage(message), 5, TimeUnit.SECONDS)
-                );
-                RestActions.restService.schedule(context::deleteMessage, 5, TimeUnit.SECONDS);
-                return;
-            }
+        if (guildContext == null || guildContext.guild.getIdLong() != App.WOLFIA_LOUNGE_ID) {
+            return true;
         }
+        final Category parent = guildContext.getTextChannel().getParent();
+        var appInfoProvider = new ApplicationInfoProvider(context.event.getJDA().getShardManager());
+        if (guildContext.getTextChannel().getIdLong() == WolfiaGuildListener.SPAM_CHANNEL_ID //spam channel is k
+                || (parent != null && parent.getIdLong() == WolfiaGuildListener.GAME_CATEGORY_ID) //game channels are k
+                || appInfoProvider.isOwner(context.getInvoker())) { //owner is k
+            return true;
+        }
+        context.replyWithMention("read the **rules** in <#" + WolfiaGuildListener.RULES_CHANNEL_ID + ">.",
+                message -> RestActions.restService.schedule(
+                        () -> RestActions.deleteMessage(message), 5, TimeUnit.SECONDS)
+        );
+        RestActions.restService.schedule(context::deleteMessage, 5, TimeUnit.SECONDS);
+        return false;
+    }
+
+    /**
+     * @param stageStart {@link System#nanoTime()} when the stage started
+     * @return {@link System#nanoTime()} when the stage ended, to be used as the start of the next one
+     */
+    private static long observeStage(String stage, long stageStart) {
+        long now = System.nanoTime();
+        MetricsRegistry.commandStageTime.labels(stage).observe((now - stageStart) / Collector.NANOSECONDS_PER_SECOND);
+        return now;
+    }
 
-        handleCommand(context, received);
+    //ignore channels where we don't have sending permissions, with a special exception for the help command
+    private boolean canAnswer(MessageReceivedEvent event, String raw) {
+        return !event.isFromType(ChannelType.TEXT) || event.getTextChannel().canTalk()
+                || CommandContextParser.startsWithIgnoreCase(raw, HELP_INVOCATION);
     }
 
-    private List<TextChannel> suggestGameEnabledChannels(CommandContext context) {
+    private CompletionStage<List<TextChannel>> suggestGameEnabledChannels(CommandContext context) {
         Optional<Member> memberOpt = context.getMember();
         if (memberOpt.isEmpty()) {
-            return List.of();
+            return CompletableFuture.completedFuture(List.of());
         }
         Member member = memberOpt.get();
-        List<TextChannel> textChannels = new ArrayList<>(member.getGuild().getTextChannels());
-        Collections.shuffle(textChannels);
-        return textChannels.stream()
+        List<TextChannel> textChannels = member.getGuild().getTextChannels().stream()
                 .filter(channel -> channel.canTalk(member))
-                .filter(channel -> channelSettingsService.channel(channel.getIdLong()).getOrDefault().isGameChannel())
-                .limit(3)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Collections.shuffle(textChannels);
+        List<Long> channelIds = textChannels.stream()
+                .map(TextChannel::getIdLong)
                 .collect(Collectors.toList());
+        return this.channelSettingsService.channels(channelIds).getGameChannelIdsAsync(member.getGuild().getIdLong())
+                .thenApply(gameChannelIds -> textChannels.stream()
+                        .filter(channel -> gameChannelIds.contains(channel.getIdLong()))
+                        .limit(3)
+                        .collect(Collectors.toList()));
     }
 
     /**
      * @param context the parsed input of a user
+     * @return a stage that completes once the command is done
      */
-    private void handleCommand(@Nonnull final CommandContext context, Timer received) {
-        try {
-            boolean canCallCommand = context.command instanceof PublicCommand || context.isOwner();
-            if (!canCallCommand) {
-                //not the bot owner
-                log.info("user {}, channel {}, attempted issuing owner restricted command: {}",
-                        context.invoker, context.channel, context.msg.getContentRaw());
-                return;
-            }
-            log.info("user {}, channel {}, command {} about to be executed",
+    private CompletionStage<Boolean> handleCommand(@Nonnull final CommandContext context) {
+        boolean canCallCommand = context.command instanceof PublicCommand || context.isOwner();
+        if (!canCallCommand) {
+            //not the bot owner
+            log.info("user {}, channel {}, attempted issuing owner restricted command: {}",
                     context.invoker, context.channel, context.msg.getContentRaw());
+            return CompletableFuture.completedFuture(false);
+        }
+        log.info("user {}, channel {}, command {} about to be executed",
+                context.invoker, context.channel, context.msg.getContentRaw());
 
-            received.observeDuration();//retention
-            try (Summary.Timer ignored = MetricsRegistry.commandProcessTime.labels(context.command.getClass().getSimpleName()).startTimer()) {
-                context.command.execute(context);
-            }
-        } catch (final UserFriendlyException e) {
+        Histogram.Timer stageTimer = MetricsRegistry.commandStageTime.labels("execute").startTimer();
+        Histogram.Timer commandTimer = MetricsRegistry.commandProcessTime.labels(context.command.getClass().getSimpleName()).startTimer();
+        CompletableFuture<Boolean> execution;
+        try {
+            execution = context.command.executeAsync(context).toCompletableFuture();
+        } catch (final Exception e) {
+            execution = CompletableFuture.failedFuture(e);
+        }
+        return execution.whenComplete((result, t) -> {
+            stageTimer.observeDuration();
+            commandTimer.observeDuration();
+        });
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        Throwable unwrapped = t;
+        while ((unwrapped instanceof CompletionException || unwrapped instanceof ExecutionException)
+                && unwrapped.getCause() != null) {
+            unwrapped = unwrapped.getCause();
+        }
+        return unwrapped;
+    }
+
+    private void handleFailure(final CommandContext context, final Throwable e) {
+        if (e instanceof UserFriendlyException) {
             context.reply("There was a problem executing your command:\n" + e.getMessage());
-        } catch (final IllegalGameStateException e) {
+        } else if (e instanceof IllegalGameStateException) {
             context.reply(e.getMessage());
-        } catch (final DataAccessException e) { //currently unreachable since db access is async, so a CompletionException would be thrown instead
+        } else if (e instanceof DataAccessException) {
             log.error("Db blew up while handling command", e);
             context.reply("The database is not available currently. Please try again later. Sorry for the inconvenience!");
-        } catch (final Exception e) {
+        } else if (e instanceof TimeoutException) {
+            log.warn("user {}, channel {}, command {} timed out after {} seconds",
+                    context.invoker, context.channel, context.msg.getContentRaw(), COMMAND_TIMEOUT_SECONDS);
+            context.replyWithMention("your command took too long to complete. Please try again later.");
+        } else {
             try {
                 final MessageReceivedEvent ev = context.event;
                 Throwable t = e;
@@ -197,7 +197,7 @@ private void reply0(@Nonnull final Message message, @Nullable final Consumer<Mes
         long started = System.nanoTime();
 
         Consumer<Message> successWrapper = m -> {
-            MetricsRegistry.commandResponseTime.observe((System.nanoTime() - started) / Collector.NANOSECONDS_PER_SECOND);
+            MetricsRegistry.commandStageTime.labels("reply").observe((System.nanoTime() - started) / Collector.NANOSECONDS_PER_SECOND);
             long in = getMessage().getTimeCreated().toInstant().toEpochMilli();
             long out = m.getTimeCreated().toInstant().toEpochMilli();
             MetricsRegistry.commandTotalTime.observe((out - in) / Collector.MILLISECONDS_PER_SECOND);
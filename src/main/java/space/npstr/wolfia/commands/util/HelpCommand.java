@@ -17,7 +17,9 @@
 
 package space.npstr.wolfia.commands.util;
 
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.entities.ChannelType;
 import net.dv8tion.jda.api.entities.Message;
@@ -69,8 +71,14 @@ public boolean execute(@Nonnull final CommandContext context) {
             final BaseCommand command = this.commRegistry.getCommand(context.args[0]);
             final String answer;
             if (!(command instanceof PublicCommand)) {
-                answer = String.format("There is no command registered for `%s`. Use `%s` to see all available commands!",
-                        TextchatUtils.defuseMentions(context.args[0]), WolfiaConfig.DEFAULT_PREFIX + CommandsCommand.TRIGGER);
+                final List<String> suggestions = this.commRegistry.suggest(context.args[0]).stream()
+                        .filter(suggestion -> suggestion instanceof PublicCommand)
+                        .map(suggestion -> "`" + suggestion.invocation() + "`")
+                        .collect(Collectors.toList());
+                answer = String.format("There is no command registered for `%s`.%s Use `%s` to see all available commands!",
+                        TextchatUtils.defuseMentions(context.args[0]),
+                        suggestions.isEmpty() ? "" : " Did you mean " + String.join(", ", suggestions) + "?",
+                        WolfiaConfig.DEFAULT_PREFIX + CommandsCommand.TRIGGER);
             } else {
                 answer = TextchatUtils.asMarkdown(command.getHelp());
             }
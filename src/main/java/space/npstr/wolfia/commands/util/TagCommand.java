@@ -21,6 +21,8 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -31,7 +33,7 @@
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.GuildCommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
@@ -46,7 +48,7 @@
  * Allows users to sign up for a tag list
  */
 @Command
-public class TagCommand implements BaseCommand, PublicCommand {
+public class TagCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "tag";
 
@@ -74,17 +76,23 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext commandContext) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext commandContext) {
 
         final GuildCommandContext context = commandContext.requireGuild(false);
         if (context == null) {
             commandContext.reply("This is a private channel, there is noone in here to tag but us two ( ͡° ͜ʖ ͡°)");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         long channelId = context.textChannel.getIdLong();
         ChannelSettingsService.Action channelAction = this.channelSettingsService.channel(channelId);
-        ChannelSettings channelSettings = channelAction.getOrDefault();
+        return channelAction.getOrDefaultAsync()
+                .thenCompose(channelSettings -> tag(context, channelAction, channelSettings));
+    }
+
+    private CompletionStage<Boolean> tag(GuildCommandContext context, ChannelSettingsService.Action channelAction,
+                                         ChannelSettings channelSettings) {
+
         final Set<Long> tags = channelSettings.getTags();
 
         String option = "";
@@ -103,7 +111,7 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
 
             if (this.gameRegistry.get(context.textChannel) != null) {
                 context.replyWithMention("I will not post the tag list during an ongoing game.");
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
 
             long tagCooldownMinutes = channelSettings.getTagCooldownMinutes();
@@ -112,7 +120,7 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                 final String answer = String.format("you need to wait at least %s minutes between calling the tag list.",
                         tagCooldownMinutes);
                 context.replyWithMention(answer);
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
 
             //the tag can only be used by a user who is on the taglist himself
@@ -120,7 +128,7 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                     && context.member.getRoles().stream().mapToLong(Role::getIdLong).noneMatch(tags::contains)) {
                 context.replyWithMention(String.format("you can't use the taglist when you aren't part of it yourself. "
                         + "Say `%s` to add yourself to it.", WolfiaConfig.DEFAULT_PREFIX + TagCommand.TRIGGER + " +"));
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
 
             final List<StringBuilder> outs = new ArrayList<>();
@@ -153,13 +161,12 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                 }
             }
 
-            channelAction.removeTags(cleanUp);
             for (final StringBuilder sb : outs) {
                 context.reply(sb.toString());
             }
-            channelAction.tagUsed();
-
-            return true;
+            return channelAction.removeTagsAsync(cleanUp)
+                    .thenCompose(ignored -> channelAction.tagUsedAsync())
+                    .thenApply(ignored -> true);
         }
 
 
@@ -171,20 +178,24 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
             if (action == TagAction.ADD) {
                 if (tags.contains(context.invoker.getIdLong())) {
                     context.replyWithMention("you are already on the tag list of this channel.");
-                    return false;
+                    return CompletableFuture.completedFuture(false);
                 } else {
-                    channelAction.addTag(context.getInvoker().getIdLong());
-                    context.replyWithMention("you have been added to the tag list of this channel.");
-                    return true;
+                    return channelAction.addTagsAsync(Set.of(context.getInvoker().getIdLong()))
+                            .thenApply(ignored -> {
+                                context.replyWithMention("you have been added to the tag list of this channel.");
+                                return true;
+                            });
                 }
             } else { //removing
                 if (!tags.contains(context.invoker.getIdLong())) {
                     context.replyWithMention("you are already removed from the tag list of this channel.");
-                    return false;
+                    return CompletableFuture.completedFuture(false);
                 } else {
-                    channelAction.removeTag(context.getInvoker().getIdLong());
-                    context.replyWithMention("you have been removed from the tag list of this channel");
-                    return true;
+                    return channelAction.removeTagsAsync(Set.of(context.getInvoker().getIdLong()))
+                            .thenApply(ignored -> {
+                                context.replyWithMention("you have been removed from the tag list of this channel");
+                                return true;
+                            });
                 }
             }
 
@@ -194,7 +205,7 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                 context.replyWithMention("you need the following permission in this channel to "
                         + "add or remove other users or roles from the taglist of this channel: "
                         + "**" + Permission.MESSAGE_MANAGE.getName() + "**");
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
             final List<String> mentions = Stream.concat(
                     mentionedUsers.stream().map(IMentionable::getAsMention),
@@ -208,13 +219,15 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
             ).collect(Collectors.toList());
 
             if (action == TagAction.ADD) {
-                channelAction.addTags(ids);
-                context.replyWithMention(String.format("added **%s** to the tag list.", joined));
-                return true;
+                return channelAction.addTagsAsync(ids).thenApply(ignored -> {
+                    context.replyWithMention(String.format("added **%s** to the tag list.", joined));
+                    return true;
+                });
             } else { //removing
-                channelAction.removeTags(ids);
-                context.replyWithMention(String.format("removed **%s** from the tag list.", joined));
-                return true;
+                return channelAction.removeTagsAsync(ids).thenApply(ignored -> {
+                    context.replyWithMention(String.format("removed **%s** from the tag list.", joined));
+                    return true;
+                });
             }
         }
     }
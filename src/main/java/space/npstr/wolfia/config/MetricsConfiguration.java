@@ -28,6 +28,8 @@
 import space.npstr.prometheus_extensions.QueryCountCollector;
 import space.npstr.prometheus_extensions.ThreadPoolCollector;
 import space.npstr.prometheus_extensions.jda.JdaMetrics;
+import space.npstr.wolfia.domain.game.GameScheduler;
+import space.npstr.wolfia.system.metrics.GameTaskCollector;
 import space.npstr.wolfia.system.metrics.MetricsRegistry;
 
 @Configuration
@@ -59,6 +61,11 @@ public ThreadPoolCollector threadPoolCollector() {
         return new ThreadPoolCollector();
     }
 
+    @Bean
+    public GameTaskCollector gameTaskCollector(GameScheduler gameScheduler) {
+        return new GameTaskCollector(gameScheduler);
+    }
+
     @Bean
     public JdaMetrics jdaMetrics(ShardManager shardManager, @Qualifier("jdaThreadPool") ScheduledExecutorService scheduler,
                                  MetricsRegistry metricsRegistry) {
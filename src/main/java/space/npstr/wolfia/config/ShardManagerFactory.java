@@ -31,7 +31,7 @@
 import space.npstr.prometheus_extensions.OkHttpEventCounter;
 import space.npstr.wolfia.App;
 import space.npstr.wolfia.config.properties.WolfiaConfig;
-import space.npstr.wolfia.system.DiscordEventListenerPublisher;
+import space.npstr.wolfia.system.DiscordEventDispatcher;
 import space.npstr.wolfia.utils.Memoizer;
 
 import static net.dv8tion.jda.api.requests.GatewayIntent.DIRECT_MESSAGES;
@@ -69,7 +69,7 @@ public class ShardManagerFactory {
     );
 
     private final WolfiaConfig wolfiaConfig;
-    private final DiscordEventListenerPublisher discordEventListenerPublisher;
+    private final DiscordEventDispatcher discordEventDispatcher;
     private final OkHttpClient.Builder httpClientBuilder;
     private final ScheduledExecutorService jdaThreadPool;
     private final Supplier<ShardManager> singleton;
@@ -77,12 +77,12 @@ public class ShardManagerFactory {
     private volatile boolean created = false;
 
 
-    public ShardManagerFactory(final WolfiaConfig wolfiaConfig, DiscordEventListenerPublisher discordEventListenerPublisher,
+    public ShardManagerFactory(final WolfiaConfig wolfiaConfig, DiscordEventDispatcher discordEventDispatcher,
                                final OkHttpClient.Builder httpClientBuilder,
                                @Qualifier("jdaThreadPool") final ScheduledExecutorService jdaThreadPool) {
 
         this.wolfiaConfig = wolfiaConfig;
-        this.discordEventListenerPublisher = discordEventListenerPublisher;
+        this.discordEventDispatcher = discordEventDispatcher;
         this.httpClientBuilder = httpClientBuilder;
         this.jdaThreadPool = jdaThreadPool;
         this.singleton = Memoizer.memoize(this::createShardManager);
@@ -102,7 +102,7 @@ private synchronized ShardManager createShardManager() {
         DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.create(GATEWAY_INTENTS)
                 .setToken(this.wolfiaConfig.getDiscordToken())
                 .setActivity(Activity.playing(App.GAME_STATUS))
-                .addEventListeners(this.discordEventListenerPublisher)
+                .addEventListeners(this.discordEventDispatcher)
                 .setHttpClientBuilder(this.httpClientBuilder
                         .eventListener(new OkHttpEventCounter("jda")))
                 .disableCache(ACTIVITY, VOICE_STATE, EMOTE, CLIENT_STATUS)
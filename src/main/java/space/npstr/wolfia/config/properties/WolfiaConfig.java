@@ -29,6 +29,7 @@ public class WolfiaConfig {
     private boolean debug = true;
     private String discordToken = "";
     private String botstatusWebhook = "";
+    private String statsSpoolDirectory = "./spool";
 
     public boolean isDebug() {
         return debug;
@@ -58,6 +59,14 @@ public void setBotstatusWebhook(String botstatusWebhook) {
         this.botstatusWebhook = botstatusWebhook;
     }
 
+    public String getStatsSpoolDirectory() {
+        return statsSpoolDirectory;
+    }
+
+    public void setStatsSpoolDirectory(String statsSpoolDirectory) {
+        this.statsSpoolDirectory = statsSpoolDirectory;
+    }
+
     public String getDefaultPrefix() {
         return isDebug() ? "d." : DEFAULT_PREFIX;
     }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongFunction;
+import javax.annotation.CheckReturnValue;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.ResumedEvent;
+import net.dv8tion.jda.api.events.guild.GuildAvailableEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
+
+/**
+ * Resolves guilds and text channels from the JDA cache. When they are missing from it, for example because their
+ * shard is still starting up or reconnecting, the returned stage completes once they show up, instead of callers
+ * polling the cache. Gives up after a while, in case they are gone for good.
+ * <p>
+ * Guilds and text channels can't be retrieved over REST, so waiting for their shard is the only option.
+ */
+@Component
+public class EntityResolver {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(EntityResolver.class);
+
+    static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private final ShardManager shardManager;
+    private final Map<Long, CompletableFuture<TextChannel>> pendingTextChannels = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Guild>> pendingGuilds = new ConcurrentHashMap<>();
+
+    public EntityResolver(ShardManager shardManager) {
+        this.shardManager = shardManager;
+    }
+
+    @CheckReturnValue
+    public CompletionStage<TextChannel> textChannel(long channelId) {
+        return resolve(channelId, this.shardManager::getTextChannelById, this.pendingTextChannels, "text_channel");
+    }
+
+    @CheckReturnValue
+    public CompletionStage<Guild> guild(long guildId) {
+        return resolve(guildId, this.shardManager::getGuildById, this.pendingGuilds, "guild");
+    }
+
+    @EventListener
+    public void onGuildReady(GuildReadyEvent event) {
+        retryPending();
+    }
+
+    @EventListener
+    public void onGuildAvailable(GuildAvailableEvent event) {
+        retryPending();
+    }
+
+    @EventListener
+    public void onReconnected(ReconnectedEvent event) {
+        retryPending();
+    }
+
+    @EventListener
+    public void onResumed(ResumedEvent event) {
+        retryPending();
+    }
+
+    private <T> CompletionStage<T> resolve(long id, LongFunction<T> cacheLookup,
+                                           Map<Long, CompletableFuture<T>> pending, String type) {
+
+        T cached = cacheLookup.apply(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<T> waiting = pending.computeIfAbsent(id, __ -> {
+            log.warn("Could not find {} {} in the cache, waiting for it to show up", type, id);
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.orTimeout(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((entity, throwable) -> {
+                        pending.remove(id, future);
+                        String outcome = throwable instanceof TimeoutException ? "timed_out" : "resolved";
+                        MetricsRegistry.entityCacheMisses.labels(type, outcome).inc();
+                    });
+            return future;
+        });
+        // it may have shown up while we were busy setting up the wait
+        T entity = cacheLookup.apply(id);
+        if (entity != null) {
+            waiting.complete(entity);
+        }
+        return waiting.copy();
+    }
+
+    private void retryPending() {
+        retryPending(this.pendingTextChannels, this.shardManager::getTextChannelById);
+        retryPending(this.pendingGuilds, this.shardManager::getGuildById);
+    }
+
+    private <T> void retryPending(Map<Long, CompletableFuture<T>> pending, LongFunction<T> cacheLookup) {
+        pending.forEach((id, future) -> {
+            T entity = cacheLookup.apply(id);
+            if (entity != null) {
+                future.complete(entity);
+            }
+        });
+    }
+}
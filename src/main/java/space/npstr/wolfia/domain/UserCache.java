@@ -18,6 +18,8 @@
 package space.npstr.wolfia.domain;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.CheckReturnValue;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
@@ -34,7 +36,7 @@
 @Component
 public class UserCache {
 
-    private static final String UNKNOWN_USER_NAME = "Unknown User";
+    public static final String UNKNOWN_USER_NAME = "Unknown User";
 
     @CheckReturnValue
     public Action user(long userId) {
@@ -50,9 +52,16 @@ private Action(long userId) {
         }
 
         public Optional<User> get() {
+            return getAsync().toCompletableFuture().join();
+        }
+
+        /**
+         * Like {@link #get()}, but does not block when the user needs to be fetched from Discord.
+         */
+        public CompletionStage<Optional<User>> getAsync() {
             User user = getShardManager().getUserById(this.userId);
             if (user != null) {
-                return Optional.of(user);
+                return CompletableFuture.completedFuture(Optional.of(user));
             }
 
             return getShardManager().retrieveUserById(this.userId).submit()
@@ -63,9 +72,8 @@ public Optional<User> get() {
                                 throw new IllegalStateException("Unexpected exception when retrieving user", realCause);
                             }
                         }
-                        return Optional.ofNullable(u);
-                    })
-                    .toCompletableFuture().join();
+                        return Optional.<User>ofNullable(u);
+                    });
         }
 
         @CheckReturnValue
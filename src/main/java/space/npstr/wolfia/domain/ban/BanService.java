@@ -18,6 +18,8 @@
 package space.npstr.wolfia.domain.ban;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import org.springframework.stereotype.Service;
 import space.npstr.wolfia.game.definitions.Scope;
 
@@ -31,9 +33,12 @@ public BanService(BanRepository repository) {
     }
 
     public boolean isBanned(long userId) {
+        return isBannedAsync(userId).toCompletableFuture().join();
+    }
+
+    public CompletionStage<Boolean> isBannedAsync(long userId) {
         return this.repository.findOne(userId, Scope.GLOBAL)
-                .toCompletableFuture().join()
-                .isPresent();
+                .thenApply(Optional::isPresent);
     }
 
     public void ban(long userId) {
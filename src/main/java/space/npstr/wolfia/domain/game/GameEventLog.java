@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+import space.npstr.wolfia.domain.stats.ActionStats;
+import space.npstr.wolfia.domain.stats.GameStats;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+
+/**
+ * Append-only log of the actions of running games, plus the latest snapshot of each game's state. Both are written to
+ * the database in batches while the games are running, instead of only once a game is over, so that a bot going down
+ * mid-game does not lose everything that happened in it.
+ */
+@Component
+public class GameEventLog {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GameEventLog.class);
+
+    static final int BATCH_SIZE = 50;
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+
+    private final GameEventLogRepository repository;
+    private final ExceptionLoggingExecutor executor;
+    private final Queue<LoggedAction> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger eventCount = new AtomicInteger(0);
+    private final Map<Long, GameSnapshot> snapshots = new ConcurrentHashMap<>();
+    // writes need to happen in order, so that a discarded game can't be brought back by a flush running late
+    private final Object writeLock = new Object();
+
+    public GameEventLog(GameEventLogRepository repository, ExceptionLoggingExecutor executor) {
+        this.repository = repository;
+        this.executor = executor;
+
+        executor.scheduleAtFixedRate(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Append an action to the log of its game. It will be written with the next batch.
+     *
+     * @param recorded
+     *         true if the action is part of the stats of the game, false if it may still be taken back, like a vote.
+     *         Appending the same action again once it has been recorded is fine.
+     */
+    public void append(ActionStats action, boolean recorded) {
+        this.events.add(ImmutableLoggedAction.builder()
+                .action(action)
+                .isRecorded(recorded)
+                .build());
+        if (this.eventCount.incrementAndGet() == BATCH_SIZE) {
+            this.executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Replaces any snapshot of the same game that has not been written yet.
+     */
+    public void snapshot(GameSnapshot snapshot) {
+        this.snapshots.put(snapshot.getChannelId(), snapshot);
+    }
+
+    /**
+     * @return amount of events waiting to be written
+     */
+    public int getPendingEventCount() {
+        return this.eventCount.get();
+    }
+
+    /**
+     * Write all pending events and snapshots. Anything that fails to be written is kept for the next flush.
+     */
+    public void flush() {
+        synchronized (this.writeLock) {
+            List<LoggedAction> batch = new ArrayList<>();
+            LoggedAction event;
+            while ((event = this.events.poll()) != null) {
+                this.eventCount.decrementAndGet();
+                batch.add(event);
+            }
+            List<GameSnapshot> snapshotBatch = new ArrayList<>();
+            for (Long channelId : this.snapshots.keySet()) {
+                GameSnapshot snapshot = this.snapshots.remove(channelId);
+                if (snapshot != null) {
+                    snapshotBatch.add(snapshot);
+                }
+            }
+            if (batch.isEmpty() && snapshotBatch.isEmpty()) {
+                return;
+            }
+
+            try {
+                this.repository.persist(batch, snapshotBatch).toCompletableFuture().join();
+            } catch (Exception e) {
+                log.warn("Failed to write {} game events and {} snapshots, will retry with the next flush",
+                        batch.size(), snapshotBatch.size(), e);
+                for (LoggedAction failed : batch) {
+                    this.events.add(failed);
+                    this.eventCount.incrementAndGet();
+                }
+                for (GameSnapshot failed : snapshotBatch) {
+                    this.snapshots.putIfAbsent(failed.getChannelId(), failed); // don't overwrite a newer one
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the log and snapshot of a game, for example because it is over and its stats have been recorded.
+     */
+    public void discard(long channelId, long gameStart) {
+        this.executor.execute(() -> {
+            synchronized (this.writeLock) {
+                Iterator<LoggedAction> iterator = this.events.iterator();
+                while (iterator.hasNext()) {
+                    ActionStats event = iterator.next().getAction();
+                    if (event.getGame().getChannelId() == channelId && event.getGame().getStartTime() == gameStart) {
+                        iterator.remove();
+                        this.eventCount.decrementAndGet();
+                    }
+                }
+                this.snapshots.computeIfPresent(channelId,
+                        (id, snapshot) -> snapshot.getGameStart() == gameStart ? null : snapshot);
+
+                this.repository.delete(channelId, gameStart).toCompletableFuture().join();
+            }
+        });
+    }
+
+    /**
+     * Load the recorded actions of a game from the database, to continue its stats after a restart. Make sure the log
+     * has been flushed before.
+     */
+    public List<ActionStats> loadRecordedActions(GameStats game) {
+        return this.repository.findRecordedActions(game).toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import io.prometheus.client.Summary;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+import javax.annotation.CheckReturnValue;
+import org.jooq.DSLContext;
+import org.jooq.JSONB;
+import org.jooq.RecordMapper;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Repository;
+import space.npstr.wolfia.db.AsyncDbWrapper;
+import space.npstr.wolfia.db.gen.tables.records.GameEventRecord;
+import space.npstr.wolfia.db.gen.tables.records.GameSnapshotRecord;
+import space.npstr.wolfia.domain.stats.ActionStats;
+import space.npstr.wolfia.domain.stats.GameStats;
+import space.npstr.wolfia.game.definitions.Actions;
+import space.npstr.wolfia.game.definitions.Phase;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
+
+import static space.npstr.wolfia.db.gen.Tables.GAME_EVENT;
+import static space.npstr.wolfia.db.gen.Tables.GAME_SNAPSHOT;
+
+@Repository
+public class GameEventLogRepository {
+
+    private final AsyncDbWrapper wrapper;
+
+    public GameEventLogRepository(AsyncDbWrapper wrapper) {
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * Appends the events to the log and replaces the snapshots of the affected games. Events that have been persisted
+     * already are ignored, unless they have been recorded into the stats of their game since.
+     *
+     * @return amount of rows written
+     */
+    @CheckReturnValue
+    public CompletionStage<Integer> persist(Collection<LoggedAction> events, Collection<GameSnapshot> snapshots) {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("persistGameEvents");
+        return this.wrapper.jooq(dsl -> dsl.transactionResult(config -> timer.time(() -> {
+                    DSLContext context = DSL.using(config);
+                    int written = 0;
+
+                    Map<Boolean, List<ActionStats>> actions = events.stream()
+                            .collect(Collectors.partitioningBy(LoggedAction::isRecorded,
+                                    Collectors.mapping(LoggedAction::getAction, Collectors.toList())));
+                    List<ActionStats> recorded = actions.get(true);
+                    if (!recorded.isEmpty()) {
+                        // replace votes and night actions that were logged before they made it into the stats
+                        context.deleteFrom(GAME_EVENT)
+                                .where(GAME_EVENT.RECORDED.isFalse())
+                                .and(DSL.row(GAME_EVENT.CHANNEL_ID, GAME_EVENT.GAME_START, GAME_EVENT.SEQUENCE)
+                                        .in(recorded.stream()
+                                                .map(action -> DSL.row(action.getGame().getChannelId(),
+                                                        action.getGame().getStartTime(), action.getOrder()))
+                                                .collect(Collectors.toList())))
+                                .execute();
+                        written += insertActions(context, recorded, true);
+                    }
+                    List<ActionStats> unrecorded = actions.get(false);
+                    if (!unrecorded.isEmpty()) {
+                        written += insertActions(context, unrecorded, false);
+                    }
+
+                    for (GameSnapshot snapshot : snapshots) {
+                        JSONB state = JSONB.valueOf(snapshot.getState());
+                        long created = snapshot.getCreated().toEpochMilli();
+                        written += context
+                                .insertInto(GAME_SNAPSHOT)
+                                .columns(GAME_SNAPSHOT.CHANNEL_ID, GAME_SNAPSHOT.GAME_START, GAME_SNAPSHOT.SEQUENCE,
+                                        GAME_SNAPSHOT.CREATED, GAME_SNAPSHOT.STATE, GAME_SNAPSHOT.HIBERNATED)
+                                .values(snapshot.getChannelId(), snapshot.getGameStart(), snapshot.getSequence(),
+                                        created, state, snapshot.isHibernated())
+                                .onDuplicateKeyUpdate()
+                                .set(GAME_SNAPSHOT.GAME_START, snapshot.getGameStart())
+                                .set(GAME_SNAPSHOT.SEQUENCE, snapshot.getSequence())
+                                .set(GAME_SNAPSHOT.CREATED, created)
+                                .set(GAME_SNAPSHOT.STATE, state)
+                                .set(GAME_SNAPSHOT.HIBERNATED, snapshot.isHibernated())
+                                .execute();
+                    }
+
+                    return written;
+                }
+        )));
+    }
+
+    /**
+     * @return the latest snapshot of each game that was running when the bot went down
+     */
+    @CheckReturnValue
+    public CompletionStage<List<GameSnapshot>> findSnapshots() {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("findGameSnapshots");
+        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
+                .selectFrom(GAME_SNAPSHOT)
+                .fetch(snapshotMapper())
+        ));
+    }
+
+    /**
+     * @return the actions of the game that are part of its stats, in the order they happened
+     */
+    @CheckReturnValue
+    public CompletionStage<List<ActionStats>> findRecordedActions(GameStats game) {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("findRecordedGameEvents");
+        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
+                .selectFrom(GAME_EVENT)
+                .where(GAME_EVENT.CHANNEL_ID.eq(game.getChannelId()))
+                .and(GAME_EVENT.GAME_START.eq(game.getStartTime()))
+                .and(GAME_EVENT.RECORDED.isTrue())
+                .orderBy(GAME_EVENT.SEQUENCE.asc())
+                .fetch(actionMapper(game))
+        ));
+    }
+
+    private int insertActions(DSLContext context, List<ActionStats> actions, boolean recorded) {
+        var insert = context
+                .insertInto(GAME_EVENT, GAME_EVENT.CHANNEL_ID, GAME_EVENT.GAME_START, GAME_EVENT.SEQUENCE,
+                        GAME_EVENT.ACTION_TYPE, GAME_EVENT.ACTOR, GAME_EVENT.TARGET, GAME_EVENT.CYCLE, GAME_EVENT.PHASE,
+                        GAME_EVENT.SUBMITTED, GAME_EVENT.HAPPENED, GAME_EVENT.ADDITIONAL_INFO, GAME_EVENT.RECORDED);
+        for (ActionStats action : actions) {
+            insert = insert.values(action.getGame().getChannelId(), action.getGame().getStartTime(),
+                    action.getOrder(), action.getActionType().name(), action.getActor(), action.getTarget(),
+                    action.getCycle(), action.getPhase().name(), action.getTimeStampSubmitted(),
+                    action.getTimeStampHappened(), action.getAdditionalInfo(), recorded);
+        }
+        return insert.onConflictDoNothing().execute();
+    }
+
+    private RecordMapper<GameSnapshotRecord, GameSnapshot> snapshotMapper() {
+        return record -> ImmutableGameSnapshot.builder()
+                .channelId(record.getChannelId())
+                .gameStart(record.getGameStart())
+                .sequence(record.getSequence())
+                .created(Instant.ofEpochMilli(record.getCreated()))
+                .state(record.getState().data())
+                .isHibernated(record.getHibernated())
+                .build();
+    }
+
+    private RecordMapper<GameEventRecord, ActionStats> actionMapper(GameStats game) {
+        return record -> new ActionStats(game, record.getSequence(), record.getSubmitted(), record.getHappened(),
+                record.getCycle(), Phase.valueOf(record.getPhase()), record.getActor(),
+                Actions.valueOf(record.getActionType()), record.getTarget(), record.getAdditionalInfo());
+    }
+
+    /**
+     * Remove the event log and the snapshot of a game.
+     *
+     * @return amount of rows deleted
+     */
+    @CheckReturnValue
+    public CompletionStage<Integer> delete(long channelId, long gameStart) {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("deleteGameEvents");
+        return this.wrapper.jooq(dsl -> dsl.transactionResult(config -> timer.time(() -> {
+                    DSLContext context = DSL.using(config);
+                    int deleted = context
+                            .deleteFrom(GAME_EVENT)
+                            .where(GAME_EVENT.CHANNEL_ID.eq(channelId))
+                            .and(GAME_EVENT.GAME_START.eq(gameStart))
+                            .execute();
+                    deleted += context
+                            .deleteFrom(GAME_SNAPSHOT)
+                            .where(GAME_SNAPSHOT.CHANNEL_ID.eq(channelId))
+                            .and(GAME_SNAPSHOT.GAME_START.eq(gameStart))
+                            .execute();
+                    return deleted;
+                }
+        )));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nullable;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.json.JSONObject;
+import org.springframework.stereotype.Component;
+import space.npstr.wolfia.game.Game;
+import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.utils.discord.RestActions;
+
+/**
+ * Pauses the running games when the bot shuts down, and resumes them from their snapshots once it is back, so that a
+ * restart does not have to wait for all games to end.
+ */
+@Component
+public class GameHibernator {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GameHibernator.class);
+
+    private final GameRegistry gameRegistry;
+    private final GameEventLog eventLog;
+    private final GameEventLogRepository repository;
+    private final ShardManager shardManager;
+    private final CompletableFuture<Void> resumed = new CompletableFuture<>();
+
+    public GameHibernator(GameRegistry gameRegistry, GameEventLog eventLog, GameEventLogRepository repository,
+                          ShardManager shardManager) {
+
+        this.gameRegistry = gameRegistry;
+        this.eventLog = eventLog;
+        this.repository = repository;
+        this.shardManager = shardManager;
+    }
+
+    /**
+     * Pause all running games and write their state to the database.
+     *
+     * @return amount of games that have been paused
+     */
+    public int hibernateAll() {
+        int hibernated = 0;
+        for (Game game : this.gameRegistry.getAll().values()) {
+            try {
+                if (game.hibernate()) {
+                    this.gameRegistry.remove(game);
+                    hibernated++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to hibernate game in channel {}", game.getChannelId(), e);
+            }
+        }
+        this.eventLog.flush();
+        return hibernated;
+    }
+
+    /**
+     * Resume the games that were paused during the last shutdown. Games that were running when the bot went down
+     * without pausing them, for example due to a crash, cannot be resumed and are dropped. Dropped games have their
+     * channel permissions reset and their wolf chat released.
+     *
+     * @return amount of games that have been resumed
+     */
+    public int resumeAll() {
+        try {
+            List<GameSnapshot> snapshots = this.repository.findSnapshots().toCompletableFuture().join();
+            int resumed = 0;
+            for (GameSnapshot snapshot : snapshots) {
+                if (!snapshot.isHibernated()) {
+                    log.warn("Dropping game in channel {} that was not hibernated", snapshot.getChannelId());
+                    drop(snapshot, null,
+                            "The game in this channel was lost when I went down unexpectedly. Sorry about that.");
+                    continue;
+                }
+                if (resume(snapshot)) {
+                    resumed++;
+                }
+            }
+            return resumed;
+        } finally {
+            this.resumed.complete(null);
+        }
+    }
+
+    /**
+     * @return a stage that completes once {@link #resumeAll()} is done, successful or not. Commands wait for it, so
+     * that they can't reach a channel before its game is back.
+     */
+    public CompletionStage<Void> whenResumed() {
+        return this.resumed.copy();
+    }
+
+    private boolean resume(GameSnapshot snapshot) {
+        Game game = null;
+        try {
+            game = newGame(snapshot);
+            game.resume(snapshot);
+            this.gameRegistry.set(game);
+            log.info("Resumed game in channel {}", snapshot.getChannelId());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to resume game in channel {}", snapshot.getChannelId(), e);
+            drop(snapshot, game,
+                    "The game in this channel could not be continued after my restart. Sorry about that.");
+            return false;
+        }
+    }
+
+    private static Game newGame(GameSnapshot snapshot) throws ReflectiveOperationException {
+        Games gameType = Games.valueOf(new JSONObject(snapshot.getState()).getString("game"));
+        return gameType.clazz.getConstructor().newInstance();
+    }
+
+    /**
+     * @param game
+     *         the game that failed to resume, if it got that far, so that whatever it got a hold of already, like its
+     *         wolf chat, is given back
+     */
+    private void drop(GameSnapshot snapshot, @Nullable Game game, String message) {
+        try {
+            Game toCleanUp = game != null ? game : newGame(snapshot);
+            toCleanUp.cleanUpAfter(snapshot);
+        } catch (Exception e) {
+            log.error("Failed to clean up after game in channel {} that is dropped", snapshot.getChannelId(), e);
+        }
+        this.repository.delete(snapshot.getChannelId(), snapshot.getGameStart()).toCompletableFuture().join();
+        TextChannel channel = this.shardManager.getTextChannelById(snapshot.getChannelId());
+        if (channel != null) {
+            RestActions.sendMessage(channel, message);
+        }
+    }
+}
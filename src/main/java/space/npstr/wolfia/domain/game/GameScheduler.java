@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import javax.annotation.Nullable;
+import org.springframework.stereotype.Component;
+import space.npstr.prometheus_extensions.ThreadPoolCollector;
+import space.npstr.wolfia.common.Exceptions;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+
+/**
+ * One scheduler shared by all running games, so that the amount of threads does not grow with the amount of games.
+ * <p>
+ * Each game gets its own {@link TaskGroup}, which runs the tasks of that game one at a time, and keeps track of
+ * them, allowing all of them to be cancelled once the game ends or is destroyed.
+ */
+@Component
+public class GameScheduler {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GameScheduler.class);
+
+    //game tasks may block on discord or the database, so have a few more threads than cores around
+    private static final int POOL_SIZE = 20;
+    private static final int MAX_TASKS_PER_DRAIN = 32;
+
+    private final ExceptionLoggingExecutor executor;
+    private final Set<TaskGroup> activeGroups = ConcurrentHashMap.newKeySet();
+
+    public GameScheduler(ThreadPoolCollector poolMetrics) {
+        final var threadCounter = new AtomicInteger();
+        this.executor = new ExceptionLoggingExecutor(POOL_SIZE, r -> {
+            Thread t = new Thread(r, "game-scheduler-t" + threadCounter.getAndIncrement());
+            t.setUncaughtExceptionHandler(Exceptions.UNCAUGHT_EXCEPTION_HANDLER);
+            return t;
+        });
+        //cancelled phase timers should not linger in the queue until their delay runs out
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        poolMetrics.addPool("game", this.executor);
+    }
+
+    /**
+     * @param channelId
+     *         supplies the id of the channel the game is running in. Only used for metrics and logging, so it is fine
+     *         if it changes until the game is started.
+     *
+     * @return a new group to schedule the tasks of a single game on
+     */
+    public TaskGroup newTaskGroup(LongSupplier channelId) {
+        return new TaskGroup(channelId);
+    }
+
+    /**
+     * @return amount of pending tasks of each game that has any, keyed by the channel id of the game
+     */
+    public Map<Long, Integer> getPendingTaskCounts() {
+        return countPerGame(TaskGroup::getPendingTaskCount);
+    }
+
+    /**
+     * @return amount of tasks waiting in the queue of each game that has any pending tasks, keyed by the channel id
+     * of the game
+     */
+    public Map<Long, Integer> getQueuedTaskCounts() {
+        return countPerGame(TaskGroup::getQueuedTaskCount);
+    }
+
+    private Map<Long, Integer> countPerGame(ToIntFunction<TaskGroup> counter) {
+        if (this.activeGroups.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> result = new HashMap<>();
+        for (TaskGroup group : this.activeGroups) {
+            result.merge(group.channelId.getAsLong(), counter.applyAsInt(group), Integer::sum);
+        }
+        return result;
+    }
+
+    public void shutdownNow() {
+        this.activeGroups.forEach(TaskGroup::cancelAll);
+        this.executor.shutdownNow();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * The tasks of a single game, which also acts as the event loop of that game: Tasks of the same group are run one
+     * at a time in the order they were queued, while tasks of different groups run in parallel on the shared pool.
+     * As long as a game runs all changes to its state through its group, it does not need any locks.
+     */
+    public class TaskGroup {
+
+        private final LongSupplier channelId;
+        private final Set<Future<?>> pending = ConcurrentHashMap.newKeySet();
+        private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger(0);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        @Nullable
+        private volatile Thread eventLoopThread = null;
+        @Nullable
+        private volatile Runnable currentTask = null;
+        private volatile boolean cancelled = false;
+        private volatile Supplier<CompletionStage<?>> precondition = () -> null;
+
+        private TaskGroup(LongSupplier channelId) {
+            this.channelId = channelId;
+        }
+
+        /**
+         * @param precondition
+         *         asked before queued tasks are run. When it returns a stage, the tasks are held back until that stage
+         *         completes, successfully or not, without taking up a thread of the pool while waiting. Returns null
+         *         when the tasks can run right away.
+         */
+        public void setPrecondition(Supplier<CompletionStage<?>> precondition) {
+            this.precondition = precondition;
+        }
+
+        /**
+         * Queue the task on this group after the delay has passed.
+         */
+        public Future<?> schedule(Runnable task, Duration delay) {
+            GameTask<Void> gameTask = new GameTask<>(exceptionLogging(task));
+            track(gameTask);
+            gameTask.trigger = GameScheduler.this.executor.schedule(() -> enqueue(gameTask),
+                    delay.toMillis(), TimeUnit.MILLISECONDS);
+            return gameTask;
+        }
+
+        /**
+         * Queue the task on this group. Any exceptions thrown by it are logged.
+         */
+        public Future<?> submit(Runnable task) {
+            GameTask<Void> gameTask = new GameTask<>(exceptionLogging(task));
+            track(gameTask);
+            enqueue(gameTask);
+            return gameTask;
+        }
+
+        /**
+         * Queue the task on this group. Any exceptions thrown by it are passed on to the returned future.
+         */
+        public <T> Future<T> submit(Callable<T> task) {
+            GameTask<T> gameTask = new GameTask<>(task);
+            track(gameTask);
+            enqueue(gameTask);
+            return gameTask;
+        }
+
+        /**
+         * @return true if the calling thread is currently executing a task of this group. Waiting on another task of
+         * this group from such a thread would deadlock.
+         */
+        public boolean inEventLoop() {
+            return Thread.currentThread() == this.eventLoopThread;
+        }
+
+        /**
+         * Cancel all pending tasks of this group. The task that is currently executing is left alone, since the
+         * thread calling this is most likely running it. Any tasks scheduled afterwards are cancelled right away.
+         */
+        public void cancelAll() {
+            this.cancelled = true;
+            GameScheduler.this.activeGroups.remove(this);
+            Runnable running = this.currentTask;
+            int cancelledTasks = 0;
+            for (Future<?> future : this.pending) {
+                if (future != running && future.cancel(false)) {
+                    cancelledTasks++;
+                }
+            }
+            this.pending.clear();
+            if (cancelledTasks > 0) {
+                log.debug("Cancelled {} pending tasks of game in channel {}", cancelledTasks, this.channelId.getAsLong());
+            }
+        }
+
+        /**
+         * @return amount of tasks that are scheduled or queued, but have not run yet
+         */
+        public int getPendingTaskCount() {
+            this.pending.removeIf(Future::isDone);
+            return this.pending.size();
+        }
+
+        /**
+         * @return amount of tasks waiting in the queue for their turn to run
+         */
+        public int getQueuedTaskCount() {
+            return this.queued.get();
+        }
+
+        private void track(GameTask<?> gameTask) {
+            this.pending.removeIf(Future::isDone);
+            this.pending.add(gameTask);
+            GameScheduler.this.activeGroups.add(this);
+            if (this.cancelled) { //game is over already, or we raced with cancelAll()
+                cancelAll();
+            }
+        }
+
+        private void enqueue(Runnable task) {
+            this.queued.incrementAndGet();
+            this.mailbox.add(task);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (this.draining.compareAndSet(false, true)) {
+                GameScheduler.this.executor.execute(() -> drain(true));
+            }
+        }
+
+        private void drain(boolean checkPrecondition) {
+            CompletionStage<?> unmet = checkPrecondition ? checkPrecondition() : null;
+            if (unmet != null) {
+                //stay marked as draining while we wait, so that newly queued tasks don't start another drain.
+                // once the wait is over the tasks get their turn either way, and deal with whatever is still missing
+                unmet.whenComplete((__, ___) -> GameScheduler.this.executor.execute(() -> drain(false)));
+                return;
+            }
+            this.eventLoopThread = Thread.currentThread();
+            try {
+                //hand the thread back to the pool every now and then, so busy games cannot starve the other ones
+                for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+                    Runnable task = this.mailbox.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    this.queued.decrementAndGet();
+                    this.currentTask = task;
+                    task.run();
+                }
+            } finally {
+                this.currentTask = null;
+                this.eventLoopThread = null;
+                this.draining.set(false);
+            }
+            //pick up tasks that did not fit into this run, or that were queued while we were finishing up
+            if (!this.mailbox.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        @Nullable
+        private CompletionStage<?> checkPrecondition() {
+            try {
+                return this.precondition.get();
+            } catch (Exception e) {
+                log.error("Failed to check the precondition of game in channel {}", this.channelId.getAsLong(), e);
+                return null;
+            }
+        }
+    }
+
+    private static Callable<Void> exceptionLogging(Runnable task) {
+        return Executors.callable(ExceptionLoggingExecutor.wrapRunnableExceptionSafe(task), null);
+    }
+
+    /**
+     * A task that, when cancelled, also cancels the scheduled trigger queueing it.
+     */
+    private static class GameTask<T> extends FutureTask<T> {
+
+        @Nullable
+        private volatile Future<?> trigger = null;
+
+        private GameTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            Future<?> t = this.trigger;
+            if (t != null) {
+                t.cancel(false);
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.time.Instant;
+import org.immutables.value.Value;
+
+/**
+ * The state of a running game at some point in time.
+ */
+@Value.Immutable
+@Value.Style(
+        stagedBuilder = true,
+        strictBuilder = true
+)
+public interface GameSnapshot {
+
+    long getChannelId();
+
+    long getGameStart();
+
+    /**
+     * @return sequence number of the last action that happened before this snapshot was taken
+     */
+    int getSequence();
+
+    Instant getCreated();
+
+    /**
+     * @return state of the game as json
+     */
+    String getState();
+
+    /**
+     * @return true if the snapshot was taken because the bot shut down, and the game should be resumed from it
+     */
+    boolean isHibernated();
+
+}
@@ -15,26 +15,27 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package space.npstr.wolfia.system;
+package space.npstr.wolfia.domain.game;
 
-import net.dv8tion.jda.api.events.GenericEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.stereotype.Component;
+import org.immutables.value.Value;
+import space.npstr.wolfia.domain.stats.ActionStats;
 
-import javax.annotation.Nonnull;
-
-@Component
-public class DiscordEventListenerPublisher extends ListenerAdapter {
+/**
+ * An action of a running game as it is kept in the {@link GameEventLog}.
+ */
+@Value.Immutable
+@Value.Style(
+        stagedBuilder = true,
+        strictBuilder = true
+)
+public interface LoggedAction {
 
-    private final ApplicationEventPublisher eventPublisher;
+    ActionStats getAction();
 
-    public DiscordEventListenerPublisher(ApplicationEventPublisher eventPublisher) {
-        this.eventPublisher = eventPublisher;
-    }
+    /**
+     * @return true if the action is part of the stats of the game, false if it may still be taken back, like a vote
+     * during an ongoing day
+     */
+    boolean isRecorded();
 
-    @Override
-    public void onGenericEvent(@Nonnull GenericEvent event) {
-        this.eventPublisher.publishEvent(event);
-    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.privacy;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.prometheus.client.cache.caffeine.CacheMetricsCollector;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches whether users allow us to process their data, which is checked for every single command.
+ * <p>
+ * Users who opted out before the bot started are kept in a sorted array, everyone else is looked up on demand and
+ * cached, including users that we have no record of. Opting out cannot be undone, so all entries stay valid until
+ * the user deletes their data.
+ */
+@Component
+public class PrivacyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PrivacyCache.class);
+
+    private final PrivacyRepository repository;
+    private final long[] optedOut;
+    private final AsyncCache<Long, Boolean> cache = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .maximumSize(100000)
+            .recordStats()
+            .buildAsync();
+
+    public PrivacyCache(PrivacyRepository repository, CacheMetricsCollector cacheMetricsCollector) {
+        this.repository = repository;
+        this.optedOut = repository.findAllDeniedProcessData()
+                .toCompletableFuture().join()
+                .stream()
+                .mapToLong(Privacy::getUserId)
+                .sorted()
+                .toArray();
+        log.info("{} users who opted out of data processing loaded", this.optedOut.length);
+        cacheMetricsCollector.addCache("privacyCache", this.cache.synchronous());
+    }
+
+    public CompletionStage<Boolean> isDataProcessingEnabled(long userId) {
+        if (Arrays.binarySearch(this.optedOut, userId) >= 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return this.cache.get(userId, (id, executor) -> this.repository.findOne(id)
+                .thenApply(privacy -> privacy
+                        .map(Privacy::isProcessData)
+                        .orElse(true))
+                .toCompletableFuture());
+    }
+
+    @EventListener
+    public void onDataDelete(PersonalDataDelete dataDelete) {
+        // replace rather than invalidate the entry, so a lookup that started before the deletion cannot put back a stale
+        // result when it completes
+        this.cache.put(dataDelete.userId(), CompletableFuture.completedFuture(false));
+    }
+}
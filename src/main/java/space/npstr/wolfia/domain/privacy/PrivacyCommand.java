@@ -33,6 +33,8 @@
 @Command
 public class PrivacyCommand implements BaseCommand, PublicCommand, Conversation {
 
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PrivacyCommand.class);
+
     public static final String TRIGGER = "privacy";
 
     private static final String OPTION_READ = "read";
@@ -154,7 +156,12 @@ private boolean optionSelected(MessageReceivedEvent event) {
 
             if (rawContent.toLowerCase().startsWith(OPTION_CONFIRM)) {
                 context.reply("Goodbye.");
-                privacyService.dataDelete(event.getAuthor().getIdLong());
+                long userId = event.getAuthor().getIdLong();
+                privacyService.dataDeleteAsync(userId).whenComplete((ignored, t) -> {
+                    if (t != null) {
+                        log.error("Failed to delete the data of user {}", userId, t);
+                    }
+                });
                 return true;
             }
 
@@ -17,10 +17,12 @@
 
 package space.npstr.wolfia.domain.privacy;
 
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
 
 @Service
 public class PrivacyService {
@@ -29,22 +31,40 @@ public class PrivacyService {
 
     private final ApplicationEventPublisher eventPublisher;
     private final PrivacyRepository privacyRepository;
+    private final PrivacyCache privacyCache;
+    private final ExceptionLoggingExecutor executor;
+
+    public PrivacyService(ApplicationEventPublisher eventPublisher, PrivacyRepository privacyRepository,
+                          PrivacyCache privacyCache, ExceptionLoggingExecutor executor) {
 
-    public PrivacyService(ApplicationEventPublisher eventPublisher, PrivacyRepository privacyRepository) {
         this.eventPublisher = eventPublisher;
         this.privacyRepository = privacyRepository;
+        this.privacyCache = privacyCache;
+        this.executor = executor;
     }
 
     public boolean isDataProcessingEnabled(long userId) {
-        return this.privacyRepository.findOne(userId)
-                .toCompletableFuture().join()
-                .map(Privacy::isProcessData)
-                .orElse(true);
+        return isDataProcessingEnabledAsync(userId).toCompletableFuture().join();
+    }
+
+    public CompletionStage<Boolean> isDataProcessingEnabledAsync(long userId) {
+        return this.privacyCache.isDataProcessingEnabled(userId);
     }
 
     public void dataDelete(long userId) {
-        this.privacyRepository.setProcessData(userId, false)
-                .toCompletableFuture().join();
+        dataDeleteAsync(userId).toCompletableFuture().join();
+    }
+
+    /**
+     * The listeners of the data deletion block, for example on discord requests, so they are not run on the database
+     * threads that complete the stage of the update.
+     */
+    public CompletionStage<Void> dataDeleteAsync(long userId) {
+        return this.privacyRepository.setProcessData(userId, false)
+                .thenAcceptAsync(privacy -> publishDataDelete(userId), this.executor);
+    }
+
+    private void publishDataDelete(long userId) {
         try {
             this.eventPublisher.publishEvent(ImmutablePersonalDataDelete.builder()
                     .userId(userId)
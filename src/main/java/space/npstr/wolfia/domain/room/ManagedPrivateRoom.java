@@ -31,7 +31,6 @@
 import space.npstr.wolfia.utils.discord.RestActions;
 import space.npstr.wolfia.utils.discord.RoleAndPermissionUtils;
 import space.npstr.wolfia.utils.discord.TextchatUtils;
-import space.npstr.wolfia.utils.log.LogTheStackException;
 
 import javax.annotation.Nonnull;
 import java.util.Collection;
@@ -136,6 +135,23 @@ public void beginUsage(final Collection<Long> wolfUserIds) {
         }
     }
 
+    /**
+     * Continue the usage of this private guild by a game that was running before a restart. The wolf chat channel
+     * and its members are left as they are.
+     */
+    public void resumeUsage(final long channelId, final Collection<Long> wolfUserIds) {
+        synchronized (usageLock) {
+            if (this.inUse) {
+                throw new IllegalStateException("Can't resume the usage of a private guild #" + this.privateRoom.getNumber() + " that is being used already");
+            }
+            this.inUse = true;
+        }
+
+        this.allowedUsers.clear();
+        this.allowedUsers.addAll(wolfUserIds);
+        this.currentChannelId = channelId;
+    }
+
     //kick everyone, except guild owner and bots
     private void cleanUpMembers() {
         this.allowedUsers.clear();
@@ -151,8 +167,8 @@ public void endUsage() {
             if (!this.inUse) {
                 throw new IllegalStateException("Can't end the usage of a private guild #" + this.privateRoom.getNumber() + " that is not in use ");
             }
-            cleanUpMembers();
             try {//complete() in here to catch errors
+                cleanUpMembers();
                 //revoke all invites
                 for (final TextChannel channel : fetchThisGuild().getTextChannels()) {
                     final List<Invite> invites = channel.retrieveInvites().complete();
@@ -189,24 +205,13 @@ public long getChannelId() {
     //this method assumes that the id itself is legit and not a mistake and we are member of this private guild
     // it is an attempt to improve the occasional inconsistency of discord which makes looking up entities a gamble
     // the main feature being the @Nonnull return contract, over the @Nullable contract of looking the entity up in JDA
+    // a guild missing from the cache is not waited for in here, games make sure it is there before they use the room
     @Nonnull
     private Guild fetchThisGuild() {
-        ShardManager shardManager = Launcher.getBotContext().getShardManager();
-        Guild guild = shardManager.getGuildById(this.privateRoom.getGuildId());
-        int attempts = 0;
-        while (guild == null) {
-            attempts++;
-            if (attempts > 100) {
-                throw new RuntimeException("Failed to fetch private guild #" + this.privateRoom.getNumber());
-            }
-            log.error("Could not find private guild #{} with id {}, trying in a moment",
-                    this.privateRoom.getNumber(), this.privateRoom.getGuildId(), new LogTheStackException());
-            try {
-                Thread.sleep(5000);
-            } catch (final InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            guild = shardManager.getGuildById(this.privateRoom.getGuildId());
+        final Guild guild = Launcher.getBotContext().getEntityResolver().guild(this.privateRoom.getGuildId())
+                .toCompletableFuture().getNow(null);
+        if (guild == null) {
+            throw new IllegalStateException("Private guild #" + this.privateRoom.getNumber() + " is not available right now");
         }
         return guild;
     }
@@ -23,11 +23,13 @@
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -64,6 +66,26 @@ public Optional<ManagedPrivateRoom> poll() {
         return Optional.ofNullable(this.availablePrivateRoomQueue.poll());
     }
 
+    /**
+     * Wait for a private room to become available, but no longer than the timeout.
+     */
+    public Optional<ManagedPrivateRoom> poll(Duration timeout) throws InterruptedException {
+        return Optional.ofNullable(this.availablePrivateRoomQueue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Take a specific private room out of the queue, if it is available. Used by games that are resumed after a
+     * restart to get back their wolf chat.
+     */
+    public Optional<ManagedPrivateRoom> poll(int number) {
+        for (ManagedPrivateRoom privateRoom : this.availablePrivateRoomQueue) {
+            if (privateRoom.getNumber() == number && this.availablePrivateRoomQueue.remove(privateRoom)) {
+                return Optional.of(privateRoom);
+            }
+        }
+        return Optional.empty();
+    }
+
     public void putBack(ManagedPrivateRoom privateRoom) {
         this.availablePrivateRoomQueue.add(privateRoom);
     }
@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 @Service
 public class PrivateRoomService {
@@ -66,9 +67,12 @@ public Optional<PrivateRoom> register() {
         }
 
         public boolean isPrivateRoom() {
+            return isPrivateRoomAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<Boolean> isPrivateRoomAsync() {
             return repository.findOneByGuildId(this.guildId)
-                    .toCompletableFuture().join()
-                    .isPresent();
+                    .thenApply(Optional::isPresent);
         }
     }
 }
@@ -20,10 +20,12 @@
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Role;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.GuildCommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
@@ -31,7 +33,7 @@
 import space.npstr.wolfia.domain.Command;
 
 @Command
-public class ChannelSettingsCommand implements BaseCommand, PublicCommand {
+public class ChannelSettingsCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "channelsettings";
 
@@ -76,41 +78,41 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext commandContext) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext commandContext) {
         final GuildCommandContext context = commandContext.requireGuild();
         if (context == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         long channelId = context.textChannel.getIdLong();
         ChannelSettingsService.Action channelAction = this.service.channel(channelId);
-        ChannelSettings channelSettings = channelAction.getOrDefault();
 
         if (!context.hasArguments()) {
-            context.reply(this.render.render(channelSettings));
-            return true;
+            return replyWithSettings(context, channelAction.getOrDefaultAsync());
         }
 
         //is the user allowed to do that?
         if (!context.member.hasPermission(context.textChannel, Permission.MESSAGE_MANAGE) && !context.isOwner()) {
             context.replyWithMention("you need the following permission to edit the settings of this channel: "
                     + "**" + Permission.MESSAGE_MANAGE.getName() + "**");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         if (context.args.length == 1 && "reset".equalsIgnoreCase(context.args[0])) {
-            channelAction.reset();
-            context.replyWithMention("channel settings have been reset.");
-            return true;
+            return channelAction.resetAsync().thenApply(deleted -> {
+                context.replyWithMention("channel settings have been reset.");
+                return true;
+            });
         }
 
         //at least 2 arguments?
         if (context.args.length < 2) {
             context.help();
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         final String option = context.args[0];
+        final CompletionStage<ChannelSettings> channelSettings;
         switch (option.toLowerCase()) {
             case "accessrole":
                 final Role accessRole;
@@ -123,24 +125,24 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                         accessRole = context.guild.getPublicRole();
                     } else if (rolesByName.isEmpty()) {
                         context.replyWithMention("there is no such role in this guild.");
-                        return false;
+                        return CompletableFuture.completedFuture(false);
                     } else if (rolesByName.size() > 1) {
                         context.replyWithMention("there is more than one role with that name in this guild, use a "
                                 + "mention to let me know which one you mean.");
-                        return false;
+                        return CompletableFuture.completedFuture(false);
                     } else {
                         accessRole = rolesByName.get(0);
                     }
                 }
-                channelSettings = channelAction.setAccessRoleId(accessRole.getIdLong());
+                channelSettings = channelAction.setAccessRoleIdAsync(accessRole.getIdLong());
                 break;
             case "tagcooldown":
                 try {
                     final long tagCooldown = Math.max(0L, Long.parseLong(context.args[1]));
-                    channelSettings = channelAction.setTagCooldown(tagCooldown);
+                    channelSettings = channelAction.setTagCooldownAsync(tagCooldown);
                 } catch (final NumberFormatException e) {
                     context.replyWithMention("please use a number of minutes to set the tags cooldown.");
-                    return false;
+                    return CompletableFuture.completedFuture(false);
                 }
                 break;
             case AUTO_OUT:
@@ -155,21 +157,25 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                     String enable = common + ENABLE + "`";
                     String disable = common + DISABLE + "`";
                     context.replyWithMention("I didn't quite get your input. Try saying " + enable + " or " + disable);
-                    return false;
+                    return CompletableFuture.completedFuture(false);
                 }
 
-                if (enableAction) {
-                    channelSettings = channelAction.enableAutoOut();
-                } else {
-                    channelSettings = channelAction.disableAutoOut();
-                }
+                channelSettings = channelAction.setAutoOutAsync(enableAction);
                 break;
             default:
                 context.help();
-                return false;
+                return CompletableFuture.completedFuture(false);
         }
 
-        context.reply(this.render.render(channelSettings));
-        return true;
+        return replyWithSettings(context, channelSettings);
+    }
+
+    private CompletionStage<Boolean> replyWithSettings(GuildCommandContext context,
+                                                      CompletionStage<ChannelSettings> channelSettings) {
+
+        return channelSettings.thenApply(settings -> {
+            context.reply(this.render.render(settings));
+            return true;
+        });
     }
 }
@@ -17,21 +17,55 @@
 
 package space.npstr.wolfia.domain.settings;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.prometheus.client.cache.caffeine.CacheMetricsCollector;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import org.springframework.stereotype.Service;
 
+/**
+ * Channel settings are checked for a lot of commands, so they are cached. All writes go through this service, which
+ * updates the cache with the written settings.
+ */
 @Service
 public class ChannelSettingsService {
 
     private final ChannelSettingsRepository repository;
     private final Clock clock;
-
-    public ChannelSettingsService(ChannelSettingsRepository repository, Clock clock) {
+    private final Cache<Long, ChannelSettings> cache = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .maximumSize(100000)
+            .recordStats()
+            .build();
+    private final GameChannelIndex gameChannelIndex = new GameChannelIndex();
+
+    public ChannelSettingsService(ChannelSettingsRepository repository, Clock clock,
+                                  CacheMetricsCollector cacheMetricsCollector) {
         this.repository = repository;
         this.clock = clock;
+        cacheMetricsCollector.addCache("channelSettingsCache", this.cache);
+    }
+
+    /**
+     * Settings that were read may be outdated by the time they arrive, so they must not replace anything that was
+     * written in the meantime.
+     */
+    private ChannelSettings cacheRead(ChannelSettings channelSettings) {
+        ChannelSettings cached = this.cache.asMap().putIfAbsent(channelSettings.getChannelId(), channelSettings);
+        return cached != null ? cached : channelSettings;
+    }
+
+    private ChannelSettings cacheWrite(ChannelSettings channelSettings) {
+        this.cache.put(channelSettings.getChannelId(), channelSettings);
+        this.gameChannelIndex.update(channelSettings);
+        return channelSettings;
     }
 
     public MultiAction channels(Collection<Long> channelIds) {
@@ -46,14 +80,53 @@ private MultiAction(Collection<Long> channelIds) {
         }
 
         public List<ChannelSettings> getOrDefault() {
-            return repository.findOrDefault(channelIds)
-                    .toCompletableFuture().join();
+            return getOrDefaultAsync().toCompletableFuture().join();
+        }
+
+        /**
+         * Only the settings which are not cached are fetched, all in one go.
+         */
+        public CompletionStage<List<ChannelSettings>> getOrDefaultAsync() {
+            List<ChannelSettings> result = new ArrayList<>();
+            List<Long> missing = new ArrayList<>();
+            for (long channelId : channelIds) {
+                ChannelSettings cached = cache.getIfPresent(channelId);
+                if (cached != null) {
+                    result.add(cached);
+                } else {
+                    missing.add(channelId);
+                }
+            }
+            if (missing.isEmpty()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return repository.findOrDefault(missing).thenApply(fetched -> {
+                fetched.forEach(channelSettings -> result.add(cacheRead(channelSettings)));
+                return result;
+            });
+        }
+
+        /**
+         * @return the ids of the game channels among the channels of this action, which all need to belong to the
+         * passed in guild
+         */
+        public CompletionStage<Set<Long>> getGameChannelIdsAsync(long guildId) {
+            Set<Long> missing = gameChannelIndex.missing(guildId, channelIds);
+            if (missing.isEmpty()) {
+                return CompletableFuture.completedFuture(gameChannelIndex.gameChannels(guildId, channelIds));
+            }
+            return channels(missing).getOrDefaultAsync().thenApply(fetched -> {
+                fetched.forEach(channelSettings -> gameChannelIndex.add(guildId, channelSettings));
+                return gameChannelIndex.gameChannels(guildId, channelIds);
+            });
         }
     }
 
     /**
      * This service has many calls that require passing in multiple long ids. This fluent action api should help avoid
      * mistakes where arguments are passed in the wrong order.
+     * <p>
+     * Each call has a blocking variant, and a variant ending in Async that returns the pending result instead.
      *
      * @return an action that can be executed on the passed in channel
      */
@@ -70,43 +143,68 @@ private Action(long channelId) {
         }
 
         public ChannelSettings getOrDefault() {
+            return getOrDefaultAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> getOrDefaultAsync() {
+            ChannelSettings cached = cache.getIfPresent(this.channelId);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
             return repository.findOneOrDefault(this.channelId)
-                    .toCompletableFuture().join();
+                    .thenApply(ChannelSettingsService.this::cacheRead);
         }
 
         public ChannelSettings setAccessRoleId(long accessRoleId) {
+            return setAccessRoleIdAsync(accessRoleId).toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> setAccessRoleIdAsync(long accessRoleId) {
             return repository.setAccessRoleId(this.channelId, accessRoleId)
-                    .toCompletableFuture().join();
+                    .thenApply(ChannelSettingsService.this::cacheWrite);
         }
 
         public ChannelSettings enableAutoOut() {
-            return repository.setAutoOut(this.channelId, true)
-                    .toCompletableFuture().join();
+            return setAutoOutAsync(true).toCompletableFuture().join();
         }
 
         public ChannelSettings disableAutoOut() {
-            return repository.setAutoOut(this.channelId, false)
-                    .toCompletableFuture().join();
+            return setAutoOutAsync(false).toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> setAutoOutAsync(boolean autoOut) {
+            return repository.setAutoOut(this.channelId, autoOut)
+                    .thenApply(ChannelSettingsService.this::cacheWrite);
         }
 
         public ChannelSettings enableGameChannel() {
             return repository.setGameChannel(this.channelId, true)
+                    .thenApply(ChannelSettingsService.this::cacheWrite)
                     .toCompletableFuture().join();
         }
 
         public ChannelSettings disableGameChannel() {
             return repository.setGameChannel(this.channelId, false)
+                    .thenApply(ChannelSettingsService.this::cacheWrite)
                     .toCompletableFuture().join();
         }
 
         public ChannelSettings setTagCooldown(long tagCooldown) {
+            return setTagCooldownAsync(tagCooldown).toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> setTagCooldownAsync(long tagCooldown) {
             return repository.setTagCooldown(this.channelId, tagCooldown)
-                    .toCompletableFuture().join();
+                    .thenApply(ChannelSettingsService.this::cacheWrite);
         }
 
         public ChannelSettings tagUsed() {
+            return tagUsedAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> tagUsedAsync() {
             return repository.setTagLastUsed(this.channelId, clock.millis())
-                    .toCompletableFuture().join();
+                    .thenApply(ChannelSettingsService.this::cacheWrite);
         }
 
         public ChannelSettings addTag(long tag) {
@@ -114,11 +212,15 @@ public ChannelSettings addTag(long tag) {
         }
 
         public ChannelSettings addTags(Collection<Long> tags) {
+            return addTagsAsync(tags).toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> addTagsAsync(Collection<Long> tags) {
             if (tags.isEmpty()) {
-                return getOrDefault();
+                return getOrDefaultAsync();
             }
             return repository.addTags(this.channelId, tags)
-                    .toCompletableFuture().join();
+                    .thenApply(ChannelSettingsService.this::cacheWrite);
         }
 
         public ChannelSettings removeTag(long tag) {
@@ -126,16 +228,27 @@ public ChannelSettings removeTag(long tag) {
         }
 
         public ChannelSettings removeTags(Collection<Long> tags) {
+            return removeTagsAsync(tags).toCompletableFuture().join();
+        }
+
+        public CompletionStage<ChannelSettings> removeTagsAsync(Collection<Long> tags) {
             if (tags.isEmpty()) {
-                return getOrDefault();
+                return getOrDefaultAsync();
             }
             return repository.removeTags(this.channelId, tags)
-                    .toCompletableFuture().join();
+                    .thenApply(ChannelSettingsService.this::cacheWrite);
         }
 
         public void reset() {
-            repository.delete(this.channelId)
-                    .toCompletableFuture().join();
+            resetAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<Integer> resetAsync() {
+            return repository.delete(this.channelId).thenApply(deleted -> {
+                cache.invalidate(this.channelId);
+                gameChannelIndex.remove(this.channelId);
+                return deleted;
+            });
         }
     }
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.settings;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Which channels of a guild are game channels. A guild is indexed the first time its channels are looked up, and
+ * kept up to date by the {@link ChannelSettingsService} whenever the settings of one of its channels change.
+ */
+class GameChannelIndex {
+
+    private static final Duration EXPIRY = Duration.ofHours(1);
+
+    // guild id -> channel id -> is game channel, for the channels of the guild that have been looked up
+    private final Cache<Long, Map<Long, Boolean>> byGuild = Caffeine.newBuilder()
+            .expireAfterAccess(EXPIRY)
+            .maximumSize(10000)
+            .build();
+    private final Cache<Long, Long> guildOfChannel = Caffeine.newBuilder()
+            .expireAfterAccess(EXPIRY)
+            .maximumSize(500000)
+            .build();
+
+    /**
+     * @return the channels which are not indexed yet
+     */
+    Set<Long> missing(long guildId, Collection<Long> channelIds) {
+        Map<Long, Boolean> channels = guild(guildId);
+        return channelIds.stream()
+                .filter(channelId -> !channels.containsKey(channelId))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the indexed game channels among the passed in ones
+     */
+    Set<Long> gameChannels(long guildId, Collection<Long> channelIds) {
+        Map<Long, Boolean> channels = guild(guildId);
+        return channelIds.stream()
+                .filter(channelId -> channels.getOrDefault(channelId, false))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Index a channel that has been read from the database. Does not overwrite the channel if it is indexed already,
+     * as an update that happened while it was read would be newer.
+     */
+    void add(long guildId, ChannelSettings channelSettings) {
+        this.guildOfChannel.put(channelSettings.getChannelId(), guildId);
+        guild(guildId).putIfAbsent(channelSettings.getChannelId(), channelSettings.isGameChannel());
+    }
+
+    /**
+     * Update the channel, if its guild is indexed.
+     */
+    void update(ChannelSettings channelSettings) {
+        Map<Long, Boolean> channels = indexedGuildOf(channelSettings.getChannelId());
+        if (channels != null) {
+            channels.computeIfPresent(channelSettings.getChannelId(), (id, isGameChannel) -> channelSettings.isGameChannel());
+        }
+    }
+
+    /**
+     * Drop the channel from the index of its guild, so it will be looked up again.
+     */
+    void remove(long channelId) {
+        Map<Long, Boolean> channels = indexedGuildOf(channelId);
+        if (channels != null) {
+            channels.remove(channelId);
+        }
+    }
+
+    private Map<Long, Boolean> guild(long guildId) {
+        return this.byGuild.get(guildId, id -> new ConcurrentHashMap<>());
+    }
+
+    @Nullable
+    private Map<Long, Boolean> indexedGuildOf(long channelId) {
+        Long guildId = this.guildOfChannel.getIfPresent(channelId);
+        if (guildId == null) {
+            return null;
+        }
+        return this.byGuild.getIfPresent(guildId);
+    }
+}
@@ -17,6 +17,7 @@
 
 package space.npstr.wolfia.domain.settings;
 
+import java.util.concurrent.CompletionStage;
 import net.dv8tion.jda.api.entities.Guild;
 import org.springframework.stereotype.Service;
 
@@ -30,8 +31,11 @@ public GuildSettingsService(GuildSettingsRepository repository) {
     }
 
     public GuildSettings set(Guild guild) {
-        return this.repository.set(guild.getIdLong(), guild.getName(), guild.getIconId())
-                .toCompletableFuture().join();
+        return setAsync(guild).toCompletableFuture().join();
+    }
+
+    public CompletionStage<GuildSettings> setAsync(Guild guild) {
+        return this.repository.set(guild.getIdLong(), guild.getName(), guild.getIconId());
     }
 
     /**
@@ -53,8 +57,11 @@ private Action(long guildId) {
         }
 
         public GuildSettings getOrDefault() {
-            return repository.findOneOrDefault(this.guildId)
-                    .toCompletableFuture().join();
+            return getOrDefaultAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<GuildSettings> getOrDefaultAsync() {
+            return repository.findOneOrDefault(this.guildId);
         }
     }
 }
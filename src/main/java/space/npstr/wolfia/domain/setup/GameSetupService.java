@@ -28,6 +28,8 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static space.npstr.wolfia.utils.discord.TextchatUtils.userAsMention;
 
@@ -53,6 +55,8 @@ public void outUserDueToInactivity(long userId, ShardManager shardManager) {
     /**
      * This service has many calls that require passing in multiple long ids. This fluent action api should help avoid
      * mistakes where arguments are passed in the wrong order.
+     * <p>
+     * Calls used by commands also have a variant ending in Async that returns the pending result instead of blocking.
      *
      * @return an action that can be executed on the passed in channel
      */
@@ -69,23 +73,35 @@ private Action(long channelId) {
         }
 
         public GameSetup getOrDefault() {
-            return repository.findOneOrDefault(this.channelId)
-                    .toCompletableFuture().join();
+            return getOrDefaultAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> getOrDefaultAsync() {
+            return repository.findOneOrDefault(this.channelId);
         }
 
         public GameSetup setGame(Games game) {
-            return repository.setGame(this.channelId, game)
-                    .toCompletableFuture().join();
+            return setGameAsync(game).toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> setGameAsync(Games game) {
+            return repository.setGame(this.channelId, game);
         }
 
         public GameSetup setMode(GameInfo.GameMode mode) {
-            return repository.setMode(this.channelId, mode)
-                    .toCompletableFuture().join();
+            return setModeAsync(mode).toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> setModeAsync(GameInfo.GameMode mode) {
+            return repository.setMode(this.channelId, mode);
         }
 
         public GameSetup setDayLength(Duration duration) {
-            return repository.setDayLength(this.channelId, duration)
-                    .toCompletableFuture().join();
+            return setDayLengthAsync(duration).toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> setDayLengthAsync(Duration duration) {
+            return repository.setDayLength(this.channelId, duration);
         }
 
         public GameSetup inUser(long userId) {
@@ -93,11 +109,14 @@ public GameSetup inUser(long userId) {
         }
 
         public GameSetup inUsers(Set<Long> userIds) {
+            return inUsersAsync(userIds).toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> inUsersAsync(Set<Long> userIds) {
             if (userIds.isEmpty()) {
-                return getOrDefault();
+                return getOrDefaultAsync();
             }
-            return repository.inUsers(this.channelId, userIds)
-                    .toCompletableFuture().join();
+            return repository.inUsers(this.channelId, userIds);
         }
 
         public GameSetup outUser(long userId) {
@@ -119,11 +138,14 @@ public GameSetup outUserDueToInactivity(long userId, ShardManager shardManager)
         }
 
         public GameSetup outUsers(Set<Long> userIds) {
+            return outUsersAsync(userIds).toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> outUsersAsync(Set<Long> userIds) {
             if (userIds.isEmpty()) {
-                return getOrDefault();
+                return getOrDefaultAsync();
             }
-            return repository.outUsers(this.channelId, userIds)
-                    .toCompletableFuture().join();
+            return repository.outUsers(this.channelId, userIds);
         }
 
         public GameSetup clearInnedUsers() {
@@ -131,19 +153,28 @@ public GameSetup clearInnedUsers() {
         }
 
         public void reset() {
-            repository.delete(this.channelId)
-                    .toCompletableFuture().join();
+            resetAsync().toCompletableFuture().join();
+        }
+
+        public CompletionStage<Integer> resetAsync() {
+            return repository.delete(this.channelId);
         }
 
         /**
          * Like {@link Action#getOrDefault()}, but cleans up left/inactive players first if possible.
          */
         public GameSetup cleanUpInnedPlayers(ShardManager shardManager) {
-            GameSetup setup = getOrDefault();
+            return cleanUpInnedPlayersAsync(shardManager).toCompletableFuture().join();
+        }
+
+        public CompletionStage<GameSetup> cleanUpInnedPlayersAsync(ShardManager shardManager) {
+            return getOrDefaultAsync().thenCompose(setup -> cleanUp(setup, shardManager));
+        }
 
+        private CompletionStage<GameSetup> cleanUp(GameSetup setup, ShardManager shardManager) {
             TextChannel channel = shardManager.getTextChannelById(this.channelId);
             if (channel == null) {
-                return setup;
+                return CompletableFuture.completedFuture(setup);
             }
 
             Set<Long> toBeOuted = new HashSet<>();
@@ -155,7 +186,7 @@ public GameSetup cleanUpInnedPlayers(ShardManager shardManager) {
                             + " has left this guild and was outed from the game setup.").queue();
                 }
             });
-            return outUsers(toBeOuted);
+            return outUsersAsync(toBeOuted);
         }
     }
 }
@@ -19,10 +19,12 @@
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.entities.User;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.GuildCommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
@@ -34,7 +36,7 @@
 import static java.util.Objects.requireNonNull;
 
 @Command
-public class InCommand implements BaseCommand, PublicCommand {
+public class InCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "in";
 
@@ -70,25 +72,31 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext commandContext) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext commandContext) {
 
         final GuildCommandContext context = commandContext.requireGuild();
         if (context == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         //is there a game going on?
         if (this.gameRegistry.get(context.textChannel) != null) {
             context.replyWithMention("the game has already started! Please wait until it is over to join.");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         //check for private guilds where we dont want games to be started
-        if (this.privateRoomService.guild(context.guild.getIdLong()).isPrivateRoom()) {
-            context.replyWithMention("you can't play games in a private guild.");
-            return false;
-        }
+        return this.privateRoomService.guild(context.guild.getIdLong()).isPrivateRoomAsync()
+                .thenCompose(isPrivateRoom -> {
+                    if (isPrivateRoom) {
+                        context.replyWithMention("you can't play games in a private guild.");
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return in(context);
+                });
+    }
 
+    private CompletionStage<Boolean> in(GuildCommandContext context) {
         GameSetupService.Action setupAction = this.gameSetupService.channel(context.textChannel.getIdLong());
         //force in by bot owner ( ͡° ͜ʖ ͡°)
         List<User> mentionedUsers = context.getMessage().getMentionedUsers();
@@ -96,25 +104,37 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
             Set<Long> userIds = mentionedUsers.stream()
                     .map(User::getIdLong)
                     .collect(Collectors.toSet());
-            setupAction.inUsers(userIds);
-
-            GameSetup setup = setupAction.cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-            context.reply(this.render.render(setup, context));
-            return true;
+            return setupAction.inUsersAsync(userIds)
+                    .thenCompose(ignored -> replyWithSetup(setupAction, context));
         }
 
-        if (this.banService.isBanned(context.invoker.getIdLong())) {
-            context.replyWithMention("lol ur banned.");
-            return false;
-        }
+        long userId = context.invoker.getIdLong();
+        return this.banService.isBannedAsync(userId)
+                .thenCombine(setupAction.getOrDefaultAsync(), (isBanned, setup) -> {
+                    if (isBanned) {
+                        context.replyWithMention("lol ur banned.");
+                        return false;
+                    }
+                    if (setup.isIn(userId)) {
+                        context.replyWithMention("you have inned already.");
+                        return false;
+                    }
+                    return true;
+                })
+                .thenCompose(canIn -> {
+                    if (!canIn) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return setupAction.inUsersAsync(Set.of(userId))
+                            .thenCompose(ignored -> replyWithSetup(setupAction, context));
+                });
+    }
 
-        if (setupAction.getOrDefault().isIn(context.invoker.getIdLong())) {
-            context.replyWithMention("you have inned already.");
-            return false;
-        }
-        setupAction.inUser(context.invoker.getIdLong());
-        GameSetup setup = setupAction.cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-        context.reply(this.render.render(setup, context));
-        return true;
+    private CompletionStage<Boolean> replyWithSetup(GameSetupService.Action setupAction, GuildCommandContext context) {
+        return setupAction.cleanUpInnedPlayersAsync(requireNonNull(context.getJda().getShardManager()))
+                .thenApply(setup -> {
+                    context.reply(this.render.render(setup, context));
+                    return true;
+                });
     }
 }
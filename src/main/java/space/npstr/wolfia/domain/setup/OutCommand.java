@@ -19,11 +19,13 @@
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.User;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.GuildCommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
@@ -34,7 +36,7 @@
 import static java.util.Objects.requireNonNull;
 
 @Command
-public class OutCommand implements BaseCommand, PublicCommand {
+public class OutCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "out";
 
@@ -70,24 +72,30 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext commandContext) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext commandContext) {
 
         final GuildCommandContext context = commandContext.requireGuild();
         if (context == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         if (this.gameRegistry.get(context.textChannel) != null) {
             context.replyWithMention("please sign up/sign out for the next game after the current one is over.");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         //check for private guilds where we dont want games to be started
-        if (this.privateRoomService.guild(context.guild.getIdLong()).isPrivateRoom()) {
-            context.replyWithMention("you can't play games in a private guild.");
-            return false;
-        }
+        return this.privateRoomService.guild(context.guild.getIdLong()).isPrivateRoomAsync()
+                .thenCompose(isPrivateRoom -> {
+                    if (isPrivateRoom) {
+                        context.replyWithMention("you can't play games in a private guild.");
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return out(context);
+                });
+    }
 
+    private CompletionStage<Boolean> out(GuildCommandContext context) {
         long channelId = context.textChannel.getIdLong();
         GameSetupService.Action setupAction = this.gameSetupService.channel(channelId);
         //is this a forced out of a player by an moderator or the bot owner?
@@ -96,26 +104,33 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
             if (!context.member.hasPermission(context.textChannel, Permission.MESSAGE_MANAGE) && !context.isOwner()) {
                 context.replyWithMention("you need to have the following permission in this channel to be able to out players: "
                         + "**" + Permission.MESSAGE_MANAGE.name() + "**");
-                return false;
+                return CompletableFuture.completedFuture(false);
             } else {
                 Set<Long> userIds = mentionedUsers.stream()
                         .map(User::getIdLong)
                         .collect(Collectors.toSet());
-                setupAction.outUsers(userIds);
-                GameSetup setup = setupAction.cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-                context.reply(this.render.render(setup, context));
-                return true;
+                return setupAction.outUsersAsync(userIds)
+                        .thenCompose(ignored -> replyWithSetup(setupAction, context));
             }
         } else {
-            if (setupAction.getOrDefault().isIn(context.invoker.getIdLong())) {
+            long userId = context.invoker.getIdLong();
+            return setupAction.getOrDefaultAsync().thenCompose(setup -> {
+                if (!setup.isIn(userId)) {
+                    return CompletableFuture.completedFuture(false);
+                }
                 //handling a regular out
-                setupAction.outUser(context.invoker.getIdLong());
-                GameSetup setup = setupAction.cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-                context.reply(this.render.render(setup, context));
-                return true;
-            }
+                return setupAction.outUsersAsync(Set.of(userId))
+                        .thenCompose(ignored -> replyWithSetup(setupAction, context));
+            });
         }
-        return false;
+    }
+
+    private CompletionStage<Boolean> replyWithSetup(GameSetupService.Action setupAction, GuildCommandContext context) {
+        return setupAction.cleanUpInnedPlayersAsync(requireNonNull(context.getJda().getShardManager()))
+                .thenApply(setup -> {
+                    context.reply(this.render.render(setup, context));
+                    return true;
+                });
     }
 
 }
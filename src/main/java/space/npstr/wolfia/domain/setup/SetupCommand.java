@@ -19,11 +19,12 @@
 
 import java.time.Duration;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Member;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.GuildCommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
@@ -39,7 +40,7 @@
  * Start setting up a game in a channel
  */
 @Command
-public class SetupCommand implements BaseCommand, PublicCommand {
+public class SetupCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "setup";
 
@@ -70,34 +71,32 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext commandContext) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext commandContext) {
         final GuildCommandContext context = commandContext.requireGuild();
         if (context == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         long channelId = context.textChannel.getIdLong();
         GameSetupService.Action setupAction = this.gameSetupService.channel(channelId);
-        final AtomicBoolean blewUp = new AtomicBoolean(false);
 
         if (context.args.length >= 1 && "reset".equalsIgnoreCase(context.args[0])) {
             if (allowedToEditSetup(context)) {
-                setupAction.reset();
-                context.replyWithMention("game setup of this channel has been reset.");
-                GameSetup setup = setupAction.cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-                context.reply(this.render.render(setup, context));
-                return true;
+                return setupAction.resetAsync().thenCompose(deleted -> {
+                    context.replyWithMention("game setup of this channel has been reset.");
+                    return replyWithSetup(setupAction, context);
+                });
             } else {
                 context.replyWithMention("you need the following permission to reset the setup of this channel: "
                         + "**" + Permission.MESSAGE_MANAGE.getName() + "**");
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
         }
 
         if (context.args.length == 1) {
             //unsupported input
             context.help();
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         //is this an attempt to edit the setup?
@@ -105,55 +104,60 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
             //is there a game going on?
             if (this.gameRegistry.get(context.textChannel) != null) {
                 context.replyWithMention("there is a game going on in this channel, please wait until it is over to adjust the setup!");
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
 
             //is the user allowed to do that?
             if (!allowedToEditSetup(context)) {
                 context.replyWithMention("you need the following permission to edit the setup of this channel: "
                         + "**" + Permission.MESSAGE_MANAGE.getName() + "**");
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
 
             final String option = context.args[0];
+            final CompletionStage<?> update;
             switch (option.toLowerCase()) {
                 case "game":
                     try {
                         Games game = Games.valueOf(context.args[1].toUpperCase());
-                        setupAction.setGame(game);
+                        update = setupAction.setGameAsync(game);
                     } catch (final IllegalArgumentException ex) {
                         context.replyWithMention("no such game is supported by this bot: " + TextchatUtils.defuseMentions(context.args[1]));
-                        blewUp.set(true);
+                        return CompletableFuture.completedFuture(false);
                     }
                     break;
                 case "mode":
+                    final GameInfo.GameMode mode;
                     try {
-                        GameInfo.GameMode mode = GameInfo.GameMode.valueOf(context.args[1].toUpperCase());
-                        GameInfo gameInfo = Games.getInfo(setupAction.getOrDefault().getGame());
+                        mode = GameInfo.GameMode.valueOf(context.args[1].toUpperCase());
+                    } catch (final IllegalArgumentException ex) {
+                        context.replyWithMention("no such mode is supported by this game: " + TextchatUtils.defuseMentions(context.args[1]));
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    update = setupAction.getOrDefaultAsync().thenCompose(setup -> {
+                        GameInfo gameInfo = Games.getInfo(setup.getGame());
                         if (gameInfo.getSupportedModes().contains(mode)) {
-                            setupAction.setMode(mode);
+                            return setupAction.setModeAsync(mode);
                         } else {
                             context.replyWithMention("no such mode is supported by this game: " + TextchatUtils.defuseMentions(context.args[1]));
+                            return CompletableFuture.completedFuture(setup);
                         }
-                    } catch (final IllegalArgumentException ex) {
-                        context.replyWithMention("no such mode is supported by this game: " + TextchatUtils.defuseMentions(context.args[1]));
-                        blewUp.set(true);
-                    }
+                    });
                     break;
                 case "daylength":
                     try {
                         final long minutes = Long.parseLong(context.args[1]);
                         if (minutes > 10) {
                             context.replyWithMention("day lengths of more than 10 minutes are not supported currently.");
-                            return false;
+                            return CompletableFuture.completedFuture(false);
                         } else if (minutes < 1) {
                             context.replyWithMention("day length must be at least one minute.");
-                            return false;
+                            return CompletableFuture.completedFuture(false);
                         }
-                        setupAction.setDayLength(Duration.ofMinutes(minutes));
+                        update = setupAction.setDayLengthAsync(Duration.ofMinutes(minutes));
                     } catch (final NumberFormatException ex) {
                         context.replyWithMention("use a number to set the day length!");
-                        return false;
+                        return CompletableFuture.completedFuture(false);
                     }
                     break;
                 //future ideas:
@@ -165,16 +169,21 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                 default:
                     //didn't understand the input
                     context.help();
-                    return false;
+                    return CompletableFuture.completedFuture(false);
             }
-        }
-        if (blewUp.get()) {
-            return false;//feedback has been given
+            //show the status quo
+            return update.thenCompose(updated -> replyWithSetup(setupAction, context));
         }
         //show the status quo
-        GameSetup setup = setupAction.cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-        context.reply(this.render.render(setup, context));
-        return true;
+        return replyWithSetup(setupAction, context);
+    }
+
+    private CompletionStage<Boolean> replyWithSetup(GameSetupService.Action setupAction, GuildCommandContext context) {
+        return setupAction.cleanUpInnedPlayersAsync(requireNonNull(context.getJda().getShardManager()))
+                .thenApply(setup -> {
+                    context.reply(this.render.render(setup, context));
+                    return true;
+                });
     }
 
     private boolean allowedToEditSetup(GuildCommandContext context) {
@@ -18,8 +18,10 @@
 package space.npstr.wolfia.domain.setup;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nonnull;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.GuildCommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
@@ -38,7 +40,7 @@
  * If not, is there a setup created for this channel, whats the status here, inned players etc?
  */
 @Command
-public class StatusCommand implements BaseCommand, PublicCommand {
+public class StatusCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "status";
 
@@ -70,7 +72,7 @@ public String help() {
 
     @SuppressWarnings("Duplicates")
     @Override
-    public boolean execute(@Nonnull final CommandContext commandContext) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext commandContext) {
         //this command may be called from any channel. if its a private channel, look for ongoing games of the invoker
 
         final GuildCommandContext context = commandContext.requireGuild(false);
@@ -86,15 +88,16 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
                 }
 
                 if (game == null) {
-                    context.getTextChannel().getIdLong();
-                    GameSetup setup = this.gameSetupService.channel(context.getTextChannel().getIdLong())
-                            .cleanUpInnedPlayers(requireNonNull(context.getJda().getShardManager()));
-                    context.reply(this.render.render(setup, context));
-                    return true;
+                    return this.gameSetupService.channel(context.getTextChannel().getIdLong())
+                            .cleanUpInnedPlayersAsync(requireNonNull(context.getJda().getShardManager()))
+                            .thenApply(setup -> {
+                                context.reply(this.render.render(setup, context));
+                                return true;
+                            });
                 }
             }
             context.reply(game.getStatus().build());
-            return true;
+            return CompletableFuture.completedFuture(true);
         } else {//handle it being issued in a private channel
             //todo handle a player being part of multiple games properly
             boolean issued = false;
@@ -107,9 +110,9 @@ public boolean execute(@Nonnull final CommandContext commandContext) {
             if (!issued) {
                 commandContext.replyWithMention(String.format("you aren't playing in any game currently. Say `%s` to get started!",
                         WolfiaConfig.DEFAULT_PREFIX + HelpCommand.TRIGGER));
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
-            return true;
+            return CompletableFuture.completedFuture(true);
         }
     }
 }
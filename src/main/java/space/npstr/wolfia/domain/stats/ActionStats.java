@@ -19,6 +19,7 @@
 
 import java.util.Optional;
 import javax.annotation.Nullable;
+import org.json.JSONObject;
 import space.npstr.wolfia.game.definitions.Actions;
 import space.npstr.wolfia.game.definitions.Phase;
 
@@ -90,6 +91,30 @@ public ActionStats(long actionId, String actionType, long actor, int cycle, int
         this.additionalInfo = additionalInfo;
     }
 
+    /**
+     * Counterpart of {@link #toJson()}, for actions that were kept outside of the database, for example in the
+     * snapshot of a running game or in the stats spool.
+     */
+    public static ActionStats fromJson(GameStats gameStats, JSONObject json) {
+        return new ActionStats(gameStats, json.getInt("order"), json.getLong("submitted"),
+                json.getLong("happened"), json.getInt("cycle"), Phase.valueOf(json.getString("phase")),
+                json.getLong("actor"), Actions.valueOf(json.getString("type")), json.getLong("target"),
+                json.optString("additionalInfo", null));
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject()
+                .put("order", this.order)
+                .put("submitted", this.timeStampSubmitted)
+                .put("happened", this.timeStampHappened)
+                .put("cycle", this.cycle)
+                .put("phase", this.phase.name())
+                .put("actor", this.actor)
+                .put("type", this.actionType.name())
+                .put("target", this.target)
+                .put("additionalInfo", this.additionalInfo);
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
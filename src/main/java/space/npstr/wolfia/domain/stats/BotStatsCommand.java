@@ -17,8 +17,9 @@
 
 package space.npstr.wolfia.domain.stats;
 
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nonnull;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
 import space.npstr.wolfia.domain.Command;
@@ -27,7 +28,7 @@
  * Show stats of the whole bot
  */
 @Command
-public class BotStatsCommand implements BaseCommand, PublicCommand {
+public class BotStatsCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "botstats";
 
@@ -52,9 +53,10 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext context) {
-        BotStats botStats = this.statsProvider.getBotStats();
-        context.reply(this.render.renderBotStats(context, botStats).build());
-        return true;
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext context) {
+        return this.statsProvider.getBotStats().thenApply(botStats -> {
+            context.reply(this.render.renderBotStats(context, botStats).build());
+            return true;
+        });
     }
 }
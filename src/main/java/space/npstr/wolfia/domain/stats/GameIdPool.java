@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.stats;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Game ids reserved ahead of time, so that a finished game can be told its id right away, even if its stats are only
+ * written to the database later.
+ */
+@Component
+public class GameIdPool {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GameIdPool.class);
+
+    static final int POOL_SIZE = 20;
+    private static final int REFILL_BELOW = 5;
+
+    private final StatsRepository repository;
+    private final Queue<Long> ids = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+    public GameIdPool(StatsRepository repository) {
+        this.repository = repository;
+        refill();
+    }
+
+    /**
+     * @return a reserved game id, or empty if none are left, for example because the database has not been reachable
+     * for a while
+     */
+    public Optional<Long> take() {
+        Optional<Long> id = Optional.ofNullable(this.ids.poll());
+        if (this.ids.size() < REFILL_BELOW) {
+            refill();
+        }
+        return id;
+    }
+
+    private void refill() {
+        if (!this.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        int missing = POOL_SIZE - this.ids.size();
+        this.repository.reserveGameIds(missing).whenComplete((reserved, t) -> {
+            if (t != null) {
+                log.warn("Failed to reserve game ids, will try again with the next game", t);
+            } else {
+                this.ids.addAll(reserved);
+            }
+            this.refilling.set(false);
+        });
+    }
+}
@@ -23,6 +23,7 @@
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import space.npstr.wolfia.game.definitions.Games;
 
 import static space.npstr.wolfia.game.GameInfo.GameMode;
@@ -60,15 +61,25 @@ public class GameStats {
 
     private final int playerSize;
 
+    //gets to see every action added while the game is running
+    private Consumer<ActionStats> actionListener = action -> {};
+
 
     public GameStats(long guildId, String guildName, long channelId, String channelName, Games gameType,
                      GameMode gameMode, int playerSize) {
 
+        this(guildId, guildName, channelId, channelName, gameType, gameMode, playerSize, System.currentTimeMillis());
+    }
+
+    // for games resumed after a restart
+    public GameStats(long guildId, String guildName, long channelId, String channelName, Games gameType,
+                     GameMode gameMode, int playerSize, long startTime) {
+
         this.guildId = guildId;
         this.guildName = guildName;
         this.channelId = channelId;
         this.channelName = channelName;
-        this.startTime = System.currentTimeMillis();
+        this.startTime = startTime;
         this.gameType = gameType;
         this.gameMode = gameMode;
         this.playerSize = playerSize;
@@ -94,10 +105,16 @@ public GameStats(long gameId, long channelId, String channelName, long endTime,
 
     public void addAction(final ActionStats action) {
         this.actions.add(action);
+        this.actionListener.accept(action);
     }
 
     public void addActions(final Collection<ActionStats> actions) {
         this.actions.addAll(actions);
+        actions.forEach(this.actionListener);
+    }
+
+    public void setActionListener(final Consumer<ActionStats> actionListener) {
+        this.actionListener = actionListener;
     }
 
     public void setActions(final Collection<ActionStats> actions) {
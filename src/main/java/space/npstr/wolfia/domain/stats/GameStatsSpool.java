@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.stats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.jooq.exception.DataAccessException;
+import org.jooq.exception.SQLStateClass;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.stereotype.Component;
+import space.npstr.wolfia.common.Exceptions;
+import space.npstr.wolfia.config.properties.WolfiaConfig;
+import space.npstr.wolfia.game.GameInfo;
+import space.npstr.wolfia.game.definitions.Alignments;
+import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.game.definitions.Roles;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
+
+/**
+ * Stats of finished games waiting to be written to the database. They are kept in a local file, one game per line, so
+ * that they survive the database being unavailable, and the bot going down while it is. A background flush writes
+ * them to the database and drops them from the file once that worked. Games that the database keeps rejecting are
+ * moved to a dead letter file next to the spool file, so that they can be looked at and fixed by hand.
+ */
+@Component
+public class GameStatsSpool {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GameStatsSpool.class);
+
+    static final String SPOOL_FILE = "game-stats.spool";
+    static final String DEAD_LETTER_FILE = "game-stats.dead";
+    static final int MAX_REJECTIONS = 3;
+    private static final long FLUSH_INTERVAL_SECONDS = 30;
+
+    private final StatsRepository repository;
+    private final ExceptionLoggingExecutor executor;
+    private final Path spoolFile;
+    private final Path deadLetterFile;
+    // guards the pending games and the spool file, which always contains exactly the pending games
+    private final Object lock = new Object();
+    private final List<GameStats> pending = new ArrayList<>();
+    // users anonymized while a flush was running, which may have written their nicknames already. guarded by the lock
+    private final Set<Long> anonymizedWhileFlushing = new HashSet<>();
+    private boolean flushing = false;
+    // only one flush at a time, so that a game is never written by two of them
+    private final Object flushLock = new Object();
+    // how often the database rejected each pending game, guarded by the flush lock
+    private final Map<GameStats, Integer> rejections = new IdentityHashMap<>();
+
+    public GameStatsSpool(StatsRepository repository, ExceptionLoggingExecutor executor, WolfiaConfig wolfiaConfig) {
+        this.repository = repository;
+        this.executor = executor;
+        this.spoolFile = Path.of(wolfiaConfig.getStatsSpoolDirectory(), SPOOL_FILE);
+        this.deadLetterFile = Path.of(wolfiaConfig.getStatsSpoolDirectory(), DEAD_LETTER_FILE);
+
+        try {
+            Files.createDirectories(this.spoolFile.getParent());
+            if (Files.exists(this.spoolFile)) {
+                this.pending.addAll(read(this.spoolFile));
+                log.info("{} spooled games loaded", this.pending.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load spooled games from " + this.spoolFile, e);
+        }
+        MetricsRegistry.spooledGameStats.set(this.pending.size());
+
+        executor.scheduleAtFixedRate(this::flush, 0, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Add the stats of a finished game to the spool. They are written to the spool file before this returns, and to
+     * the database with the next flush, which is started right away.
+     *
+     * @throws UncheckedIOException
+     *         if the spool file could not be written
+     */
+    public void add(GameStats gameStats) {
+        synchronized (this.lock) {
+            try {
+                Files.writeString(this.spoolFile, toJson(gameStats).toString() + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND,
+                        StandardOpenOption.DSYNC);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to spool stats of game in channel " + gameStats.getChannelId(), e);
+            }
+            this.pending.add(gameStats);
+            MetricsRegistry.spooledGameStats.set(this.pending.size());
+        }
+        this.executor.execute(this::flush);
+    }
+
+    /**
+     * Remove the nickname of a user from the spooled games, including the spool file. Nicknames that a running flush
+     * wrote to the database in the meantime are removed from there once it is done.
+     */
+    public void anonymize(long userId) {
+        synchronized (this.lock) {
+            boolean changed = false;
+            for (GameStats gameStats : this.pending) {
+                for (TeamStats team : gameStats.getStartingTeams()) {
+                    for (PlayerStats player : team.getPlayers()) {
+                        if (player.getUserId() == userId && player.getNickname() != null) {
+                            player.clearNickname();
+                            changed = true;
+                        }
+                    }
+                }
+            }
+            if (changed) {
+                rewrite();
+            }
+            if (this.flushing) {
+                this.anonymizedWhileFlushing.add(userId);
+            }
+        }
+    }
+
+    /**
+     * @return amount of games waiting to be written to the database
+     */
+    public int getPendingCount() {
+        synchronized (this.lock) {
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Write the spooled games to the database. Games that fail to be written are kept for the next flush, unless the
+     * database rejected them {@link #MAX_REJECTIONS} times, in which case they are moved to the dead letter file.
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            List<GameStats> batch;
+            synchronized (this.lock) {
+                batch = new ArrayList<>(this.pending);
+                this.flushing = !batch.isEmpty();
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                write(batch);
+            } finally {
+                anonymizeWritten();
+            }
+        }
+    }
+
+    // call with the flush lock held
+    private void write(List<GameStats> batch) {
+        try {
+            reserveMissingIds(batch);
+        } catch (Exception e) {
+            log.warn("Failed to reserve ids for spooled games, will retry with the next flush", e);
+        }
+
+        List<GameStats> done = new ArrayList<>();
+        List<GameStats> dead = new ArrayList<>();
+        for (GameStats gameStats : batch) {
+            if (gameStats.getGameId().isEmpty()) {
+                continue;
+            }
+            try {
+                this.repository.insertGameStats(gameStats).toCompletableFuture().join();
+                this.rejections.remove(gameStats);
+                done.add(gameStats);
+            } catch (Exception e) {
+                if (isRejected(e) && this.rejections.merge(gameStats, 1, Integer::sum) >= MAX_REJECTIONS) {
+                    log.error("Spooled game in channel {} was rejected by the database {} times, moving it to {}",
+                            gameStats.getChannelId(), MAX_REJECTIONS, this.deadLetterFile, e);
+                    dead.add(gameStats);
+                } else {
+                    log.warn("Failed to write spooled game in channel {}, will retry with the next flush",
+                            gameStats.getChannelId(), e);
+                }
+            }
+        }
+
+        if (!dead.isEmpty() && deadLetter(dead)) {
+            dead.forEach(this.rejections::remove);
+            done.addAll(dead);
+        }
+        if (!done.isEmpty()) {
+            synchronized (this.lock) {
+                this.pending.removeAll(done);
+                rewrite();
+            }
+        }
+    }
+
+    // call with the flush lock held
+    private void anonymizeWritten() {
+        List<Long> userIds;
+        synchronized (this.lock) {
+            this.flushing = false;
+            userIds = new ArrayList<>(this.anonymizedWhileFlushing);
+            this.anonymizedWhileFlushing.clear();
+        }
+        for (long userId : userIds) {
+            try {
+                this.repository.nullAllPlayerNicknamesofUser(userId).toCompletableFuture().join();
+            } catch (Exception e) {
+                log.error("Failed to anonymize user {} in games written while they asked for it", userId, e);
+            }
+        }
+    }
+
+    /**
+     * Errors about the game itself, like a violated constraint, will not go away by retrying, unlike the database
+     * being unavailable.
+     */
+    private static boolean isRejected(Exception e) {
+        Throwable cause = Exceptions.unwrap(e);
+        if (!(cause instanceof DataAccessException)) {
+            return false;
+        }
+        SQLStateClass sqlStateClass = ((DataAccessException) cause).sqlStateClass();
+        return sqlStateClass == SQLStateClass.C22_DATA_EXCEPTION
+                || sqlStateClass == SQLStateClass.C23_INTEGRITY_CONSTRAINT_VIOLATION;
+    }
+
+    /**
+     * @return true if the games were appended to the dead letter file
+     */
+    private boolean deadLetter(List<GameStats> games) {
+        String lines = games.stream()
+                .map(gameStats -> toJson(gameStats).toString() + "\n")
+                .collect(Collectors.joining());
+        try {
+            Files.writeString(this.deadLetterFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            log.error("Failed to write to the dead letter file {}, keeping the games spooled", this.deadLetterFile, e);
+            return false;
+        }
+        MetricsRegistry.deadLetteredGameStats.inc(games.size());
+        return true;
+    }
+
+    /**
+     * Games spooled while no reserved ids were available get theirs before being written. The ids are put into the
+     * spool file first, so that a game written right before the bot goes down is not written again with another id
+     * after the restart.
+     */
+    private void reserveMissingIds(List<GameStats> batch) {
+        List<GameStats> withoutId = batch.stream()
+                .filter(gameStats -> gameStats.getGameId().isEmpty())
+                .collect(Collectors.toList());
+        if (withoutId.isEmpty()) {
+            return;
+        }
+        List<Long> ids = this.repository.reserveGameIds(withoutId.size()).toCompletableFuture().join();
+        synchronized (this.lock) {
+            for (int i = 0; i < withoutId.size(); i++) {
+                withoutId.get(i).setGameId(ids.get(i));
+            }
+            rewrite();
+        }
+    }
+
+    // call with the lock held
+    private void rewrite() {
+        try {
+            if (this.pending.isEmpty()) {
+                Files.deleteIfExists(this.spoolFile);
+            } else {
+                Path tmp = this.spoolFile.resolveSibling(SPOOL_FILE + ".tmp");
+                String lines = this.pending.stream()
+                        .map(gameStats -> toJson(gameStats).toString() + "\n")
+                        .collect(Collectors.joining());
+                Files.writeString(tmp, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DSYNC);
+                Files.move(tmp, this.spoolFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            //the games are in the database already, and writing them again from an outdated spool file is harmless
+            log.error("Failed to rewrite the spool file {}", this.spoolFile, e);
+        }
+        MetricsRegistry.spooledGameStats.set(this.pending.size());
+    }
+
+    private static List<GameStats> read(Path spoolFile) throws IOException {
+        List<GameStats> games = new ArrayList<>();
+        for (String line : Files.readAllLines(spoolFile, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                games.add(fromJson(new JSONObject(line)));
+            } catch (JSONException | IllegalArgumentException e) {
+                //most likely the last line, cut off by the bot going down while writing it
+                log.error("Skipping unreadable spooled game {}", line, e);
+            }
+        }
+        return games;
+    }
+
+    static JSONObject toJson(GameStats gameStats) {
+        JSONArray teams = new JSONArray();
+        for (TeamStats team : gameStats.getStartingTeams()) {
+            JSONArray players = new JSONArray();
+            for (PlayerStats player : team.getPlayers()) {
+                players.put(new JSONObject()
+                        .put("userId", player.getUserId())
+                        .put("nickname", player.getNickname())
+                        .put("alignment", player.getAlignment().name())
+                        .put("role", player.getRole().name())
+                        .put("posts", player.getTotalPosts())
+                        .put("postLength", player.getTotalPostLength()));
+            }
+            teams.put(new JSONObject()
+                    .put("alignment", team.getAlignment().name())
+                    .put("name", team.getName())
+                    .put("teamSize", team.getTeamSize())
+                    .put("winner", team.isWinner())
+                    .put("players", players));
+        }
+        JSONArray actions = new JSONArray();
+        for (ActionStats action : gameStats.getActions()) {
+            actions.put(action.toJson());
+        }
+        JSONObject json = new JSONObject()
+                .put("guildId", gameStats.getGuildId())
+                .put("guildName", gameStats.getGuildName())
+                .put("channelId", gameStats.getChannelId())
+                .put("channelName", gameStats.getChannelName())
+                .put("gameType", gameStats.getGameType().name())
+                .put("gameMode", gameStats.getGameMode().name())
+                .put("playerSize", gameStats.getPlayerSize())
+                .put("startTime", gameStats.getStartTime())
+                .put("endTime", gameStats.getEndTime())
+                .put("teams", teams)
+                .put("actions", actions);
+        gameStats.getGameId().ifPresent(gameId -> json.put("gameId", gameId));
+        return json;
+    }
+
+    static GameStats fromJson(JSONObject json) {
+        GameStats gameStats = new GameStats(json.getLong("guildId"), json.getString("guildName"),
+                json.getLong("channelId"), json.getString("channelName"), Games.valueOf(json.getString("gameType")),
+                GameInfo.GameMode.valueOf(json.getString("gameMode")), json.getInt("playerSize"),
+                json.getLong("startTime"));
+        gameStats.setEndTime(json.getLong("endTime"));
+        if (json.has("gameId")) {
+            gameStats.setGameId(json.getLong("gameId"));
+        }
+
+        JSONArray teamsJson = json.getJSONArray("teams");
+        List<TeamStats> teams = new ArrayList<>();
+        for (int i = 0; i < teamsJson.length(); i++) {
+            JSONObject teamJson = teamsJson.getJSONObject(i);
+            TeamStats team = new TeamStats(gameStats, Alignments.valueOf(teamJson.getString("alignment")),
+                    teamJson.getString("name"), teamJson.getInt("teamSize"));
+            team.setWinner(teamJson.getBoolean("winner"));
+            JSONArray playersJson = teamJson.getJSONArray("players");
+            for (int j = 0; j < playersJson.length(); j++) {
+                JSONObject playerJson = playersJson.getJSONObject(j);
+                PlayerStats player = new PlayerStats(team, playerJson.getLong("userId"),
+                        playerJson.optString("nickname", null), Alignments.valueOf(playerJson.getString("alignment")),
+                        Roles.valueOf(playerJson.getString("role")));
+                player.restorePosts(playerJson.getInt("posts"), playerJson.getInt("postLength"));
+                team.addPlayer(player);
+            }
+            teams.add(team);
+        }
+        gameStats.setTeams(teams);
+
+        JSONArray actionsJson = json.getJSONArray("actions");
+        for (int i = 0; i < actionsJson.length(); i++) {
+            gameStats.addAction(ActionStats.fromJson(gameStats, actionsJson.getJSONObject(i)));
+        }
+        return gameStats;
+    }
+}
@@ -18,9 +18,11 @@
 package space.npstr.wolfia.domain.stats;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.entities.Guild;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
 import space.npstr.wolfia.domain.Command;
@@ -29,7 +31,7 @@
  * Display stats for a guild
  */
 @Command
-public class GuildStatsCommand implements BaseCommand, PublicCommand {
+public class GuildStatsCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "guildstats";
 
@@ -56,14 +58,14 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext context) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext context) {
         Optional<Long> guildId = Optional.empty();
         if (context.hasArguments()) {
             try {
                 guildId = Optional.of(Long.parseLong(context.args[0]));
             } catch (final NumberFormatException e) {
                 context.help();
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
         }
 
@@ -71,13 +73,16 @@ public boolean execute(@Nonnull final CommandContext context) {
             Optional<Guild> guild = context.getGuild();
             if (guild.isEmpty()) {
                 context.help();
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
             guildId = guild.map(Guild::getIdLong);
         }
 
-        GuildStats guildStats = this.statsProvider.getGuildStats(guildId.get());
-        context.reply(this.render.renderGuildStats(context, guildStats).build());
-        return true;
+        return this.statsProvider.getGuildStats(guildId.get())
+                .thenCompose(guildStats -> this.render.renderGuildStats(context, guildStats))
+                .thenApply(embed -> {
+                    context.reply(embed.build());
+                    return true;
+                });
     }
 }
@@ -34,7 +34,7 @@ public class PlayerStats {
     private final long userId;
 
     @Nullable
-    private final String nickname;
+    private volatile String nickname;
 
     private final Alignments alignment;
 
@@ -73,6 +73,17 @@ public synchronized void bumpPosts(final int length) {
         this.totalPostLength += length;
     }
 
+    //for games resumed after a restart
+    public synchronized void restorePosts(final int totalPosts, final int totalPostLength) {
+        this.totalPosts = totalPosts;
+        this.totalPostLength = totalPostLength;
+    }
+
+    //for users that asked for their data to be deleted before the stats of the game were written
+    public void clearNickname() {
+        this.nickname = null;
+    }
+
     //do not use the autogenerated id, it will only be set after persisting
     @Override
     public int hashCode() {
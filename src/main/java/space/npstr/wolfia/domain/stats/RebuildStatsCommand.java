@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.stats;
+
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nonnull;
+import space.npstr.wolfia.commands.AsyncCommand;
+import space.npstr.wolfia.commands.CommandContext;
+import space.npstr.wolfia.domain.Command;
+
+/**
+ * Rebuild the rollup of the bot and guild stats from all recorded games.
+ */
+@Command
+public class RebuildStatsCommand implements AsyncCommand {
+
+    public static final String TRIGGER = "rebuildstats";
+
+    private final StatsService statsService;
+
+    public RebuildStatsCommand(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @Override
+    public String getTrigger() {
+        return TRIGGER;
+    }
+
+    @Nonnull
+    @Override
+    public String help() {
+        return "Recalculate the bot and guild stats from all recorded games.";
+    }
+
+    @Override
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext context) {
+        context.replyWithMention("rebuilding the stats rollup, this may take a while.");
+        return this.statsService.rebuildStatsRollup().thenApply(rows -> {
+            context.replyWithMention(String.format("rebuilt the stats rollup with **%s** rows.", rows));
+            return true;
+        });
+    }
+}
@@ -17,9 +17,10 @@
 
 package space.npstr.wolfia.domain.stats;
 
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nonnull;
-import space.npstr.wolfia.commands.BaseCommand;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
 import space.npstr.wolfia.domain.Command;
@@ -28,7 +29,7 @@
  * Shows replays of games that are over
  */
 @Command
-public class ReplayCommand implements BaseCommand, PublicCommand {
+public class ReplayCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "replay";
 
@@ -55,11 +56,11 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext context) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext context) {
 
         if (!context.hasArguments()) {
             context.help();
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         final long gameId;
@@ -67,17 +68,17 @@ public boolean execute(@Nonnull final CommandContext context) {
             gameId = Long.parseLong(context.args[0].replace("#", ""));
         } catch (final NumberFormatException ex) {
             context.help();
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        Optional<GameStats> gameStatsOpt = this.statsProvider.getGameStats(gameId);
+        return this.statsProvider.getGameStats(gameId).thenApply(gameStatsOpt -> {
+            if (gameStatsOpt.isEmpty()) {
+                context.replyWithMention("there is no such game in the database.");
+                return false;
+            }
 
-        if (gameStatsOpt.isEmpty()) {
-            context.replyWithMention("there is no such game in the database.");
-            return false;
-        }
-
-        context.reply(this.render.renderGameStats(gameStatsOpt.get()));
-        return true;
+            context.reply(this.render.renderGameStats(gameStatsOpt.get()));
+            return true;
+        });
     }
 }
@@ -17,11 +17,9 @@
 
 package space.npstr.wolfia.domain.stats;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import org.springframework.stereotype.Component;
 import space.npstr.wolfia.game.definitions.Alignments;
 
@@ -31,117 +29,28 @@
 @Component
 public class StatsProvider {
 
-    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StatsProvider.class);
-
     private final StatsRepository repository;
 
     public StatsProvider(StatsRepository repository) {
         this.repository = repository;
     }
 
-    //this should be rather similar to getGuildStats
-    public BotStats getBotStats() {
-        BigDecimal averagePlayerSize = this.repository.getAveragePlayerSize().toCompletableFuture().join();
-
-        long baddieWins = this.repository.countAlignmentWins(Alignments.WOLF).toCompletableFuture().join();
-        long goodieWins = this.repository.countAlignmentWins(Alignments.VILLAGE).toCompletableFuture().join();
-
-        long totalGames = baddieWins + goodieWins; // correct for now, may change in the future
-
-        WinStats totalWinStats = ImmutableWinStats.builder()
-                .playerSize(-1)
-                .totalGames(totalGames)
-                .goodieWins(goodieWins)
-                .baddieWins(baddieWins)
-                .build();
-
-        List<WinStats> winStats = new ArrayList<>();
-        Set<Integer> playerSizes = this.repository.getDistinctPlayerSizes().toCompletableFuture().join();
-        for (int playerSize : playerSizes) {
-            if (playerSize < 1) {
-                //skip and log about weird player sizes in the db
-                log.error("Found unexpected player size {} in the database", playerSize);
-                continue;
-            }
-            baddieWins = this.repository.countAlignmentWinsForPlayerSize(Alignments.WOLF, playerSize)
-                    .toCompletableFuture().join();
-            goodieWins = this.repository.countAlignmentWinsForPlayerSize(Alignments.VILLAGE, playerSize)
-                    .toCompletableFuture().join();
-
-            totalGames = baddieWins + goodieWins;
-            winStats.add(ImmutableWinStats.builder()
-                    .playerSize(playerSize)
-                    .totalGames(totalGames)
-                    .goodieWins(goodieWins)
-                    .baddieWins(baddieWins)
-                    .build()
-            );
-        }
-
-        return ImmutableBotStats.builder()
-                .averagePlayerSize(averagePlayerSize)
-                .totalWinStats(totalWinStats)
-                .addAllWinStatsByPlayerSize(winStats)
-                .build();
+    public CompletionStage<BotStats> getBotStats() {
+        return this.repository.getBotStats();
     }
 
-
-    public GuildStats getGuildStats(final long guildId) {
-
-        BigDecimal averagePlayerSize = this.repository.getAveragePlayerSizeInGuild(guildId).toCompletableFuture().join();
-
-        long baddieWins = this.repository.countAlignmentWinsInGuild(Alignments.WOLF, guildId)
-                .toCompletableFuture().join();
-        long goodieWins = this.repository.countAlignmentWinsInGuild(Alignments.VILLAGE, guildId)
-                .toCompletableFuture().join();
-
-        long totalGames = baddieWins + goodieWins;
-
-        WinStats totalWinStats = ImmutableWinStats.builder()
-                .playerSize(-1)
-                .totalGames(totalGames)
-                .goodieWins(goodieWins)
-                .baddieWins(baddieWins)
-                .build();
-
-        List<WinStats> winStats = new ArrayList<>();
-        Set<Integer> playerSizes = this.repository.getDistinctPlayerSizesInGuild(guildId).toCompletableFuture().join();
-        for (int playerSize : playerSizes) {
-            if (playerSize < 1) {
-                //skip and log about weird player sizes in the db
-                log.error("Found unexpected player size {} in the database", playerSize);
-                continue;
-            }
-
-            baddieWins = this.repository.countAlignmentWinsForPlayerSizeInGuild(Alignments.WOLF, playerSize, guildId)
-                    .toCompletableFuture().join();
-            goodieWins = this.repository.countAlignmentWinsForPlayerSizeInGuild(Alignments.VILLAGE, playerSize, guildId)
-                    .toCompletableFuture().join();
-
-            totalGames = baddieWins + goodieWins;
-            winStats.add(ImmutableWinStats.builder()
-                    .playerSize(playerSize)
-                    .totalGames(totalGames)
-                    .goodieWins(goodieWins)
-                    .baddieWins(baddieWins)
-                    .build()
-            );
-        }
-
-        return ImmutableGuildStats.builder()
-                .guildId(guildId)
-                .averagePlayerSize(averagePlayerSize)
-                .totalWinStats(totalWinStats)
-                .addAllWinStatsByPlayerSize(winStats)
-                .build();
+    public CompletionStage<GuildStats> getGuildStats(final long guildId) {
+        return this.repository.getGuildStats(guildId);
     }
 
     //TODO some improvement is possible here by reducing the amount of individual sql queries run as well as the amount
     // of data fetched
-    public UserStats getUserStats(final long userId) {
-        List<GeneralUserStats> games = this.repository.getGeneralUserStats(userId).toCompletableFuture().join();
-        List<String> shots = this.repository.getUserShots(userId).toCompletableFuture().join();
+    public CompletionStage<UserStats> getUserStats(final long userId) {
+        return this.repository.getGeneralUserStats(userId)
+                .thenCombine(this.repository.getUserShots(userId), (games, shots) -> userStats(userId, games, shots));
+    }
 
+    private static UserStats userStats(long userId, List<GeneralUserStats> games, List<String> shots) {
         final long totalGamesByUser = games.size();
         final long gamesWon = games.stream().filter(GeneralUserStats::isWinner).count();
         final long gamesAsWolf = games.stream()
@@ -177,8 +86,7 @@ public UserStats getUserStats(final long userId) {
                 .build();
     }
 
-    public Optional<GameStats> getGameStats(long gameId) {
-        return this.repository.findGameStats(gameId)
-                .toCompletableFuture().join();
+    public CompletionStage<Optional<GameStats>> getGameStats(long gameId) {
+        return this.repository.findGameStats(gameId);
     }
 }
@@ -21,6 +21,7 @@
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Guild;
@@ -84,13 +85,17 @@ public EmbedBuilder renderBotStats(Context context, BotStats botstats) {
         return addStatsPerPlayerSize(eb, botstats.winStatsByPlayerSize());
     }
 
-    public EmbedBuilder renderGuildStats(Context context, GuildStats stats) {
-        EmbedBuilder eb = MessageContext.getDefaultEmbedBuilder();
+    public CompletionStage<EmbedBuilder> renderGuildStats(Context context, GuildStats stats) {
         ShardManager shardManager = context.getJda().getShardManager();
         final Guild guild = requireNonNull(shardManager).getGuildById(stats.guildId());
-        GuildSettings guildSettings = guild != null
-                ? this.guildSettingsService.set(guild)
-                : this.guildSettingsService.guild(stats.guildId()).getOrDefault();
+        CompletionStage<GuildSettings> guildSettings = guild != null
+                ? this.guildSettingsService.setAsync(guild)
+                : this.guildSettingsService.guild(stats.guildId()).getOrDefaultAsync();
+        return guildSettings.thenApply(settings -> renderGuildStats(stats, settings));
+    }
+
+    private EmbedBuilder renderGuildStats(GuildStats stats, GuildSettings guildSettings) {
+        EmbedBuilder eb = MessageContext.getDefaultEmbedBuilder();
         eb.setTitle(guildSettings.getName() + "'s Wolfia stats");
         eb.setThumbnail(guildSettings.getAvatarUrl().orElse(null));
 
@@ -117,12 +122,15 @@ public EmbedBuilder renderGuildStats(Context context, GuildStats stats) {
         return addStatsPerPlayerSize(eb, stats.winStatsByPlayerSize());
     }
 
-    public EmbedBuilder renderUserStats(UserStats stats) {
+    public CompletionStage<EmbedBuilder> renderUserStats(UserStats stats) {
+        return this.userCache.user(stats.userId()).getAsync()
+                .thenApply(user -> renderUserStats(stats, user));
+    }
+
+    private EmbedBuilder renderUserStats(UserStats stats, Optional<User> user) {
         final EmbedBuilder eb = MessageContext.getDefaultEmbedBuilder();
-        UserCache.Action userAction = this.userCache.user(stats.userId());
-        eb.setTitle(userAction.getName() + "'s Wolfia stats");
-        userAction.get()
-                .map(User::getAvatarUrl)
+        eb.setTitle(user.map(User::getName).orElse(UserCache.UNKNOWN_USER_NAME) + "'s Wolfia stats");
+        user.map(User::getAvatarUrl)
                 .ifPresent(eb::setThumbnail);
 
         if (stats.totalGames() <= 0) {
@@ -17,21 +17,28 @@
 
 package space.npstr.wolfia.domain.stats;
 
+import io.prometheus.client.Histogram;
 import io.prometheus.client.Summary;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.CompletionStage;
 import javax.annotation.CheckReturnValue;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.Record1;
 import org.jooq.Record3;
+import org.jooq.Record5;
 import org.jooq.Record8;
 import org.jooq.RecordMapper;
+import org.jooq.Result;
+import org.jooq.Table;
 import org.jooq.impl.DSL;
 import org.springframework.stereotype.Repository;
 import space.npstr.wolfia.db.AsyncDbWrapper;
@@ -46,18 +53,28 @@
 import space.npstr.wolfia.game.definitions.Alignments;
 import space.npstr.wolfia.system.metrics.MetricsRegistry;
 
-import static org.jooq.impl.DSL.avg;
 import static org.jooq.impl.DSL.count;
 import static org.jooq.impl.DSL.defaultValue;
+import static org.jooq.impl.DSL.generateSeries;
+import static org.jooq.impl.DSL.grouping;
+import static org.jooq.impl.DSL.groupingSets;
+import static org.jooq.impl.DSL.nullif;
+import static org.jooq.impl.DSL.sum;
 import static org.jooq.impl.DSL.val;
+import static space.npstr.wolfia.db.gen.Sequences.STATS_GAME_GAME_ID_SEQ;
+import static space.npstr.wolfia.db.gen.Sequences.STATS_ID_SEQ;
 import static space.npstr.wolfia.db.gen.Tables.STATS_ACTION;
 import static space.npstr.wolfia.db.gen.Tables.STATS_GAME;
 import static space.npstr.wolfia.db.gen.Tables.STATS_PLAYER;
+import static space.npstr.wolfia.db.gen.Tables.STATS_ROLLUP;
+import static space.npstr.wolfia.db.gen.Tables.STATS_ROLLUP_TOTAL;
 import static space.npstr.wolfia.db.gen.Tables.STATS_TEAM;
 
 @Repository
 public class StatsRepository {
 
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StatsRepository.class);
+
     private final AsyncDbWrapper wrapper;
 
     public StatsRepository(AsyncDbWrapper wrapper) {
@@ -65,115 +82,152 @@ public StatsRepository(AsyncDbWrapper wrapper) {
     }
 
     @CheckReturnValue
-    public CompletionStage<BigDecimal> getAveragePlayerSize() {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("getAveragePlayerSize");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .select(avg(STATS_GAME.PLAYER_SIZE))
-                .from(STATS_GAME)
-                .fetchOptional() // SQL AVG may return null for empty sets
-                .map(Record1::component1)
-                .orElse(BigDecimal.ZERO)
-        ));
-    }
-
-    @CheckReturnValue
-    public CompletionStage<BigDecimal> getAveragePlayerSizeInGuild(long guildId) {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("getAveragePlayerSizeInGuild");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .select(avg(STATS_GAME.PLAYER_SIZE))
-                .from(STATS_GAME)
-                .where(STATS_GAME.GUILD_ID.eq(guildId))
-                .fetchOptional() // SQL AVG may return null for empty sets
-                .map(Record1::component1)
-                .orElse(BigDecimal.ZERO)
-        ));
-    }
-
-    @CheckReturnValue
-    public CompletionStage<Set<Integer>> getDistinctPlayerSizes() {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("getDistinctPlayerSizes");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .selectDistinct(STATS_GAME.PLAYER_SIZE)
-                .from(STATS_GAME)
-                .fetch()
-                .intoSet(STATS_GAME.PLAYER_SIZE)
-        ));
-    }
-
-    @CheckReturnValue
-    public CompletionStage<Set<Integer>> getDistinctPlayerSizesInGuild(long guildId) {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("getDistinctPlayerSizesInGuild");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .selectDistinct(STATS_GAME.PLAYER_SIZE)
-                .from(STATS_GAME)
-                .where(STATS_GAME.GUILD_ID.eq(guildId))
-                .fetch()
-                .intoSet(STATS_GAME.PLAYER_SIZE)
+    public CompletionStage<BotStats> getBotStats() {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("getBotStats");
+        return this.wrapper.jooq(dsl -> timer.time(() -> {
+                    AggregatedWinStats aggregated = aggregateWinStats(dsl, STATS_ROLLUP_TOTAL, DSL.noCondition());
+                    return ImmutableBotStats.builder()
+                            .averagePlayerSize(aggregated.averagePlayerSize)
+                            .totalWinStats(aggregated.total)
+                            .addAllWinStatsByPlayerSize(aggregated.byPlayerSize)
+                            .build();
+                }
         ));
     }
 
     @CheckReturnValue
-    public CompletionStage<Integer> countAlignmentWins(Alignments alignment) {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("countAlignmentWins");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .select(count())
-                .from(STATS_GAME)
-                .innerJoin(STATS_TEAM)
-                .on(STATS_TEAM.GAME_ID.eq(STATS_GAME.GAME_ID))
-                .where(STATS_TEAM.IS_WINNER.isTrue())
-                .and(STATS_TEAM.ALIGNMENT.eq(alignment.name()))
-                .fetchOne()
-                .component1()
+    public CompletionStage<GuildStats> getGuildStats(long guildId) {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("getGuildStats");
+        return this.wrapper.jooq(dsl -> timer.time(() -> {
+                    AggregatedWinStats aggregated = aggregateWinStats(dsl, STATS_ROLLUP,
+                            STATS_ROLLUP.GUILD_ID.eq(guildId));
+                    return ImmutableGuildStats.builder()
+                            .guildId(guildId)
+                            .averagePlayerSize(aggregated.averagePlayerSize)
+                            .totalWinStats(aggregated.total)
+                            .addAllWinStatsByPlayerSize(aggregated.byPlayerSize)
+                            .build();
+                }
         ));
     }
 
-    @CheckReturnValue
-    public CompletionStage<Integer> countAlignmentWinsInGuild(Alignments alignment, long guildId) {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("countAlignmentWinsInGuild");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .select(count())
-                .from(STATS_GAME)
-                .innerJoin(STATS_TEAM)
-                .on(STATS_TEAM.GAME_ID.eq(STATS_GAME.GAME_ID))
-                .where(STATS_TEAM.IS_WINNER.isTrue())
-                .and(STATS_TEAM.ALIGNMENT.eq(alignment.name()))
-                .and(STATS_GAME.GUILD_ID.eq(guildId))
-                .fetchOne()
-                .component1()
-        ));
+    /**
+     * Average player size and wins of the games matching the condition, in total and by player size, read from one of
+     * the rollup tables, so that the cost depends on the amount of distinct guilds, game types, modes and player
+     * sizes, and not on the amount of games recorded.
+     */
+    private AggregatedWinStats aggregateWinStats(DSLContext dsl, Table<?> rollup, Condition condition) {
+        Field<Integer> playerSize = rollup.field(STATS_ROLLUP.PLAYER_SIZE);
+        Field<Integer> isTotal = grouping(playerSize);
+        Field<BigDecimal> games = sum(rollup.field(STATS_ROLLUP.GAMES));
+        Field<BigDecimal> averagePlayerSize = sum(playerSize.mul(rollup.field(STATS_ROLLUP.GAMES)))
+                .div(nullif(games, BigDecimal.ZERO));
+        Field<BigDecimal> baddieWinsSum = sum(rollup.field(STATS_ROLLUP.BADDIE_WINS));
+        Field<BigDecimal> goodieWinsSum = sum(rollup.field(STATS_ROLLUP.GOODIE_WINS));
+        Result<Record5<Integer, Integer, BigDecimal, BigDecimal, BigDecimal>> rows = dsl
+                .select(playerSize, isTotal, averagePlayerSize, baddieWinsSum, goodieWinsSum)
+                .from(rollup)
+                .where(condition)
+                .groupBy(groupingSets(new Field<?>[]{playerSize}, new Field<?>[]{}))
+                .fetch();
+
+        AggregatedWinStats aggregated = new AggregatedWinStats();
+        for (Record5<Integer, Integer, BigDecimal, BigDecimal, BigDecimal> row : rows) {
+            boolean total = row.get(isTotal) == 1;
+            int size = total ? -1 : row.get(playerSize);
+            long baddies = Optional.ofNullable(row.get(baddieWinsSum)).map(BigDecimal::longValue).orElse(0L);
+            long goodies = Optional.ofNullable(row.get(goodieWinsSum)).map(BigDecimal::longValue).orElse(0L);
+            WinStats winStats = ImmutableWinStats.builder()
+                    .playerSize(size)
+                    .totalGames(baddies + goodies) // correct for now, may change in the future
+                    .goodieWins(goodies)
+                    .baddieWins(baddies)
+                    .build();
+            if (total) {
+                // null when there are no games
+                aggregated.averagePlayerSize = Optional.ofNullable(row.get(averagePlayerSize)).orElse(BigDecimal.ZERO);
+                aggregated.total = winStats;
+            } else if (size < 1) {
+                //skip and log about weird player sizes in the db
+                log.error("Found unexpected player size {} in the database", size);
+            } else {
+                aggregated.byPlayerSize.add(winStats);
+            }
+        }
+        return aggregated;
     }
 
-    @CheckReturnValue
-    public CompletionStage<Integer> countAlignmentWinsForPlayerSize(Alignments alignment, int playerSize) {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("countAlignmentWinsForPlayerSize");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .select(count())
-                .from(STATS_GAME)
-                .innerJoin(STATS_TEAM)
-                .on(STATS_TEAM.GAME_ID.eq(STATS_GAME.GAME_ID))
-                .where(STATS_TEAM.IS_WINNER.isTrue())
-                .and(STATS_GAME.PLAYER_SIZE.eq(playerSize))
-                .and(STATS_TEAM.ALIGNMENT.eq(alignment.name()))
-                .fetchOne()
-                .component1()
-        ));
+    private static class AggregatedWinStats {
+        private BigDecimal averagePlayerSize = BigDecimal.ZERO;
+        private WinStats total = ImmutableWinStats.builder()
+                .playerSize(-1)
+                .totalGames(0)
+                .goodieWins(0)
+                .baddieWins(0)
+                .build();
+        private final List<WinStats> byPlayerSize = new ArrayList<>();
     }
 
+    /**
+     * Recalculate the rollup tables from the stats tables, for example after they have been introduced, or after games
+     * have been changed by hand. The totals of all guilds are summed up from the rows of each guild. Writing game
+     * stats has to wait until the rebuild is done, so that no game is counted twice or missed.
+     *
+     * @return amount of rows in the rebuilt rollup tables
+     */
     @CheckReturnValue
-    public CompletionStage<Integer> countAlignmentWinsForPlayerSizeInGuild(Alignments alignment, int playerSize, long guildId) {
-        Summary.Child timer = MetricsRegistry.queryTime.labels("countAlignmentWinsForPlayerSizeInGuild");
-        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
-                .select(count())
-                .from(STATS_GAME)
-                .innerJoin(STATS_TEAM)
-                .on(STATS_TEAM.GAME_ID.eq(STATS_GAME.GAME_ID))
-                .where(STATS_TEAM.IS_WINNER.isTrue())
-                .and(STATS_GAME.PLAYER_SIZE.eq(playerSize))
-                .and(STATS_TEAM.ALIGNMENT.eq(alignment.name()))
-                .and(STATS_GAME.GUILD_ID.eq(guildId))
-                .fetchOne()
-                .component1()
-        ));
+    public CompletionStage<Integer> rebuildRollup() {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("rebuildRollup");
+        return this.wrapper.jooq(dsl -> dsl.transactionResult(config -> timer.time(() -> {
+                    DSLContext context = DSL.using(config);
+                    context.execute("LOCK TABLE stats_rollup, stats_rollup_total IN EXCLUSIVE MODE");
+                    context.deleteFrom(STATS_ROLLUP).execute();
+                    context.deleteFrom(STATS_ROLLUP_TOTAL).execute();
+
+                    Field<Integer> baddieWins = count().filterWhere(STATS_TEAM.ALIGNMENT.eq(Alignments.WOLF.name()))
+                            .as("baddie_wins");
+                    Field<Integer> goodieWins = count().filterWhere(STATS_TEAM.ALIGNMENT.eq(Alignments.VILLAGE.name()))
+                            .as("goodie_wins");
+                    Table<?> perGame = context
+                            .select(STATS_GAME.GUILD_ID, STATS_GAME.GAME_TYPE, STATS_GAME.GAME_MODE,
+                                    STATS_GAME.PLAYER_SIZE, baddieWins, goodieWins)
+                            .from(STATS_GAME)
+                            .leftJoin(STATS_TEAM)
+                            .on(STATS_TEAM.GAME_ID.eq(STATS_GAME.GAME_ID).and(STATS_TEAM.IS_WINNER.isTrue()))
+                            .groupBy(STATS_GAME.GAME_ID)
+                            .asTable("per_game");
+
+                    Field<Long> guildId = perGame.field(STATS_GAME.GUILD_ID);
+                    Field<String> gameType = perGame.field(STATS_GAME.GAME_TYPE);
+                    Field<String> gameMode = perGame.field(STATS_GAME.GAME_MODE);
+                    Field<Integer> playerSize = perGame.field(STATS_GAME.PLAYER_SIZE);
+                    int guildRows = context
+                            .insertInto(STATS_ROLLUP, STATS_ROLLUP.GUILD_ID, STATS_ROLLUP.GAME_TYPE,
+                                    STATS_ROLLUP.GAME_MODE, STATS_ROLLUP.PLAYER_SIZE, STATS_ROLLUP.GAMES,
+                                    STATS_ROLLUP.BADDIE_WINS, STATS_ROLLUP.GOODIE_WINS)
+                            .select(context
+                                    .select(guildId, gameType, gameMode, playerSize, count().coerce(Long.class),
+                                            sum(perGame.field(baddieWins)).coerce(Long.class),
+                                            sum(perGame.field(goodieWins)).coerce(Long.class))
+                                    .from(perGame)
+                                    .groupBy(guildId, gameType, gameMode, playerSize))
+                            .execute();
+
+                    int totalRows = context
+                            .insertInto(STATS_ROLLUP_TOTAL, STATS_ROLLUP_TOTAL.GAME_TYPE, STATS_ROLLUP_TOTAL.GAME_MODE,
+                                    STATS_ROLLUP_TOTAL.PLAYER_SIZE, STATS_ROLLUP_TOTAL.GAMES,
+                                    STATS_ROLLUP_TOTAL.BADDIE_WINS, STATS_ROLLUP_TOTAL.GOODIE_WINS)
+                            .select(context
+                                    .select(STATS_ROLLUP.GAME_TYPE, STATS_ROLLUP.GAME_MODE, STATS_ROLLUP.PLAYER_SIZE,
+                                            sum(STATS_ROLLUP.GAMES).coerce(Long.class),
+                                            sum(STATS_ROLLUP.BADDIE_WINS).coerce(Long.class),
+                                            sum(STATS_ROLLUP.GOODIE_WINS).coerce(Long.class))
+                                    .from(STATS_ROLLUP)
+                                    .groupBy(STATS_ROLLUP.GAME_TYPE, STATS_ROLLUP.GAME_MODE, STATS_ROLLUP.PLAYER_SIZE))
+                            .execute();
+                    return guildRows + totalRows;
+                }
+        )));
     }
 
     @CheckReturnValue
@@ -255,67 +309,198 @@ private RecordMapper<StatsActionRecord, ActionStats> actionMapper(GameStats game
                 record.getSubmitted(), gameStats, record.getPhase(), record.getAdditionalInfo());
     }
 
+    /**
+     * Reserve ids for games that have not been written yet, see {@link #insertGameStats(GameStats)}. Ids that end up
+     * not being used are simply skipped.
+     */
+    @CheckReturnValue
+    public CompletionStage<List<Long>> reserveGameIds(int count) {
+        Summary.Child timer = MetricsRegistry.queryTime.labels("reserveGameIds");
+        return this.wrapper.jooq(dsl -> timer.time(() -> dsl
+                .select(STATS_GAME_GAME_ID_SEQ.nextval())
+                .from(generateSeries(1, count))
+                .fetch()
+                .getValues(0, Long.class)
+        ));
+    }
+
+    /**
+     * Teams, players and actions are each inserted with a single multi-row statement. Their ids are reserved from
+     * their sequence up front with one more query and set on the stats objects before inserting them, instead of
+     * relying on the order in which the generated ids would be returned.
+     * <p>
+     * A game that already has an id reserved with {@link #reserveGameIds(int)} is inserted with that id, and nothing
+     * is written if a game with that id exists already, so that writing the same game twice is harmless.
+     */
     @CheckReturnValue
     public CompletionStage<GameStats> insertGameStats(GameStats gameStats) {
         Summary.Child timer = MetricsRegistry.queryTime.labels("insertGameStats");
         return this.wrapper.jooq(dsl -> dsl.transactionResult(config -> timer.time(() -> {
                     DSLContext context = DSL.using(config);
 
-                    long gameId = context
+                    Histogram.Timer gameTimer = MetricsRegistry.statsInsertStageTime.labels("game").startTimer();
+                    Field<Long> reservedId = gameStats.getGameId()
+                            .<Field<Long>>map(DSL::val)
+                            .orElse(defaultValue(STATS_GAME.GAME_ID));
+                    Optional<Long> inserted = context
                             .insertInto(STATS_GAME)
-                            .values(defaultValue(STATS_GAME.GAME_ID), gameStats.getChannelId(),
+                            .values(reservedId, gameStats.getChannelId(),
                                     gameStats.getChannelName(), gameStats.getEndTime(), gameStats.getGameMode().name(),
                                     gameStats.getGameType().name(), gameStats.getGuildId(), gameStats.getGuildName(),
                                     gameStats.getStartTime(), gameStats.getPlayerSize())
+                            .onConflictDoNothing()
                             .returningResult(STATS_GAME.GAME_ID)
-                            .fetchOne()
-                            .component1();
+                            .fetchOptional()
+                            .map(Record1::component1);
+                    gameTimer.observeDuration();
+                    if (inserted.isEmpty()) {
+                        return gameStats; //written before
+                    }
+                    long gameId = inserted.get();
                     gameStats.setGameId(gameId);
 
-                    for (TeamStats teamStats : gameStats.getStartingTeams()) {
-                        long teamId = context
-                                .insertInto(STATS_TEAM)
-                                .values(defaultValue(STATS_TEAM.TEAM_ID), teamStats.getAlignment(),
-                                        teamStats.isWinner(), teamStats.getName(), gameId, teamStats.getTeamSize())
-                                .returningResult(STATS_TEAM.TEAM_ID)
-                                .fetchOne()
-                                .component1();
-                        teamStats.setTeamId(teamId);
-
-
-                        for (PlayerStats playerStats : teamStats.getPlayers()) {
-                            long playerId = context
-                                    .insertInto(STATS_PLAYER)
-                                    .values(defaultValue(STATS_PLAYER.PLAYER_ID), playerStats.getNickname(),
-                                            playerStats.getRole().name(), playerStats.getTotalPostLength(),
-                                            playerStats.getTotalPosts(), playerStats.getUserId(), teamId,
-                                            playerStats.getAlignment().name())
-                                    .returningResult(STATS_PLAYER.PLAYER_ID)
-                                    .fetchOne()
-                                    .component1();
-                            playerStats.setPlayerId(playerId);
-                        }
+                    List<TeamStats> teams = new ArrayList<>(gameStats.getStartingTeams());
+                    List<PlayerStats> players = new ArrayList<>();
+                    for (TeamStats teamStats : teams) {
+                        players.addAll(teamStats.getPlayers());
                     }
+                    List<ActionStats> actions = new ArrayList<>(gameStats.getActions());
 
-                    for (ActionStats actionStats : gameStats.getActions()) {
-                        long actionId = context
-                                .insertInto(STATS_ACTION)
-                                .values(defaultValue(STATS_ACTION.ACTION_ID), actionStats.getActionType().name(),
-                                        actionStats.getActor(), actionStats.getCycle(), actionStats.getOrder(),
-                                        actionStats.getTarget(), actionStats.getTimeStampHappened(),
-                                        actionStats.getTimeStampSubmitted(), gameId, actionStats.getPhase().name(),
-                                        actionStats.getAdditionalInfo())
-                                .returningResult(STATS_ACTION.ACTION_ID)
-                                .fetchOne()
-                                .component1();
-                        actionStats.setActionId(actionId);
-                    }
+                    Histogram.Timer idsTimer = MetricsRegistry.statsInsertStageTime.labels("ids").startTimer();
+                    Iterator<Long> ids = reserveIds(context, teams.size() + players.size() + actions.size()).iterator();
+                    idsTimer.observeDuration();
+
+                    Histogram.Timer teamsTimer = MetricsRegistry.statsInsertStageTime.labels("teams").startTimer();
+                    insertTeams(context, gameId, teams, ids);
+                    teamsTimer.observeDuration();
+
+                    Histogram.Timer playersTimer = MetricsRegistry.statsInsertStageTime.labels("players").startTimer();
+                    insertPlayers(context, players, ids);
+                    playersTimer.observeDuration();
+
+                    Histogram.Timer actionsTimer = MetricsRegistry.statsInsertStageTime.labels("actions").startTimer();
+                    insertActions(context, gameId, actions, ids);
+                    actionsTimer.observeDuration();
+
+                    Histogram.Timer rollupTimer = MetricsRegistry.statsInsertStageTime.labels("rollup").startTimer();
+                    updateRollup(context, gameStats, teams);
+                    rollupTimer.observeDuration();
 
                     return gameStats;
                 }
         )));
     }
 
+    //teams, players and actions share one sequence
+    private List<Long> reserveIds(DSLContext context, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return context
+                .select(STATS_ID_SEQ.nextval())
+                .from(generateSeries(1, count))
+                .fetch()
+                .getValues(0, Long.class);
+    }
+
+    private void insertTeams(DSLContext context, long gameId, List<TeamStats> teams, Iterator<Long> ids) {
+        if (teams.isEmpty()) {
+            return;
+        }
+        var insert = context
+                .insertInto(STATS_TEAM, STATS_TEAM.TEAM_ID, STATS_TEAM.ALIGNMENT, STATS_TEAM.IS_WINNER,
+                        STATS_TEAM.NAME, STATS_TEAM.GAME_ID, STATS_TEAM.TEAM_SIZE);
+        for (TeamStats teamStats : teams) {
+            long teamId = ids.next();
+            teamStats.setTeamId(teamId);
+            insert = insert.values(teamId, teamStats.getAlignment().name(), teamStats.isWinner(), teamStats.getName(),
+                    gameId, teamStats.getTeamSize());
+        }
+        insert.execute();
+    }
+
+    private void insertPlayers(DSLContext context, List<PlayerStats> players, Iterator<Long> ids) {
+        if (players.isEmpty()) {
+            return;
+        }
+        var insert = context
+                .insertInto(STATS_PLAYER, STATS_PLAYER.PLAYER_ID, STATS_PLAYER.NICKNAME, STATS_PLAYER.ROLE,
+                        STATS_PLAYER.TOTAL_POSTLENGTH, STATS_PLAYER.TOTAL_POSTS, STATS_PLAYER.USER_ID,
+                        STATS_PLAYER.TEAM_ID, STATS_PLAYER.ALIGNMENT);
+        for (PlayerStats playerStats : players) {
+            long playerId = ids.next();
+            playerStats.setPlayerId(playerId);
+            insert = insert.values(playerId, playerStats.getNickname(), playerStats.getRole().name(),
+                    playerStats.getTotalPostLength(), playerStats.getTotalPosts(), playerStats.getUserId(),
+                    playerStats.getTeam().getTeamId().orElseThrow(), playerStats.getAlignment().name());
+        }
+        insert.execute();
+    }
+
+    private void insertActions(DSLContext context, long gameId, List<ActionStats> actions, Iterator<Long> ids) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        var insert = context
+                .insertInto(STATS_ACTION, STATS_ACTION.ACTION_ID, STATS_ACTION.ACTION_TYPE, STATS_ACTION.ACTOR,
+                        STATS_ACTION.CYCLE, STATS_ACTION.SEQUENCE, STATS_ACTION.TARGET, STATS_ACTION.HAPPENED,
+                        STATS_ACTION.SUBMITTED, STATS_ACTION.GAME_ID, STATS_ACTION.PHASE, STATS_ACTION.ADDITIONAL_INFO);
+        for (ActionStats actionStats : actions) {
+            long actionId = ids.next();
+            actionStats.setActionId(actionId);
+            insert = insert.values(actionId, actionStats.getActionType().name(), actionStats.getActor(),
+                    actionStats.getCycle(), actionStats.getOrder(), actionStats.getTarget(),
+                    actionStats.getTimeStampHappened(), actionStats.getTimeStampSubmitted(), gameId,
+                    actionStats.getPhase().name(), actionStats.getAdditionalInfo());
+        }
+        insert.execute();
+    }
+
+    /**
+     * Count the game towards the rollup tables, both for its guild and for all guilds, see {@link #rebuildRollup()}.
+     * Runs in the same transaction as the rest of the game, so the rollup always matches the written games.
+     */
+    private void updateRollup(DSLContext context, GameStats gameStats, List<TeamStats> teams) {
+        long baddieWins = 0;
+        long goodieWins = 0;
+        for (TeamStats teamStats : teams) {
+            if (!teamStats.isWinner()) {
+                continue;
+            }
+            if (teamStats.getAlignment() == Alignments.WOLF) {
+                baddieWins++;
+            } else if (teamStats.getAlignment() == Alignments.VILLAGE) {
+                goodieWins++;
+            }
+        }
+        String gameType = gameStats.getGameType().name();
+        String gameMode = gameStats.getGameMode().name();
+        int playerSize = gameStats.getPlayerSize();
+        context
+                .insertInto(STATS_ROLLUP, STATS_ROLLUP.GUILD_ID, STATS_ROLLUP.GAME_TYPE, STATS_ROLLUP.GAME_MODE,
+                        STATS_ROLLUP.PLAYER_SIZE, STATS_ROLLUP.GAMES, STATS_ROLLUP.BADDIE_WINS,
+                        STATS_ROLLUP.GOODIE_WINS)
+                .values(gameStats.getGuildId(), gameType, gameMode, playerSize, 1L, baddieWins, goodieWins)
+                .onConflict(STATS_ROLLUP.GUILD_ID, STATS_ROLLUP.GAME_TYPE, STATS_ROLLUP.GAME_MODE,
+                        STATS_ROLLUP.PLAYER_SIZE)
+                .doUpdate()
+                .set(STATS_ROLLUP.GAMES, STATS_ROLLUP.GAMES.plus(1))
+                .set(STATS_ROLLUP.BADDIE_WINS, STATS_ROLLUP.BADDIE_WINS.plus(baddieWins))
+                .set(STATS_ROLLUP.GOODIE_WINS, STATS_ROLLUP.GOODIE_WINS.plus(goodieWins))
+                .execute();
+        context
+                .insertInto(STATS_ROLLUP_TOTAL, STATS_ROLLUP_TOTAL.GAME_TYPE, STATS_ROLLUP_TOTAL.GAME_MODE,
+                        STATS_ROLLUP_TOTAL.PLAYER_SIZE, STATS_ROLLUP_TOTAL.GAMES, STATS_ROLLUP_TOTAL.BADDIE_WINS,
+                        STATS_ROLLUP_TOTAL.GOODIE_WINS)
+                .values(gameType, gameMode, playerSize, 1L, baddieWins, goodieWins)
+                .onConflict(STATS_ROLLUP_TOTAL.GAME_TYPE, STATS_ROLLUP_TOTAL.GAME_MODE, STATS_ROLLUP_TOTAL.PLAYER_SIZE)
+                .doUpdate()
+                .set(STATS_ROLLUP_TOTAL.GAMES, STATS_ROLLUP_TOTAL.GAMES.plus(1))
+                .set(STATS_ROLLUP_TOTAL.BADDIE_WINS, STATS_ROLLUP_TOTAL.BADDIE_WINS.plus(baddieWins))
+                .set(STATS_ROLLUP_TOTAL.GOODIE_WINS, STATS_ROLLUP_TOTAL.GOODIE_WINS.plus(goodieWins))
+                .execute();
+    }
+
     @CheckReturnValue
     public CompletionStage<List<PrivacyGame>> getAllGameStatsOfUser(long userId) {
         Summary.Child timer = MetricsRegistry.queryTime.labels("getAllGameStatsOfUser");
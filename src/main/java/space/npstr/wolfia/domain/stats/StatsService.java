@@ -17,6 +17,7 @@
 
 package space.npstr.wolfia.domain.stats;
 
+import java.util.concurrent.CompletionStage;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import space.npstr.wolfia.domain.privacy.PersonalDataDelete;
@@ -25,14 +26,35 @@
 public class StatsService {
 
     private final StatsRepository statsRepository;
+    private final GameIdPool gameIdPool;
+    private final GameStatsSpool gameStatsSpool;
 
-    public StatsService(StatsRepository statsRepository) {
+    public StatsService(StatsRepository statsRepository, GameIdPool gameIdPool, GameStatsSpool gameStatsSpool) {
         this.statsRepository = statsRepository;
+        this.gameIdPool = gameIdPool;
+        this.gameStatsSpool = gameStatsSpool;
     }
 
+    /**
+     * Record the stats of a finished game. They are spooled and written to the database in the background, so this
+     * does not wait for the database, and works while it is not available.
+     *
+     * @return the passed in stats, with the id of the game set if one was reserved already. Otherwise the game gets
+     * its id once it is written to the database.
+     */
     public GameStats recordGameStats(GameStats gameStats) {
-        return this.statsRepository.insertGameStats(gameStats)
-                .toCompletableFuture().join();
+        this.gameIdPool.take().ifPresent(gameStats::setGameId);
+        this.gameStatsSpool.add(gameStats);
+        return gameStats;
+    }
+
+    /**
+     * Recalculate the rollup of the bot and guild stats from all recorded games.
+     *
+     * @return amount of rows in the rebuilt rollup
+     */
+    public CompletionStage<Integer> rebuildStatsRollup() {
+        return this.statsRepository.rebuildRollup();
     }
 
     @EventListener
@@ -41,6 +63,7 @@ public void onDataDelete(PersonalDataDelete dataDelete) {
     }
 
     public void anonymize(long userId) {
+        this.gameStatsSpool.anonymize(userId);
         this.statsRepository.nullAllPlayerNicknamesofUser(userId).toCompletableFuture().join();
     }
 }
@@ -17,9 +17,13 @@
 
 package space.npstr.wolfia.domain.stats;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
-import net.dv8tion.jda.api.entities.User;
-import space.npstr.wolfia.commands.BaseCommand;
+import net.dv8tion.jda.api.EmbedBuilder;
+import space.npstr.wolfia.commands.AsyncCommand;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.PublicCommand;
 import space.npstr.wolfia.domain.Command;
@@ -28,7 +32,7 @@
  * Display stats for a user
  */
 @Command
-public class UserStatsCommand implements BaseCommand, PublicCommand {
+public class UserStatsCommand implements AsyncCommand, PublicCommand {
 
     public static final String TRIGGER = "userstats";
 
@@ -56,7 +60,7 @@ public String help() {
     }
 
     @Override
-    public boolean execute(@Nonnull final CommandContext context) {
+    public CompletionStage<Boolean> executeAsync(@Nonnull final CommandContext context) {
         if (context.msg.getMentionedUsers().isEmpty()) {
             long userId = context.invoker.getIdLong();
             //noinspection Duplicates
@@ -65,20 +69,31 @@ public boolean execute(@Nonnull final CommandContext context) {
                     userId = Long.parseLong(context.args[0]);
                 } catch (final NumberFormatException e) {
                     context.help();
-                    return false;
+                    return CompletableFuture.completedFuture(false);
                 }
             }
 
-            UserStats userStats = this.statsProvider.getUserStats(userId);
-            context.reply(this.render.renderUserStats(userStats).build());
-            return true;
+            return renderUserStats(userId)
+                    .thenApply(embed -> {
+                        context.reply(embed.build());
+                        return true;
+                    });
         }
 
-        for (final User user : context.msg.getMentionedUsers()) {
-            UserStats userStats = this.statsProvider.getUserStats(user.getIdLong());
-            context.reply(this.render.renderUserStats(userStats).build());
-        }
-        return true;
+        List<CompletableFuture<EmbedBuilder>> embeds = context.msg.getMentionedUsers().stream()
+                .map(user -> renderUserStats(user.getIdLong()).toCompletableFuture())
+                .collect(Collectors.toList());
+        //reply in the order the users were mentioned
+        return CompletableFuture.allOf(embeds.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    embeds.forEach(embed -> context.reply(embed.join().build()));
+                    return true;
+                });
+    }
+
+    private CompletionStage<EmbedBuilder> renderUserStats(long userId) {
+        return this.statsProvider.getUserStats(userId)
+                .thenCompose(this.render::renderUserStats);
     }
 
 
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.events;
+
+import io.prometheus.client.Summary;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.message.react.GenericMessageReactionEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Hands reactions to the handler registered for the message they were added to or removed from. Handlers expire by
+ * themselves after their time to live. Owners that need the expiry on time, like games, schedule it themselves through
+ * {@link #expire(long)}, while one periodic sweep drives the updates and cleans up after everyone else, instead of a
+ * scheduled task for each route.
+ */
+@Component
+public class ReactionRouter {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ReactionRouter.class);
+
+    static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final Map<Long, Route> routes = new ConcurrentHashMap<>();
+
+    public ReactionRouter(ExceptionLoggingExecutor executor) {
+        executor.scheduleAtFixedRate(() -> sweep(System.currentTimeMillis()),
+                SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param messageId  The message on which to listen for reactions
+     * @param filter     filter by Members
+     * @param onReaction wat do when a reaction happens that went through the filter
+     * @param ttlMillis  milliseconds after which the route is removed
+     * @param onExpiry   called once the route is removed
+     */
+    public void route(long messageId, Predicate<Member> filter, Consumer<GenericMessageReactionEvent> onReaction,
+                      long ttlMillis, Runnable onExpiry) {
+        route(messageId, filter, onReaction, ttlMillis, onExpiry, 0, () -> {});
+    }
+
+    /**
+     * Like {@link #route(long, Predicate, Consumer, long, Runnable)}, and additionally calls for updates until the
+     * route expires.
+     *
+     * @param updateMillis interval for updates happening, a value of 0 or less disables them
+     * @param onUpdate     called on update
+     */
+    public void route(long messageId, Predicate<Member> filter, Consumer<GenericMessageReactionEvent> onReaction,
+                      long ttlMillis, Runnable onExpiry, long updateMillis, Runnable onUpdate) {
+        long now = System.currentTimeMillis();
+        Route route = new Route(filter, onReaction, now + ttlMillis, onExpiry, updateMillis, onUpdate, now + updateMillis);
+        Route replaced = this.routes.put(messageId, route);
+        if (replaced == null) {
+            MetricsRegistry.reactionRoutes.inc();
+        } else {
+            log.warn("Route for message {} replaced before it expired", messageId);
+        }
+    }
+
+    /**
+     * Remove the route of the message right away and call its expiry, unless it has expired already.
+     */
+    public void expire(long messageId) {
+        Route route = this.routes.get(messageId);
+        if (route != null) {
+            expire(messageId, route);
+        }
+    }
+
+    /**
+     * @return amount of messages currently being listened on
+     */
+    public int getRouteCount() {
+        return this.routes.size();
+    }
+
+    @EventListener
+    public void onGenericMessageReaction(GenericMessageReactionEvent event) {
+        Route route = this.routes.get(event.getMessageIdLong());
+        if (route == null) {
+            return;
+        }
+
+        Summary.Timer timer = MetricsRegistry.reactionDispatchTime.startTimer();
+        try {
+            if (route.filter.test(event.getMember())) {
+                route.onReaction.accept(event);
+            }
+        } finally {
+            timer.observeDuration();
+        }
+    }
+
+    void sweep(long now) {
+        for (Map.Entry<Long, Route> entry : this.routes.entrySet()) {
+            Route route = entry.getValue();
+            if (route.expiresAt <= now) {
+                expire(entry.getKey(), route);
+            } else if (route.isUpdateDue(now)) {
+                run(route.onUpdate, entry.getKey());
+            }
+        }
+    }
+
+    //the route is removed only once, so its expiry is called only once, no matter who gets here first
+    private void expire(long messageId, Route route) {
+        if (this.routes.remove(messageId, route)) {
+            MetricsRegistry.reactionRoutes.dec();
+            run(route.onExpiry, messageId);
+        }
+    }
+
+    private void run(Runnable callback, long messageId) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.error("Callback of reaction route for message {} failed", messageId, e);
+        }
+    }
+
+    private static class Route {
+
+        private final Predicate<Member> filter;
+        private final Consumer<GenericMessageReactionEvent> onReaction;
+        private final long expiresAt;
+        private final Runnable onExpiry;
+        private final long updateMillis;
+        private final Runnable onUpdate;
+        private long nextUpdateAt; // only touched by the sweep
+
+        private Route(Predicate<Member> filter, Consumer<GenericMessageReactionEvent> onReaction, long expiresAt,
+                      Runnable onExpiry, long updateMillis, Runnable onUpdate, long nextUpdateAt) {
+            this.filter = filter;
+            this.onReaction = onReaction;
+            this.expiresAt = expiresAt;
+            this.onExpiry = onExpiry;
+            this.updateMillis = updateMillis;
+            this.onUpdate = onUpdate;
+            this.nextUpdateAt = nextUpdateAt;
+        }
+
+        private boolean isUpdateDue(long now) {
+            if (this.updateMillis <= 0 || now < this.nextUpdateAt) {
+                return false;
+            }
+            this.nextUpdateAt = now + this.updateMillis;
+            return true;
+        }
+    }
+}
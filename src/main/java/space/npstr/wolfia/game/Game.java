@@ -18,21 +18,31 @@
 package space.npstr.wolfia.game;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
@@ -42,13 +52,19 @@
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.exceptions.PermissionException;
-import net.dv8tion.jda.api.sharding.ShardManager;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import space.npstr.wolfia.App;
 import space.npstr.wolfia.Launcher;
 import space.npstr.wolfia.commands.CommandContext;
+import space.npstr.wolfia.commands.game.RolePmCommand;
 import space.npstr.wolfia.commands.util.InviteCommand;
 import space.npstr.wolfia.config.properties.WolfiaConfig;
 import space.npstr.wolfia.db.type.OAuth2Scope;
+import space.npstr.wolfia.domain.game.GameEventLog;
+import space.npstr.wolfia.domain.game.GameScheduler;
+import space.npstr.wolfia.domain.game.GameSnapshot;
+import space.npstr.wolfia.domain.game.ImmutableGameSnapshot;
 import space.npstr.wolfia.domain.oauth2.OAuth2Service;
 import space.npstr.wolfia.domain.room.ManagedPrivateRoom;
 import space.npstr.wolfia.domain.room.PrivateRoomQueue;
@@ -58,19 +74,22 @@
 import space.npstr.wolfia.domain.stats.GameStats;
 import space.npstr.wolfia.domain.stats.PlayerStats;
 import space.npstr.wolfia.domain.stats.ReplayCommand;
+import space.npstr.wolfia.domain.stats.TeamStats;
+import space.npstr.wolfia.events.ReactionRouter;
 import space.npstr.wolfia.game.definitions.Actions;
 import space.npstr.wolfia.game.definitions.Alignments;
 import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.game.definitions.Item;
+import space.npstr.wolfia.game.definitions.Phase;
+import space.npstr.wolfia.game.definitions.Roles;
 import space.npstr.wolfia.game.definitions.Scope;
 import space.npstr.wolfia.game.exceptions.IllegalGameStateException;
-import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
 import space.npstr.wolfia.game.tools.NiceEmbedBuilder;
 import space.npstr.wolfia.system.metrics.MetricsRegistry;
 import space.npstr.wolfia.utils.UserFriendlyException;
 import space.npstr.wolfia.utils.discord.RestActions;
 import space.npstr.wolfia.utils.discord.RoleAndPermissionUtils;
 import space.npstr.wolfia.utils.discord.TextchatUtils;
-import space.npstr.wolfia.utils.log.LogTheStackException;
 
 /**
  * Provides some common methods for all games, like keeping players and queries about the players
@@ -89,11 +108,23 @@ public abstract class Game {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Game.class);
 
-    //to be used to execute tasks for each game
+    //after these the state of the game is worth taking a snapshot of
+    private static final Set<Actions> SNAPSHOT_ACTIONS = Set.of(Actions.DAYSTART, Actions.NIGHTSTART);
+
+    //how long callers wait for the event loop to handle something for them
+    private static final Duration EVENT_LOOP_TIMEOUT = Duration.ofSeconds(30);
+    //starting sends the role pms and sets up the private room, which may take a while
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration PRIVATE_ROOM_TIMEOUT = Duration.ofMinutes(1);
+
+    //the event loop of the game, backed by a scheduler shared between all games
+    //commands, timers and reactions are all run on it one at a time, so the game state does not need any locking
     //each task scheduled on it needs to check of the game is still running once it continues execution to avoid race
-    //conditions in games ending outside of main loop (shots, bombs, forced destroy by bot admin, etc)
-    protected final ExceptionLoggingExecutor executor = new ExceptionLoggingExecutor(10,
-            r -> new Thread(r, "game-in-channel-" + Game.this.getChannelId() + "-executor-thread"));
+    //conditions in games ending outside of main loop (forced destroy by bot admin, etc)
+    protected final GameScheduler.TaskGroup tasks;
+
+    //persists the actions and the state of the game while it is running
+    protected final GameEventLog eventLog;
 
     //commonly used fields
     protected long channelId = -1;
@@ -101,9 +132,13 @@ public abstract class Game {
     protected final long selfUserId;
     protected GameInfo.GameMode mode;
     protected final List<Player> players = new ArrayList<>();
+    //lookups and living views of the players, reindex after changing the players
+    private final PlayerIndex playerIndex = new PlayerIndex();
     protected volatile boolean running = false;
     protected long accessRoleId;
     protected ManagedPrivateRoom wolfChat = null;
+    //handed over to the game by allocatePrivateRoom()
+    private ManagedPrivateRoom reservedPrivateRoom = null;
     protected final Set<Integer> hasDayEnded = new HashSet<>();
 
     //stats keeping fields
@@ -115,6 +150,9 @@ protected Game() {
         this.selfUserId = Launcher.getBotContext().getShardManager().getShards().stream().findAny()
                 .map(shard -> shard.getSelfUser().getIdLong())
                 .orElseThrow();
+        this.tasks = Launcher.getBotContext().getGameScheduler().newTaskGroup(this::getChannelId);
+        this.tasks.setPrecondition(this::channelsMissingFromCache);
+        this.eventLog = Launcher.getBotContext().getGameEventLog();
     }
 
 
@@ -149,8 +187,11 @@ public String getRolePm(@Nonnull final Member member) throws IllegalGameStateExc
      * @return true if the user is playing in this game (dead or alive), false if not
      */
     public boolean isUserPlaying(@Nonnull final User user) {
-        long userId = user.getIdLong();
-        return this.players.stream().anyMatch(p -> p.userId == userId);
+        return isUserPlaying(user.getIdLong());
+    }
+
+    public boolean isUserPlaying(final long userId) {
+        return this.playerIndex.get(userId) != null;
     }
 
     public boolean isUserPlaying(@Nonnull final Member member) {
@@ -182,10 +223,13 @@ public void userPosted(final Message message) {
         if (!this.running) return;
 
         final long userId = message.getAuthor().getIdLong();
-        final PlayerStats ps = this.playersStats.get(userId);
-        if (ps != null) {
-            ps.bumpPosts(message.getContentRaw().length());
-        }
+        final int length = message.getContentRaw().length();
+        this.tasks.submit(() -> {
+            final PlayerStats ps = this.playersStats.get(userId);
+            if (ps != null) {
+                ps.bumpPosts(length);
+            }
+        });
     }
 
     /**
@@ -198,7 +242,7 @@ protected TextChannel fetchGameChannel() {
 
     /**
      * @return the baddie game channel
-     * Might throw an exception if called in the wrong game mode or never return
+     * Might throw an exception if called in the wrong game mode
      */
     @Nonnull
     protected TextChannel fetchBaddieChannel() {
@@ -210,22 +254,17 @@ public boolean isLiving(final User user) {
     }
 
     public boolean isLiving(final long userId) {
-        for (final Player p : this.players) {
-            if (p.userId == userId && p.isAlive()) {
-                return true;
-            }
-        }
-        return false;
+        final Player player = this.playerIndex.get(userId);
+        return player != null && player.isAlive();
     }
 
     @Nonnull
     protected Player getPlayer(final long userId) throws IllegalGameStateException {
-        for (final Player p : this.players) {
-            if (p.userId == userId) {
-                return p;
-            }
+        final Player player = this.playerIndex.get(userId);
+        if (player == null) {
+            throw new IllegalGameStateException("Requested player " + userId + " is not in the player list");
         }
-        throw new IllegalGameStateException("Requested player " + userId + " is not in the player list");
+        return player;
     }
 
     @Nonnull
@@ -233,77 +272,51 @@ public Player getPlayer(@Nonnull final User user) throws IllegalGameStateExcepti
         return getPlayer(user.getIdLong());
     }
 
+    //the collections returned by these are immutable
+
     protected Set<Player> getVillagers() {
-        return this.players.stream()
-                .filter(Player::isGoodie)
-                .collect(Collectors.toSet());
+        return this.playerIndex.views().villagers;
     }
 
     protected List<Player> getLivingVillage() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .filter(Player::isGoodie)
-                .collect(Collectors.toList());
+        return this.playerIndex.views().livingVillage;
     }
 
     protected Set<Long> getLivingVillageIds() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .filter(Player::isGoodie)
-                .map(Player::getUserId)
-                .collect(Collectors.toSet());
+        return this.playerIndex.views().livingVillageIds;
     }
 
     protected Set<Player> getWolves() {
-        return this.players.stream()
-                .filter(Player::isBaddie)
-                .collect(Collectors.toSet());
+        return this.playerIndex.views().wolves;
     }
 
     protected Set<Long> getWolvesIds() {
-        return this.players.stream()
-                .filter(Player::isBaddie)
-                .map(Player::getUserId)
-                .collect(Collectors.toSet());
+        return this.playerIndex.views().wolvesIds;
     }
 
     protected List<Player> getLivingWolves() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .filter(Player::isBaddie)
-                .collect(Collectors.toList());
+        return this.playerIndex.views().livingWolves;
     }
 
     protected Set<String> getLivingWolvesMentions() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .filter(Player::isBaddie)
-                .map(p -> TextchatUtils.userAsMention(p.userId))
-                .collect(Collectors.toSet());
+        return this.playerIndex.views().livingWolvesMentions;
     }
 
     protected List<Player> getLivingPlayers() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .collect(Collectors.toList());
+        return this.playerIndex.views().livingPlayers;
     }
 
     protected Set<Long> getLivingPlayerIds() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .map(Player::getUserId)
-                .collect(Collectors.toSet());
+        return this.playerIndex.views().livingPlayerIds;
     }
 
     protected List<String> getLivingPlayerMentions() {
-        return this.players.stream()
-                .filter(Player::isAlive)
-                .map(p -> TextchatUtils.userAsMention(p.userId))
-                .collect(Collectors.toList());
+        return this.playerIndex.views().livingPlayerMentions;
     }
 
     public boolean isLivingWolf(final Member m) {
-        return getLivingWolves().stream().anyMatch(player -> player.userId == m.getUser().getIdLong());
+        final Player player = this.playerIndex.get(m.getUser().getIdLong());
+        return player != null && player.isAlive() && player.isBaddie();
     }
 
     //do not post this before the game is over
@@ -478,23 +491,104 @@ protected void randCharacters(final Set<Long> innedPlayers) {
             this.players.add(new Player(randedUserId, this.channelId, this.guildId, c.alignment, c.role, i + 1));
             i++;
         }
+        this.playerIndex.reset(this.players);
     }
 
+    /**
+     * Set up the stats objects of the game, its teams and players
+     *
+     * @param teamName
+     *         flavour of the team names, for example Mafia or Wolves
+     */
+    protected void setUpStats(final Games game, final long startTime, final Function<Alignments, String> teamName) {
+        final TextChannel gameChannel = fetchGameChannel();
+        final Guild g = gameChannel.getGuild();
+        this.gameStats = new GameStats(g.getIdLong(), g.getName(), this.channelId, gameChannel.getName(),
+                game, this.mode, this.players.size(), startTime);
+        final Map<Alignments, TeamStats> teams = new EnumMap<>(Alignments.class);
+        for (final Player player : this.players) {
+            final Alignments alignment = player.alignment;
+            final TeamStats team = teams.getOrDefault(alignment,
+                    new TeamStats(this.gameStats, alignment, teamName.apply(alignment), -1));
+            final PlayerStats ps = new PlayerStats(team, player.userId,
+                    player.getNick(), alignment, player.role);
+            this.playersStats.put(player.userId, ps);
+            team.addPlayer(ps);
+            teams.put(alignment, team);
+        }
+        for (final TeamStats team : teams.values()) {
+            team.setTeamSize(team.getPlayers().size());
+            this.gameStats.addTeam(team);
+        }
+    }
+
+    /**
+     * @return the private room reserved for this game when it was started, see {@link #needsPrivateRoom}
+     */
     protected ManagedPrivateRoom allocatePrivateRoom() {
-        PrivateRoomQueue privateRoomQueue = Launcher.getBotContext().getPrivateRoomQueue();
-        return privateRoomQueue.poll()
-                .orElseGet(() -> {
-                    RestActions.sendMessage(fetchGameChannel(),
-                            "Acquiring a private server for the wolves...this may take a while.");
-                    log.error("Ran out of free private guilds. Please add moar.");
-                    try { //oh yeah...we are waiting till infinity if necessary
-                        return privateRoomQueue.take();
-                    } catch (final InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        log.error("Interrupted while waiting for a private server.");
-                        throw new UserFriendlyException("Could not allocate a private server.");
-                    }
-                });
+        final ManagedPrivateRoom privateRoom = this.reservedPrivateRoom;
+        if (privateRoom == null) {
+            throw new IllegalStateException("No private room has been reserved for the game in channel " + this.channelId);
+        }
+        this.reservedPrivateRoom = null;
+        return privateRoom;
+    }
+
+    /**
+     * Get a hold of a private room before the game is started. Waits for one to become available and for its guild to
+     * show up in the cache if necessary, on the thread starting the game instead of the event loop, so that a game
+     * waiting for a room does not hold up other games.
+     */
+    private ManagedPrivateRoom reservePrivateRoom(final long gameChannelId) {
+        final ManagedPrivateRoom privateRoom = pollPrivateRoom(gameChannelId);
+        try {
+            Launcher.getBotContext().getEntityResolver().guild(privateRoom.getGuildId()).toCompletableFuture()
+                    .get(PRIVATE_ROOM_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return privateRoom;
+        } catch (final ExecutionException | TimeoutException e) {
+            Launcher.getBotContext().getPrivateRoomQueue().putBack(privateRoom);
+            log.error("Private guild #{} is not available", privateRoom.getNumber(), e);
+            throw new UserFriendlyException("Could not allocate a private server in time, "
+                    + "please try starting the game again later.");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Launcher.getBotContext().getPrivateRoomQueue().putBack(privateRoom);
+            log.error("Interrupted while waiting for private guild #{}.", privateRoom.getNumber());
+            throw new UserFriendlyException("Could not allocate a private server.");
+        }
+    }
+
+    private ManagedPrivateRoom pollPrivateRoom(final long gameChannelId) {
+        final PrivateRoomQueue privateRoomQueue = Launcher.getBotContext().getPrivateRoomQueue();
+        final Optional<ManagedPrivateRoom> available = privateRoomQueue.poll();
+        if (available.isPresent()) {
+            return available.get();
+        }
+
+        final TextChannel gameChannel = Launcher.getBotContext().getShardManager().getTextChannelById(gameChannelId);
+        if (gameChannel != null) {
+            RestActions.sendMessage(gameChannel, "Acquiring a private server for the wolves...this may take a while.");
+        }
+        log.error("Ran out of free private guilds. Please add moar.");
+        try {
+            return privateRoomQueue.poll(PRIVATE_ROOM_TIMEOUT)
+                    .orElseThrow(() -> new UserFriendlyException("Could not allocate a private server in time, "
+                            + "please try starting the game again later."));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting for a private server.");
+            throw new UserFriendlyException("Could not allocate a private server.");
+        }
+    }
+
+    /**
+     * Put the reserved private room back if the game did not start using it.
+     */
+    private void releaseReservedPrivateRoom() {
+        if (this.reservedPrivateRoom != null) {
+            Launcher.getBotContext().getPrivateRoomQueue().putBack(this.reservedPrivateRoom);
+            this.reservedPrivateRoom = null;
+        }
     }
 
     /**
@@ -522,21 +616,20 @@ protected void prepareChannel() {
      * most likely this includes deleting all discord roles used in the game and resetting player's and the access
      * role's permission overrides for the game channel
      *
-     * @param complete
-     *         optionally set to true to complete these operations before returning
+     * @return a stage that completes once all of these operations are done, failed or not
      */
     //revert whatever prepareChannel() did in reverse order
-    public void resetRolesAndPermissions(final boolean... complete) {
+    public CompletionStage<Void> resetRolesAndPermissions() {
 
         final TextChannel channel = Launcher.getBotContext().getShardManager().getTextChannelById(this.channelId);
         if (channel == null) {
             //we probably left the guild
             log.warn("Could not find channel {} to reset roles and permissions in there", this.channelId);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
         final Guild g = channel.getGuild();
         final List<Permission> missingPermissions = new ArrayList<>();
-        final List<Future<?>> toComplete = new ArrayList<>();
+        final List<CompletableFuture<?>> toComplete = new ArrayList<>();
 
         //reset permission override for the players
         try {
@@ -568,17 +661,10 @@ public void resetRolesAndPermissions(final boolean... complete) {
                                     .collect(Collectors.joining("`, `"))));
         }
 
-        if (complete.length > 0 && complete[0]) {
-            for (final Future<?> f : toComplete) {
-                try {
-                    f.get();
-                } catch (final InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
-                } catch (final ExecutionException ignored) {
-                    // ignored
-                }
-            }
-        }
+        //resetting is best effort, failures are of no further interest
+        return CompletableFuture.allOf(toComplete.stream()
+                .map(future -> future.exceptionally(t -> null))
+                .toArray(CompletableFuture[]::new));
     }
 
     /**
@@ -593,8 +679,19 @@ public void cleanUp() {
                 //dont really care about this one, its fine if usage has been stopped already
             }
         }
-        resetRolesAndPermissions(true);
-        this.executor.shutdown(); //dont use shutdownNow() as that might kill the thread executing this line of code
+        resetRolesAndPermissions();
+        this.tasks.cancelAll(); //does not interrupt, as that might kill the thread executing this line of code
+        discardEventLog();
+    }
+
+    /**
+     * Stop logging the game and drop what has been logged so far. Call this from your cleanUp() implementation.
+     */
+    protected void discardEventLog() {
+        if (this.gameStats != null) {
+            this.gameStats.setActionListener(action -> {});
+            this.eventLog.discard(this.channelId, this.gameStats.getStartTime());
+        }
     }
 
     //public for eval usage
@@ -680,22 +777,26 @@ protected boolean isGameOver(final boolean... wwFlair) {
             try {
                 this.gameStats = Launcher.getBotContext().getStatsService().recordGameStats(this.gameStats);
 
-                long gameId = this.gameStats.getGameId().orElseThrow();
-                out += String.format("%nThis game's id is **%s**, you can watch its replay with `%s %s`",
-                        gameId, WolfiaConfig.DEFAULT_PREFIX + ReplayCommand.TRIGGER, gameId);
+                final Optional<Long> recordedId = this.gameStats.getGameId();
+                if (recordedId.isPresent()) {
+                    out += String.format("%nThis game's id is **%s**, you can watch its replay with `%s %s`",
+                            recordedId.get(), WolfiaConfig.DEFAULT_PREFIX + ReplayCommand.TRIGGER, recordedId.get());
+                } else {
+                    out += "\nThe database is not available currently, a replay of this game will be available once it is back.";
+                }
             } catch (final Exception e) {
-                log.error("Db blew up saving game stats", e);
-                out += "The database it not available currently, a replay of this game will not be available.";
+                log.error("Failed to record game stats", e);
+                out += "\nThe stats of this game could not be saved, a replay of this game will not be available.";
             }
             cleanUp();
             final TextChannel gameChannel = fetchGameChannel();
             String info = Games.getInfo(this).textRep();
-            long gameId = this.gameStats.getGameId().orElseThrow();
+            final String gameId = this.gameStats.getGameId().map(String::valueOf).orElse("without id");
             log.info("Game #{} ended in guild {} {}, channel #{} {}, {} {} {} players",
                     gameId, gameChannel.getGuild().getName(), gameChannel.getGuild().getIdLong(),
                     gameChannel.getName(), gameChannel.getIdLong(), info, this.mode.textRep, this.players.size());
-            // removing the game from the registry has to be the very last statement, since if a restart is queued, it
-            // waits for an empty games registry
+            // removing the game from the registry has to be the very last statement, since if a restart is queued, the
+            // games left in the registry are hibernated
             RestActions.sendMessage(fetchGameChannel(), out,
                     ignoredMessage -> Launcher.getBotContext().getGameRegistry().remove(this),
                     throwable -> {
@@ -736,17 +837,410 @@ protected void addToBaddieGuild(Player player) {
         // TODO tell player if they have no valid token
     }
 
+    /**
+     * Send all players their role pm at once, instead of one after another. Players that could not receive theirs
+     * are told so with a single message in the game channel.
+     *
+     * @return completes once each role pm has been either delivered or failed, with the players whose delivery failed
+     */
+    protected CompletionStage<List<Player>> sendRolePms(final TextChannel gameChannel) {
+        final List<CompletableFuture<Optional<Player>>> deliveries = new ArrayList<>(this.players.size());
+        for (final Player player : this.players) {
+            final CompletableFuture<Optional<Player>> delivery = new CompletableFuture<>();
+            player.sendMessage(RestActions.from(player.getRolePm()),
+                    message -> delivery.complete(Optional.empty()),
+                    e -> delivery.complete(Optional.of(player)));
+            deliveries.add(delivery);
+        }
+
+        return CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0]))
+                .thenApply(__ -> {
+                    final List<Player> failed = deliveries.stream()
+                            .map(CompletableFuture::join)
+                            .flatMap(Optional::stream)
+                            .collect(Collectors.toList());
+                    if (!failed.isEmpty()) {
+                        log.info("Failed to deliver {} of {} role pms in channel {}",
+                                failed.size(), this.players.size(), this.channelId);
+                        RestActions.sendMessage(gameChannel, String.format("%s, **I cannot send you a private message**, "
+                                        + "please adjust your privacy settings and/or unblock me, then issue `%s` to "
+                                        + "receive your role PM.",
+                                failed.stream().map(Player::asMention).collect(Collectors.joining(", ")),
+                                WolfiaConfig.DEFAULT_PREFIX + RolePmCommand.TRIGGER));
+                    }
+                    return failed;
+                });
+    }
+
     protected Future<?> scheduleIfGameStillRuns(Runnable runnable, Duration delay) {
-        return this.executor.schedule(() -> {
+        return this.tasks.schedule(() -> {
             if (running) {
                 runnable.run();
             }
-        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }, delay);
+    }
+
+    /**
+     * Expire the reaction route of the message on the event loop of this game once its time to live is up, instead of
+     * whenever the next sweep of the {@link ReactionRouter} happens to run.
+     */
+    protected void scheduleRouteExpiry(final long messageId, final long ttlMillis) {
+        final ReactionRouter reactionRouter = Launcher.getBotContext().getReactionRouter();
+        this.tasks.schedule(() -> reactionRouter.expire(messageId), Duration.ofMillis(ttlMillis));
+    }
+
+    /**
+     * Use this to hand over events that arrive outside of the game's event loop, like reactions, to the game.
+     */
+    protected Future<?> executeIfGameStillRuns(Runnable runnable) {
+        return this.tasks.submit(() -> {
+            if (running) {
+                runnable.run();
+            }
+        });
+    }
+
+    /**
+     * Start a game
+     * <p>
+     * The game is started on its event loop, this call blocks until that is done. A private room is reserved for the
+     * game first if it {@link #needsPrivateRoom needs one}.
+     *
+     * @param channelId
+     *         main channel where the game shall run
+     * @param mode
+     *         the chosen game mode
+     * @param innedPlayers
+     *         the players who signed up
+     */
+    public final void start(final long channelId, final GameInfo.GameMode mode, final Set<Long> innedPlayers)
+            throws IllegalGameStateException {
+        final AtomicReference<ManagedPrivateRoom> privateRoom = new AtomicReference<>(
+                needsPrivateRoom(mode) ? reservePrivateRoom(channelId) : null);
+        try {
+            awaitInEventLoop(() -> {
+                this.reservedPrivateRoom = privateRoom.getAndSet(null);
+                try {
+                    handleStart(channelId, mode, innedPlayers);
+                    startEventLog();
+                } finally {
+                    releaseReservedPrivateRoom();
+                }
+                return true;
+            }, START_TIMEOUT);
+        } finally {
+            //the start never made it onto the event loop
+            final ManagedPrivateRoom unused = privateRoom.getAndSet(null);
+            if (unused != null) {
+                Launcher.getBotContext().getPrivateRoomQueue().putBack(unused);
+            }
+        }
+    }
+
+    /**
+     * Let the game handle a command a user issued
+     * <p>
+     * The command is handled on the game's event loop, this call blocks until that is done.
+     *
+     * @param context
+     *         the context of the issued command
+     *
+     * @return true if the command was executed successful
+     *
+     * @throws IllegalGameStateException
+     *         if the command entered led to an illegal game state
+     */
+    public final boolean issueCommand(@Nonnull final CommandContext context) throws IllegalGameStateException {
+        try {
+            return awaitInEventLoop(() -> handleCommand(context), EVENT_LOOP_TIMEOUT);
+        } catch (final CancellationException e) {
+            //game ended while the command was waiting for its turn
+            return false;
+        }
+    }
+
+    /**
+     * Pause the game because the bot is shutting down. Its state is written to the event log, so that the game can be
+     * {@link #resume(GameSnapshot) resumed} once the bot is back. Channel permissions and the wolf chat are left as they
+     * are.
+     * <p>
+     * The game is paused on its event loop, this call blocks until that is done.
+     *
+     * @return true if the game was running and has been paused
+     */
+    public final boolean hibernate() throws IllegalGameStateException {
+        return awaitInEventLoop(() -> {
+            if (!this.running || this.gameStats == null) {
+                return false;
+            }
+            this.running = false;
+            this.tasks.cancelAll();
+            this.gameStats.setActionListener(action -> {});
+            takeSnapshot(true);
+
+            final TextChannel channel = Launcher.getBotContext().getShardManager().getTextChannelById(this.channelId);
+            if (channel != null) {
+                RestActions.sendMessage(channel, "I am restarting. The game is paused and will continue shortly.");
+            }
+            return true;
+        }, EVENT_LOOP_TIMEOUT);
+    }
+
+    /**
+     * Resume a game from the snapshot it took when it was {@link #hibernate() hibernated}. Restores the players and
+     * the stats of the game, then lets the game continue where it left off.
+     * <p>
+     * The game is resumed on its event loop, this call blocks until that is done.
+     */
+    public final void resume(final GameSnapshot snapshot) throws IllegalGameStateException {
+        awaitInEventLoop(() -> {
+            restore(snapshot);
+            return true;
+        }, EVENT_LOOP_TIMEOUT);
+    }
+
+    private void restore(final GameSnapshot snapshot) throws IllegalGameStateException {
+        if (this.running) {
+            throw new IllegalStateException("Cannot resume a game that is running already");
+        }
+        final JSONObject state = new JSONObject(snapshot.getState());
+        this.channelId = snapshot.getChannelId();
+        this.guildId = state.getLong("guildId");
+        this.mode = GameInfo.GameMode.valueOf(state.getString("mode"));
+        this.accessRoleId = state.getLong("accessRoleId");
+        final JSONArray daysEnded = state.getJSONArray("hasDayEnded");
+        for (int i = 0; i < daysEnded.length(); i++) {
+            this.hasDayEnded.add(daysEnded.getInt(i));
+        }
+
+        final JSONArray playersState = state.getJSONArray("players");
+        for (int i = 0; i < playersState.length(); i++) {
+            final JSONObject playerState = playersState.getJSONObject(i);
+            final Player player = playerFromState(playerState);
+            player.setRolePm(playerState.getString("rolePm"));
+            final JSONArray items = playerState.getJSONArray("items");
+            for (int j = 0; j < items.length(); j++) {
+                final JSONObject item = items.getJSONObject(j);
+                player.items.add(new Item(item.getLong("sourceId"), Item.ItemType.valueOf(item.getString("type"))));
+            }
+            if (!playerState.getBoolean("alive")) {
+                player.kill();
+            }
+            this.players.add(player);
+        }
+        this.playerIndex.reset(this.players);
+
+        if (state.has("wolfChat")) {
+            final JSONObject wolfChatState = state.getJSONObject("wolfChat");
+            final int number = wolfChatState.getInt("number");
+            this.wolfChat = Launcher.getBotContext().getPrivateRoomQueue().poll(number)
+                    .orElseThrow(() -> new IllegalGameStateException("Private room #" + number + " is not available"));
+            this.wolfChat.resumeUsage(wolfChatState.getLong("channelId"), getWolvesIds());
+        }
+
+        readSnapshot(state, snapshot.getGameStart());
+
+        for (int i = 0; i < playersState.length(); i++) {
+            final JSONObject playerState = playersState.getJSONObject(i);
+            final PlayerStats ps = this.playersStats.get(playerState.getLong("userId"));
+            if (ps != null) {
+                ps.restorePosts(playerState.getInt("posts"), playerState.getInt("postLength"));
+            }
+        }
+        this.gameStats.setActions(this.eventLog.loadRecordedActions(this.gameStats));
+        this.actionOrder.set(snapshot.getSequence());
+        this.gameStats.setActionListener(this::actionRecorded);
+        this.running = true;
+
+        continueGame(state);
+        takeSnapshot(false);
+    }
+
+    private Player playerFromState(final JSONObject playerState) {
+        return new Player(playerState.getLong("userId"), this.channelId, this.guildId,
+                Alignments.valueOf(playerState.getString("alignment")), Roles.valueOf(playerState.getString("role")),
+                playerState.getInt("number"));
+    }
+
+    /**
+     * Undo what a game that can't be resumed left behind, based on the snapshot it took: the permission overrides in
+     * its channel and its wolf chat. Works on a freshly created game as well as on one that failed to resume half way
+     * through.
+     */
+    public final void cleanUpAfter(final GameSnapshot snapshot) {
+        final JSONObject state = new JSONObject(snapshot.getState());
+        this.running = false;
+        this.channelId = snapshot.getChannelId();
+        this.guildId = state.getLong("guildId");
+        this.mode = GameInfo.GameMode.valueOf(state.getString("mode"));
+        this.accessRoleId = state.getLong("accessRoleId");
+        this.players.clear();
+        final JSONArray playersState = state.getJSONArray("players");
+        for (int i = 0; i < playersState.length(); i++) {
+            this.players.add(playerFromState(playersState.getJSONObject(i)));
+        }
+        this.playerIndex.reset(this.players);
+
+        if (this.wolfChat == null && state.has("wolfChat")) {
+            final JSONObject wolfChatState = state.getJSONObject("wolfChat");
+            final int number = wolfChatState.getInt("number");
+            final Optional<ManagedPrivateRoom> privateRoom = Launcher.getBotContext().getPrivateRoomQueue().poll(number);
+            if (privateRoom.isPresent()) {
+                privateRoom.get().resumeUsage(wolfChatState.getLong("channelId"), Collections.emptyList());
+                this.wolfChat = privateRoom.get();
+            } else {
+                log.warn("Private room #{} of dropped game in channel {} is not available", number, this.channelId);
+            }
+        }
+        cleanUp();
+    }
+
+    /**
+     * Run the task on the event loop of the game and wait for its result. If the event loop is too busy or stuck to get
+     * to it within the timeout, the task is cancelled if it has not started yet, and the caller is freed up.
+     */
+    private boolean awaitInEventLoop(final Callable<Boolean> task, final Duration timeout) throws IllegalGameStateException {
+        if (this.tasks.inEventLoop()) {
+            //already on it, waiting for ourselves would never finish
+            return callRethrowing(task);
+        }
+
+        final Future<Boolean> future = this.tasks.submit(() -> callRethrowing(task));
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(false);
+            throw new IllegalGameStateException("The game in channel " + this.channelId + " did not respond within "
+                    + timeout.toSeconds() + " seconds", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalGameStateException("Interrupted while waiting for the game to respond", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IllegalGameStateException) {
+                throw (IllegalGameStateException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void startEventLog() {
+        if (this.gameStats == null) {
+            return; //game did not start
+        }
+        this.gameStats.getActions().forEach(action -> this.eventLog.append(action, true));
+        this.gameStats.setActionListener(this::actionRecorded);
+        takeSnapshot(false);
+    }
+
+    private void actionRecorded(final ActionStats action) {
+        this.eventLog.append(action, true);
+        if (SNAPSHOT_ACTIONS.contains(action.getActionType())) {
+            //let the phase change finish before looking at the state
+            executeIfGameStillRuns(() -> takeSnapshot(false));
+        }
+    }
+
+    /**
+     * Record an action in the event log without adding it to the stats of the game, for example a vote that might be
+     * changed before the day ends.
+     */
+    protected void logAction(final ActionStats action) {
+        this.eventLog.append(action, false);
+    }
+
+    private void takeSnapshot(final boolean hibernated) {
+        final JSONArray players = new JSONArray();
+        for (final Player player : this.players) {
+            final JSONArray items = new JSONArray();
+            for (final Item item : player.items) {
+                items.put(new JSONObject()
+                        .put("sourceId", item.sourceId)
+                        .put("type", item.itemType.name()));
+            }
+            final PlayerStats ps = this.playersStats.get(player.userId);
+            players.put(new JSONObject()
+                    .put("userId", player.userId)
+                    .put("alignment", player.alignment.name())
+                    .put("role", player.role.name())
+                    .put("number", player.number)
+                    .put("alive", player.isAlive())
+                    .put("rolePm", player.getRolePm())
+                    .put("items", items)
+                    .put("posts", ps != null ? ps.getTotalPosts() : 0)
+                    .put("postLength", ps != null ? ps.getTotalPostLength() : 0));
+        }
+        final JSONObject state = new JSONObject()
+                .put("game", this.gameStats.getGameType().name())
+                .put("mode", this.mode.name())
+                .put("guildId", this.guildId)
+                .put("accessRoleId", this.accessRoleId)
+                .put("privateRoomGuildId", getPrivateRoomGuildId())
+                .put("hasDayEnded", new JSONArray(this.hasDayEnded))
+                .put("players", players);
+        if (this.wolfChat != null) {
+            state.put("wolfChat", new JSONObject()
+                    .put("number", this.wolfChat.getNumber())
+                    .put("channelId", this.wolfChat.getChannelId()));
+        }
+        writeSnapshot(state);
+
+        this.eventLog.snapshot(ImmutableGameSnapshot.builder()
+                .channelId(this.channelId)
+                .gameStart(this.gameStats.getStartTime())
+                .sequence(this.actionOrder.get())
+                .created(Instant.now())
+                .state(state.toString())
+                .isHibernated(hibernated)
+                .build());
+    }
+
+    private static boolean callRethrowing(final Callable<Boolean> task) throws IllegalGameStateException {
+        try {
+            return task.call();
+        } catch (final IllegalGameStateException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     //an way to create ActionStats object with a bunch of default/automatically generated values, like time stamps
     protected abstract ActionStats simpleAction(final long actor, final Actions action, final long target);
 
+    /**
+     * Add the game specific parts of the state, like the current phase, to a snapshot of the game. Called on the
+     * game's event loop.
+     *
+     * @param state
+     *         the snapshot, already containing the players and their items
+     */
+    protected abstract void writeSnapshot(JSONObject state);
+
+    /**
+     * Restore the game specific parts of the state from a snapshot, see {@link #writeSnapshot(JSONObject)}, and set up
+     * the stats of the game. Called on the game's event loop, after the players have been restored.
+     *
+     * @param state
+     *         the snapshot the game is resumed from
+     * @param gameStart
+     *         time when the game originally started
+     */
+    protected abstract void readSnapshot(JSONObject state, long gameStart) throws IllegalGameStateException;
+
+    /**
+     * Continue a resumed game where it was paused, for example by rescheduling the timer of the current phase. Called on
+     * the game's event loop, after the state of the game has been restored.
+     *
+     * @param state
+     *         the snapshot the game is resumed from
+     */
+    protected abstract void continueGame(JSONObject state);
+
     /**
      * Sets the day length
      *
@@ -761,9 +1255,7 @@ protected Future<?> scheduleIfGameStillRuns(Runnable runnable, Duration delay) {
     public abstract EmbedBuilder getStatus();
 
     /**
-     * Start a game
-     * <p>
-     * IMPORTANT: In 99.483% of cases this needs to be implemented as synchronized.
+     * Start a game. Called on the game's event loop.
      * <p>
      * Things this needs to take care of include:
      * - setting the channelId, game mode and players
@@ -776,10 +1268,16 @@ protected Future<?> scheduleIfGameStillRuns(Runnable runnable, Duration delay) {
      * @param innedPlayers
      *         the players who signed up
      */
-    public abstract void start(long channelId, GameInfo.GameMode mode, Set<Long> innedPlayers);
+    protected abstract void handleStart(long channelId, GameInfo.GameMode mode, Set<Long> innedPlayers);
 
     /**
-     * Let the game handle a command a user issued
+     * @return true if the game needs a private room for the wolf chat when played in the mode. It is reserved before
+     * the game is started, and can be picked up with {@link #allocatePrivateRoom()} in {@link #handleStart}.
+     */
+    protected abstract boolean needsPrivateRoom(GameInfo.GameMode mode);
+
+    /**
+     * Let the game handle a command a user issued. Called on the game's event loop.
      *
      * @param context
      *         the context of the issued command
@@ -789,31 +1287,50 @@ protected Future<?> scheduleIfGameStillRuns(Runnable runnable, Duration delay) {
      * @throws IllegalGameStateException
      *         if the command entered led to an illegal game state
      */
-    public abstract boolean issueCommand(@Nonnull CommandContext context)
+    protected abstract boolean handleCommand(@Nonnull CommandContext context)
             throws IllegalGameStateException;
 
 
+    /**
+     * Pauses the event loop of a running game while its channels are missing from the cache, for example because their
+     * shard is reconnecting, so that its tasks find them once they run, instead of each of them waiting for them.
+     *
+     * @return a stage that completes once the missing channel is back, or null if none is missing
+     */
+    @Nullable
+    private CompletionStage<?> channelsMissingFromCache() {
+        if (!this.running) {
+            return null;
+        }
+        final CompletableFuture<TextChannel> gameChannel = resolveTextChannel(this.channelId);
+        if (!gameChannel.isDone()) {
+            return gameChannel;
+        }
+        final ManagedPrivateRoom privateRoom = this.wolfChat;
+        if (privateRoom != null) {
+            final CompletableFuture<TextChannel> baddieChannel = resolveTextChannel(privateRoom.getChannelId());
+            if (!baddieChannel.isDone()) {
+                return baddieChannel;
+            }
+        }
+        return null;
+    }
+
     //this method assumes that the id itself is legit and not a mistake
     // it is an attempt to improve the occasional inconsistency of discord which makes looking up entities a gamble
     // the main feature being the @Nonnull return contract, over the @Nullable contract of looking the entity up in JDA
+    // a channel missing from the cache is not waited for in here, instead the event loop of the game is paused until
+    // it is back, see channelsMissingFromCache()
     @Nonnull
     private static TextChannel fetchTextChannel(final long channelId) {
-        ShardManager shardManager = Launcher.getBotContext().getShardManager();
-        TextChannel tc = shardManager.getTextChannelById(channelId);
-        int attempts = 0;
-        while (tc == null) {
-            attempts++;
-            if (attempts > 100) {
-                throw new RuntimeException("Failed to fetch channel #" + channelId);
-            }
-            log.error("Could not find channel {}, retrying in a moment", channelId, new LogTheStackException());
-            try {
-                Thread.sleep(5000);
-            } catch (final InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            tc = shardManager.getTextChannelById(channelId);
+        final TextChannel channel = resolveTextChannel(channelId).getNow(null);
+        if (channel == null) {
+            throw new IllegalStateException("Channel #" + channelId + " is not available right now");
         }
-        return tc;
+        return channel;
+    }
+
+    private static CompletableFuture<TextChannel> resolveTextChannel(final long channelId) {
+        return Launcher.getBotContext().getEntityResolver().textChannel(channelId).toCompletableFuture();
     }
 }
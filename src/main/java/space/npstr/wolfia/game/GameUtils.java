@@ -21,7 +21,6 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,53 +60,6 @@ public static <E> E rand(final Collection<E> items) {
         return result;
     }
 
-    /**
-     * Objects vote for candidates
-     * <p>
-     * Find the candidate C with the most votes
-     * If there are no votes, pick a random C from all candidates
-     * If there is a tie, the one who was voted first will get selected
-     * Make sure to provide votes in an ordered Map (LinkedHashMap for example) for this to work properly
-     *
-     * @return the candidates C with the most votes
-     */
-    public static <C> List<C> mostVoted(final Map<?, C> votes, final Collection<C> allCandidates) {
-        long mostVotes = 0;
-        final Map<C, Long> votesAmountToCandidate = new HashMap<>(allCandidates.size());
-        for (final C candidate : new HashSet<>(allCandidates)) {
-            final long votesAmount = votes.values().stream().filter(candidate::equals).count();
-            votesAmountToCandidate.put(candidate, votesAmount);
-            if (votesAmount > mostVotes) {
-                mostVotes = votesAmount;
-            }
-        }
-
-        final long most = mostVotes;
-        final List<C> result = new ArrayList<>();
-        for (final Map.Entry<C, Long> entry : votesAmountToCandidate.entrySet()) {
-            final C candidate = entry.getKey();
-            final long votesAmount = entry.getValue();
-            if (votesAmount == most) result.add(candidate);
-        }
-
-        return result;
-    }
-
-    /**
-     * @return highest amount of votes in any single candidate
-     */
-    public static <C> long mostVotes(final Map<?, C> votes) {
-        long mostVotes = 0;
-        for (final C candidate : new HashSet<>(votes.values())) {
-            final long votesAmount = votes.values().stream().filter(candidate::equals).count();
-            if (votesAmount > mostVotes) {
-                mostVotes = votesAmount;
-            }
-        }
-        return mostVotes;
-    }
-
-
     public static <O> Map<String, O> mapToStrings(final Collection<O> objects, final List<String> strings) {
         if (objects.size() >= strings.size()) {
             throw new IllegalArgumentException("Too many objects to map them to emojis.");
@@ -59,6 +59,7 @@ public class Player {
     @Nonnull
     private String rolePm = "This player has no role pm.";
     private boolean isAlive = true;
+    private Runnable onDeath = () -> {};
 
     public Player(final long userId, final long channelId, final long guildId, @Nonnull final Alignments alignment,
                   @Nonnull final Roles role, final int number) {
@@ -196,6 +197,12 @@ public void kill() throws IllegalGameStateException {
             throw new IllegalGameStateException("Can't kill a dead player");
         }
         this.isAlive = false;
+        this.onDeath.run();
+    }
+
+    //only one listener, the index of the game this player is part of
+    void onDeath(@Nonnull final Runnable onDeath) {
+        this.onDeath = onDeath;
     }
 
     @Override
@@ -229,9 +236,14 @@ public void sendMessage(@Nonnull final MessageEmbed embed, @Nonnull final Consum
      * if the user is not present in the bot
      */
     public void sendMessage(@Nonnull final Message message, @Nonnull final Consumer<Throwable> onFail) {
+        sendMessage(message, null, onFail);
+    }
+
+    public void sendMessage(@Nonnull final Message message, @Nullable final Consumer<Message> onSuccess,
+                            @Nonnull final Consumer<Throwable> onFail) {
         final User user = Launcher.getBotContext().getShardManager().getUserById(this.userId);
         if (user != null) {
-            RestActions.sendPrivateMessage(user, message, null, onFail);
+            RestActions.sendPrivateMessage(user, message, onSuccess, onFail);
         } else {
             onFail.accept(new UserNotPresentException(this.userId));
         }
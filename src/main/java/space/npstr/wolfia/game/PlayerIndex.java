@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import space.npstr.wolfia.utils.discord.TextchatUtils;
+
+/**
+ * Lookups of the players of a game by their user id, and views of the living players that are only built again after
+ * someone died, instead of filtering all players every time one of them is needed.
+ * <p>
+ * The views are immutable, so they can be handed out and read by other threads without copying them. They are tagged
+ * with the generation of the index they were built from, which moves on with every death, so views built by another
+ * thread while someone died are never handed out after the death.
+ */
+class PlayerIndex {
+
+    //sorted by user id, to binary search them without boxing the id
+    private volatile Player[] playersByUserId = new Player[0];
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Views> views = new AtomicReference<>();
+
+    /**
+     * Index the players of a game. Their deaths will be picked up on their own.
+     */
+    void reset(final Collection<Player> players) {
+        final Player[] sorted = players.toArray(new Player[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(Player::getUserId));
+        for (final Player player : sorted) {
+            player.onDeath(this::invalidate);
+        }
+        this.playersByUserId = sorted;
+        invalidate();
+    }
+
+    @Nullable
+    Player get(final long userId) {
+        final Player[] players = this.playersByUserId;
+        int low = 0;
+        int high = players.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midId = players[mid].userId;
+            if (midId < userId) {
+                low = mid + 1;
+            } else if (midId > userId) {
+                high = mid - 1;
+            } else {
+                return players[mid];
+            }
+        }
+        return null;
+    }
+
+    Views views() {
+        //read the generation before the players, so that views are never tagged newer than what they were built from
+        final long generation = this.generation.get();
+        final Views current = this.views.get();
+        if (current != null && current.generation == generation) {
+            return current;
+        }
+        final Views built = new Views(this.playersByUserId, generation);
+        this.views.compareAndSet(current, built);
+        return built;
+    }
+
+    private void invalidate() {
+        this.generation.incrementAndGet();
+    }
+
+    static class Views {
+        private final long generation;
+        final Set<Player> villagers;
+        final Set<Player> wolves;
+        final Set<Long> wolvesIds;
+        final List<Player> livingPlayers;
+        final Set<Long> livingPlayerIds;
+        final List<String> livingPlayerMentions;
+        final List<Player> livingVillage;
+        final Set<Long> livingVillageIds;
+        final List<Player> livingWolves;
+        final Set<String> livingWolvesMentions;
+
+        private Views(final Player[] playersByUserId, final long generation) {
+            this.generation = generation;
+            //keep the order in which the players were numbered
+            final Player[] players = playersByUserId.clone();
+            Arrays.sort(players, Comparator.comparingInt(p -> p.number));
+
+            final Set<Player> villagersBuilder = new LinkedHashSet<>();
+            final Set<Player> wolvesBuilder = new LinkedHashSet<>();
+            final Set<Long> wolvesIdsBuilder = new LinkedHashSet<>();
+            final List<Player> livingPlayersBuilder = new ArrayList<>();
+            final Set<Long> livingPlayerIdsBuilder = new LinkedHashSet<>();
+            final List<String> livingPlayerMentionsBuilder = new ArrayList<>();
+            final List<Player> livingVillageBuilder = new ArrayList<>();
+            final Set<Long> livingVillageIdsBuilder = new LinkedHashSet<>();
+            final List<Player> livingWolvesBuilder = new ArrayList<>();
+            final Set<String> livingWolvesMentionsBuilder = new LinkedHashSet<>();
+            for (final Player player : players) {
+                if (player.isGoodie()) {
+                    villagersBuilder.add(player);
+                }
+                if (player.isBaddie()) {
+                    wolvesBuilder.add(player);
+                    wolvesIdsBuilder.add(player.userId);
+                }
+                if (player.isDead()) {
+                    continue;
+                }
+                final String mention = TextchatUtils.userAsMention(player.userId);
+                livingPlayersBuilder.add(player);
+                livingPlayerIdsBuilder.add(player.userId);
+                livingPlayerMentionsBuilder.add(mention);
+                if (player.isGoodie()) {
+                    livingVillageBuilder.add(player);
+                    livingVillageIdsBuilder.add(player.userId);
+                }
+                if (player.isBaddie()) {
+                    livingWolvesBuilder.add(player);
+                    livingWolvesMentionsBuilder.add(mention);
+                }
+            }
+            this.villagers = Collections.unmodifiableSet(villagersBuilder);
+            this.wolves = Collections.unmodifiableSet(wolvesBuilder);
+            this.wolvesIds = Collections.unmodifiableSet(wolvesIdsBuilder);
+            this.livingPlayers = Collections.unmodifiableList(livingPlayersBuilder);
+            this.livingPlayerIds = Collections.unmodifiableSet(livingPlayerIdsBuilder);
+            this.livingPlayerMentions = Collections.unmodifiableList(livingPlayerMentionsBuilder);
+            this.livingVillage = Collections.unmodifiableList(livingVillageBuilder);
+            this.livingVillageIds = Collections.unmodifiableSet(livingVillageIdsBuilder);
+            this.livingWolves = Collections.unmodifiableList(livingWolvesBuilder);
+            this.livingWolvesMentions = Collections.unmodifiableSet(livingWolvesMentionsBuilder);
+        }
+    }
+}
@@ -18,16 +18,15 @@
 package space.npstr.wolfia.game.mafia;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -37,10 +36,11 @@
 import net.dv8tion.jda.api.entities.ChannelType;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.TextChannel;
-import net.dv8tion.jda.api.sharding.ShardManager;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import space.npstr.wolfia.Launcher;
 import space.npstr.wolfia.commands.CommandContext;
 import space.npstr.wolfia.commands.MessageContext;
-import space.npstr.wolfia.commands.game.RolePmCommand;
 import space.npstr.wolfia.commands.ingame.CheckCommand;
 import space.npstr.wolfia.commands.ingame.HohohoCommand;
 import space.npstr.wolfia.commands.ingame.ItemsCommand;
@@ -52,16 +52,11 @@
 import space.npstr.wolfia.commands.ingame.VoteCountCommand;
 import space.npstr.wolfia.config.properties.WolfiaConfig;
 import space.npstr.wolfia.domain.stats.ActionStats;
-import space.npstr.wolfia.domain.stats.GameStats;
-import space.npstr.wolfia.domain.stats.PlayerStats;
-import space.npstr.wolfia.domain.stats.TeamStats;
-import space.npstr.wolfia.events.UpdatingReactionListener;
 import space.npstr.wolfia.game.Game;
 import space.npstr.wolfia.game.GameInfo;
 import space.npstr.wolfia.game.GameUtils;
 import space.npstr.wolfia.game.Player;
 import space.npstr.wolfia.game.definitions.Actions;
-import space.npstr.wolfia.game.definitions.Alignments;
 import space.npstr.wolfia.game.definitions.Games;
 import space.npstr.wolfia.game.definitions.Item;
 import space.npstr.wolfia.game.definitions.Phase;
@@ -69,6 +64,7 @@
 import space.npstr.wolfia.game.exceptions.DayEndedAlreadyException;
 import space.npstr.wolfia.game.exceptions.IllegalGameStateException;
 import space.npstr.wolfia.game.tools.NiceEmbedBuilder;
+import space.npstr.wolfia.game.tools.VoteLedger;
 import space.npstr.wolfia.game.tools.VotingBuilder;
 import space.npstr.wolfia.utils.PeriodicTimer;
 import space.npstr.wolfia.utils.UserFriendlyException;
@@ -77,8 +73,6 @@
 import space.npstr.wolfia.utils.discord.RoleAndPermissionUtils;
 import space.npstr.wolfia.utils.discord.TextchatUtils;
 
-import static java.util.Objects.requireNonNull;
-
 /**
  * This is it, the actual werewolf/mafia game!
  */
@@ -86,17 +80,22 @@ public class Mafia extends Game {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Mafia.class);
 
+    //marks a vote action in the event log that takes back an earlier vote
+    private static final String UNVOTE = "UNVOTE";
+
     private long dayLengthMillis = TimeUnit.MINUTES.toMillis(10); //10 minutes default
     private final long nightLengthMillis = TimeUnit.MINUTES.toMillis(1); //1 minute default
     //current cycle and phase, describing n0, d1, n1, d2, n2 etc...
     private int cycle = 0;
     private Phase phase = Phase.NIGHT;
     private long phaseStarted = -1;
+    //the night has been resolved, and the day is about to start
+    private boolean nightEnded = false;
 
-    private final Map<Player, Player> votes = new LinkedHashMap<>();//using linked to keep first votes at the top
+    private final VoteLedger<Player, Player> votes = new VoteLedger<>();
     private final Map<Player, ActionStats> voteActions = new HashMap<>();
 
-    private final Map<Player, Player> nightkillVotes = new LinkedHashMap<>();//using linked to keep first votes at the top
+    private final VoteLedger<Player, Player> nightkillVotes = new VoteLedger<>();
     private final Map<Player, ActionStats> nightKillVoteActions = new HashMap<>();
     private final Map<Player, ActionStats> nightActions = new HashMap<>();
 
@@ -146,9 +145,14 @@ public EmbedBuilder getStatus() {
         return neb;
     }
 
+    @Override
+    protected boolean needsPrivateRoom(final GameInfo.GameMode mode) {
+        return true; //all mafia games are moderated
+    }
+
     @SuppressWarnings("unchecked")
     @Override
-    public synchronized void start(final long channelId, final GameInfo.GameMode mode, final Set<Long> innedPlayers) {
+    protected void handleStart(final long channelId, final GameInfo.GameMode mode, final Set<Long> innedPlayers) {
         try {//wrap into our own exceptions
             doArgumentChecksAndSet(channelId, mode, innedPlayers);
         } catch (final IllegalArgumentException e) {
@@ -192,34 +196,12 @@ public synchronized void start(final long channelId, final GameInfo.GameMode mod
             rolePm.append(guildChannelAndInvite);
 
             player.setRolePm(rolePm.toString());
-            player.sendMessage(rolePm.toString(),
-                    e -> RestActions.sendMessage(gameChannel,
-                            String.format("%s, **I cannot send you a private message**, please adjust your privacy settings " +
-                                            "and/or unblock me, then issue `%s` to receive your role PM.",
-                                    player.asMention(), WolfiaConfig.DEFAULT_PREFIX + RolePmCommand.TRIGGER))
-            );
         }
-
+        final CompletionStage<List<Player>> rolePmsSent = sendRolePms(gameChannel);
 
         final Guild g = gameChannel.getGuild();
         //set up stats objects
-        this.gameStats = new GameStats(g.getIdLong(), g.getName(), this.channelId, gameChannel.getName(),
-                Games.MAFIA, this.mode, this.players.size());
-        final Map<Alignments, TeamStats> teams = new EnumMap<>(Alignments.class);
-        for (final Player player : this.players) {
-            final Alignments alignment = player.alignment;
-            final TeamStats team = teams.getOrDefault(alignment,
-                    new TeamStats(this.gameStats, alignment, alignment.textRepMaf, -1));
-            final PlayerStats ps = new PlayerStats(team, player.userId,
-                    player.getNick(), alignment, player.role);
-            this.playersStats.put(player.userId, ps);
-            team.addPlayer(ps);
-            teams.put(alignment, team);
-        }
-        for (final TeamStats team : teams.values()) {
-            team.setTeamSize(team.getPlayers().size());
-            this.gameStats.addTeam(team);
-        }
+        setUpStats(Games.MAFIA, System.currentTimeMillis(), alignment -> alignment.textRepMaf);
 
         // - start the game
         String info = Games.getInfo(this).textRep();
@@ -231,13 +213,15 @@ public synchronized void start(final long channelId, final GameInfo.GameMode mod
         //mention the players in the thread
         RestActions.sendMessage(gameChannel, "Game has started!\n" + listLivingPlayers());
 
-        //start the time only after the message was actually sent
-        final Consumer whenDone = aVoid -> scheduleIfGameStillRuns(this::startDay, Duration.ofSeconds(20));
-        RestActions.sendMessage(gameChannel, "Time to read your role PMs! Day starts in 20 seconds.", whenDone, whenDone);
+        //start the time only after the role pms went out and the message was actually sent
+        rolePmsSent.whenComplete((failed, t) -> executeIfGameStillRuns(() -> {
+            final Consumer whenDone = aVoid -> scheduleIfGameStillRuns(this::startDay, Duration.ofSeconds(20));
+            RestActions.sendMessage(gameChannel, "Time to read your role PMs! Day starts in 20 seconds.", whenDone, whenDone);
+        }));
     }
 
     @Override
-    public boolean issueCommand(@Nonnull final CommandContext context) {
+    protected boolean handleCommand(@Nonnull final CommandContext context) {
         final Player invoker;
         try {
             invoker = getPlayer(context.invoker.getIdLong());
@@ -344,7 +328,7 @@ public boolean issueCommand(@Nonnull final CommandContext context) {
 
             //wolves asked for one, give them a votecount of their nk votes
             if (this.phase == Phase.NIGHT && guild.isPresent() && guild.get().getIdLong() == this.wolfChat.getGuildId()) {
-                context.reply(this.nightKillVotingBuilder.getEmbed(new HashMap<>(this.nightkillVotes)).build());
+                context.reply(this.nightKillVotingBuilder.getEmbed(this.nightkillVotes).build());
                 return true;
             }
 
@@ -352,7 +336,7 @@ public boolean issueCommand(@Nonnull final CommandContext context) {
                 context.replyWithMention("vote counts are only shown during the day phase.");
                 return false;
             }
-            context.reply(this.votingBuilder.getEmbed(new HashMap<>(this.votes)).build());
+            context.reply(this.votingBuilder.getEmbed(this.votes).build());
             return true;
 
         } else if (context.command instanceof NightkillCommand) {
@@ -383,22 +367,20 @@ private boolean vote(@Nonnull final Player voter, @Nonnull final Player candidat
 
         RestActions.sendMessage(gameChannel, String.format("%s votes %s for lynch.", voter.asMention(), candidate.asMention()));
 
-        synchronized (this.votes) {
-            this.votes.remove(voter);
-            this.votes.put(voter, candidate);
-            this.voteActions.put(voter, simpleAction(voter.userId, Actions.VOTELYNCH, candidate.userId));
-
-            //check for majj
-            final int livingPlayersCount = getLivingPlayers().size();
-            final int majThreshold = (livingPlayersCount / 2);
-            final long mostVotes = GameUtils.mostVotes(this.votes);
-            if (mostVotes > majThreshold) {
-                RestActions.sendMessage(gameChannel, Emojis.ANGRY_BUBBLE + "Majority was reached!");
-                try {
-                    endDay();
-                } catch (final DayEndedAlreadyException ignored) {
-                    // ignored
-                }
+        this.votes.vote(voter, candidate);
+        final ActionStats voteAction = simpleAction(voter.userId, Actions.VOTELYNCH, candidate.userId);
+        this.voteActions.put(voter, voteAction);
+        logAction(voteAction);
+
+        //check for majj
+        final int livingPlayersCount = getLivingPlayers().size();
+        final int majThreshold = (livingPlayersCount / 2);
+        if (this.votes.mostVotes() > majThreshold) {
+            RestActions.sendMessage(gameChannel, Emojis.ANGRY_BUBBLE + "Majority was reached!");
+            try {
+                endDay();
+            } catch (final DayEndedAlreadyException ignored) {
+                // ignored
             }
         }
         return true;
@@ -414,16 +396,14 @@ private boolean unvote(@Nonnull final Player unvoter, @Nonnull final MessageCont
             return false;
         }
 
-        final Player unvoted;
-        synchronized (this.votes) {
-            if (this.votes.get(unvoter) == null) {
-                if (!shutUp)
-                    context.reply(unvoter.asMention() + ", you can't unvote if you aren't voting in the first place.");
-                return false;
-            }
-            unvoted = this.votes.remove(unvoter);
-            this.voteActions.remove(unvoter);
+        if (!this.votes.hasVoted(unvoter)) {
+            if (!shutUp)
+                context.reply(unvoter.asMention() + ", you can't unvote if you aren't voting in the first place.");
+            return false;
         }
+        final Player unvoted = this.votes.unvote(unvoter);
+        this.voteActions.remove(unvoter);
+        logAction(simpleAction(unvoter.userId, Actions.VOTELYNCH, -1).setAdditionalInfo(UNVOTE));
 
         if (!shutUp) {
             RestActions.sendMessage(gameChannel, String.format("%s unvoted %s.",
@@ -443,7 +423,9 @@ private boolean check(@Nonnull final Player invoker, @Nonnull final Player targe
             return false;
         }
 
-        this.nightActions.put(invoker, simpleAction(invoker.userId, Actions.CHECK, target.userId));
+        final ActionStats checkAction = simpleAction(invoker.userId, Actions.CHECK, target.userId);
+        this.nightActions.put(invoker, checkAction);
+        logAction(checkAction);
         context.reply("You are checking " + target.bothNamesFormatted() + " tonight");
         return true;
     }
@@ -459,7 +441,9 @@ private boolean givePresent(@Nonnull final Player invoker, @Nonnull final Player
             return false;
         }
 
-        this.nightActions.put(invoker, simpleAction(invoker.userId, Actions.GIVE_PRESENT, target.userId));
+        final ActionStats presentAction = simpleAction(invoker.userId, Actions.GIVE_PRESENT, target.userId);
+        this.nightActions.put(invoker, presentAction);
+        logAction(presentAction);
         context.reply("You are climbing down " + target.bothNamesFormatted() + "'s chimney tonight and leaving them a " + Item.ItemType.PRESENT);
         return true;
     }
@@ -595,29 +579,13 @@ private boolean shoot(@Nonnull final Player invoker, @Nonnull final Player targe
     }
 
     private void clearVotesForPlayer(@Nonnull final Player player, @Nonnull final MessageContext context) {
-        final Set<Player> toUnvote = new HashSet<>();
-        for (final Map.Entry<Player, Player> vote : this.votes.entrySet()) {
-            final Player voter = vote.getKey();
-            final Player candidate = vote.getValue();
-            if (voter.equals(player) || candidate.equals(player)) {
-                toUnvote.add(voter);
-            }
-        }
-        for (final Player unvoter : toUnvote) {
+        for (final Player unvoter : this.votes.votesInvolving(player)) {
             unvote(unvoter, context, true);
         }
     }
 
     private void clearNkVotesForPlayer(@Nonnull final Player player, @Nonnull final MessageContext context) {
-        final Set<Player> toUnvoteNk = new HashSet<>();
-        for (final Map.Entry<Player, Player> vote : this.nightkillVotes.entrySet()) {
-            final Player voter = vote.getKey();
-            final Player candidate = vote.getValue();
-            if (voter.equals(player) || candidate.equals(player)) {
-                toUnvoteNk.add(voter);
-            }
-        }
-        for (final Player unvoter : toUnvoteNk) {
+        for (final Player unvoter : this.nightkillVotes.votesInvolving(player)) {
             nkUnvote(unvoter, context, true);
         }
     }
@@ -630,6 +598,117 @@ protected ActionStats simpleAction(final long actor, final Actions action, final
                 now, now, this.cycle, this.phase, actor, action, target, null);
     }
 
+    @Override
+    protected void writeSnapshot(final JSONObject state) {
+        final JSONArray pendingNightActions = new JSONArray();
+        this.nightActions.values().forEach(nightAction -> pendingNightActions.put(nightAction.toJson()));
+        state.put("cycle", this.cycle)
+                .put("phase", this.phase.name())
+                .put("phaseStarted", this.phaseStarted)
+                .put("phaseTimeLeft", Math.max(0, getPhaseEnd() - System.currentTimeMillis()))
+                .put("nightEnded", this.nightEnded)
+                .put("dayLength", this.dayLengthMillis)
+                .put("votes", votesToJson(this.votes, this.voteActions))
+                .put("nightkillVotes", votesToJson(this.nightkillVotes, this.nightKillVoteActions))
+                .put("nightActions", pendingNightActions);
+    }
+
+    //in an order that gives the same ledger when they are cast again
+    private static JSONArray votesToJson(final VoteLedger<Player, Player> votes, final Map<Player, ActionStats> voteActions) {
+        final JSONArray json = new JSONArray();
+        votes.getVotes().keySet().forEach(voter -> json.put(voteActions.get(voter).toJson()));
+        return json;
+    }
+
+    @Override
+    protected void readSnapshot(final JSONObject state, final long gameStart) throws IllegalGameStateException {
+        setUpStats(Games.MAFIA, gameStart, alignment -> alignment.textRepMaf);
+        this.cycle = state.getInt("cycle");
+        this.phase = Phase.valueOf(state.getString("phase"));
+        this.nightEnded = state.optBoolean("nightEnded", false);
+        this.dayLengthMillis = state.getLong("dayLength");
+        readVotes(state.getJSONArray("votes"), this.votes, this.voteActions);
+        readVotes(state.getJSONArray("nightkillVotes"), this.nightkillVotes, this.nightKillVoteActions);
+        final JSONArray pendingNightActions = state.getJSONArray("nightActions");
+        for (int i = 0; i < pendingNightActions.length(); i++) {
+            final ActionStats nightAction = ActionStats.fromJson(this.gameStats, pendingNightActions.getJSONObject(i));
+            this.nightActions.put(getPlayer(nightAction.getActor()), nightAction);
+        }
+    }
+
+    private void readVotes(final JSONArray json, final VoteLedger<Player, Player> votes,
+                           final Map<Player, ActionStats> voteActions) throws IllegalGameStateException {
+        for (int i = 0; i < json.length(); i++) {
+            final ActionStats voteAction = ActionStats.fromJson(this.gameStats, json.getJSONObject(i));
+            final Player voter = getPlayer(voteAction.getActor());
+            votes.vote(voter, getPlayer(voteAction.getTarget()));
+            voteActions.put(voter, voteAction);
+        }
+    }
+
+    /**
+     * Where a resumed game picks up, depending on the phase it was hibernated in.
+     */
+    enum ResumePoint {
+        BEFORE_FIRST_DAY,
+        DAY,
+        NIGHT,
+        //the night has been resolved already, so only the day is left to be started
+        BEFORE_NEXT_DAY,
+    }
+
+    static ResumePoint resumePoint(final int cycle, final Phase phase, final boolean nightEnded) {
+        if (cycle == 0) {
+            return ResumePoint.BEFORE_FIRST_DAY;
+        }
+        if (phase == Phase.DAY) {
+            return ResumePoint.DAY;
+        }
+        return nightEnded ? ResumePoint.BEFORE_NEXT_DAY : ResumePoint.NIGHT;
+    }
+
+    @Override
+    protected void continueGame(final JSONObject state) {
+        final TextChannel gameChannel = fetchGameChannel();
+        final long timeLeft = state.getLong("phaseTimeLeft");
+        final long now = System.currentTimeMillis();
+        switch (resumePoint(this.cycle, this.phase, this.nightEnded)) {
+            case BEFORE_FIRST_DAY:
+                RestActions.sendMessage(gameChannel, "Game resumed! Day starts in 20 seconds.");
+                scheduleIfGameStillRuns(this::startDay, Duration.ofSeconds(20));
+                break;
+            case DAY:
+                this.phaseStarted = now - (this.dayLengthMillis - timeLeft);
+                final List<Player> living = getLivingPlayers();
+                this.votingBuilder.endTime(getPhaseEnd())
+                        .possibleVoters(living)
+                        .possibleCandidates(living);
+                RestActions.sendMessage(gameChannel, String.format("Game resumed! Day %s continues, %s left to discuss.",
+                        this.cycle, TextchatUtils.formatMillis(timeLeft)));
+                scheduleDayEnd(timeLeft);
+                break;
+            case NIGHT:
+                this.phaseStarted = now - (this.nightLengthMillis - timeLeft);
+                this.nightKillVotingBuilder.endTime(getPhaseEnd())
+                        .possibleVoters(getLivingWolves())
+                        .possibleCandidates(getLivingVillage());
+                postUpdatingNightMessage();
+                postNightkillVoting(timeLeft);
+                break;
+            case BEFORE_NEXT_DAY:
+                RestActions.sendMessage(gameChannel, String.format("Game resumed! Day starts in 10 seconds.%n%s",
+                        String.join(", ", getLivingPlayerMentions())));
+                scheduleIfGameStillRuns(this::startDay, Duration.ofSeconds(10));
+                break;
+            default:
+                throw new IllegalStateException("Unhandled resume point");
+        }
+    }
+
+    private long getPhaseEnd() {
+        return this.phaseStarted + (this.phase == Phase.DAY ? this.dayLengthMillis : this.nightLengthMillis);
+    }
+
     private void startDay() {
         this.cycle++;
         this.phase = Phase.DAY;
@@ -655,6 +734,10 @@ private void startDay() {
                     Permission.MESSAGE_WRITE).queue(null, RestActions.defaultOnFail());
         }
 
+        scheduleDayEnd(this.dayLengthMillis);
+    }
+
+    private void scheduleDayEnd(final long timeLeft) {
         //set a timer that calls endDay()
         this.phaseEndTimer = scheduleIfGameStillRuns(() -> {
             try {
@@ -662,19 +745,19 @@ private void startDay() {
             } catch (final DayEndedAlreadyException ignored) {
                 // ignored
             }
-        }, Duration.ofMillis(this.dayLengthMillis));
-        this.phaseEndReminder = scheduleIfGameStillRuns(() -> RestActions.sendMessage(gameChannel, "One minute left until day end!"),
-                Duration.ofMillis(this.dayLengthMillis - 60000));
+        }, Duration.ofMillis(timeLeft));
+        if (timeLeft >= 60000) {
+            this.phaseEndReminder = scheduleIfGameStillRuns(() -> RestActions.sendMessage(fetchGameChannel(), "One minute left until day end!"),
+                    Duration.ofMillis(timeLeft - 60000));
+        }
     }
 
     private void endDay() throws DayEndedAlreadyException {
-        synchronized (this.hasDayEnded) {
-            //check if this is a valid call
-            if (this.hasDayEnded.contains(this.cycle)) {
-                throw new DayEndedAlreadyException();
-            }
-            this.hasDayEnded.add(this.cycle);
+        //check if this is a valid call
+        if (this.hasDayEnded.contains(this.cycle)) {
+            throw new DayEndedAlreadyException();
         }
+        this.hasDayEnded.add(this.cycle);
         if (this.phaseEndTimer != null) this.phaseEndTimer.cancel(false);
         if (this.phaseEndReminder != null) this.phaseEndReminder.cancel(false);
 
@@ -688,34 +771,32 @@ private void endDay() throws DayEndedAlreadyException {
         }
 
         this.gameStats.addAction(simpleAction(this.selfUserId, Actions.DAYEND, -1));
-        synchronized (this.votes) {
-            RestActions.sendMessage(gameChannel, this.votingBuilder.getFinalEmbed(this.votes, this.phase, this.cycle).build());
-            final List<Player> lynchCandidates = GameUtils.mostVoted(this.votes, livingPlayers);
-            boolean randedLynch = false;
-            final Player lynchCandidate;
-            if (lynchCandidates.size() > 1) {
-                randedLynch = true;
-                lynchCandidate = GameUtils.rand(lynchCandidates);
-            } else {
-                lynchCandidate = lynchCandidates.get(0);
-            }
-
-            try {
-                lynchCandidate.kill();
-                this.gameStats.addAction(simpleAction(-3, Actions.LYNCH, lynchCandidate.userId));
-            } catch (final IllegalGameStateException | NullPointerException e) {
-                //should not happen, but if it does, kill the game
-                this.destroy(e);
-                return;
-            }
+        RestActions.sendMessage(gameChannel, this.votingBuilder.getFinalEmbed(this.votes, this.phase, this.cycle).build());
+        final List<Player> lynchCandidates = this.votes.mostVoted(livingPlayers);
+        boolean randedLynch = false;
+        final Player lynchCandidate;
+        if (lynchCandidates.size() > 1) {
+            randedLynch = true;
+            lynchCandidate = GameUtils.rand(lynchCandidates);
+        } else {
+            lynchCandidate = lynchCandidates.get(0);
+        }
 
-            final long votesAmount = this.votes.values().stream().filter(p -> p.userId == lynchCandidate.userId).count();
-            RestActions.sendMessage(gameChannel, String.format("%s has been lynched%s with %s votes on them!%nThey were **%s %s** %s",
-                    lynchCandidate.asMention(), randedLynch ? " at random due to a tie" : "", votesAmount,
-                    lynchCandidate.alignment.textRepMaf, lynchCandidate.role.textRep, lynchCandidate.getCharakterEmoji()));
-            this.gameStats.addActions(this.voteActions.values());
+        try {
+            lynchCandidate.kill();
+            this.gameStats.addAction(simpleAction(-3, Actions.LYNCH, lynchCandidate.userId));
+        } catch (final IllegalGameStateException | NullPointerException e) {
+            //should not happen, but if it does, kill the game
+            this.destroy(e);
+            return;
         }
 
+        final int votesAmount = this.votes.votesFor(lynchCandidate);
+        RestActions.sendMessage(gameChannel, String.format("%s has been lynched%s with %s votes on them!%nThey were **%s %s** %s",
+                lynchCandidate.asMention(), randedLynch ? " at random due to a tie" : "", votesAmount,
+                lynchCandidate.alignment.textRepMaf, lynchCandidate.role.textRep, lynchCandidate.getCharakterEmoji()));
+        this.gameStats.addActions(this.voteActions.values());
+
         if (!isGameOver()) {
             startNight();
         }
@@ -738,6 +819,7 @@ private String nightTimeLeft() {
 
     private void startNight() {
         this.phase = Phase.NIGHT;
+        this.nightEnded = false;
         this.phaseStarted = System.currentTimeMillis();
         this.gameStats.addAction(simpleAction(this.selfUserId, Actions.NIGHTSTART, -1));
 
@@ -745,9 +827,6 @@ private void startNight() {
 
         postUpdatingNightMessage();
 
-        //post a voting embed for the wolfs in wolfchat
-        final TextChannel wolfchatChannel = fetchBaddieChannel();
-
         this.nightkillVotes.clear();
         this.nightKillVoteActions.clear();
 
@@ -755,43 +834,7 @@ private void startNight() {
                 .possibleVoters(getLivingWolves())
                 .possibleCandidates(getLivingVillage());
 
-
-        RestActions.sendMessage(wolfchatChannel, "Nightkill voting!\n" + String.join(", ", getLivingWolvesMentions()),
-                m -> RestActions.sendMessage(wolfchatChannel, this.nightKillVotingBuilder.getEmbed(this.nightkillVotes).build(), message -> {
-                    ShardManager shardManager = requireNonNull(message.getJDA().getShardManager());
-                    shardManager.addEventListener(new UpdatingReactionListener(message,
-                            this::isLivingWolf,
-                            __ -> {
-                            },//todo move away from using a reaction listener
-                            this.nightLengthMillis,
-                            //on destruction
-                            aVoid -> {
-                                if (!this.running) {//game ended meanwhile.
-                                    return;
-                                }
-                                message.clearReactions().queue(null, RestActions.defaultOnFail());
-                                synchronized (this.nightkillVotes) {
-                                    RestActions.editMessage(message, this.nightKillVotingBuilder.getFinalEmbed(this.nightkillVotes, this.phase, this.cycle).build());
-                                    final Player nightKillCandidate = GameUtils.rand(GameUtils.mostVoted(this.nightkillVotes, getLivingVillage()));
-
-                                    TextChannel textChannel = shardManager.getTextChannelById(this.channelId);
-                                    String invite = textChannel == null ? ""
-                                            : TextchatUtils.getOrCreateInviteLinkForChannel(textChannel);
-                                    RestActions.sendMessage(wolfchatChannel, String.format(
-                                            "%n@here, %s will be killed! Game about to start/continue, get back to the main chat.%n%s",
-                                            nightKillCandidate.bothNamesFormatted(), invite));
-                                    this.gameStats.addActions(this.nightKillVoteActions.values());
-
-                                    endNight(nightKillCandidate);
-                                }
-                            },
-                            //update every few seconds
-                            TimeUnit.SECONDS.toMillis(10),
-                            aVoid -> RestActions.editMessage(message, this.nightKillVotingBuilder.getEmbed(this.nightkillVotes).build())
-                    ));
-                })
-        );
-
+        postNightkillVoting(this.nightLengthMillis);
 
         //notify other roles of their possible night actions
 
@@ -804,7 +847,7 @@ private void startNight() {
                                 "If you do not submit a check, it will be randed.",
                         WolfiaConfig.DEFAULT_PREFIX + CheckCommand.TRIGGER);
                 livingPlayersWithNumbers.addField("", out, false);
-                final Collection<Long> randCopTargets = getLivingPlayerIds();
+                final Collection<Long> randCopTargets = new ArrayList<>(getLivingPlayerIds());
                 randCopTargets.remove(p.userId);//dont randomly check themselves
                 this.nightActions.put(p, simpleAction(p.userId, Actions.CHECK, GameUtils.rand(randCopTargets)));//preset a random action
                 p.sendMessage(livingPlayersWithNumbers.build(), RestActions.defaultOnFail());
@@ -819,7 +862,7 @@ private void startNight() {
                                 + "\n\nIf you don't submit an action, a random living player will receive the present.",
                         WolfiaConfig.DEFAULT_PREFIX + HohohoCommand.TRIGGER, Item.ItemType.PRESENT);
                 livingPlayersWithNumbers.addField("", out, false);
-                final Collection<Long> randSantaTargets = getLivingPlayerIds();
+                final Collection<Long> randSantaTargets = new ArrayList<>(getLivingPlayerIds());
                 randSantaTargets.remove(p.userId);//dont randomly gift themselves
                 this.nightActions.put(p, simpleAction(p.userId, Actions.GIVE_PRESENT, GameUtils.rand(randSantaTargets)));//preset a random action
                 p.sendMessage(livingPlayersWithNumbers.build(), RestActions.defaultOnFail());
@@ -827,6 +870,42 @@ private void startNight() {
         }
     }
 
+    //post a voting embed for the wolfs in wolfchat
+    private void postNightkillVoting(final long timeLeft) {
+        final TextChannel wolfchatChannel = fetchBaddieChannel();
+        RestActions.sendMessage(wolfchatChannel, "Nightkill voting!\n" + String.join(", ", getLivingWolvesMentions()),
+                m -> RestActions.sendMessage(wolfchatChannel, this.nightKillVotingBuilder.renderEmbed(this.nightkillVotes), message -> {
+                        Launcher.getBotContext().getReactionRouter().route(message.getIdLong(),
+                                this::isLivingWolf,
+                                __ -> {
+                                },//todo move away from using a reaction listener
+                                timeLeft,
+                                //on expiry
+                                () -> executeIfGameStillRuns(() -> {
+                                    message.clearReactions().queue(null, RestActions.defaultOnFail());
+                                    RestActions.editMessage(message, this.nightKillVotingBuilder.getFinalEmbed(this.nightkillVotes, this.phase, this.cycle).build());
+                                    final Player nightKillCandidate = GameUtils.rand(this.nightkillVotes.mostVoted(getLivingVillage()));
+
+                                    TextChannel textChannel = Launcher.getBotContext().getShardManager().getTextChannelById(this.channelId);
+                                    String invite = textChannel == null ? ""
+                                            : TextchatUtils.getOrCreateInviteLinkForChannel(textChannel);
+                                    RestActions.sendMessage(wolfchatChannel, String.format(
+                                            "%n@here, %s will be killed! Game about to start/continue, get back to the main chat.%n%s",
+                                            nightKillCandidate.bothNamesFormatted(), invite));
+                                    this.gameStats.addActions(this.nightKillVoteActions.values());
+
+                                    endNight(nightKillCandidate);
+                                }),
+                                //update every few seconds, if anything changed
+                                TimeUnit.SECONDS.toMillis(10),
+                                () -> executeIfGameStillRuns(() -> this.nightKillVotingBuilder.renderEmbedIfChanged(this.nightkillVotes)
+                                        .ifPresent(embed -> RestActions.editMessage(message, embed)))
+                        );
+                        scheduleRouteExpiry(message.getIdLong(), timeLeft);
+                })
+        );
+    }
+
     private boolean nkVote(final Player voter, final Player nightkillVote, @Nonnull final CommandContext context) {
 
         if (this.phase != Phase.NIGHT) {
@@ -846,11 +925,10 @@ private boolean nkVote(final Player voter, final Player nightkillVote, @Nonnull
 
         context.reply(String.format("%s votes %s for nightkill.", voter.asMention(), nightkillVote.asMention()));
 
-        synchronized (this.nightkillVotes) {
-            this.nightkillVotes.remove(voter);
-            this.nightkillVotes.put(voter, nightkillVote);
-            this.nightKillVoteActions.put(voter, simpleAction(voter.userId, Actions.VOTENIGHTKILL, nightkillVote.userId));
-        }
+        this.nightkillVotes.vote(voter, nightkillVote);
+        final ActionStats nightkillVoteAction = simpleAction(voter.userId, Actions.VOTENIGHTKILL, nightkillVote.userId);
+        this.nightKillVoteActions.put(voter, nightkillVoteAction);
+        logAction(nightkillVoteAction);
         return true;
     }
 
@@ -864,17 +942,15 @@ private boolean nkUnvote(final Player unvoter, @Nonnull final MessageContext con
             return false;
         }
 
-        final Player unvoted;
-        synchronized (this.nightkillVotes) {
-            if (this.nightkillVotes.get(unvoter) == null) {
-                if (!shutUp) {
-                    context.replyWithMention("you can't unvote if you aren't voting in the first place.");
-                }
-                return false;
+        if (!this.nightkillVotes.hasVoted(unvoter)) {
+            if (!shutUp) {
+                context.replyWithMention("you can't unvote if you aren't voting in the first place.");
             }
-            unvoted = this.nightkillVotes.remove(unvoter);
-            this.nightKillVoteActions.remove(unvoter);
+            return false;
         }
+        final Player unvoted = this.nightkillVotes.unvote(unvoter);
+        this.nightKillVoteActions.remove(unvoter);
+        logAction(simpleAction(unvoter.userId, Actions.VOTENIGHTKILL, -1).setAdditionalInfo(UNVOTE));
 
         if (!shutUp) {
             RestActions.sendMessage(fetchBaddieChannel(), String.format("%s unvoted %s.", unvoter.asMention(), unvoted.asMention()));
@@ -885,6 +961,7 @@ private boolean nkUnvote(final Player unvoter, @Nonnull final MessageContext con
     @SuppressWarnings("unchecked")
     private void endNight(@Nonnull final Player nightKillCandidate) {
 
+        this.nightEnded = true;
         this.gameStats.addAction(simpleAction(this.selfUserId, Actions.NIGHTEND, -1));
 
         for (final ActionStats nightAction : this.nightActions.values()) {
@@ -19,12 +19,10 @@
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.LongConsumer;
 import javax.annotation.Nonnull;
@@ -32,26 +30,21 @@
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.TextChannel;
+import org.json.JSONObject;
 import space.npstr.wolfia.Launcher;
 import space.npstr.wolfia.commands.CommandContext;
-import space.npstr.wolfia.commands.game.RolePmCommand;
 import space.npstr.wolfia.commands.ingame.ShootCommand;
-import space.npstr.wolfia.config.properties.WolfiaConfig;
 import space.npstr.wolfia.domain.stats.ActionStats;
-import space.npstr.wolfia.domain.stats.GameStats;
-import space.npstr.wolfia.domain.stats.PlayerStats;
-import space.npstr.wolfia.domain.stats.TeamStats;
-import space.npstr.wolfia.events.ReactionListener;
 import space.npstr.wolfia.game.Game;
 import space.npstr.wolfia.game.GameUtils;
 import space.npstr.wolfia.game.Player;
 import space.npstr.wolfia.game.definitions.Actions;
-import space.npstr.wolfia.game.definitions.Alignments;
 import space.npstr.wolfia.game.definitions.Games;
 import space.npstr.wolfia.game.definitions.Phase;
 import space.npstr.wolfia.game.exceptions.DayEndedAlreadyException;
 import space.npstr.wolfia.game.exceptions.IllegalGameStateException;
 import space.npstr.wolfia.game.tools.NiceEmbedBuilder;
+import space.npstr.wolfia.game.tools.VoteLedger;
 import space.npstr.wolfia.utils.Operation;
 import space.npstr.wolfia.utils.UserFriendlyException;
 import space.npstr.wolfia.utils.discord.Emojis;
@@ -59,7 +52,6 @@
 import space.npstr.wolfia.utils.discord.RoleAndPermissionUtils;
 import space.npstr.wolfia.utils.discord.TextchatUtils;
 
-import static java.util.Objects.requireNonNull;
 import static space.npstr.wolfia.game.GameInfo.GameMode;
 
 /**
@@ -73,12 +65,14 @@ public class Popcorn extends Game {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Popcorn.class);
 
     //internal variables of an ongoing game
-    private final List<Thread> timers = new ArrayList<>(); //keeps track of timer threads
     private int day = -1;
     private long dayLengthMillis = TimeUnit.MINUTES.toMillis(10); //10 minutes default
     private long dayStarted = -1;
     private long gunBearer = -1;
 
+    private Future<?> dayEndTimer;
+    private Future<?> dayEndReminder;
+
     @Override
     public void setDayLength(final Duration dayLength) {
         if (this.running) {
@@ -121,19 +115,24 @@ public EmbedBuilder getStatus() {
 
     @Override
     public void cleanUp() {
-        this.timers.forEach(Thread::interrupt);
         if (this.wolfChat != null) {
             this.wolfChat.endUsage();
         }
 
-        this.executor.shutdown();
+        this.tasks.cancelAll();
         if (this.mode != GameMode.WILD) { //nothing to do for the wild mode
-            resetRolesAndPermissions(true);
+            resetRolesAndPermissions();
         }
+        discardEventLog();
     }
 
     @Override
-    public synchronized void start(final long channelId, final GameMode mode, final Set<Long> innedPlayers) {
+    protected boolean needsPrivateRoom(final GameMode mode) {
+        return mode != GameMode.WILD;
+    }
+
+    @Override
+    protected void handleStart(final long channelId, final GameMode mode, final Set<Long> innedPlayers) {
         try {//wrap into our own exceptions
             doArgumentChecksAndSet(channelId, mode, innedPlayers);
         } catch (final IllegalArgumentException e) {
@@ -184,33 +183,12 @@ public synchronized void start(final long channelId, final GameMode mode, final
             rolePm.append(guildChannelAndInvite);
 
             player.setRolePm(rolePm.toString());
-            player.sendMessage(rolePm.toString(),
-                    e -> RestActions.sendMessage(gameChannel, String.format(
-                            "%s, **I cannot send you a private message**, please adjust your privacy settings " +
-                                    "and/or unblock me, then issue `%s` to receive your role PM.",
-                            player.asMention(), WolfiaConfig.DEFAULT_PREFIX + RolePmCommand.TRIGGER))
-            );
         }
+        sendRolePms(gameChannel);
 
         final Guild g = gameChannel.getGuild();
         //set up stats objects
-        this.gameStats = new GameStats(g.getIdLong(), g.getName(), this.channelId, gameChannel.getName(),
-                Games.POPCORN, this.mode, this.players.size());
-        final Map<Alignments, TeamStats> teams = new EnumMap<>(Alignments.class);
-        for (final Player player : this.players) {
-            final Alignments alignment = player.alignment;
-            final TeamStats team = teams.getOrDefault(alignment,
-                    new TeamStats(this.gameStats, alignment, alignment.textRepWW, -1));
-            final PlayerStats ps = new PlayerStats(team, player.userId,
-                    player.getNick(), alignment, player.role);
-            this.playersStats.put(player.userId, ps);
-            team.addPlayer(ps);
-            teams.put(alignment, team);
-        }
-        for (final TeamStats team : teams.values()) {
-            team.setTeamSize(team.getPlayers().size());
-            this.gameStats.addTeam(team);
-        }
+        setUpStats(Games.POPCORN, System.currentTimeMillis(), alignment -> alignment.textRepWW);
 
         // - start the game
         String info = Games.getInfo(this).textRep();
@@ -226,7 +204,7 @@ public synchronized void start(final long channelId, final GameMode mode, final
     }
 
     @Override
-    public boolean issueCommand(@Nonnull final CommandContext context)
+    protected boolean handleCommand(@Nonnull final CommandContext context)
             throws IllegalGameStateException {
         if (context.command instanceof ShootCommand) {
             final long shooter = context.invoker.getIdLong();
@@ -279,21 +257,50 @@ private void startDay() {
             }
         }
 
-        final Thread t = new Thread(new PopcornTimer(this.day, this),
-                "timer-popcorngame-" + this.day + "-" + this.channelId);
-        this.timers.add(t);
-        t.start();
+        scheduleDayEnd(this.dayLengthMillis);
+    }
+
+    private void scheduleDayEnd(final long timeLeft) {
+        //if the day is longer than one minute, remind the gunholder about the time running out with 1 minute left
+        final int currentDay = this.day;
+        final long oneMinute = TimeUnit.MINUTES.toMillis(1);
+        if (timeLeft > oneMinute) {
+            this.dayEndReminder = scheduleIfGameStillRuns(() -> remindOfDayEnd(currentDay),
+                    Duration.ofMillis(timeLeft - oneMinute));
+        }
+        this.dayEndTimer = scheduleIfGameStillRuns(() -> dayTimeRanOut(currentDay),
+                Duration.ofMillis(timeLeft));
+    }
+
+    private void remindOfDayEnd(final int day) {
+        if (day != this.day) return;
+
+        RestActions.sendMessage(fetchGameChannel(), String.format(
+                "%s, **there is 1 minute left for you to shoot!**",
+                TextchatUtils.userAsMention(this.gunBearer)));
+    }
+
+    private void dayTimeRanOut(final int day) {
+        if (day != this.day) return;
+
+        try {
+            final Operation ifLegal = () -> this.gameStats.addAction(simpleAction(
+                    this.selfUserId, Actions.MODKILL, this.gunBearer));
+            endDay(DayEndReason.TIMER, this.gunBearer, -1, ifLegal);
+        } catch (final DayEndedAlreadyException ignored) {
+            // ignored
+        }
     }
 
     private void endDay(final DayEndReason reason, final long toBeKilled, final long survivor,
                         final Operation doIfLegal) throws DayEndedAlreadyException {
-        synchronized (this.hasDayEnded) {
-            //check if this is a valid call
-            if (this.hasDayEnded.contains(this.day)) {
-                throw new DayEndedAlreadyException();
-            }
-            this.hasDayEnded.add(this.day);
+        //check if this is a valid call
+        if (this.hasDayEnded.contains(this.day)) {
+            throw new DayEndedAlreadyException();
         }
+        this.hasDayEnded.add(this.day);
+        if (this.dayEndTimer != null) this.dayEndTimer.cancel(false);
+        if (this.dayEndReminder != null) this.dayEndReminder.cancel(false);
         //an operation that shall only be run if the call to endDay() does not cause an DayEndedAlreadyException
         doIfLegal.execute();
 
@@ -367,7 +374,7 @@ private boolean shoot(final long shooterId, final long targetId) throws IllegalG
             RestActions.sendMessage(gameChannel, String.format("%s please don't %s yourself, that would make a big mess.",
                     TextchatUtils.userAsMention(shooterId), Emojis.GUN));
             return false;
-        } else if (this.players.stream().noneMatch(p -> p.userId == shooterId)) {
+        } else if (!isUserPlaying(shooterId)) {
             RestActions.sendMessage(gameChannel, String.format("%s shush, you're not playing in this game!",
                     TextchatUtils.userAsMention(shooterId)));
             return false;
@@ -412,53 +419,46 @@ protected ActionStats simpleAction(final long actor, final Actions action, final
                 now, now, this.day, Phase.DAY, actor, action, target, null);
     }
 
+    @Override
+    protected void writeSnapshot(final JSONObject state) {
+        state.put("day", this.day)
+                .put("dayStarted", this.dayStarted)
+                .put("dayTimeLeft", Math.max(0, this.dayStarted + this.dayLengthMillis - System.currentTimeMillis()))
+                .put("dayRunning", isDayRunning())
+                .put("dayLength", this.dayLengthMillis)
+                .put("gunBearer", this.gunBearer);
+    }
 
-    class PopcornTimer implements Runnable {
-
-        protected final int day;
-        protected final Popcorn game;
+    @Override
+    protected void readSnapshot(final JSONObject state, final long gameStart) {
+        setUpStats(Games.POPCORN, gameStart, alignment -> alignment.textRepWW);
+        this.day = state.getInt("day");
+        this.dayLengthMillis = state.getLong("dayLength");
+        this.gunBearer = state.getLong("gunBearer");
+    }
 
-        public PopcornTimer(final int day, final Popcorn game) {
-            this.day = day;
-            this.game = game;
+    @Override
+    protected void continueGame(final JSONObject state) {
+        if (!state.getBoolean("dayRunning")) {
+            //the game was paused while the gun was being handed out, do that again
+            RestActions.sendMessage(fetchGameChannel(), "Game resumed!");
+            distributeGun();
+            return;
         }
 
-        @Override
-        public void run() {
-            try {
-                //if the day is longer than one minute, remind the gunholder about the time running out with 1 minute left
-                final long oneMinute = TimeUnit.MINUTES.toMillis(1);
-                if (this.game.dayLengthMillis > oneMinute) {
-                    Thread.sleep(this.game.dayLengthMillis - oneMinute);
-                    if (this.day != this.game.day) return;
-
-                    RestActions.sendMessage(fetchGameChannel(), String.format(
-                            "%s, **there is 1 minute left for you to shoot!**",
-                            TextchatUtils.userAsMention(Popcorn.this.gunBearer)));
-                    Thread.sleep(oneMinute);
-                } else {
-                    Thread.sleep(this.game.dayLengthMillis);
-                }
-                if (this.day != this.game.day) return;
-
-                //run this in it own thread in an independent executor,
-                // because it may result in this PopcornTimer getting canceled in case it ends the game
-                Popcorn.this.executor.execute(() -> {
-                            try {
-                                final Operation ifLegal = () -> Popcorn.this.gameStats.addAction(simpleAction(
-                                        Popcorn.this.selfUserId, Actions.MODKILL, this.game.gunBearer));
-                                this.game.endDay(DayEndReason.TIMER, this.game.gunBearer, -1, ifLegal);
-                            } catch (final DayEndedAlreadyException ignored) {
-                                // ignored
-                            }
-                        }
-                );
-            } catch (final InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+        final long timeLeft = state.getLong("dayTimeLeft");
+        this.dayStarted = System.currentTimeMillis() - (this.dayLengthMillis - timeLeft);
+        RestActions.sendMessage(fetchGameChannel(), String.format("Game resumed! Day %s continues, %s has %s left to shoot.",
+                this.day, TextchatUtils.userAsMention(this.gunBearer), TextchatUtils.formatMillis(timeLeft)));
+        scheduleDayEnd(timeLeft);
+    }
+
+    //the day is over once the gun has been used or the time ran out, until the gun has been handed out again
+    private boolean isDayRunning() {
+        return this.dayStarted > 0 && !this.hasDayEnded.contains(this.day);
     }
 
+
     private enum DayEndReason {
         TIMER, //gun bearer didn't shoot in time
         SHAT  //gun bearer shatted someone
@@ -467,7 +467,7 @@ private enum DayEndReason {
     class GunDistribution {
         private static final long TIME_TO_DISTRIBUTE_GUN_MILLIS = 1000L * 60; //1 minute
         private boolean done;
-        private final Map<Long, Long> votes = new LinkedHashMap<>();//using linked to keep first votes at the top
+        private final VoteLedger<Long, Long> votes = new VoteLedger<>();
         private final long startedMillis = System.currentTimeMillis();
 
         public GunDistribution() {
@@ -480,43 +480,42 @@ public GunDistribution() {
 
             RestActions.sendMessage(wolfchatChannel, "Gun distribution!\n" + String.join(", ", getLivingWolvesMentions()),
                     __ -> RestActions.sendMessage(wolfchatChannel,
-                            prepareGunDistributionEmbed(options, new HashMap<>(this.votes)).build(),
+                            prepareGunDistributionEmbed(options).build(),
                             m -> {
                                 options.keySet().forEach(emoji -> m.addReaction(emoji).queue(null, RestActions.defaultOnFail()));
-                                requireNonNull(m.getJDA().getShardManager()).addEventListener(new ReactionListener(m,
+                                Launcher.getBotContext().getReactionRouter().route(m.getIdLong(),
                                         //filter: only living wolves may vote
                                         Popcorn.this::isLivingWolf,
                                         //on reaction
                                         reactionEvent -> {
                                             final Player p = options.get(reactionEvent.getReaction().getReactionEmote().getName());
                                             if (p == null) return;
-                                            voted(reactionEvent.getUser().getIdLong(), p.userId);
-                                            RestActions.editMessage(m, prepareGunDistributionEmbed(options,
-                                                    new HashMap<>(this.votes)).build());
+                                            final long voter = reactionEvent.getUser().getIdLong();
+                                            executeIfGameStillRuns(() -> {
+                                                voted(voter, p.userId);
+                                                RestActions.editMessage(m, prepareGunDistributionEmbed(options).build());
+                                            });
                                         },
                                         TIME_TO_DISTRIBUTE_GUN_MILLIS,
-                                        aVoid -> endDistribution(new HashMap<>(this.votes),
-                                                GunDistributionEndReason.TIMER)
-                                ));
+                                        () -> executeIfGameStillRuns(() -> endDistribution(GunDistributionEndReason.TIMER))
+                                );
+                                scheduleRouteExpiry(m.getIdLong(), TIME_TO_DISTRIBUTE_GUN_MILLIS);
                             })
             );
         }
 
-        //synchronized because it modifies the votes map
-        private synchronized void voted(final long voter, final long candidate) {
+        private void voted(final long voter, final long candidate) {
             log.info("PrivateGuild #{}: user {} voted for user {}",
                     Popcorn.this.wolfChat.getNumber(), voter, candidate);
-            this.votes.remove(voter);//remove first so there is an order by earliest vote (reinserting would not put the new vote to the end)
-            this.votes.put(voter, candidate);
+            this.votes.vote(voter, candidate);
             //has everyone voted?
             if (this.votes.size() == getLivingWolves().size()) {
-                endDistribution(new HashMap<>(this.votes), GunDistributionEndReason.EVERYONE_VOTED);
+                endDistribution(GunDistributionEndReason.EVERYONE_VOTED);
             }
         }
 
-        //synchronized because there is only one distribution allowed to happen
-        private synchronized void endDistribution(final Map<Long, Long> votesCopy,
-                                                  final GunDistributionEndReason reason) {
+        //there is only one distribution allowed to happen
+        private void endDistribution(final GunDistributionEndReason reason) {
             if (this.done) {
                 //ignore
                 return;
@@ -524,10 +523,10 @@ private synchronized void endDistribution(final Map<Long, Long> votesCopy,
             this.done = true;
 
             //log votes
-            votesCopy.forEach((voter, candidate) ->
+            this.votes.getVotes().forEach((voter, candidate) ->
                     Popcorn.this.gameStats.addAction(simpleAction(voter, Actions.VOTEGUN, candidate)));
 
-            final long getsGun = GameUtils.rand(GameUtils.mostVoted(votesCopy, getLivingVillageIds()));
+            final long getsGun = GameUtils.rand(this.votes.mostVoted(getLivingVillageIds()));
             String out = "";
             if (reason == GunDistributionEndReason.TIMER) {
                 out = "Time ran out!";
@@ -548,8 +547,7 @@ private synchronized void endDistribution(final Map<Long, Long> votesCopy,
             Popcorn.this.scheduleIfGameStillRuns(() -> giveGun(getsGun), Duration.ofSeconds(10));
         }
 
-        private EmbedBuilder prepareGunDistributionEmbed(final Map<String, Player> livingVillage,
-                                                         final Map<Long, Long> votesCopy) {
+        private EmbedBuilder prepareGunDistributionEmbed(final Map<String, Player> livingVillage) {
             final NiceEmbedBuilder neb = NiceEmbedBuilder.defaultBuilder();
             final long timeLeft = TIME_TO_DISTRIBUTE_GUN_MILLIS - (System.currentTimeMillis() - this.startedMillis);
             neb.addField("", "You have " + TextchatUtils.formatMillis(timeLeft)
@@ -558,12 +556,8 @@ private EmbedBuilder prepareGunDistributionEmbed(final Map<String, Player> livin
             livingVillage.forEach((emoji, player) -> {
                 //who is voting for this player to receive the gun?
                 final List<String> voters = new ArrayList<>();
-                for (final Map.Entry<Long, Long> entry : votesCopy.entrySet()) {
-                    final long voter = entry.getKey();
-                    final Long vote = entry.getValue();
-                    if (vote.equals(player.userId)) {
-                        voters.add(TextchatUtils.userAsMention(voter));
-                    }
+                for (final long voter : this.votes.votersOf(player.userId)) {
+                    voters.add(TextchatUtils.userAsMention(voter));
                 }
                 villagersField.add(emoji + " **" + voters.size() + "** votes: " + player.bothNamesFormatted() +
                         "\nVoted by: " + String.join(", ", voters) + "\n");
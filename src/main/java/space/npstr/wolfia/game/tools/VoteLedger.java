@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.game.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps track of who votes whom, and keeps the tallies of each candidate in sync with every vote and unvote, so that
+ * reading the votecount, the candidates with the most votes or the non-voters does not require scanning all votes
+ * for each candidate.
+ * <p>
+ * Candidates are ordered by when they were first voted, for as long as they keep at least one vote, voters of a
+ * candidate by when they cast their vote. Not thread safe, meant to be used from the event loop of a game.
+ *
+ * @param <V> voters
+ * @param <C> candidates
+ */
+public class VoteLedger<V, C> {
+
+    private final Map<V, C> votes = new HashMap<>();
+    //using linked to keep first votes at the top
+    private final Map<C, Set<V>> tallies = new LinkedHashMap<>();
+    //how many candidates have a given amount of votes, to know the highest tally without looking at all of them
+    private final Map<Integer, Integer> candidatesByTally = new HashMap<>();
+    private int mostVotes = 0;
+    //changes whenever the votes change, so that anything derived from them knows when to be redone
+    private long version = 0;
+
+    /**
+     * Any previous vote of the voter is replaced, and their new vote goes to the back of the line.
+     *
+     * @return the candidate previously voted by the voter, if any
+     */
+    @Nullable
+    public C vote(final V voter, final C candidate) {
+        final C previous = unvote(voter);
+        this.version++;
+        this.votes.put(voter, candidate);
+        final Set<V> voters = this.tallies.computeIfAbsent(candidate, c -> new LinkedHashSet<>());
+        voters.add(voter);
+        tallyChanged(voters.size() - 1, voters.size());
+        return previous;
+    }
+
+    /**
+     * @return the candidate that the voter was voting, if any
+     */
+    @Nullable
+    public C unvote(final V voter) {
+        final C candidate = this.votes.remove(voter);
+        if (candidate == null) {
+            return null;
+        }
+        this.version++;
+        final Set<V> voters = this.tallies.get(candidate);
+        voters.remove(voter);
+        tallyChanged(voters.size() + 1, voters.size());
+        if (voters.isEmpty()) {
+            this.tallies.remove(candidate);
+        }
+        return candidate;
+    }
+
+    /**
+     * @return the voters whose votes involve the participant, either because they are the voter, or the one voted. Use
+     * this to take out their votes once a participant can no longer vote or be voted, for example because they died.
+     */
+    public List<V> votesInvolving(final Object participant) {
+        final List<V> result = new ArrayList<>();
+        if (this.votes.containsKey(participant)) {
+            @SuppressWarnings("unchecked") final V voter = (V) participant;
+            result.add(voter);
+        }
+        for (final V voter : this.tallies.getOrDefault(participant, Collections.emptySet())) {
+            if (!voter.equals(participant)) {
+                result.add(voter);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        this.version++;
+        this.votes.clear();
+        this.tallies.clear();
+        this.candidatesByTally.clear();
+        this.mostVotes = 0;
+    }
+
+    /**
+     * @return a number that is different after any change to the votes
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Nullable
+    public C getVote(final V voter) {
+        return this.votes.get(voter);
+    }
+
+    public boolean hasVoted(final V voter) {
+        return this.votes.containsKey(voter);
+    }
+
+    /**
+     * @return amount of voters currently voting
+     */
+    public int size() {
+        return this.votes.size();
+    }
+
+    public int votesFor(final C candidate) {
+        return this.tallies.getOrDefault(candidate, Collections.emptySet()).size();
+    }
+
+    /**
+     * @return the voters of the candidate, in the order they voted
+     */
+    public Collection<V> votersOf(final C candidate) {
+        return Collections.unmodifiableCollection(this.tallies.getOrDefault(candidate, Collections.emptySet()));
+    }
+
+    /**
+     * @return highest amount of votes in any single candidate
+     */
+    public int mostVotes() {
+        return this.mostVotes;
+    }
+
+    /**
+     * Find the candidates with the most votes. Votes for anyone that is not one of the candidates are ignored.
+     * If there are no votes, all candidates are returned.
+     *
+     * @return the candidates with the most votes, in the order they were first voted
+     */
+    public List<C> mostVoted(final Collection<C> allCandidates) {
+        final Set<C> candidates = allCandidates instanceof Set ? (Set<C>) allCandidates : new HashSet<>(allCandidates);
+        int most = 0;
+        final List<C> result = new ArrayList<>();
+        for (final Map.Entry<C, Set<V>> tally : this.tallies.entrySet()) {
+            final C candidate = tally.getKey();
+            final int votesAmount = tally.getValue().size();
+            if (votesAmount < most || !candidates.contains(candidate)) {
+                continue;
+            }
+            if (votesAmount > most) {
+                most = votesAmount;
+                result.clear();
+            }
+            result.add(candidate);
+        }
+
+        if (result.isEmpty()) {
+            return new ArrayList<>(candidates);
+        }
+        return result;
+    }
+
+    /**
+     * @return the possible voters that are not voting anyone
+     */
+    public List<V> nonVoters(final Collection<V> possibleVoters) {
+        final List<V> result = new ArrayList<>();
+        for (final V voter : possibleVoters) {
+            if (!this.votes.containsKey(voter)) {
+                result.add(voter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all votes, in the order the candidates were first voted, each in the order they were cast
+     */
+    public Map<V, C> getVotes() {
+        final Map<V, C> result = new LinkedHashMap<>();
+        this.tallies.forEach((candidate, voters) -> voters.forEach(voter -> result.put(voter, candidate)));
+        return result;
+    }
+
+    private void tallyChanged(final int before, final int after) {
+        if (before > 0) {
+            final int left = this.candidatesByTally.merge(before, -1, Integer::sum);
+            if (left == 0) {
+                this.candidatesByTally.remove(before);
+                if (before == this.mostVotes && after < before) {
+                    this.mostVotes = after;
+                }
+            }
+        }
+        if (after > 0) {
+            this.candidatesByTally.merge(after, 1, Integer::sum);
+        }
+        if (after > this.mostVotes) {
+            this.mostVotes = after;
+        }
+    }
+}
@@ -20,13 +20,16 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import net.dv8tion.jda.api.entities.MessageEmbed;
 import space.npstr.wolfia.game.Player;
 import space.npstr.wolfia.game.definitions.Phase;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
 import space.npstr.wolfia.utils.discord.Emojis;
 import space.npstr.wolfia.utils.discord.TextchatUtils;
 
@@ -35,6 +38,9 @@
  */
 public class VotingBuilder {
 
+    //time left shown in embeds that are updated periodically is rounded up to this, so that an update that only
+    // changes the time left by a few seconds is not worth an edit
+    private static final long TIME_LEFT_BUCKET_MILLIS = TimeUnit.SECONDS.toMillis(30);
 
     private String header = "You have **%timeleft** left to vote.";
     private long endTime;
@@ -45,50 +51,95 @@ public class VotingBuilder {
             "\nOnly your last vote will be counted.\nOnly votes by living players will be counted.**" +
             "\nUpdates every few seconds.";
 
+    @Nullable
+    private RenderKey lastRenderKey;
+    @Nullable
+    private MessageEmbed lastRendered;
+
     public VotingBuilder endTime(final long endTime) {
         this.endTime = endTime;
+        this.lastRenderKey = null;
         return this;
     }
 
     // any a '%timeleft' strings inside of this will be replaced with a formatted duration till endTime is reached
     public VotingBuilder header(final String header) {
         this.header = header;
+        this.lastRenderKey = null;
         return this;
     }
 
     //%command will be substituted
     public VotingBuilder notes(final String notes) {
         this.notes = notes;
+        this.lastRenderKey = null;
         return this;
     }
 
     public VotingBuilder unvoteEmoji(final String unvoteEmoji) {
         this.unvoteEmoji = unvoteEmoji;
+        this.lastRenderKey = null;
         return this;
     }
 
     public VotingBuilder possibleVoters(final List<Player> possibleVoters) {
         this.possibleVoters = possibleVoters;
+        this.lastRenderKey = null;
         return this;
     }
 
     public VotingBuilder possibleCandidates(final List<Player> possibleCandidates) {
         this.possibleCandidates = possibleCandidates;
+        this.lastRenderKey = null;
         return this;
     }
 
-    public NiceEmbedBuilder getEmbed(final Map<Player, Player> votes) {
+    public NiceEmbedBuilder getEmbed(final VoteLedger<Player, Player> votes) {
+        return getEmbed(votes, this.endTime - System.currentTimeMillis());
+    }
+
+    /**
+     * Like {@link #getEmbed}, but meant for a message that is updated periodically. The time left is shown rounded up,
+     * and the embed is only built again when the votes, the living candidates or the rounded time left have changed.
+     */
+    public MessageEmbed renderEmbed(final VoteLedger<Player, Player> votes) {
+        final long timeLeft = Math.max(0, this.endTime - System.currentTimeMillis());
+        final long timeLeftBuckets = (timeLeft + TIME_LEFT_BUCKET_MILLIS - 1) / TIME_LEFT_BUCKET_MILLIS;
+        final int livingCandidates = (int) this.possibleCandidates.stream().filter(Player::isAlive).count();
+        final RenderKey renderKey = new RenderKey(votes, votes.getVersion(), timeLeftBuckets, livingCandidates);
+        if (this.lastRendered == null || !renderKey.equals(this.lastRenderKey)) {
+            this.lastRendered = getEmbed(votes, timeLeftBuckets * TIME_LEFT_BUCKET_MILLIS).build();
+            this.lastRenderKey = renderKey;
+        }
+        return this.lastRendered;
+    }
+
+    /**
+     * @return the embed to edit a periodically updated message with, or empty if it would not look any different than
+     * the one last returned by {@link #renderEmbed}
+     */
+    public Optional<MessageEmbed> renderEmbedIfChanged(final VoteLedger<Player, Player> votes) {
+        final MessageEmbed previous = this.lastRendered;
+        final MessageEmbed embed = renderEmbed(votes);
+        if (embed.equals(previous)) {
+            MetricsRegistry.voteEmbedEdits.labels("skipped").inc();
+            return Optional.empty();
+        }
+        MetricsRegistry.voteEmbedEdits.labels("sent").inc();
+        return Optional.of(embed);
+    }
 
+    private NiceEmbedBuilder getEmbed(final VoteLedger<Player, Player> votes, final long timeLeft) {
         NiceEmbedBuilder neb = NiceEmbedBuilder.defaultBuilder();
-        addHeader(neb, this.endTime - System.currentTimeMillis());
+        addHeader(neb, timeLeft);
 
         final List<VoteEntry> processedVotes = processVotes(votes);
-        neb.addField(renderVotes("", processedVotes, true, true));
+        neb.addField(renderVotes("", processedVotes, getNonVoters(votes), true, true));
 
         return addNotes(neb);
     }
 
-    public NiceEmbedBuilder getFinalEmbed(final Map<Player, Player> votes, final Phase phase, final int cycle) {
+    public NiceEmbedBuilder getFinalEmbed(final VoteLedger<Player, Player> votes, final Phase phase, final int cycle) {
         final NiceEmbedBuilder neb = NiceEmbedBuilder.defaultBuilder();
 
         final List<VoteEntry> processedVotes = processVotes(votes);
@@ -96,11 +147,12 @@ public NiceEmbedBuilder getFinalEmbed(final Map<Player, Player> votes, final Pha
         processedVotes.sort((o1, o2) -> o2.voters.size() - o1.voters.size());
 
         final String title = "Final votecount for " + phase.textRep + " " + cycle + ":";
-        neb.addField(renderVotes(title, processedVotes, false, false));
+        neb.addField(renderVotes(title, processedVotes, getNonVoters(votes), false, false));
         return neb;
     }
 
-    private NiceEmbedBuilder.ChunkingField renderVotes(final String title, final List<VoteEntry> votes, final boolean renderEmojis, final boolean renderZeroVotes) {
+    private NiceEmbedBuilder.ChunkingField renderVotes(final String title, final List<VoteEntry> votes, final List<Player> nonVoters,
+                                                      final boolean renderEmojis, final boolean renderZeroVotes) {
         final NiceEmbedBuilder.ChunkingField votesField = new NiceEmbedBuilder.ChunkingField(title, false);
 
         for (final VoteEntry ve : votes) {
@@ -121,7 +173,6 @@ private NiceEmbedBuilder.ChunkingField renderVotes(final String title, final Lis
         if (renderEmojis) {
             nv.append(this.unvoteEmoji).append(" ");
         }
-        final Set<Player> nonVoters = getNonVoters(votes.stream().flatMap(ve -> ve.voters.stream()).collect(Collectors.toSet()));
         nv.append("**Non-voters: **\n").append(nonVoters.stream()
                 .map(Player::bothNamesFormatted)
                 .collect(Collectors.joining(", ")));
@@ -131,7 +182,7 @@ private NiceEmbedBuilder.ChunkingField renderVotes(final String title, final Lis
     }
 
     //also cleans out dead players
-    private List<VoteEntry> processVotes(final Map<Player, Player> votes) {
+    private List<VoteEntry> processVotes(final VoteLedger<Player, Player> votes) {
         final List<VoteEntry> processedVotes = new ArrayList<>();
         for (final Player candidate : this.possibleCandidates) {
             if (candidate.isDead()) {
@@ -139,10 +190,8 @@ private List<VoteEntry> processVotes(final Map<Player, Player> votes) {
             }
             //who is voting for this player?
             final List<Player> voters = new ArrayList<>();
-            for (final Map.Entry<Player, Player> entry : votes.entrySet()) {
-                final Player voter = entry.getKey();
-                final Player voted = entry.getValue();
-                if (voted.equals(candidate) && voter.isAlive()) {
+            for (final Player voter : votes.votersOf(candidate)) {
+                if (voter.isAlive()) {
                     voters.add(voter);
                 }
             }
@@ -151,10 +200,8 @@ private List<VoteEntry> processVotes(final Map<Player, Player> votes) {
         return processedVotes;
     }
 
-    private Set<Player> getNonVoters(final Collection<Player> voters) {
-        final Set<Player> nonVoters = new HashSet<>(this.possibleVoters);
-        nonVoters.removeAll(voters);
-        return nonVoters;
+    private List<Player> getNonVoters(final VoteLedger<Player, Player> votes) {
+        return votes.nonVoters(this.possibleVoters);
     }
 
     private NiceEmbedBuilder addHeader(final NiceEmbedBuilder neb, final long timeLeft) {
@@ -168,6 +215,38 @@ private NiceEmbedBuilder addNotes(final NiceEmbedBuilder neb) {
         return neb;
     }
 
+    private static class RenderKey {
+        private final VoteLedger<Player, Player> votes;
+        private final long votesVersion;
+        private final long timeLeftBuckets;
+        private final int livingCandidates;
+
+        private RenderKey(final VoteLedger<Player, Player> votes, final long votesVersion, final long timeLeftBuckets,
+                          final int livingCandidates) {
+            this.votes = votes;
+            this.votesVersion = votesVersion;
+            this.timeLeftBuckets = timeLeftBuckets;
+            this.livingCandidates = livingCandidates;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RenderKey)) return false;
+            final RenderKey other = (RenderKey) o;
+            return this.votes == other.votes
+                    && this.votesVersion == other.votesVersion
+                    && this.timeLeftBuckets == other.timeLeftBuckets
+                    && this.livingCandidates == other.livingCandidates;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(this.votes), this.votesVersion, this.timeLeftBuckets,
+                    this.livingCandidates);
+        }
+    }
+
     private static class VoteEntry {
         public final String emoji;
         public final Player candidate;
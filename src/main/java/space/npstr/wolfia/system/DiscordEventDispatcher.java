@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.system;
+
+import io.prometheus.client.Summary;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import net.dv8tion.jda.api.events.GenericEvent;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import space.npstr.wolfia.system.metrics.MetricsRegistry;
+
+/**
+ * Hands the events of the shards to the {@link EventListener} methods of our beans.
+ * <p>
+ * Going through the {@link org.springframework.context.ApplicationEventPublisher} resolves the listeners of each event
+ * anew, which adds up with the amount of gateway events. Instead, the listener methods that take Discord events are
+ * collected once at startup, and the listeners of each event class are looked up once and then kept in a table.
+ */
+@Component
+public class DiscordEventDispatcher implements net.dv8tion.jda.api.hooks.EventListener, SmartInitializingSingleton {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DiscordEventDispatcher.class);
+
+    private static final MethodType LISTENER_TYPE = MethodType.methodType(void.class, GenericEvent.class);
+
+    private final ApplicationContext applicationContext;
+    private final Map<Class<?>, Listener[]> listenerTable = new ConcurrentHashMap<>();
+    private volatile List<Listener> listeners = List.of();
+    private volatile boolean initialized = false;
+
+    public DiscordEventDispatcher(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Listener> found = new ArrayList<>();
+        for (String beanName : this.applicationContext.getBeanNamesForType(Object.class, false, false)) {
+            Class<?> beanType = this.applicationContext.getType(beanName);
+            if (beanType == null) {
+                continue;
+            }
+            Map<Method, EventListener> annotatedMethods = MethodIntrospector.selectMethods(ClassUtils.getUserClass(beanType),
+                    (MethodIntrospector.MetadataLookup<EventListener>) method ->
+                            AnnotatedElementUtils.findMergedAnnotation(method, EventListener.class));
+            for (Map.Entry<Method, EventListener> entry : annotatedMethods.entrySet()) {
+                Method method = entry.getKey();
+                List<Class<? extends GenericEvent>> eventTypes = discordEventTypes(method, entry.getValue());
+                if (eventTypes.isEmpty()) {
+                    continue; // not ours, stays with Spring
+                }
+                if (StringUtils.hasText(entry.getValue().condition())) {
+                    throw new IllegalStateException("Conditions are not supported on listeners of Discord events: " + method);
+                }
+                Object bean = this.applicationContext.getBean(beanName);
+                found.add(new Listener(method, eventTypes, handle(bean, method), order(method)));
+            }
+        }
+        found.sort(Comparator.comparingInt(Listener::getOrder));
+
+        this.listeners = List.copyOf(found);
+        this.listenerTable.clear();
+        this.initialized = true;
+        log.info("Dispatching Discord events to {} listener methods", found.size());
+    }
+
+    @Override
+    public void onEvent(@Nonnull GenericEvent event) {
+        if (!this.initialized) {
+            // events arriving before all beans are there; let Spring sort them out like it used to
+            this.applicationContext.publishEvent(event);
+            return;
+        }
+
+        Class<? extends GenericEvent> eventClass = event.getClass();
+        Listener[] eventListeners = this.listenerTable.computeIfAbsent(eventClass, this::listenersOf);
+        if (eventListeners.length == 0) {
+            return;
+        }
+
+        Summary.Timer timer = MetricsRegistry.discordEventDispatchTime.labels(eventClass.getSimpleName()).startTimer();
+        try {
+            for (Listener listener : eventListeners) {
+                try {
+                    listener.handle.invokeExact(event);
+                } catch (Throwable t) {
+                    log.error("Listener {} failed on {}", listener.method, eventClass.getSimpleName(), t);
+                }
+            }
+        } finally {
+            timer.observeDuration();
+        }
+    }
+
+    private Listener[] listenersOf(Class<?> eventClass) {
+        return this.listeners.stream()
+                .filter(listener -> listener.accepts(eventClass))
+                .toArray(Listener[]::new);
+    }
+
+    private static List<Class<? extends GenericEvent>> discordEventTypes(Method method, EventListener annotation) {
+        List<Class<?>> declared = new ArrayList<>(List.of(annotation.classes()));
+        if (declared.isEmpty() && method.getParameterCount() == 1) {
+            declared.add(method.getParameterTypes()[0]);
+        }
+        List<Class<? extends GenericEvent>> eventTypes = new ArrayList<>();
+        for (Class<?> type : declared) {
+            if (GenericEvent.class.isAssignableFrom(type)) {
+                eventTypes.add(type.asSubclass(GenericEvent.class));
+            }
+        }
+        if (!eventTypes.isEmpty() && eventTypes.size() != declared.size()) {
+            throw new IllegalStateException("Listener " + method + " mixes Discord and other events");
+        }
+        return eventTypes;
+    }
+
+    private static MethodHandle handle(Object bean, Method method) {
+        Method invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+        ReflectionUtils.makeAccessible(invocable);
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(invocable).bindTo(bean);
+            if (invocable.getParameterCount() == 0) {
+                handle = MethodHandles.dropArguments(handle, 0, GenericEvent.class);
+            }
+            return handle.asType(LISTENER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access listener " + method, e);
+        }
+    }
+
+    private static int order(Method method) {
+        Order order = AnnotatedElementUtils.findMergedAnnotation(method, Order.class);
+        return order != null ? order.value() : Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private static class Listener {
+
+        private final Method method;
+        private final List<Class<? extends GenericEvent>> eventTypes;
+        private final MethodHandle handle;
+        private final int order;
+
+        private Listener(Method method, List<Class<? extends GenericEvent>> eventTypes, MethodHandle handle, int order) {
+            this.method = method;
+            this.eventTypes = eventTypes;
+            this.handle = handle;
+            this.order = order;
+        }
+
+        private boolean accepts(Class<?> eventClass) {
+            return this.eventTypes.stream().anyMatch(type -> type.isAssignableFrom(eventClass));
+        }
+
+        private int getOrder() {
+            return this.order;
+        }
+    }
+}
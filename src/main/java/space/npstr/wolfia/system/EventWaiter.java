@@ -18,16 +18,17 @@
 package space.npstr.wolfia.system;
 
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import javax.annotation.Nullable;
 import net.dv8tion.jda.api.events.GenericEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
@@ -45,45 +46,29 @@
 @Component
 public class EventWaiter {
 
-    //this thread pool runs the actions as well as the timeout actions
+    //this thread pool runs the actions as well as the timeout actions, and keeps the time for the timeouts
     private final ScheduledExecutorService pool;
-    //modifications to the hash map and sets have to go through this single threaded pool
-    private final ScheduledExecutorService single;
 
-    //These stateful collections are only threadsafe when modified though the single executor
-    private final List<WaitingEvent<? extends GenericEvent>> toRemove = new ArrayList<>(); //reused object
-    private final HashMap<Class<? extends GenericEvent>, Set<WaitingEvent<? extends GenericEvent>>> waitingEvents;
+    //the sets are never removed, there is only ever a handful of event classes being waited on
+    private final Map<Class<?>, Set<WaitingEvent<?>>> waitingEvents = new ConcurrentHashMap<>();
 
     public EventWaiter(ScheduledThreadPoolExecutor jdaThreadPool) {
-        this.waitingEvents = new HashMap<>();
         this.pool = jdaThreadPool;
-        this.single = new ScheduledThreadPoolExecutor(1);
     }
 
     public <T extends GenericEvent> EventWaiter.WaitingEvent<T> waitForEvent(
             Class<T> classType, Predicate<T> condition, Consumer<T> action, Duration timeout,
             Runnable timeoutAction
     ) {
+        Set<WaitingEvent<?>> registry = this.waitingEvents.computeIfAbsent(classType, c -> ConcurrentHashMap.newKeySet());
+        EventWaiter.WaitingEvent<T> we = new EventWaiter.WaitingEvent<>(registry, condition, action);
 
-        EventWaiter.WaitingEvent<T> we = new EventWaiter.WaitingEvent<>(condition, action);
-
-        this.single.execute(() -> {
-            this.waitingEvents.computeIfAbsent(classType, c -> new HashSet<>())
-                    .add(we);
-            this.single.schedule(() -> {
-                var set = this.waitingEvents.get(classType);
-                if (set == null) {
-                    return;
-                }
-                if (set.remove(we)) {
-                    this.pool.execute(timeoutAction);
-                }
-
-                if (set.isEmpty()) {
-                    this.waitingEvents.remove(classType);
-                }
-            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
-        });
+        registry.add(we);
+        we.timeout = this.pool.schedule(() -> {
+            if (we.finish()) {
+                timeoutAction.run();
+            }
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
         return we;
     }
 
@@ -98,19 +83,11 @@ public void onEvent(GenericEvent event) {
         // Class#getSuperclass() returns null when the superclass
         // is primitive, void, or (in this case) Object.
         while (cc != null && cc != Object.class) {
-            Class<?> clazz = cc;
-            if (this.waitingEvents.get(clazz) != null) {
-                this.single.execute(() -> {
-                    Set<WaitingEvent<? extends GenericEvent>> set = this.waitingEvents.get(clazz);
-                    @SuppressWarnings({"unchecked", "rawtypes"}) Predicate<WaitingEvent> filter = we -> we.attempt(event);
-                    set.stream().filter(filter).forEach(this.toRemove::add);
-                    set.removeAll(this.toRemove);
-                    this.toRemove.clear();
-
-                    if (set.isEmpty()) {
-                        this.waitingEvents.remove(clazz);
-                    }
-                });
+            Set<WaitingEvent<?>> set = this.waitingEvents.get(cc);
+            if (set != null) {
+                for (WaitingEvent<?> we : set) {
+                    we.attempt(event);
+                }
             }
 
             cc = cc.getSuperclass();
@@ -120,24 +97,42 @@ public void onEvent(GenericEvent event) {
     public class WaitingEvent<T extends GenericEvent> {
         final Predicate<T> condition;
         final Consumer<T> action;
+        private final Set<WaitingEvent<?>> registry;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        @Nullable
+        private volatile ScheduledFuture<?> timeout;
 
-        WaitingEvent(Predicate<T> condition, Consumer<T> action) {
+        WaitingEvent(Set<WaitingEvent<?>> registry, Predicate<T> condition, Consumer<T> action) {
+            this.registry = registry;
             this.condition = condition;
             this.action = action;
         }
 
-        private boolean attempt(T event) {
-            if (this.condition.test(event)) {
-                EventWaiter.this.pool.execute(() -> this.action.accept(event));
-                return true;
+        private void attempt(GenericEvent event) {
+            @SuppressWarnings("unchecked") T typed = (T) event; // only events of T are looked up in the registry of T
+            if (this.condition.test(typed) && finish()) {
+                EventWaiter.this.pool.execute(() -> this.action.accept(typed));
+            }
+        }
+
+        /**
+         * @return true if this call finished the waiting, false if it was finished before, by a matching event, a
+         * timeout, or a cancellation
+         */
+        private boolean finish() {
+            if (!this.done.compareAndSet(false, true)) {
+                return false;
+            }
+            this.registry.remove(this);
+            ScheduledFuture<?> scheduledTimeout = this.timeout;
+            if (scheduledTimeout != null) {
+                scheduledTimeout.cancel(false);
             }
-            return false;
+            return true;
         }
 
         public void cancel() {
-            EventWaiter.this.single.execute(
-                    () -> EventWaiter.this.waitingEvents.values().forEach(set -> set.remove(this))
-            );
+            finish();
         }
     }
 
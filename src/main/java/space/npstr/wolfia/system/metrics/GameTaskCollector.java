@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.system.metrics;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+import java.util.Collection;
+import java.util.List;
+import space.npstr.wolfia.domain.game.GameScheduler;
+
+/**
+ * Exports the amount of pending and queued tasks of the running games on the shared {@link GameScheduler}, in total
+ * and of the game with the most of them, so that a single stuck game stands out without a time series per channel.
+ * The pool itself is covered by the {@link space.npstr.prometheus_extensions.ThreadPoolCollector}.
+ */
+public class GameTaskCollector extends Collector {
+
+    private final GameScheduler gameScheduler;
+
+    public GameTaskCollector(GameScheduler gameScheduler) {
+        this.gameScheduler = gameScheduler;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        Collection<Integer> pending = this.gameScheduler.getPendingTaskCounts().values();
+        Collection<Integer> queued = this.gameScheduler.getQueuedTaskCounts().values();
+
+        return List.of(
+                new GaugeMetricFamily("game_pending_tasks_current",
+                        "Amount of pending tasks of all running games", sum(pending)),
+                new GaugeMetricFamily("game_pending_tasks_max",
+                        "Amount of pending tasks of the running game with the most of them", max(pending)),
+                new GaugeMetricFamily("game_queued_tasks_current",
+                        "Amount of tasks of all running games waiting for their turn to run", sum(queued)),
+                new GaugeMetricFamily("game_queued_tasks_max",
+                        "Amount of tasks waiting for their turn to run of the game with the most of them", max(queued))
+        );
+    }
+
+    private static double sum(Collection<Integer> counts) {
+        return counts.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static double max(Collection<Integer> counts) {
+        return counts.stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+}
@@ -20,6 +20,8 @@
 import ch.qos.logback.classic.LoggerContext;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
 import io.prometheus.client.Summary;
 import io.prometheus.client.hotspot.DefaultExports;
 import io.prometheus.client.logback.InstrumentedAppender;
@@ -36,7 +38,7 @@
 public class MetricsRegistry {
 
     public MetricsRegistry(InstrumentedAppender prometheusAppender, ThreadPoolCollector poolMetrics,
-                           QueryCountCollector queryMetrics) {
+                           QueryCountCollector queryMetrics, GameTaskCollector gameTaskMetrics) {
         //log metrics
         final LoggerContext factory = (LoggerContext) LoggerFactory.getILoggerFactory();
         final ch.qos.logback.classic.Logger root = factory.getLogger(Logger.ROOT_LOGGER_NAME);
@@ -49,6 +51,7 @@ public MetricsRegistry(InstrumentedAppender prometheusAppender, ThreadPoolCollec
 
         poolMetrics.register();
         queryMetrics.register();
+        gameTaskMetrics.register();
     }
 
     public CollectorRegistry getRegistry() {
@@ -61,33 +64,90 @@ public CollectorRegistry getRegistry() {
             .labelNames("name") //identifier of the query, for example "activeUsers"
             .register();
 
+    /**
+     * Stages of writing the stats of a finished game: game, ids, teams, players, actions and rollup.
+     */
+    public static final Histogram statsInsertStageTime = Histogram.build()
+            .name("stats_insert_stage_seconds")
+            .help("Time each stage of writing the stats of a game takes")
+            .labelNames("stage")
+            .register();
+
+    public static final Gauge spooledGameStats = Gauge.build()
+            .name("spooled_game_stats_current")
+            .help("Finished games whose stats are waiting to be written to the database")
+            .register();
+
+    public static final Counter deadLetteredGameStats = Counter.build()
+            .name("dead_lettered_game_stats")
+            .help("Finished games whose stats were rejected by the database and moved to the dead letter file")
+            .register();
+
     public static final Counter gamesPlayed = Counter.build()
             .name("games_played")
             .help("Games Played")
             .labelNames("type", "mode")
             .register();
 
-    public static final Summary commandRetentionTime = Summary.build()
-            .name("command_retention_seconds")
-            .help("Time it takes from receiving a command till processing is started")
+    public static final Counter voteEmbedEdits = Counter.build()
+            .name("vote_embed_edits")
+            .help("Periodic edits of voting embeds, either sent, or skipped because nothing visible changed")
+            .labelNames("result") //sent or skipped
             .register();
 
-    public static final Summary commandProcessTime = Summary.build()
-            .name("command_process_seconds")
-            .help("Time the pure processing takes")
-            .labelNames("command") //simple class name of the command
+    public static final Counter entityCacheMisses = Counter.build()
+            .name("entity_cache_misses")
+            .help("Guilds and channels that had to be waited for because they were missing from the cache")
+            .labelNames("type", "outcome") //outcome is resolved or timed_out
+            .register();
+
+    public static final Summary discordEventDispatchTime = Summary.build()
+            .name("discord_event_dispatch_seconds")
+            .help("Time it takes to run all listeners of a Discord event")
+            .labelNames("event") //simple class name of the event
+            .register();
+
+    public static final Gauge reactionRoutes = Gauge.build()
+            .name("reaction_routes_current")
+            .help("Messages on which reactions are currently being listened for")
+            .register();
+
+    public static final Summary reactionDispatchTime = Summary.build()
+            .name("reaction_dispatch_seconds")
+            .help("Time it takes to handle a reaction on a message that is being listened on")
+            .register();
+
+    public static final Counter nonCommandMessages = Counter.build()
+            .name("non_command_messages")
+            .help("Messages dropped before parsing because they don't start with the prefix")
+            .register();
+
+    public static final Counter commandsRejected = Counter.build()
+            .name("commands_rejected")
+            .help("Commands that were not run because too many commands were waiting already")
+            .labelNames("reason") //queue_full or command_limit
             .register();
 
     /**
-     * basically measurement of discord latency, however, ratelimiting  by the library is not accounted for (getting
-     * ratelimited in a channel happens rather fast when users spam)
+     * Stages a parsed command goes through: parse (from receiving the message till the command is parsed), queue
+     * (waiting for the commands before it in the same channel), privacy,
+     * channel_settings (only for game related commands), execute, and reply (from sending a reply till discord
+     * acknowledges it, basically a measurement of discord latency, however, ratelimiting by the library is not
+     * accounted for).
      */
-    public static final Summary commandResponseTime = Summary.build()
-            .name("command_response_seconds")
-            .help("Time it takes from replying till the user actually receives the answer")
+    public static final Histogram commandStageTime = Histogram.build()
+            .name("command_stage_seconds")
+            .help("Time each stage of handling a command takes")
+            .labelNames("stage")
+            .register();
+
+    public static final Histogram commandProcessTime = Histogram.build()
+            .name("command_process_seconds")
+            .help("Time the pure processing takes")
+            .labelNames("command") //simple class name of the command
             .register();
 
-    public static final Summary commandTotalTime = Summary.build()
+    public static final Histogram commandTotalTime = Histogram.build()
             .name("command_total_seconds")
             .help("Total time it takes from discord creation timestamp of the trigger message till"
                     + " discord creation timestamp of the answer message")
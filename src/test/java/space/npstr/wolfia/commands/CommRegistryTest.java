@@ -290,6 +290,37 @@ void hasStaffCommand() {
         assertHasCommand("staff", StaffCommand.class);
     }
 
+    @Test
+    void triggersAreCaseInsensitive() {
+        assertHasCommand("VOTE", VoteCommand.class);
+        assertHasCommand("Vc", VoteCountCommand.class);
+    }
+
+    @Test
+    void unknownTrigger_noCommand() {
+        assertThat(commRegistry.getCommand("foo")).isNull();
+    }
+
+    @Test
+    void suggestCommandsStartingWithInput() {
+        assertThat(commRegistry.suggest("vot"))
+                .hasAtLeastOneElementOfType(VoteCommand.class)
+                .hasAtLeastOneElementOfType(VoteCountCommand.class);
+    }
+
+    @Test
+    void suggestCommandsWithTypos() {
+        assertThat(commRegistry.suggest("shot")).hasAtLeastOneElementOfType(ShootCommand.class);
+        assertThat(commRegistry.suggest("shoto")).hasAtLeastOneElementOfType(ShootCommand.class);
+        assertThat(commRegistry.suggest("stauts")).hasAtLeastOneElementOfType(StatusCommand.class);
+        assertThat(commRegistry.suggest("invitee")).hasAtLeastOneElementOfType(InviteCommand.class);
+    }
+
+    @Test
+    void suggestNothingForGibberish() {
+        assertThat(commRegistry.suggest("qwertzuiop")).isEmpty();
+    }
+
     private void assertHasCommand(String trigger, Class<? extends BaseCommand> clazz) {
         BaseCommand command = commRegistry.getCommand(trigger);
 
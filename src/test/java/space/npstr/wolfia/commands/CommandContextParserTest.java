@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.commands;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandContextParserTest {
+
+    private final CommandContextParser parser = new CommandContextParser();
+
+    @Test
+    void prefixedMessage_hasPrefix() {
+        assertThat(parser.hasPrefix("w.in")).isTrue();
+        assertThat(parser.hasPrefix("w. vote 3")).isTrue();
+        assertThat(parser.hasPrefix("w.")).isTrue();
+    }
+
+    @Test
+    void prefixInOtherCase_hasPrefix() {
+        assertThat(parser.hasPrefix("W.in")).isTrue();
+    }
+
+    @Test
+    void regularMessage_hasNoPrefix() {
+        assertThat(parser.hasPrefix("")).isFalse();
+        assertThat(parser.hasPrefix("w")).isFalse();
+        assertThat(parser.hasPrefix("hello w.in")).isFalse();
+        assertThat(parser.hasPrefix(" w.in")).isFalse();
+    }
+}
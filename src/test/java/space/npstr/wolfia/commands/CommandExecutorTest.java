@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import space.npstr.wolfia.commands.ingame.UnvoteCommand;
+import space.npstr.wolfia.commands.ingame.VoteCommand;
+import space.npstr.wolfia.commands.util.InfoCommand;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class CommandExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final CommandExecutor commandExecutor = new CommandExecutor(this.pool);
+    private final CountDownLatch blocker = new CountDownLatch(1);
+    private final CountDownLatch blocking = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        this.blocker.countDown();
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    void commandsOfSameChannel_runInOrder() {
+        long channelId = uniqueLong();
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            int number = i;
+            assertThat(this.commandExecutor.submit(channelId, VoteCommand.class, () -> ran.add(number))).isTrue();
+        }
+
+        await().until(() -> ran.size() == 20);
+        assertThat(ran).isSorted();
+    }
+
+    @Test
+    void blockedChannel_doesNotHoldUpOtherChannels() {
+        long blockedChannelId = uniqueLong();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        this.commandExecutor.submit(blockedChannelId, InfoCommand.class, this::block);
+        this.commandExecutor.submit(otherLane(blockedChannelId), InfoCommand.class, ran::countDown);
+
+        await().until(() -> ran.getCount() == 0);
+    }
+
+    @Test
+    void fullQueue_rejectsCommands() {
+        long channelId = uniqueLong();
+
+        this.commandExecutor.submit(channelId, InfoCommand.class, this::block);
+        await().until(() -> this.blocking.getCount() == 0);
+        for (int i = 0; i < CommandExecutor.MAX_QUEUED_PER_LANE; i++) {
+            // stay below the limit of each command
+            Class<? extends BaseCommand> command = i % 2 == 0 ? VoteCommand.class : UnvoteCommand.class;
+            assertThat(this.commandExecutor.submit(channelId, command, () -> {})).isTrue();
+        }
+
+        assertThat(this.commandExecutor.submit(channelId, InfoCommand.class, () -> {})).isFalse();
+    }
+
+    @Test
+    void tooManyOfOneCommand_rejectsThatCommandOnly() {
+        long channelId = uniqueLong();
+        for (int i = 0; i < CommandExecutor.MAX_CONCURRENT_PER_COMMAND; i++) {
+            assertThat(this.commandExecutor.submit(channelId, VoteCommand.class, this::block)).isTrue();
+        }
+
+        assertThat(this.commandExecutor.submit(otherLane(channelId), VoteCommand.class, () -> {})).isFalse();
+        assertThat(this.commandExecutor.submit(otherLane(channelId), InfoCommand.class, () -> {})).isTrue();
+    }
+
+    @Test
+    void finishedCommands_freeUpTheirLimit() {
+        long channelId = uniqueLong();
+        CountDownLatch ran = new CountDownLatch(CommandExecutor.MAX_CONCURRENT_PER_COMMAND);
+        for (int i = 0; i < CommandExecutor.MAX_CONCURRENT_PER_COMMAND; i++) {
+            this.commandExecutor.submit(channelId, VoteCommand.class, ran::countDown);
+        }
+        await().until(() -> ran.getCount() == 0);
+
+        await().until(() -> this.commandExecutor.submit(channelId, VoteCommand.class, () -> {}));
+    }
+
+    @Test
+    void throwingCommand_doesNotStopItsChannel() {
+        long channelId = uniqueLong();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        this.commandExecutor.submit(channelId, InfoCommand.class, () -> {
+            throw new RuntimeException("Expected in test");
+        });
+        this.commandExecutor.submit(channelId, InfoCommand.class, ran::countDown);
+
+        await().until(() -> ran.getCount() == 0);
+    }
+
+    @Test
+    void pendingCommand_holdsItsChannelButNotItsThread() {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        CommandExecutor executor = new CommandExecutor(singleThread);
+        long channelId = uniqueLong();
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        CountDownLatch nextInChannel = new CountDownLatch(1);
+        CountDownLatch otherChannel = new CountDownLatch(1);
+
+        try {
+            executor.submit(channelId, InfoCommand.class, () -> pending);
+            executor.submit(channelId, InfoCommand.class, nextInChannel::countDown);
+            executor.submit(otherLane(channelId), InfoCommand.class, otherChannel::countDown);
+
+            await().until(() -> otherChannel.getCount() == 0);
+            assertThat(nextInChannel.getCount()).isEqualTo(1);
+
+            pending.complete(null);
+            await().until(() -> nextInChannel.getCount() == 0);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void completedStages_freeUpTheirLimit() {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        long channelId = uniqueLong();
+        for (int i = 0; i < CommandExecutor.MAX_CONCURRENT_PER_COMMAND; i++) {
+            CompletableFuture<Void> stage = new CompletableFuture<>();
+            pending.add(stage);
+            assertThat(this.commandExecutor.submit(channelId + i, VoteCommand.class, () -> stage)).isTrue();
+        }
+        assertThat(this.commandExecutor.submit(channelId, VoteCommand.class, () -> {})).isFalse();
+
+        pending.forEach(stage -> stage.complete(null));
+
+        await().until(() -> this.commandExecutor.submit(channelId, VoteCommand.class, () -> {}));
+    }
+
+    private void block() {
+        this.blocking.countDown();
+        try {
+            this.blocker.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long otherLane(long channelId) {
+        return channelId + 1;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class EntityResolverTest {
+
+    private final ShardManager shardManager = mock(ShardManager.class);
+    private final EntityResolver entityResolver = new EntityResolver(shardManager);
+
+    @Test
+    void whenCached_completeRightAway() {
+        long channelId = uniqueLong();
+        TextChannel channel = mock(TextChannel.class);
+        when(shardManager.getTextChannelById(channelId)).thenReturn(channel);
+
+        var resolved = entityResolver.textChannel(channelId).toCompletableFuture();
+
+        assertThat(resolved).isCompletedWithValue(channel);
+    }
+
+    @Test
+    void whenNotCached_completeOnceGuildIsReady() {
+        long channelId = uniqueLong();
+
+        var resolved = entityResolver.textChannel(channelId).toCompletableFuture();
+
+        assertThat(resolved).isNotDone();
+
+        TextChannel channel = mock(TextChannel.class);
+        when(shardManager.getTextChannelById(channelId)).thenReturn(channel);
+        entityResolver.onGuildReady(mock(GuildReadyEvent.class));
+
+        assertThat(resolved).isCompletedWithValue(channel);
+    }
+
+    @Test
+    void whenNotCached_completeOnceReconnected() {
+        long guildId = uniqueLong();
+
+        var resolved = entityResolver.guild(guildId).toCompletableFuture();
+
+        assertThat(resolved).isNotDone();
+
+        Guild guild = mock(Guild.class);
+        when(shardManager.getGuildById(guildId)).thenReturn(guild);
+        entityResolver.onReconnected(mock(ReconnectedEvent.class));
+
+        assertThat(resolved).isCompletedWithValue(guild);
+    }
+
+    @Test
+    void whenWaitingTwice_bothComplete() {
+        long guildId = uniqueLong();
+
+        var first = entityResolver.guild(guildId).toCompletableFuture();
+        var second = entityResolver.guild(guildId).toCompletableFuture();
+
+        Guild guild = mock(Guild.class);
+        when(shardManager.getGuildById(guildId)).thenReturn(guild);
+        entityResolver.onGuildReady(mock(GuildReadyEvent.class));
+
+        assertThat(first).isCompletedWithValue(guild);
+        assertThat(second).isCompletedWithValue(guild);
+    }
+
+    @Test
+    void whenOtherEntityShowsUp_keepWaiting() {
+        long channelId = uniqueLong();
+
+        var resolved = entityResolver.textChannel(channelId).toCompletableFuture();
+        entityResolver.onGuildReady(mock(GuildReadyEvent.class));
+
+        assertThat(resolved).isNotDone();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import space.npstr.wolfia.ApplicationTest;
+import space.npstr.wolfia.domain.stats.ActionStats;
+import space.npstr.wolfia.domain.stats.GameStats;
+import space.npstr.wolfia.game.GameInfo;
+import space.npstr.wolfia.game.definitions.Actions;
+import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.game.definitions.Phase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class GameEventLogRepositoryTest extends ApplicationTest {
+
+    @Autowired
+    private GameEventLogRepository repository;
+
+    @Test
+    void whenPersistingSameEventsTwice_ignoreDuplicates() {
+        GameStats game = game();
+        List<LoggedAction> events = List.of(logged(action(game, 1), true), logged(action(game, 2), false));
+
+        int first = this.repository.persist(events, List.of()).toCompletableFuture().join();
+        int second = this.repository.persist(events, List.of()).toCompletableFuture().join();
+
+        assertThat(first).isEqualTo(2);
+        assertThat(second).isZero();
+    }
+
+    @Test
+    void whenPersistingSnapshot_replaceOlderSnapshot() {
+        GameStats game = game();
+        this.repository.persist(List.of(), List.of(snapshot(game, 1, false))).toCompletableFuture().join();
+        this.repository.persist(List.of(), List.of(snapshot(game, 2, true))).toCompletableFuture().join();
+
+        int deleted = this.repository.delete(game.getChannelId(), game.getStartTime()).toCompletableFuture().join();
+
+        assertThat(deleted).isEqualTo(1);
+    }
+
+    @Test
+    void whenDeleting_deleteEventsAndSnapshot() {
+        GameStats game = game();
+        this.repository.persist(List.of(logged(action(game, 1), true), logged(action(game, 2), true)),
+                List.of(snapshot(game, 2, false)))
+                .toCompletableFuture().join();
+
+        int deleted = this.repository.delete(game.getChannelId(), game.getStartTime()).toCompletableFuture().join();
+
+        assertThat(deleted).isEqualTo(3);
+    }
+
+    @Test
+    void whenVoteGetsRecorded_findItWithRecordedActions() {
+        GameStats game = game();
+        ActionStats dayStart = action(game, 1);
+        ActionStats vote = action(game, 2);
+        ActionStats unvote = action(game, 3);
+        this.repository.persist(List.of(logged(dayStart, true), logged(vote, false), logged(unvote, false)), List.of())
+                .toCompletableFuture().join();
+        this.repository.persist(List.of(logged(vote, true)), List.of()).toCompletableFuture().join();
+
+        List<ActionStats> recorded = this.repository.findRecordedActions(game).toCompletableFuture().join();
+
+        assertThat(recorded)
+                .extracting(ActionStats::getOrder)
+                .containsExactly(1, 2);
+        assertThat(recorded.get(1).getTarget()).isEqualTo(vote.getTarget());
+    }
+
+    @Test
+    void whenFindingSnapshots_containLatestSnapshot() {
+        GameStats game = game();
+        this.repository.persist(List.of(), List.of(snapshot(game, 1, false))).toCompletableFuture().join();
+        this.repository.persist(List.of(), List.of(snapshot(game, 2, true))).toCompletableFuture().join();
+
+        List<GameSnapshot> snapshots = this.repository.findSnapshots().toCompletableFuture().join();
+
+        assertThat(snapshots)
+                .filteredOn(snapshot -> snapshot.getChannelId() == game.getChannelId())
+                .hasSize(1)
+                .allSatisfy(snapshot -> {
+                    assertThat(snapshot.getSequence()).isEqualTo(2);
+                    assertThat(snapshot.isHibernated()).isTrue();
+                    assertThat(snapshot.getState()).contains("players");
+                });
+    }
+
+    private GameStats game() {
+        return new GameStats(uniqueLong(), "Guild", uniqueLong(), "channel", Games.MAFIA,
+                GameInfo.GameMode.CLASSIC, 3);
+    }
+
+    private ActionStats action(GameStats game, int order) {
+        long now = System.currentTimeMillis();
+        return new ActionStats(game, order, now, now, 1, Phase.DAY, uniqueLong(), Actions.VOTELYNCH, uniqueLong(),
+                null);
+    }
+
+    private LoggedAction logged(ActionStats action, boolean recorded) {
+        return ImmutableLoggedAction.builder()
+                .action(action)
+                .isRecorded(recorded)
+                .build();
+    }
+
+    private GameSnapshot snapshot(GameStats game, int sequence, boolean hibernated) {
+        return ImmutableGameSnapshot.builder()
+                .channelId(game.getChannelId())
+                .gameStart(game.getStartTime())
+                .sequence(sequence)
+                .created(Instant.now())
+                .state("{\"players\": []}")
+                .isHibernated(hibernated)
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.npstr.wolfia.domain.stats.ActionStats;
+import space.npstr.wolfia.domain.stats.GameStats;
+import space.npstr.wolfia.game.GameInfo;
+import space.npstr.wolfia.game.definitions.Actions;
+import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.game.definitions.Phase;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class GameEventLogTest {
+
+    private final GameEventLogRepository repository = mock(GameEventLogRepository.class);
+    private final ExceptionLoggingExecutor executor = mock(ExceptionLoggingExecutor.class);
+    private GameEventLog eventLog;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(this.executor).execute(any());
+        when(this.repository.persist(anyCollection(), anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(0));
+        when(this.repository.delete(anyLong(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(0));
+        this.eventLog = new GameEventLog(this.repository, this.executor);
+    }
+
+    @Test
+    void whenBelowBatchSize_doNotWriteRightAway() {
+        GameStats game = game();
+
+        for (int i = 1; i < GameEventLog.BATCH_SIZE; i++) {
+            this.eventLog.append(action(game, i), true);
+        }
+
+        verify(this.repository, never()).persist(anyCollection(), anyCollection());
+        assertThat(this.eventLog.getPendingEventCount()).isEqualTo(GameEventLog.BATCH_SIZE - 1);
+    }
+
+    @Test
+    void whenBatchSizeReached_writeBatch() {
+        GameStats game = game();
+
+        for (int i = 1; i <= GameEventLog.BATCH_SIZE; i++) {
+            this.eventLog.append(action(game, i), true);
+        }
+
+        verify(this.repository).persist(anyCollection(), eq(List.of()));
+        assertThat(this.eventLog.getPendingEventCount()).isZero();
+    }
+
+    @Test
+    void whenFlush_writeEventsAndLatestSnapshot() {
+        GameStats game = game();
+        ActionStats action = action(game, 1);
+        this.eventLog.append(action, true);
+        this.eventLog.snapshot(snapshot(game, 0));
+        GameSnapshot latest = snapshot(game, 1);
+        this.eventLog.snapshot(latest);
+
+        this.eventLog.flush();
+
+        verify(this.repository).persist(eq(List.of(logged(action, true))), eq(List.of(latest)));
+    }
+
+    @Test
+    void whenNothingPending_doNotWrite() {
+        this.eventLog.flush();
+
+        verify(this.repository, never()).persist(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void whenWriteFails_retryWithNextFlush() {
+        GameStats game = game();
+        ActionStats action = action(game, 1);
+        GameSnapshot snapshot = snapshot(game, 1);
+        when(this.repository.persist(anyCollection(), anyCollection()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Database is down")))
+                .thenReturn(CompletableFuture.completedFuture(2));
+        this.eventLog.append(action, true);
+        this.eventLog.snapshot(snapshot);
+
+        this.eventLog.flush();
+        assertThat(this.eventLog.getPendingEventCount()).isEqualTo(1);
+        this.eventLog.flush();
+
+        verify(this.repository, times(2)).persist(eq(List.of(logged(action, true))), eq(List.of(snapshot)));
+        assertThat(this.eventLog.getPendingEventCount()).isZero();
+    }
+
+    @Test
+    void whenDiscard_dropPendingEventsOfThatGameOnly() {
+        GameStats discarded = game();
+        GameStats other = game();
+        ActionStats otherAction = action(other, 1);
+        this.eventLog.append(action(discarded, 1), true);
+        this.eventLog.append(otherAction, false);
+        this.eventLog.snapshot(snapshot(discarded, 1));
+
+        this.eventLog.discard(discarded.getChannelId(), discarded.getStartTime());
+        this.eventLog.flush();
+
+        verify(this.repository).delete(discarded.getChannelId(), discarded.getStartTime());
+        verify(this.repository).persist(eq(List.of(logged(otherAction, false))), eq(List.of()));
+    }
+
+    private GameStats game() {
+        return new GameStats(uniqueLong(), "Guild", uniqueLong(), "channel", Games.POPCORN,
+                GameInfo.GameMode.WILD, 3);
+    }
+
+    private ActionStats action(GameStats game, int order) {
+        long now = System.currentTimeMillis();
+        return new ActionStats(game, order, now, now, 1, Phase.DAY, uniqueLong(), Actions.SHOOT, uniqueLong(), null);
+    }
+
+    private GameSnapshot snapshot(GameStats game, int sequence) {
+        return ImmutableGameSnapshot.builder()
+                .channelId(game.getChannelId())
+                .gameStart(game.getStartTime())
+                .sequence(sequence)
+                .created(Instant.now())
+                .state("{}")
+                .isHibernated(false)
+                .build();
+    }
+
+    private LoggedAction logged(ActionStats action, boolean recorded) {
+        return ImmutableLoggedAction.builder()
+                .action(action)
+                .isRecorded(recorded)
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.npstr.wolfia.game.Game;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class GameHibernatorTest {
+
+    private final GameRegistry gameRegistry = new GameRegistry();
+    private final GameEventLog eventLog = mock(GameEventLog.class);
+    private final GameEventLogRepository repository = mock(GameEventLogRepository.class);
+    private final ShardManager shardManager = mock(ShardManager.class);
+    private GameHibernator gameHibernator;
+
+    @BeforeEach
+    void setUp() {
+        when(this.repository.delete(anyLong(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(1));
+        this.gameHibernator = new GameHibernator(this.gameRegistry, this.eventLog, this.repository, this.shardManager);
+    }
+
+    @Test
+    void whenHibernating_removeHibernatedGamesAndFlush() throws Exception {
+        Game running = game(true);
+        Game over = game(false);
+
+        int hibernated = this.gameHibernator.hibernateAll();
+
+        assertThat(hibernated).isEqualTo(1);
+        assertThat(this.gameRegistry.getAll()).containsOnlyKeys(over.getChannelId());
+        verify(running).hibernate();
+        verify(this.eventLog).flush();
+    }
+
+    @Test
+    void whenResuming_dropGamesThatWereNotHibernated() {
+        GameSnapshot crashed = snapshot(false, "{\"game\": \"MAFIA\"}");
+        when(this.repository.findSnapshots())
+                .thenReturn(CompletableFuture.completedFuture(List.of(crashed)));
+
+        int resumed = this.gameHibernator.resumeAll();
+
+        assertThat(resumed).isZero();
+        assertThat(this.gameRegistry.getRunningGamesCount()).isZero();
+        verify(this.repository).delete(crashed.getChannelId(), crashed.getGameStart());
+    }
+
+    @Test
+    void whenResumingFails_dropGame() {
+        GameSnapshot broken = snapshot(true, "{\"game\": \"CHESS\"}");
+        when(this.repository.findSnapshots())
+                .thenReturn(CompletableFuture.completedFuture(List.of(broken)));
+
+        int resumed = this.gameHibernator.resumeAll();
+
+        assertThat(resumed).isZero();
+        assertThat(this.gameRegistry.getRunningGamesCount()).isZero();
+        verify(this.repository).delete(broken.getChannelId(), broken.getGameStart());
+    }
+
+    private Game game(boolean running) throws Exception {
+        Game game = mock(Game.class);
+        when(game.getChannelId()).thenReturn(uniqueLong());
+        when(game.hibernate()).thenReturn(running);
+        this.gameRegistry.set(game);
+        return game;
+    }
+
+    private GameSnapshot snapshot(boolean hibernated, String state) {
+        return ImmutableGameSnapshot.builder()
+                .channelId(uniqueLong())
+                .gameStart(System.currentTimeMillis())
+                .sequence(1)
+                .created(Instant.now())
+                .state(state)
+                .isHibernated(hibernated)
+                .build();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.game;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import space.npstr.prometheus_extensions.ThreadPoolCollector;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class GameSchedulerTest {
+
+    private final GameScheduler gameScheduler = new GameScheduler(mock(ThreadPoolCollector.class));
+
+    @AfterEach
+    void tearDown() {
+        gameScheduler.shutdownNow();
+    }
+
+    @Test
+    void whenTaskScheduled_countAsPending() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+
+        tasks.schedule(() -> {}, Duration.ofMinutes(10));
+
+        assertThat(tasks.getPendingTaskCount()).isEqualTo(1);
+        assertThat(gameScheduler.getPendingTaskCounts()).containsEntry(channelId, 1);
+    }
+
+    @Test
+    void whenTaskDone_notCountedAsPending() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+
+        Future<?> future = tasks.submit(() -> {});
+
+        await().atMost(5, TimeUnit.SECONDS).until(future::isDone);
+        assertThat(tasks.getPendingTaskCount()).isZero();
+    }
+
+    @Test
+    void whenCancelAll_cancelPendingTasks() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        AtomicBoolean ran = new AtomicBoolean(false);
+        Future<?> future = tasks.schedule(() -> ran.set(true), Duration.ofMillis(200));
+
+        tasks.cancelAll();
+
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(tasks.getPendingTaskCount()).isZero();
+        assertThat(gameScheduler.getPendingTaskCounts()).doesNotContainKey(channelId);
+        await().during(500, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).untilFalse(ran);
+    }
+
+    @Test
+    void whenScheduledAfterCancelAll_cancelRightAway() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        tasks.cancelAll();
+
+        Future<?> future = tasks.schedule(() -> {}, Duration.ofMinutes(10));
+
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(tasks.getPendingTaskCount()).isZero();
+    }
+
+    @Test
+    void whenCancelAllFromOwnTask_doNotInterruptIt() throws InterruptedException {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean(true);
+
+        Future<?> future = tasks.submit(() -> {
+            tasks.cancelAll();
+            interrupted.set(Thread.currentThread().isInterrupted());
+            finished.countDown();
+        });
+
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted).isFalse();
+        await().atMost(5, TimeUnit.SECONDS).until(future::isDone);
+        assertThat(future.isCancelled()).isFalse();
+    }
+
+    @Test
+    void groupsOfDifferentGames_areIndependent() {
+        long channelIdA = uniqueLong();
+        long channelIdB = uniqueLong();
+        GameScheduler.TaskGroup tasksA = gameScheduler.newTaskGroup(() -> channelIdA);
+        GameScheduler.TaskGroup tasksB = gameScheduler.newTaskGroup(() -> channelIdB);
+        tasksA.schedule(() -> {}, Duration.ofMinutes(10));
+        Future<?> futureB = tasksB.schedule(() -> {}, Duration.ofMinutes(10));
+
+        tasksA.cancelAll();
+
+        assertThat(futureB.isCancelled()).isFalse();
+        assertThat(gameScheduler.getPendingTaskCounts())
+                .doesNotContainKey(channelIdA)
+                .containsEntry(channelIdB, 1);
+    }
+
+    @Test
+    void tasksOfOneGroup_runOneAtATimeInOrder() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicBoolean overlapped = new AtomicBoolean(false);
+        List<Integer> order = new ArrayList<>();
+        Future<?> last = null;
+
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            last = tasks.submit(() -> {
+                if (running.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                order.add(index);
+                running.decrementAndGet();
+            });
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(last::isDone);
+        assertThat(overlapped).isFalse();
+        assertThat(order).hasSize(100).isSorted();
+    }
+
+    @Test
+    void whileTaskRuns_countFollowingTasksAsQueued() throws InterruptedException {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        tasks.submit(() -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> queued = tasks.submit(() -> {});
+
+        assertThat(tasks.getQueuedTaskCount()).isEqualTo(1);
+        assertThat(gameScheduler.getQueuedTaskCounts()).containsEntry(channelId, 1);
+        release.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(queued::isDone);
+        assertThat(tasks.getQueuedTaskCount()).isZero();
+    }
+
+    @Test
+    void whenRunningTask_isInEventLoop() throws Exception {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+
+        Future<Boolean> inEventLoop = tasks.submit(tasks::inEventLoop);
+
+        assertThat(inEventLoop.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(tasks.inEventLoop()).isFalse();
+    }
+
+    @Test
+    void whenPreconditionUnmet_holdTasksUntilItIsMet() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        CompletableFuture<Void> channelAvailable = new CompletableFuture<>();
+        tasks.setPrecondition(() -> channelAvailable.isDone() ? null : channelAvailable);
+        AtomicInteger ran = new AtomicInteger(0);
+
+        tasks.submit(ran::incrementAndGet);
+        tasks.submit(ran::incrementAndGet);
+
+        await().during(300, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> ran.get() == 0);
+        assertThat(tasks.getQueuedTaskCount()).isEqualTo(2);
+        channelAvailable.complete(null);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> ran.get() == 2);
+    }
+
+    @Test
+    void whenPreconditionFails_runTasksAnyway() {
+        long channelId = uniqueLong();
+        GameScheduler.TaskGroup tasks = gameScheduler.newTaskGroup(() -> channelId);
+        CompletableFuture<Void> channelAvailable = new CompletableFuture<>();
+        tasks.setPrecondition(() -> channelAvailable);
+
+        Future<?> future = tasks.submit(() -> {});
+        channelAvailable.completeExceptionally(new RuntimeException("Channel did not show up"));
+
+        await().atMost(5, TimeUnit.SECONDS).until(future::isDone);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.privacy;
+
+import io.prometheus.client.cache.caffeine.CacheMetricsCollector;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class PrivacyCacheTest {
+
+    private final long optedOutUserId = uniqueLong();
+    private final PrivacyRepository repository = mock(PrivacyRepository.class);
+    private PrivacyCache privacyCache;
+
+    @BeforeEach
+    void setUp() {
+        when(this.repository.findAllDeniedProcessData())
+                .thenReturn(CompletableFuture.completedFuture(List.of(new Privacy(this.optedOutUserId, false))));
+        when(this.repository.findOne(anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        this.privacyCache = new PrivacyCache(this.repository, new CacheMetricsCollector());
+    }
+
+    @Test
+    void optedOutAtStartup_isDeniedWithoutLookup() {
+        assertThat(isDataProcessingEnabled(this.optedOutUserId)).isFalse();
+
+        verify(this.repository, never()).findOne(anyLong());
+    }
+
+    @Test
+    void unknownUser_isAllowedAndCached() {
+        long userId = uniqueLong();
+
+        assertThat(isDataProcessingEnabled(userId)).isTrue();
+        assertThat(isDataProcessingEnabled(userId)).isTrue();
+
+        verify(this.repository, times(1)).findOne(userId);
+    }
+
+    @Test
+    void optedOutLater_isLookedUp() {
+        long userId = uniqueLong();
+        when(this.repository.findOne(userId))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(new Privacy(userId, false))));
+
+        assertThat(isDataProcessingEnabled(userId)).isFalse();
+    }
+
+    @Test
+    void afterDataDelete_isDenied() {
+        long userId = uniqueLong();
+        assertThat(isDataProcessingEnabled(userId)).isTrue();
+
+        this.privacyCache.onDataDelete(ImmutablePersonalDataDelete.builder()
+                .userId(userId)
+                .build());
+
+        assertThat(isDataProcessingEnabled(userId)).isFalse();
+        verify(this.repository, times(1)).findOne(userId);
+    }
+
+    private boolean isDataProcessingEnabled(long userId) {
+        return this.privacyCache.isDataProcessingEnabled(userId).toCompletableFuture().join();
+    }
+}
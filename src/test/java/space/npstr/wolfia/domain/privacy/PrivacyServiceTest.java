@@ -44,8 +44,10 @@
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -96,15 +98,16 @@ void afterDataDelete_commandsByUserAreIgnored() {
 
         doAnswer(invocation -> true).when(privacyCommand).execute(any());
 
+        // commands are run in the background, so give them a moment
         this.commandHandler.onMessageReceived(messageReceived);
-        verify(privacyCommand, times(1)).execute(any());
+        verify(privacyCommand, timeout(5000).times(1)).execute(any());
         this.commandHandler.onMessageReceived(messageReceived);
-        verify(privacyCommand, times(2)).execute(any());
+        verify(privacyCommand, timeout(5000).times(2)).execute(any());
 
         this.privacyService.dataDelete(userId);
 
         this.commandHandler.onMessageReceived(messageReceived);
-        verify(privacyCommand, times(2)).execute(any());
+        verify(privacyCommand, after(1000).times(2)).execute(any());
     }
 
     @Test
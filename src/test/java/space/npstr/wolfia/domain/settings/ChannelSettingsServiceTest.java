@@ -17,6 +17,7 @@
 
 package space.npstr.wolfia.domain.settings;
 
+import java.util.List;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -239,6 +240,33 @@ void whenNoTagsRemoved_doNotInsertInDb() {
     }
 
 
+    @Test
+    void whenGameChannelDisabled_gameChannelIdsShouldNotContainIt() {
+        long guildId = uniqueLong();
+        long gameChannelId = uniqueLong();
+        long otherChannelId = uniqueLong();
+        var channelIds = List.of(gameChannelId, otherChannelId);
+        var before = this.service.channels(channelIds).getGameChannelIdsAsync(guildId).toCompletableFuture().join();
+        assertThat(before).containsExactlyInAnyOrder(gameChannelId, otherChannelId);
+
+        this.service.channel(otherChannelId).disableGameChannel();
+
+        var after = this.service.channels(channelIds).getGameChannelIdsAsync(guildId).toCompletableFuture().join();
+        assertThat(after).containsExactly(gameChannelId);
+    }
+
+    @Test
+    void whenSettingsWritten_getShouldReturnWrittenSettings() {
+        long channelId = uniqueLong();
+        long accessRoleId = uniqueLong();
+        this.service.channel(channelId).getOrDefault();
+
+        this.service.channel(channelId).setAccessRoleId(accessRoleId);
+
+        var settings = this.service.channel(channelId).getOrDefault();
+        assertThat(settings.getAccessRoleId()).hasValue(accessRoleId);
+    }
+
     @Test
     void whenDelete_thenDeleteFromDb() {
         long channelId = uniqueLong();
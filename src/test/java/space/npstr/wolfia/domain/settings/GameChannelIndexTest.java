@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.settings;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class GameChannelIndexTest {
+
+    private final GameChannelIndex index = new GameChannelIndex();
+
+    @Test
+    void whenNothingIndexed_allChannelsAreMissing() {
+        long guildId = uniqueLong();
+        long channelId = uniqueLong();
+
+        assertThat(this.index.missing(guildId, List.of(channelId))).containsExactly(channelId);
+        assertThat(this.index.gameChannels(guildId, List.of(channelId))).isEmpty();
+    }
+
+    @Test
+    void whenAdded_onlyGameChannelsAreReturned() {
+        long guildId = uniqueLong();
+        long gameChannelId = uniqueLong();
+        long otherChannelId = uniqueLong();
+
+        this.index.add(guildId, settings(gameChannelId, true));
+        this.index.add(guildId, settings(otherChannelId, false));
+
+        List<Long> channelIds = List.of(gameChannelId, otherChannelId);
+        assertThat(this.index.missing(guildId, channelIds)).isEmpty();
+        assertThat(this.index.gameChannels(guildId, channelIds)).containsExactly(gameChannelId);
+    }
+
+    @Test
+    void whenUpdated_indexedChannelIsUpdated() {
+        long guildId = uniqueLong();
+        long channelId = uniqueLong();
+        this.index.add(guildId, settings(channelId, true));
+
+        this.index.update(settings(channelId, false));
+
+        assertThat(this.index.gameChannels(guildId, List.of(channelId))).isEmpty();
+    }
+
+    @Test
+    void whenAddedAgain_indexedChannelIsKept() {
+        long guildId = uniqueLong();
+        long channelId = uniqueLong();
+        this.index.add(guildId, settings(channelId, true));
+        this.index.update(settings(channelId, false));
+
+        this.index.add(guildId, settings(channelId, true));
+
+        assertThat(this.index.gameChannels(guildId, List.of(channelId))).isEmpty();
+    }
+
+    @Test
+    void whenUpdatedWithoutBeingIndexed_channelIsStillMissing() {
+        long guildId = uniqueLong();
+        long channelId = uniqueLong();
+
+        this.index.update(settings(channelId, true));
+
+        assertThat(this.index.missing(guildId, List.of(channelId))).containsExactly(channelId);
+    }
+
+    @Test
+    void whenRemoved_channelIsMissing() {
+        long guildId = uniqueLong();
+        long channelId = uniqueLong();
+        this.index.add(guildId, settings(channelId, true));
+
+        this.index.remove(channelId);
+
+        assertThat(this.index.missing(guildId, List.of(channelId))).containsExactly(channelId);
+    }
+
+    private static ChannelSettings settings(long channelId, boolean isGameChannel) {
+        return new ChannelSettings(channelId, null, null, isGameChannel, null, 0, new Long[0]);
+    }
+}
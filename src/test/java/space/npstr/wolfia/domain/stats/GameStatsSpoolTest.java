@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.stats;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.jooq.exception.DataAccessException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import space.npstr.wolfia.config.properties.WolfiaConfig;
+import space.npstr.wolfia.game.GameInfo;
+import space.npstr.wolfia.game.definitions.Actions;
+import space.npstr.wolfia.game.definitions.Alignments;
+import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.game.definitions.Phase;
+import space.npstr.wolfia.game.definitions.Roles;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class GameStatsSpoolTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    private StatsRepository repository;
+    private WolfiaConfig wolfiaConfig;
+
+    @BeforeEach
+    void setup() {
+        this.repository = mock(StatsRepository.class);
+        when(this.repository.insertGameStats(any())).then(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        this.wolfiaConfig = new WolfiaConfig();
+        this.wolfiaConfig.setStatsSpoolDirectory(this.spoolDirectory.toString());
+    }
+
+    @Test
+    void whenAdded_gameIsSpooledUntilFlushed() throws Exception {
+        GameStatsSpool spool = createSpool();
+        GameStats gameStats = gameStats();
+        gameStats.setGameId(uniqueLong());
+
+        spool.add(gameStats);
+
+        assertThat(spool.getPendingCount()).isEqualTo(1);
+        assertThat(Files.readAllLines(spoolFile())).hasSize(1);
+
+        spool.flush();
+
+        verify(this.repository).insertGameStats(gameStats);
+        verify(this.repository, never()).reserveGameIds(anyInt());
+        assertThat(spool.getPendingCount()).isZero();
+        assertThat(spoolFile()).doesNotExist();
+    }
+
+    @Test
+    void whenDatabaseNotAvailable_gameIsKeptAcrossRestarts() {
+        when(this.repository.insertGameStats(any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+        GameStatsSpool spool = createSpool();
+        GameStats gameStats = gameStats();
+        gameStats.setGameId(uniqueLong());
+
+        spool.add(gameStats);
+        spool.flush();
+
+        assertThat(spool.getPendingCount()).isEqualTo(1);
+        assertThat(spoolFile()).exists();
+
+        when(this.repository.insertGameStats(any())).then(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        GameStatsSpool restarted = createSpool();
+        assertThat(restarted.getPendingCount()).isEqualTo(1);
+
+        restarted.flush();
+
+        ArgumentCaptor<GameStats> written = ArgumentCaptor.forClass(GameStats.class);
+        verify(this.repository, times(2)).insertGameStats(written.capture());
+        GameStats loaded = written.getValue();
+        assertThat(loaded).isEqualTo(gameStats);
+        assertThat(loaded.getGameId()).isEqualTo(gameStats.getGameId());
+        assertThat(loaded.getStartingTeams()).hasSize(1);
+        assertThat(loaded.getActions()).hasSize(1);
+        assertThat(restarted.getPendingCount()).isZero();
+        assertThat(spoolFile()).doesNotExist();
+    }
+
+    @Test
+    void whenOneGameFails_otherGamesAreWritten() {
+        GameStatsSpool spool = createSpool();
+        GameStats failing = gameStats();
+        failing.setGameId(uniqueLong());
+        GameStats other = gameStats();
+        other.setGameId(uniqueLong());
+        when(this.repository.insertGameStats(failing)).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+
+        spool.add(failing);
+        spool.add(other);
+        spool.flush();
+
+        verify(this.repository).insertGameStats(other);
+        assertThat(spool.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenGameIsRejectedRepeatedly_gameIsMovedToDeadLetterFile() throws Exception {
+        GameStatsSpool spool = createSpool();
+        GameStats rejected = gameStats();
+        rejected.setGameId(uniqueLong());
+        DataAccessException violation = new DataAccessException("duplicate key",
+                new SQLException("duplicate key", "23505"));
+        when(this.repository.insertGameStats(rejected)).thenReturn(CompletableFuture.failedFuture(violation));
+        spool.add(rejected);
+
+        for (int i = 1; i < GameStatsSpool.MAX_REJECTIONS; i++) {
+            spool.flush();
+            assertThat(spool.getPendingCount()).isEqualTo(1);
+        }
+        spool.flush();
+
+        assertThat(spool.getPendingCount()).isZero();
+        assertThat(spoolFile()).doesNotExist();
+        List<String> deadLetters = Files.readAllLines(this.spoolDirectory.resolve(GameStatsSpool.DEAD_LETTER_FILE));
+        assertThat(deadLetters).hasSize(1);
+        assertThat(GameStatsSpool.fromJson(new JSONObject(deadLetters.get(0)))).isEqualTo(rejected);
+    }
+
+    @Test
+    void whenGameHasNoId_idIsReservedBeforeWriting() {
+        long reservedId = uniqueLong();
+        when(this.repository.reserveGameIds(1)).thenReturn(CompletableFuture.completedFuture(List.of(reservedId)));
+        GameStatsSpool spool = createSpool();
+        GameStats gameStats = gameStats();
+
+        spool.add(gameStats);
+        spool.flush();
+
+        ArgumentCaptor<GameStats> written = ArgumentCaptor.forClass(GameStats.class);
+        verify(this.repository).insertGameStats(written.capture());
+        assertThat(written.getValue().getGameId()).hasValue(reservedId);
+    }
+
+    @Test
+    void whenAnonymized_nicknameIsRemovedFromSpooledGames() throws Exception {
+        GameStatsSpool spool = createSpool();
+        GameStats gameStats = gameStats("Player McPlayerface");
+        gameStats.setGameId(uniqueLong());
+        spool.add(gameStats);
+        long userId = player(gameStats).getUserId();
+
+        spool.anonymize(userId);
+
+        assertThat(player(gameStats).getNickname()).isNull();
+        assertThat(Files.readString(spoolFile())).doesNotContain("Player McPlayerface");
+        verify(this.repository, never()).nullAllPlayerNicknamesofUser(anyLong());
+
+        createSpool().flush();
+
+        ArgumentCaptor<GameStats> written = ArgumentCaptor.forClass(GameStats.class);
+        verify(this.repository).insertGameStats(written.capture());
+        assertThat(player(written.getValue()).getNickname()).isNull();
+    }
+
+    @Test
+    void whenAnonymizedWhileFlushing_writtenNicknameIsRemoved() {
+        GameStatsSpool spool = createSpool();
+        GameStats gameStats = gameStats("Player McPlayerface");
+        gameStats.setGameId(uniqueLong());
+        long userId = player(gameStats).getUserId();
+        when(this.repository.insertGameStats(any())).then(invocation -> {
+            spool.anonymize(userId);
+            return CompletableFuture.completedFuture(invocation.getArgument(0));
+        });
+        when(this.repository.nullAllPlayerNicknamesofUser(userId)).thenReturn(CompletableFuture.completedFuture(1));
+
+        spool.add(gameStats);
+        spool.flush();
+
+        verify(this.repository).nullAllPlayerNicknamesofUser(userId);
+    }
+
+    @Test
+    void toJsonAndBack_shouldBeEqual() {
+        GameStats gameStats = gameStats();
+        gameStats.setGameId(uniqueLong());
+
+        GameStats read = GameStatsSpool.fromJson(GameStatsSpool.toJson(gameStats));
+
+        assertThat(read).isEqualTo(gameStats);
+        assertThat(read.getGameId()).isEqualTo(gameStats.getGameId());
+        assertThat(read.getEndTime()).isEqualTo(gameStats.getEndTime());
+        assertThat(read.getStartingTeams()).isEqualTo(gameStats.getStartingTeams());
+        assertThat(read.getActions()).isEqualTo(gameStats.getActions());
+
+        TeamStats team = read.getStartingTeams().iterator().next();
+        assertThat(team.isWinner()).isTrue();
+        PlayerStats player = team.getPlayers().iterator().next();
+        assertThat(player.getNickname()).isNull();
+        assertThat(player.getTotalPosts()).isEqualTo(3);
+        assertThat(player.getTotalPostLength()).isEqualTo(42);
+    }
+
+    private GameStatsSpool createSpool() {
+        return new GameStatsSpool(this.repository, mock(ExceptionLoggingExecutor.class), this.wolfiaConfig);
+    }
+
+    private Path spoolFile() {
+        return this.spoolDirectory.resolve(GameStatsSpool.SPOOL_FILE);
+    }
+
+    private GameStats gameStats() {
+        return gameStats(null);
+    }
+
+    private GameStats gameStats(@Nullable String nickname) {
+        GameStats gameStats = new GameStats(uniqueLong(), "Foo", uniqueLong(), "Bar", Games.POPCORN,
+                GameInfo.GameMode.WILD, 1);
+        gameStats.setEndTime(System.currentTimeMillis());
+        TeamStats village = new TeamStats(gameStats, Alignments.VILLAGE, "Village", 1);
+        village.setWinner(true);
+        PlayerStats player = new PlayerStats(village, uniqueLong(), nickname, Alignments.VILLAGE, Roles.VANILLA);
+        player.restorePosts(3, 42);
+        village.addPlayer(player);
+        gameStats.setTeams(List.of(village));
+        gameStats.addAction(new ActionStats(gameStats, 1, gameStats.getStartTime(), gameStats.getStartTime(), 0,
+                Phase.DAY, player.getUserId(), Actions.GAMESTART, -1, null));
+        return gameStats;
+    }
+
+    private PlayerStats player(GameStats gameStats) {
+        return gameStats.getStartingTeams().iterator().next().getPlayers().iterator().next();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.stats;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import space.npstr.wolfia.ApplicationTest;
+import space.npstr.wolfia.db.Database;
+import space.npstr.wolfia.game.GameInfo;
+import space.npstr.wolfia.game.definitions.Alignments;
+import space.npstr.wolfia.game.definitions.Games;
+import space.npstr.wolfia.game.definitions.Roles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class StatsProviderTest extends ApplicationTest {
+
+    @Autowired
+    private StatsProvider statsProvider;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private Database database;
+
+    @Test
+    void guildStats_shouldAggregateGamesOfGuild() {
+        long guildId = uniqueLong();
+        seedGames(guildId);
+
+        GuildStats guildStats = this.statsProvider.getGuildStats(guildId).toCompletableFuture().join();
+
+        assertThat(guildStats.guildId()).isEqualTo(guildId);
+        assertThat(new BigDecimal(guildStats.averagePlayerSize().toString())).isEqualByComparingTo("4.2");
+        assertThat(guildStats.totalWinStats()).isEqualTo(winStats(-1, 1, 3));
+        assertThat(guildStats.winStatsByPlayerSize()).containsExactlyInAnyOrder(
+                winStats(3, 1, 2),
+                winStats(5, 0, 1),
+                winStats(7, 0, 0)
+        );
+    }
+
+    @Test
+    void guildStats_whenNoGames_shouldBeEmpty() {
+        long guildId = uniqueLong();
+
+        GuildStats guildStats = this.statsProvider.getGuildStats(guildId).toCompletableFuture().join();
+
+        assertThat(new BigDecimal(guildStats.averagePlayerSize().toString())).isEqualByComparingTo("0");
+        assertThat(guildStats.totalWinStats()).isEqualTo(winStats(-1, 0, 0));
+        assertThat(guildStats.winStatsByPlayerSize()).isEmpty();
+    }
+
+    @Test
+    void botStats_shouldMatchCountingEachStatSeparately() {
+        seedGames(uniqueLong());
+
+        BotStats botStats = this.statsProvider.getBotStats().toCompletableFuture().join();
+
+        BigDecimal averagePlayerSize = this.database.getJooq()
+                .fetchOne("SELECT avg(player_size) FROM stats_game")
+                .get(0, BigDecimal.class);
+        assertThat(new BigDecimal(botStats.averagePlayerSize().toString())).isEqualByComparingTo(averagePlayerSize);
+        assertThat(botStats.totalWinStats()).isEqualTo(winStats(-1, countWins(Alignments.WOLF, null),
+                countWins(Alignments.VILLAGE, null)));
+
+        List<WinStats> expectedByPlayerSize = new ArrayList<>();
+        List<Integer> playerSizes = this.database.getJooq()
+                .fetch("SELECT DISTINCT player_size FROM stats_game")
+                .getValues(0, Integer.class);
+        for (int playerSize : playerSizes) {
+            expectedByPlayerSize.add(winStats(playerSize, countWins(Alignments.WOLF, playerSize),
+                    countWins(Alignments.VILLAGE, playerSize)));
+        }
+        assertThat(botStats.winStatsByPlayerSize()).containsExactlyInAnyOrderElementsOf(expectedByPlayerSize);
+    }
+
+    @Test
+    void rebuildRollup_shouldRestoreStats() {
+        long guildId = uniqueLong();
+        seedGames(guildId);
+        GuildStats before = this.statsProvider.getGuildStats(guildId).toCompletableFuture().join();
+        this.database.getJooq().execute("DELETE FROM stats_rollup WHERE guild_id = ?", guildId);
+        GuildStats deleted = this.statsProvider.getGuildStats(guildId).toCompletableFuture().join();
+
+        this.statsRepository.rebuildRollup().toCompletableFuture().join();
+
+        assertThat(deleted.winStatsByPlayerSize()).isEmpty();
+        GuildStats after = this.statsProvider.getGuildStats(guildId).toCompletableFuture().join();
+        assertThat(new BigDecimal(after.averagePlayerSize().toString()))
+                .isEqualByComparingTo(new BigDecimal(before.averagePlayerSize().toString()));
+        assertThat(after.totalWinStats()).isEqualTo(before.totalWinStats());
+        assertThat(after.winStatsByPlayerSize()).containsExactlyInAnyOrderElementsOf(before.winStatsByPlayerSize());
+    }
+
+    @Test
+    void rebuildRollup_shouldRestoreBotStats() {
+        seedGames(uniqueLong());
+        BotStats before = this.statsProvider.getBotStats().toCompletableFuture().join();
+        this.database.getJooq().execute("DELETE FROM stats_rollup_total");
+        BotStats deleted = this.statsProvider.getBotStats().toCompletableFuture().join();
+
+        this.statsRepository.rebuildRollup().toCompletableFuture().join();
+
+        assertThat(deleted.winStatsByPlayerSize()).isEmpty();
+        BotStats after = this.statsProvider.getBotStats().toCompletableFuture().join();
+        assertThat(new BigDecimal(after.averagePlayerSize().toString()))
+                .isEqualByComparingTo(new BigDecimal(before.averagePlayerSize().toString()));
+        assertThat(after.totalWinStats()).isEqualTo(before.totalWinStats());
+        assertThat(after.winStatsByPlayerSize()).containsExactlyInAnyOrderElementsOf(before.winStatsByPlayerSize());
+    }
+
+    private long countWins(Alignments alignment, @Nullable Integer playerSize) {
+        String sql = "SELECT count(*) FROM stats_game JOIN stats_team ON stats_team.game_id = stats_game.game_id "
+                + "WHERE stats_team.is_winner AND stats_team.alignment = ?";
+        if (playerSize == null) {
+            return this.database.getJooq().fetchOne(sql, alignment.name()).get(0, Long.class);
+        }
+        return this.database.getJooq().fetchOne(sql + " AND stats_game.player_size = ?", alignment.name(), playerSize)
+                .get(0, Long.class);
+    }
+
+    // average player size 4.2, wolves win 1 game, village wins 3, and a game without winners
+    private void seedGames(long guildId) {
+        insertGame(guildId, 3, Alignments.WOLF);
+        insertGame(guildId, 3, Alignments.VILLAGE);
+        insertGame(guildId, 3, Alignments.VILLAGE);
+        insertGame(guildId, 5, Alignments.VILLAGE);
+        insertGame(guildId, 7, null);
+    }
+
+    private void insertGame(long guildId, int playerSize, @Nullable Alignments winner) {
+        GameStats gameStats = new GameStats(guildId, "Foo", uniqueLong(), "Bar", Games.POPCORN,
+                GameInfo.GameMode.WILD, playerSize);
+        gameStats.setEndTime(System.currentTimeMillis());
+        TeamStats wolves = new TeamStats(gameStats, Alignments.WOLF, "Wolves", 1);
+        wolves.setWinner(winner == Alignments.WOLF);
+        wolves.addPlayer(new PlayerStats(wolves, uniqueLong(), "Wolf", Alignments.WOLF, Roles.VANILLA));
+        TeamStats village = new TeamStats(gameStats, Alignments.VILLAGE, "Village", playerSize - 1);
+        village.setWinner(winner == Alignments.VILLAGE);
+        for (int i = 1; i < playerSize; i++) {
+            village.addPlayer(new PlayerStats(village, uniqueLong(), "Villager", Alignments.VILLAGE, Roles.VANILLA));
+        }
+        gameStats.setTeams(List.of(wolves, village));
+        this.statsRepository.insertGameStats(gameStats).toCompletableFuture().join();
+    }
+
+    private static WinStats winStats(int playerSize, long baddieWins, long goodieWins) {
+        return ImmutableWinStats.builder()
+                .playerSize(playerSize)
+                .totalGames(baddieWins + goodieWins)
+                .goodieWins(goodieWins)
+                .baddieWins(baddieWins)
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.domain.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import space.npstr.prometheus_extensions.ThreadPoolCollector;
+import space.npstr.wolfia.ApplicationTest;
+import space.npstr.wolfia.config.properties.DatabaseConfig;
+import space.npstr.wolfia.db.AsyncDbWrapper;
+import space.npstr.wolfia.db.Database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Looks at the plans of the queries of the {@link StatsRepository} on a seeded dataset that is large enough for the
+ * planner to prefer indexes, to make sure none of them read through a whole stats table.
+ * <p>
+ * The bot stats read the small table of the totals of all guilds, and the rebuild of the rollup reads all games by
+ * design, so they are not checked here.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatsQueryPlanTest extends ApplicationTest {
+
+    private static final String SEED_NAME = "Seeded";
+    private static final int SEED_GAMES = 20000;
+    private static final int SEED_GUILDS = 2000;
+    private static final int SEED_USERS = 20000;
+    private static final long GUILD_ID = 42;
+    private static final long USER_ID = 4242;
+
+    @Autowired
+    private Database database;
+
+    @Autowired
+    private DatabaseConfig databaseConfig;
+
+    private final List<String> executedQueries = new CopyOnWriteArrayList<>();
+    private StatsRepository recordingRepository;
+    private long gameId;
+
+    @BeforeAll
+    void setup() {
+        seed();
+
+        DSLContext jooq = this.database.getJooq();
+        DSLContext recordingJooq = DSL.using(jooq.configuration().derive(new DefaultExecuteListenerProvider(
+                new DefaultExecuteListener() {
+                    @Override
+                    public void executeStart(ExecuteContext ctx) {
+                        if (ctx.query() != null) {
+                            executedQueries.add(ctx.dsl().renderInlined(ctx.query()));
+                        }
+                    }
+                }
+        )));
+        Database recordingDatabase = mock(Database.class);
+        when(recordingDatabase.getJooq()).thenReturn(recordingJooq);
+        this.recordingRepository = new StatsRepository(
+                new AsyncDbWrapper(recordingDatabase, this.databaseConfig, mock(ThreadPoolCollector.class)));
+
+        this.recordingRepository.rebuildRollup().toCompletableFuture().join();
+        this.database.getJooq().execute("ANALYZE stats_rollup");
+    }
+
+    @AfterAll
+    void tearDown() {
+        unseed();
+        this.recordingRepository.rebuildRollup().toCompletableFuture().join();
+    }
+
+    @Test
+    void guildStatsQueries_shouldNotScanStatsTables() {
+        assertNoSeqScan(repository -> repository.getGuildStats(GUILD_ID));
+    }
+
+    @Test
+    void userStatsQueries_shouldNotScanStatsTables() {
+        assertNoSeqScan(repository -> repository.getGeneralUserStats(USER_ID));
+        assertNoSeqScan(repository -> repository.getUserShots(USER_ID));
+    }
+
+    @Test
+    void replayQueries_shouldNotScanStatsTables() {
+        assertNoSeqScan(repository -> repository.findGameStats(this.gameId));
+    }
+
+    @Test
+    void privacyQueries_shouldNotScanStatsTables() {
+        assertNoSeqScan(repository -> repository.getAllGameStatsOfUser(USER_ID));
+        assertNoSeqScan(repository -> repository.getAllActionStatsOfUser(USER_ID));
+        assertNoSeqScan(repository -> repository.nullAllPlayerNicknamesofUser(USER_ID + 1));
+    }
+
+    private void assertNoSeqScan(Function<StatsRepository, CompletionStage<?>> query) {
+        this.executedQueries.clear();
+        query.apply(this.recordingRepository).toCompletableFuture().join();
+        assertThat(this.executedQueries).isNotEmpty();
+
+        for (String sql : new ArrayList<>(this.executedQueries)) {
+            List<String> plan = this.database.getJooq().fetch("EXPLAIN " + sql).getValues(0, String.class);
+            assertThat(plan)
+                    .as("Plan of %s", sql)
+                    .filteredOn(line -> line.contains("Seq Scan on stats_"))
+                    .isEmpty();
+        }
+    }
+
+    private void seed() {
+        this.database.getJooq().transaction(config -> {
+            DSLContext context = DSL.using(config);
+            context.execute("INSERT INTO stats_game (channel_id, channel_name, end_time, game_mode, game_type, guild_id, "
+                            + "guild_name, start_time, player_size) "
+                            + "SELECT g % 5000, ?, g + 1000, 'CLASSIC', 'POPCORN', g % ? + 1, ?, g, 3 + g % 15 "
+                            + "FROM generate_series(1, ?) g",
+                    SEED_NAME, SEED_GUILDS, SEED_NAME, SEED_GAMES);
+            context.execute("INSERT INTO stats_team (alignment, is_winner, name, game_id, team_size) "
+                    + "SELECT t.alignment, (game_id + t.n) % 2 = 0, t.alignment, game_id, 3 "
+                    + "FROM stats_game, (VALUES (0, 'WOLF'), (1, 'VILLAGE')) AS t (n, alignment) "
+                    + "WHERE channel_name = ?", SEED_NAME);
+            context.execute("INSERT INTO stats_player (nickname, role, total_postlength, total_posts, user_id, team_id, "
+                            + "alignment) "
+                            + "SELECT ?, 'VANILLA', 100, 10, (team_id * 7 + n) % ?, team_id, alignment "
+                            + "FROM stats_team JOIN stats_game USING (game_id), generate_series(1, 3) n "
+                            + "WHERE channel_name = ?",
+                    SEED_NAME, SEED_USERS, SEED_NAME);
+            context.execute("INSERT INTO stats_action (action_type, actor, cycle, sequence, target, happened, submitted, "
+                            + "game_id, phase) "
+                            + "SELECT CASE WHEN n % 5 = 0 THEN 'SHOOT' ELSE 'VOTELYNCH' END, (game_id * 13 + n) % ?, "
+                            + "n / 3, n, (game_id * 17 + n) % ?, start_time + n, start_time + n, game_id, 'DAY' "
+                            + "FROM stats_game, generate_series(1, 10) n "
+                            + "WHERE channel_name = ?",
+                    SEED_USERS, SEED_USERS, SEED_NAME);
+            context.execute("ANALYZE stats_game, stats_team, stats_player, stats_action");
+        });
+
+        this.gameId = this.database.getJooq()
+                .fetchOne("SELECT min(game_id) FROM stats_game WHERE channel_name = ?", SEED_NAME)
+                .get(0, Long.class);
+    }
+
+    private void unseed() {
+        this.database.getJooq().transaction(config -> {
+            DSLContext context = DSL.using(config);
+            String seededGames = "SELECT game_id FROM stats_game WHERE channel_name = ?";
+            context.execute("DELETE FROM stats_action WHERE game_id IN (" + seededGames + ")", SEED_NAME);
+            context.execute("DELETE FROM stats_player WHERE team_id IN (SELECT team_id FROM stats_team "
+                    + "WHERE game_id IN (" + seededGames + "))", SEED_NAME);
+            context.execute("DELETE FROM stats_team WHERE game_id IN (" + seededGames + ")", SEED_NAME);
+            context.execute("DELETE FROM stats_game WHERE channel_name = ?", SEED_NAME);
+            context.execute("ANALYZE stats_game, stats_team, stats_player, stats_action");
+        });
+    }
+}
@@ -27,8 +27,13 @@
 import space.npstr.wolfia.game.definitions.Phase;
 import space.npstr.wolfia.game.definitions.Roles;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static space.npstr.wolfia.TestUtil.uniqueLong;
@@ -119,6 +124,60 @@ void insertGameStats_fetchGameStats_shouldBeEqualAndHaveGeneratedIds() {
         assertThat(actions).filteredOnAssertions(isAction(shot, gameId)).hasSize(1);
     }
 
+    @Test
+    void insertGameStats_manyPlayersAndActions_generatedIdsShouldMatchFetchedIds() {
+        GameStats gameStats = new GameStats(uniqueLong(), "Foo", uniqueLong(), "Bar",
+                Games.MAFIA, GameInfo.GameMode.LITE, 9);
+        gameStats.setEndTime(System.currentTimeMillis());
+
+        TeamStats wolves = new TeamStats(gameStats, Alignments.WOLF, "Wolves", 3);
+        TeamStats village = new TeamStats(gameStats, Alignments.VILLAGE, "Village", 6);
+        gameStats.setTeams(Set.of(wolves, village));
+
+        Set<PlayerStats> wolfPlayers = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            wolfPlayers.add(new PlayerStats(wolves, uniqueLong(), "Wolf " + i, Alignments.WOLF, Roles.VANILLA));
+        }
+        wolves.setPlayers(wolfPlayers);
+        Set<PlayerStats> villagePlayers = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            villagePlayers.add(new PlayerStats(village, uniqueLong(), "Villager " + i, Alignments.VILLAGE, Roles.VANILLA));
+        }
+        village.setPlayers(villagePlayers);
+
+        List<PlayerStats> players = new ArrayList<>(wolfPlayers);
+        players.addAll(villagePlayers);
+        for (int i = 0; i < 200; i++) {
+            long now = System.currentTimeMillis();
+            gameStats.addAction(new ActionStats(gameStats, i, now, now, i / 10, Phase.DAY,
+                    players.get(i % players.size()).getUserId(), Actions.VOTELYNCH,
+                    players.get((i + 1) % players.size()).getUserId(), "Vote " + i));
+        }
+
+        long gameId = this.repository.insertGameStats(gameStats)
+                .toCompletableFuture().join().getGameId().orElseThrow();
+
+        GameStats fetched = this.repository.findGameStats(gameId).toCompletableFuture().join().orElseThrow();
+
+        Map<Long, Long> playerIds = players.stream()
+                .collect(Collectors.toMap(PlayerStats::getUserId, player -> player.getPlayerId().orElseThrow()));
+        Map<Integer, Long> actionIds = gameStats.getActions().stream()
+                .collect(Collectors.toMap(ActionStats::getOrder, action -> action.getActionId().orElseThrow()));
+
+        for (TeamStats team : fetched.getStartingTeams()) {
+            TeamStats inserted = team.getAlignment() == Alignments.WOLF ? wolves : village;
+            assertThat(team.getTeamId()).isEqualTo(inserted.getTeamId());
+            for (PlayerStats player : team.getPlayers()) {
+                assertThat(player.getPlayerId()).hasValue(playerIds.get(player.getUserId()));
+            }
+        }
+        assertThat(fetched.getActions()).hasSize(200);
+        for (ActionStats action : fetched.getActions()) {
+            assertThat(action.getActionId()).hasValue(actionIds.get(action.getOrder()));
+            assertThat(action.getAdditionalInfo()).isEqualTo("Vote " + action.getOrder());
+        }
+    }
+
     private Consumer<TeamStats> isTeam(TeamStats teamStats, long gameId) {
         return actual -> {
             assertThat(actual.getTeamId()).isPresent();
@@ -27,6 +27,7 @@
 import space.npstr.wolfia.game.definitions.Roles;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static space.npstr.wolfia.TestUtil.uniqueLong;
 
 class StatsServiceTest extends ApplicationTest {
@@ -34,6 +35,9 @@ class StatsServiceTest extends ApplicationTest {
     @Autowired
     private StatsRepository statsRepository;
 
+    @Autowired
+    private GameStatsSpool gameStatsSpool;
+
     @Test
     void whenAnonymize_playerNameIsAnonymized() {
         GameStats gameStats = new GameStats(uniqueLong(), "Foo", uniqueLong(), "Bar", Games.POPCORN, GameInfo.GameMode.WILD, 1);
@@ -43,6 +47,7 @@ void whenAnonymize_playerNameIsAnonymized() {
         village.addPlayer(playerStats);
         gameStats.setTeams(List.of(village));
         gameStats = statsService.recordGameStats(gameStats);
+        await().until(() -> gameStatsSpool.getPendingCount() == 0);
 
         PlayerStats player = gameStats.getStartingTeams().stream().findAny().orElseThrow()
                 .getPlayers().stream().findAny().orElseThrow();
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.message.react.GenericMessageReactionEvent;
+import org.junit.jupiter.api.Test;
+import space.npstr.wolfia.game.tools.ExceptionLoggingExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class ReactionRouterTest {
+
+    private final ReactionRouter router = new ReactionRouter(mock(ExceptionLoggingExecutor.class));
+
+    @Test
+    void whenReactionOnRoutedMessage_handlerIsCalled() {
+        long messageId = uniqueLong();
+        List<GenericMessageReactionEvent> received = new ArrayList<>();
+        this.router.route(messageId, member -> true, received::add, 60_000, () -> {});
+
+        GenericMessageReactionEvent event = reactionOn(messageId);
+        this.router.onGenericMessageReaction(event);
+        this.router.onGenericMessageReaction(reactionOn(uniqueLong()));
+
+        assertThat(received).containsExactly(event);
+    }
+
+    @Test
+    void whenMemberFilteredOut_handlerIsNotCalled() {
+        long messageId = uniqueLong();
+        List<GenericMessageReactionEvent> received = new ArrayList<>();
+        this.router.route(messageId, member -> false, received::add, 60_000, () -> {});
+
+        this.router.onGenericMessageReaction(reactionOn(messageId));
+
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void whenTtlPassed_routeIsRemovedAndExpiryCalledOnce() {
+        long messageId = uniqueLong();
+        List<GenericMessageReactionEvent> received = new ArrayList<>();
+        AtomicInteger expired = new AtomicInteger(0);
+        this.router.route(messageId, member -> true, received::add, 60_000, expired::incrementAndGet);
+
+        this.router.sweep(System.currentTimeMillis());
+        assertThat(expired).hasValue(0);
+
+        this.router.sweep(System.currentTimeMillis() + 60_000);
+        this.router.sweep(System.currentTimeMillis() + 120_000);
+        this.router.onGenericMessageReaction(reactionOn(messageId));
+
+        assertThat(expired).hasValue(1);
+        assertThat(received).isEmpty();
+        assertThat(this.router.getRouteCount()).isZero();
+    }
+
+    @Test
+    void whenExpiredByOwner_routeIsRemovedAndExpiryCalledOnce() {
+        long messageId = uniqueLong();
+        List<GenericMessageReactionEvent> received = new ArrayList<>();
+        AtomicInteger expired = new AtomicInteger(0);
+        this.router.route(messageId, member -> true, received::add, 60_000, expired::incrementAndGet);
+
+        this.router.expire(messageId);
+        this.router.expire(messageId);
+        this.router.sweep(System.currentTimeMillis() + 120_000);
+        this.router.onGenericMessageReaction(reactionOn(messageId));
+
+        assertThat(expired).hasValue(1);
+        assertThat(received).isEmpty();
+        assertThat(this.router.getRouteCount()).isZero();
+    }
+
+    @Test
+    void whenUpdateIntervalPassed_updateIsCalled() {
+        long messageId = uniqueLong();
+        AtomicInteger updates = new AtomicInteger(0);
+        long start = System.currentTimeMillis();
+        this.router.route(messageId, member -> true, event -> {}, 60_000, () -> {}, 10_000, updates::incrementAndGet);
+
+        this.router.sweep(start + 5_000);
+        assertThat(updates).hasValue(0);
+
+        this.router.sweep(start + 11_000);
+        this.router.sweep(start + 15_000);
+        assertThat(updates).hasValue(1);
+
+        this.router.sweep(start + 25_000);
+        assertThat(updates).hasValue(2);
+    }
+
+    @Test
+    void whenExpiryThrows_otherRoutesStillExpire() {
+        AtomicInteger expired = new AtomicInteger(0);
+        this.router.route(uniqueLong(), member -> true, event -> {}, 0, () -> {
+            throw new RuntimeException("Expected in test");
+        });
+        this.router.route(uniqueLong(), member -> true, event -> {}, 0, expired::incrementAndGet);
+
+        this.router.sweep(System.currentTimeMillis() + 1);
+
+        assertThat(expired).hasValue(1);
+        assertThat(this.router.getRouteCount()).isZero();
+    }
+
+    private GenericMessageReactionEvent reactionOn(long messageId) {
+        GenericMessageReactionEvent event = mock(GenericMessageReactionEvent.class);
+        when(event.getMessageIdLong()).thenReturn(messageId);
+        when(event.getMember()).thenReturn(mock(Member.class));
+        return event;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.game;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import space.npstr.wolfia.game.definitions.Alignments;
+import space.npstr.wolfia.game.definitions.Roles;
+import space.npstr.wolfia.game.exceptions.IllegalGameStateException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static space.npstr.wolfia.TestUtil.uniqueLong;
+
+class PlayerIndexTest {
+
+    private final long channelId = uniqueLong();
+    private final long guildId = uniqueLong();
+
+    @Test
+    void whenLookingUpPlayer_findIt() {
+        Player villager = player(Alignments.VILLAGE, 1);
+        Player wolf = player(Alignments.WOLF, 2);
+        var index = new PlayerIndex();
+
+        index.reset(List.of(villager, wolf));
+
+        assertThat(index.get(villager.userId)).isSameAs(villager);
+        assertThat(index.get(wolf.userId)).isSameAs(wolf);
+        assertThat(index.get(uniqueLong())).isNull();
+    }
+
+    @Test
+    void viewsAreOrderedByNumber() {
+        Player first = player(Alignments.VILLAGE, 1);
+        Player second = player(Alignments.WOLF, 2);
+        Player third = player(Alignments.VILLAGE, 3);
+        var index = new PlayerIndex();
+
+        index.reset(List.of(third, first, second));
+
+        assertThat(index.views().livingPlayers).containsExactly(first, second, third);
+        assertThat(index.views().livingVillage).containsExactly(first, third);
+        assertThat(index.views().livingWolves).containsExactly(second);
+    }
+
+    @Test
+    void whenPlayerDies_viewsAreUpdated() throws IllegalGameStateException {
+        Player villager = player(Alignments.VILLAGE, 1);
+        Player wolf = player(Alignments.WOLF, 2);
+        var index = new PlayerIndex();
+        index.reset(List.of(villager, wolf));
+        PlayerIndex.Views before = index.views();
+
+        villager.kill();
+
+        assertThat(index.views().livingPlayers).containsExactly(wolf);
+        assertThat(index.views().livingVillage).isEmpty();
+        assertThat(index.views().livingVillageIds).isEmpty();
+        assertThat(index.views().villagers).containsExactly(villager);
+        assertThat(before.livingPlayers).containsExactly(villager, wolf);
+    }
+
+    @Test
+    void whenPlayerDiesWhileViewsAreBuilt_thoseViewsAreNotReused() {
+        Player villager = player(Alignments.VILLAGE, 1);
+        //stands in for another thread building the views while the villager dies
+        Player wolf = new Player(uniqueLong(), this.channelId, this.guildId, Alignments.WOLF, Roles.VANILLA, 2) {
+            @Override
+            public boolean isDead() {
+                if (!villager.isDead()) {
+                    try {
+                        villager.kill();
+                    } catch (IllegalGameStateException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                return super.isDead();
+            }
+        };
+        var index = new PlayerIndex();
+        index.reset(List.of(villager, wolf));
+
+        PlayerIndex.Views builtDuringDeath = index.views();
+
+        assertThat(builtDuringDeath.livingPlayers).containsExactly(villager, wolf);
+        assertThat(index.views().livingPlayers).containsExactly(wolf);
+    }
+
+    @Test
+    void whenNobodyDies_viewsAreReused() {
+        var index = new PlayerIndex();
+        index.reset(List.of(player(Alignments.VILLAGE, 1), player(Alignments.WOLF, 2)));
+
+        assertThat(index.views()).isSameAs(index.views());
+    }
+
+    @Test
+    void viewsAreImmutable() {
+        var index = new PlayerIndex();
+        Player villager = player(Alignments.VILLAGE, 1);
+        index.reset(List.of(villager));
+
+        assertThatThrownBy(() -> index.views().livingPlayerIds.remove(villager.userId))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private Player player(Alignments alignment, int number) {
+        return new Player(uniqueLong(), this.channelId, this.guildId, alignment, Roles.VANILLA, number);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.game.mafia;
+
+import org.junit.jupiter.api.Test;
+import space.npstr.wolfia.game.definitions.Phase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MafiaResumeTest {
+
+    @Test
+    void whenHibernatedBeforeFirstDay_startFirstDay() {
+        assertThat(Mafia.resumePoint(0, Phase.NIGHT, false)).isEqualTo(Mafia.ResumePoint.BEFORE_FIRST_DAY);
+    }
+
+    @Test
+    void whenHibernatedDuringDay_continueDay() {
+        assertThat(Mafia.resumePoint(2, Phase.DAY, false)).isEqualTo(Mafia.ResumePoint.DAY);
+    }
+
+    @Test
+    void whenHibernatedDuringNight_continueNight() {
+        assertThat(Mafia.resumePoint(2, Phase.NIGHT, false)).isEqualTo(Mafia.ResumePoint.NIGHT);
+    }
+
+    @Test
+    void whenHibernatedAfterNightEnded_onlyStartNextDay() {
+        assertThat(Mafia.resumePoint(2, Phase.NIGHT, true)).isEqualTo(Mafia.ResumePoint.BEFORE_NEXT_DAY);
+    }
+}
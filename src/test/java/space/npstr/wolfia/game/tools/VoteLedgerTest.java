@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.game.tools;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VoteLedgerTest {
+
+    @Test
+    void whenVoting_talliesAreUpdated() {
+        var ledger = new VoteLedger<String, String>();
+
+        ledger.vote("alice", "carol");
+        ledger.vote("bob", "carol");
+
+        assertThat(ledger.votesFor("carol")).isEqualTo(2);
+        assertThat(ledger.votersOf("carol")).containsExactly("alice", "bob");
+        assertThat(ledger.mostVotes()).isEqualTo(2);
+        assertThat(ledger.size()).isEqualTo(2);
+    }
+
+    @Test
+    void whenVotingAgain_previousVoteIsReplaced() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "carol");
+
+        String previous = ledger.vote("alice", "dave");
+
+        assertThat(previous).isEqualTo("carol");
+        assertThat(ledger.votesFor("carol")).isZero();
+        assertThat(ledger.votesFor("dave")).isEqualTo(1);
+        assertThat(ledger.getVote("alice")).isEqualTo("dave");
+    }
+
+    @Test
+    void whenUnvoting_mostVotesGoesDown() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "carol");
+        ledger.vote("bob", "carol");
+        ledger.vote("carol", "dave");
+
+        ledger.unvote("bob");
+
+        assertThat(ledger.mostVotes()).isEqualTo(1);
+        assertThat(ledger.hasVoted("bob")).isFalse();
+
+        ledger.unvote("alice");
+        ledger.unvote("carol");
+
+        assertThat(ledger.mostVotes()).isZero();
+    }
+
+    @Test
+    void whenUnvotingWithoutVote_nothingHappens() {
+        var ledger = new VoteLedger<String, String>();
+
+        assertThat(ledger.unvote("alice")).isNull();
+        assertThat(ledger.size()).isZero();
+    }
+
+    @Test
+    void whenTied_mostVotedContainsAllInOrderOfFirstVote() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "dave");
+        ledger.vote("bob", "carol");
+        ledger.vote("carol", "alice");
+        ledger.vote("dave", "carol");
+        ledger.vote("erin", "dave");
+
+        assertThat(ledger.mostVoted(List.of("alice", "bob", "carol", "dave", "erin")))
+                .containsExactly("dave", "carol");
+    }
+
+    @Test
+    void whenNobodyVoted_mostVotedContainsAllCandidates() {
+        var ledger = new VoteLedger<String, String>();
+
+        assertThat(ledger.mostVoted(List.of("alice", "bob")))
+                .containsExactlyInAnyOrder("alice", "bob");
+    }
+
+    @Test
+    void mostVoted_ignoresVotesForNonCandidates() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "carol");
+        ledger.vote("bob", "carol");
+        ledger.vote("carol", "dave");
+
+        assertThat(ledger.mostVoted(List.of("alice", "dave")))
+                .containsExactly("dave");
+    }
+
+    @Test
+    void nonVoters_areThePossibleVotersNotVoting() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "carol");
+
+        assertThat(ledger.nonVoters(List.of("alice", "bob", "carol")))
+                .containsExactly("bob", "carol");
+    }
+
+    @Test
+    void votesInvolving_containsOwnVoteAndVotesOnParticipant() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "bob");
+        ledger.vote("bob", "carol");
+        ledger.vote("carol", "bob");
+        ledger.vote("dave", "carol");
+
+        assertThat(ledger.votesInvolving("bob"))
+                .containsExactlyInAnyOrder("bob", "alice", "carol");
+    }
+
+    @Test
+    void whenVotesAreCastAgainInOrder_ledgerIsTheSame() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "dave");
+        ledger.vote("bob", "carol");
+        ledger.vote("carol", "dave");
+
+        var copy = new VoteLedger<String, String>();
+        ledger.getVotes().forEach(copy::vote);
+
+        assertThat(copy.getVotes()).containsExactlyEntriesOf(ledger.getVotes());
+        assertThat(copy.mostVoted(List.of("carol", "dave"))).containsExactly("dave");
+    }
+
+    @Test
+    void whenVotesChange_versionChanges() {
+        var ledger = new VoteLedger<String, String>();
+        long initial = ledger.getVersion();
+
+        ledger.vote("alice", "bob");
+        long afterVote = ledger.getVersion();
+        ledger.unvote("alice");
+        long afterUnvote = ledger.getVersion();
+
+        assertThat(afterVote).isNotEqualTo(initial);
+        assertThat(afterUnvote).isNotEqualTo(afterVote);
+    }
+
+    @Test
+    void whenUnvotingWithoutVote_versionStaysTheSame() {
+        var ledger = new VoteLedger<String, String>();
+        long initial = ledger.getVersion();
+
+        ledger.unvote("alice");
+
+        assertThat(ledger.getVersion()).isEqualTo(initial);
+    }
+
+    @Test
+    void whenCleared_ledgerIsEmpty() {
+        var ledger = new VoteLedger<String, String>();
+        ledger.vote("alice", "bob");
+
+        ledger.clear();
+
+        assertThat(ledger.size()).isZero();
+        assertThat(ledger.mostVotes()).isZero();
+        assertThat(ledger.votesFor("bob")).isZero();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.system;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DiscordEventDispatcherTest {
+
+    private AnnotationConfigApplicationContext context;
+    private DiscordEventDispatcher dispatcher;
+    private Listeners listeners;
+
+    @BeforeEach
+    void setUp() {
+        this.context = new AnnotationConfigApplicationContext(DiscordEventDispatcher.class, Listeners.class);
+        this.dispatcher = this.context.getBean(DiscordEventDispatcher.class);
+        this.listeners = this.context.getBean(Listeners.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.context.close();
+    }
+
+    @Test
+    void whenEventDispatched_listenersOfItsClassAndSuperclassesAreCalled() {
+        GuildReadyEvent event = mock(GuildReadyEvent.class);
+
+        this.dispatcher.onEvent(event);
+
+        assertThat(this.listeners.calls).containsExactly("first", "guildReady", "genericGuild");
+        assertThat(this.listeners.received).containsOnly(event);
+    }
+
+    @Test
+    void whenNoSpecificListener_onlyGenericListenerIsCalled() {
+        this.dispatcher.onEvent(mock(ReconnectedEvent.class));
+
+        assertThat(this.listeners.calls).containsExactly("first");
+    }
+
+    @Test
+    void whenListenerThrows_otherListenersAreStillCalled() {
+        this.dispatcher.onEvent(mock(GuildJoinEvent.class));
+
+        assertThat(this.listeners.calls).containsExactly("first", "guildJoin", "genericGuild");
+    }
+
+    @Test
+    void whenDispatchedRepeatedly_listenersAreCalledEachTime() {
+        this.dispatcher.onEvent(mock(GuildReadyEvent.class));
+        this.dispatcher.onEvent(mock(GuildReadyEvent.class));
+
+        assertThat(this.listeners.calls).containsExactly(
+                "first", "guildReady", "genericGuild",
+                "first", "guildReady", "genericGuild"
+        );
+    }
+
+    @Test
+    void whenEventIsNotFromDiscord_springListenersStillReceiveIt() {
+        this.context.publishEvent("not from discord");
+
+        assertThat(this.listeners.calls).containsExactly("string");
+    }
+
+    static class Listeners {
+
+        final List<String> calls = new ArrayList<>();
+        final List<GenericEvent> received = new ArrayList<>();
+
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        @EventListener
+        public void onAny(GenericEvent event) {
+            this.calls.add("first");
+        }
+
+        @EventListener
+        public void onGuildReady(GuildReadyEvent event) {
+            this.calls.add("guildReady");
+            this.received.add(event);
+        }
+
+        @EventListener
+        public void onGuildJoin(GuildJoinEvent event) {
+            this.calls.add("guildJoin");
+            throw new RuntimeException("Expected in test");
+        }
+
+        @Order(Ordered.LOWEST_PRECEDENCE)
+        @EventListener
+        public void onGenericGuild(GenericGuildEvent event) {
+            this.calls.add("genericGuild");
+        }
+
+        @EventListener
+        public void onString(String event) {
+            this.calls.add("string");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016-2020 the original author or authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package space.npstr.wolfia.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+class EventWaiterTest {
+
+    private final ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(4);
+    private final EventWaiter eventWaiter = new EventWaiter(this.pool);
+
+    @AfterEach
+    void tearDown() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    void whenMatchingEvent_actionIsCalledOnce() {
+        AtomicInteger actions = new AtomicInteger(0);
+        AtomicInteger timeouts = new AtomicInteger(0);
+        this.eventWaiter.waitForEvent(GenericGuildEvent.class, event -> true, event -> actions.incrementAndGet(),
+                Duration.ofMinutes(1), timeouts::incrementAndGet);
+
+        this.eventWaiter.onEvent(mock(ReconnectedEvent.class));
+        this.eventWaiter.onEvent(mock(GuildReadyEvent.class));
+        this.eventWaiter.onEvent(mock(GuildReadyEvent.class));
+
+        await().until(() -> actions.get() == 1);
+        assertThat(timeouts).hasValue(0);
+    }
+
+    @Test
+    void whenConditionDoesNotMatch_actionIsNotCalled() {
+        AtomicInteger actions = new AtomicInteger(0);
+        this.eventWaiter.waitForEvent(GuildReadyEvent.class, event -> false, event -> actions.incrementAndGet(),
+                Duration.ofMinutes(1), () -> {});
+
+        this.eventWaiter.onEvent(mock(GuildReadyEvent.class));
+
+        assertThat(actions).hasValue(0);
+    }
+
+    @Test
+    void whenTimedOut_timeoutActionIsCalledAndEventsAreIgnored() {
+        AtomicInteger actions = new AtomicInteger(0);
+        CountDownLatch timedOut = new CountDownLatch(1);
+        this.eventWaiter.waitForEvent(GuildReadyEvent.class, event -> true, event -> actions.incrementAndGet(),
+                Duration.ofMillis(10), timedOut::countDown);
+
+        await().until(() -> timedOut.getCount() == 0);
+        this.eventWaiter.onEvent(mock(GuildReadyEvent.class));
+
+        assertThat(actions).hasValue(0);
+    }
+
+    @Test
+    void whenCancelled_neitherActionNorTimeoutIsCalled() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger(0);
+        EventWaiter.WaitingEvent<GuildReadyEvent> waitingEvent = this.eventWaiter.waitForEvent(GuildReadyEvent.class,
+                event -> true, event -> calls.incrementAndGet(), Duration.ofMillis(10), calls::incrementAndGet);
+
+        waitingEvent.cancel();
+        this.eventWaiter.onEvent(mock(GuildReadyEvent.class));
+
+        Thread.sleep(50);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void whenManyWaitersAndEventsConcurrently_eachWaiterFinishesExactlyOnce() throws InterruptedException {
+        int waiters = 1000;
+        AtomicInteger actions = new AtomicInteger(0);
+        AtomicInteger timeouts = new AtomicInteger(0);
+        List<GenericEvent> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(mock(GuildReadyEvent.class));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < waiters; i++) {
+            threads.execute(() -> this.eventWaiter.waitForEvent(GuildReadyEvent.class, event -> true,
+                    event -> actions.incrementAndGet(), Duration.ofMillis(500), timeouts::incrementAndGet));
+            threads.execute(() -> events.forEach(this.eventWaiter::onEvent));
+        }
+        threads.shutdown();
+        assertThat(threads.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        await().until(() -> actions.get() + timeouts.get() == waiters);
+        Thread.sleep(600);
+        assertThat(actions.get() + timeouts.get()).isEqualTo(waiters);
+    }
+}